@@ -0,0 +1,68 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.benchmark;
+
+import java.util.Map;
+
+import se.uu.ub.cora.indexmessenger.parser.ReusableMessageParser;
+
+/**
+ * HeaderMessageParser reads record type, record id and modification type from the PID and ACTION
+ * headers of Fedora messages, the way the parsers used with the messenger do. An id like
+ * alvin-place:1 has the record type place.
+ */
+public class HeaderMessageParser implements ReusableMessageParser {
+	private String recordType;
+	private String recordId;
+	private String modificationType;
+
+	@Override
+	public void parseHeadersAndMessage(Map<String, String> headers, String message) {
+		recordId = headers.get("PID");
+		modificationType = headers.get("ACTION").toLowerCase();
+		recordType = recordId.substring(recordId.indexOf('-') + 1, recordId.indexOf(':'));
+	}
+
+	@Override
+	public String getRecordId() {
+		return recordId;
+	}
+
+	@Override
+	public String getRecordType() {
+		return recordType;
+	}
+
+	@Override
+	public boolean shouldWorkOrderBeCreatedForMessage() {
+		return recordId != null;
+	}
+
+	@Override
+	public String getModificationType() {
+		return modificationType;
+	}
+
+	@Override
+	public void reset() {
+		recordType = null;
+		recordId = null;
+		modificationType = null;
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import se.uu.ub.cora.clientdata.ClientDataGroup;
+
+/**
+ * LatencyCoraClient is a {@link NoOpCoraClient} that takes latencyMs to create a record, as a
+ * call to Cora would, and counts the records created.
+ */
+public class LatencyCoraClient extends NoOpCoraClient {
+	private final long latencyNanos;
+	private final AtomicLong noOfCreated = new AtomicLong();
+
+	public LatencyCoraClient(long latencyMs) {
+		latencyNanos = TimeUnit.MILLISECONDS.toNanos(latencyMs);
+	}
+
+	@Override
+	public String create(String recordType, String json) {
+		return waitForLatencyAndCountCreated();
+	}
+
+	@Override
+	public String create(String recordType, ClientDataGroup dataGroup) {
+		return waitForLatencyAndCountCreated();
+	}
+
+	private String waitForLatencyAndCountCreated() {
+		LockSupport.parkNanos(latencyNanos);
+		noOfCreated.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * waitForNoOfCreated waits until at least expected records have been created in total.
+	 */
+	public void waitForNoOfCreated(long expected) {
+		while (noOfCreated.get() < expected) {
+			LockSupport.parkNanos(100_000);
+		}
+	}
+}
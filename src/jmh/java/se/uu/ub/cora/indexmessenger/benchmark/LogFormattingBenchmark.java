@@ -0,0 +1,88 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.benchmark;
+
+import java.text.MessageFormat;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import se.uu.ub.cora.indexmessenger.workorder.SuccessLogSampling;
+import se.uu.ub.cora.indexmessenger.workorder.WorkOrder;
+import se.uu.ub.cora.logger.Logger;
+
+/**
+ * LogFormattingBenchmark compares the ways a success message can be created: with MessageFormat as
+ * the messenger used to, with concatenation, and through {@link SuccessLogSampling} when logging
+ * all or no successes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LogFormattingBenchmark {
+	private static final String SUCCESS_MESSAGE = "Index workOrder created";
+	private static final String SUMMARY_MESSAGE = "Index workOrders created";
+	private WorkOrder workOrder;
+	private Logger logger;
+	private SuccessLogSampling loggingAll;
+	private SuccessLogSampling loggingNone;
+
+	@Setup
+	public void setUp() {
+		workOrder = WorkOrder.usingRecordTypeRecordIdAndModificationType("place",
+				"alvin-place:1", "update");
+		logger = new NoOpLoggerFactory().factorForClass(LogFormattingBenchmark.class);
+		loggingAll = SuccessLogSampling.loggingAll();
+		loggingNone = SuccessLogSampling.loggingNone();
+	}
+
+	@Benchmark
+	public String formatUsingMessageFormat() {
+		return MessageFormat.format(SUCCESS_MESSAGE + " for type: {0} and id: {1}",
+				workOrder.getRecordType(), workOrder.getRecordId());
+	}
+
+	@Benchmark
+	public String formatUsingConcatenation() {
+		return SUCCESS_MESSAGE + " for type: " + workOrder.getRecordType() + " and id: "
+				+ workOrder.getRecordId();
+	}
+
+	@Benchmark
+	public void logSuccessLoggingAll() {
+		loggingAll.logSuccess(logger, workOrder, SUCCESS_MESSAGE, SUMMARY_MESSAGE);
+	}
+
+	@Benchmark
+	public void logSuccessLoggingNone() {
+		loggingNone.logSuccess(logger, workOrder, SUCCESS_MESSAGE, SUMMARY_MESSAGE);
+	}
+}
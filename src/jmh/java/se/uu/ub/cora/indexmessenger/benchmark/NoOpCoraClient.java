@@ -0,0 +1,106 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.benchmark;
+
+import java.util.List;
+
+import se.uu.ub.cora.clientdata.ClientDataGroup;
+import se.uu.ub.cora.clientdata.ClientDataRecord;
+import se.uu.ub.cora.javaclient.cora.CoraClient;
+
+/**
+ * NoOpCoraClient does nothing, so that benchmarks measure the messenger and not Cora.
+ */
+public class NoOpCoraClient implements CoraClient {
+
+	@Override
+	public String create(String recordType, String json) {
+		return null;
+	}
+
+	@Override
+	public String create(String recordType, ClientDataGroup dataGroup) {
+		return null;
+	}
+
+	@Override
+	public String read(String recordType, String recordId) {
+		return null;
+	}
+
+	@Override
+	public String update(String recordType, String recordId, String json) {
+		return null;
+	}
+
+	@Override
+	public String delete(String recordType, String recordId) {
+		return null;
+	}
+
+	@Override
+	public String readList(String recordType) {
+		return null;
+	}
+
+	@Override
+	public String readIncomingLinks(String recordType, String recordId) {
+		return null;
+	}
+
+	@Override
+	public ClientDataRecord readAsDataRecord(String recordType, String recordId) {
+		return null;
+	}
+
+	@Override
+	public String update(String recordType, String recordId, ClientDataGroup dataGroup) {
+		return null;
+	}
+
+	@Override
+	public List<ClientDataRecord> readListAsDataRecords(String recordType) {
+		return null;
+	}
+
+	@Override
+	public String indexData(ClientDataRecord clientDataRecord) {
+		return null;
+	}
+
+	@Override
+	public String indexData(String recordType, String recordId) {
+		return null;
+	}
+
+	@Override
+	public String removeFromIndex(String recordType, String recordId) {
+		return null;
+	}
+
+	@Override
+	public String indexDataWithoutExplicitCommit(String recordType, String recordId) {
+		return null;
+	}
+
+	@Override
+	public String indexRecordsOfType(String recordType, String filterAsJson) {
+		return null;
+	}
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.benchmark;
+
+import java.util.function.Supplier;
+
+import se.uu.ub.cora.logger.Logger;
+import se.uu.ub.cora.logger.LoggerFactory;
+
+/**
+ * NoOpLoggerFactory factors loggers that drop all messages, so that benchmarks measure the cost of
+ * creating log messages and not of writing them.
+ */
+public class NoOpLoggerFactory implements LoggerFactory {
+	private static final Logger NO_OP_LOGGER = new NoOpLogger();
+
+	@Override
+	public Logger factorForClass(Class<? extends Object> javaClass) {
+		return NO_OP_LOGGER;
+	}
+
+	private static class NoOpLogger implements Logger {
+
+		@Override
+		public void logFatalUsingMessage(String message) {
+			// drop message
+		}
+
+		@Override
+		public void logFatalUsingMessageAndException(String message, Exception exception) {
+			// drop message
+		}
+
+		@Override
+		public void logErrorUsingMessage(String message) {
+			// drop message
+		}
+
+		@Override
+		public void logErrorUsingMessageAndException(String message, Exception exception) {
+			// drop message
+		}
+
+		@Override
+		public void logWarnUsingMessage(String message) {
+			// drop message
+		}
+
+		@Override
+		public void logWarnUsingMessageAndException(String message, Exception exception) {
+			// drop message
+		}
+
+		@Override
+		public void logInfoUsingMessage(String message) {
+			// drop message
+		}
+
+		@Override
+		public void logDebugUsingMessage(String message) {
+			// drop message
+		}
+
+		@Override
+		public void logDebugUsingMessageSupplier(Supplier<String> messageSupplier) {
+			// drop message
+		}
+
+		@Override
+		public void logTraceUsingMessage(String message) {
+			// drop message
+		}
+
+		@Override
+		public void logTraceUsingMessageSupplier(Supplier<String> messageSupplier) {
+			// drop message
+		}
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import se.uu.ub.cora.indexmessenger.IndexMessageReceiver;
+import se.uu.ub.cora.indexmessenger.IndexMessengerSettings;
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.indexmessenger.parser.ThreadConfinedMessageParserFactory;
+import se.uu.ub.cora.indexmessenger.workorder.IndexModeFactory;
+import se.uu.ub.cora.indexmessenger.workorder.JsonTemplateIndexModeFactory;
+import se.uu.ub.cora.indexmessenger.workorder.SuccessLogSampling;
+import se.uu.ub.cora.indexmessenger.workorder.WorkOrderIndexModeFactory;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+/**
+ * ReceiveMessageBenchmark measures {@link IndexMessageReceiver#receiveMessage(Map, String)} end to
+ * end, from parsing to creating the work order, using a {@link NoOpCoraClient}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReceiveMessageBenchmark {
+	@Param({ "workOrder", "jsonTemplate" })
+	public String indexMode;
+	@Param({ "all", "none" })
+	public String successLogging;
+
+	private IndexMessageReceiver receiver;
+	private Map<String, String> headers;
+
+	@Setup
+	public void setUp() {
+		LoggerProvider.setLoggerFactory(new NoOpLoggerFactory());
+		SuccessLogSampling successLogSampling = createSuccessLogSampling();
+		IndexMetrics indexMetrics = new IndexMetrics();
+		receiver = new IndexMessageReceiver(new NoOpCoraClient(),
+				new ThreadConfinedMessageParserFactory(HeaderMessageParser::new),
+				IndexMessengerSettings.usingDefaults()
+						.withIndexModeFactory(
+								createIndexModeFactory(successLogSampling, indexMetrics))
+						.withSuccessLogSampling(successLogSampling)
+						.withIndexMetrics(indexMetrics));
+		headers = BenchmarkMessages.createHeaders();
+	}
+
+	private SuccessLogSampling createSuccessLogSampling() {
+		if ("none".equals(successLogging)) {
+			return SuccessLogSampling.loggingNone();
+		}
+		return SuccessLogSampling.loggingAll();
+	}
+
+	private IndexModeFactory createIndexModeFactory(SuccessLogSampling successLogSampling,
+			IndexMetrics indexMetrics) {
+		if ("jsonTemplate".equals(indexMode)) {
+			return new JsonTemplateIndexModeFactory(successLogSampling, indexMetrics);
+		}
+		return new WorkOrderIndexModeFactory();
+	}
+
+	@Benchmark
+	public void receiveMessage() {
+		receiver.receiveMessage(headers, BenchmarkMessages.MESSAGE);
+	}
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import se.uu.ub.cora.indexmessenger.IndexMessageReceiver;
+import se.uu.ub.cora.indexmessenger.IndexMessengerSettings;
+import se.uu.ub.cora.indexmessenger.parser.ThreadConfinedMessageParserFactory;
+import se.uu.ub.cora.indexmessenger.workorder.SuccessLogSampling;
+import se.uu.ub.cora.indexmessenger.workorder.WorkOrder;
+import se.uu.ub.cora.indexmessenger.workorder.WorkOrderHandler;
+import se.uu.ub.cora.indexmessenger.workorder.WorkOrderJsonTemplate;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+/**
+ * WorkOrderBenchmark measures the steps of receiving a message on their own: parsing, creating a
+ * work order as a ClientDataGroup and creating it as json from {@link WorkOrderJsonTemplate}.
+ * Success logging is turned off, so that only the steps themselves are measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorkOrderBenchmark {
+	private HeaderMessageParser parser;
+	private Map<String, String> headers;
+	private WorkOrder workOrder;
+	private WorkOrderHandler dataGroupCreator;
+
+	@Setup
+	public void setUp() {
+		LoggerProvider.setLoggerFactory(new NoOpLoggerFactory());
+		parser = new HeaderMessageParser();
+		headers = BenchmarkMessages.createHeaders();
+		workOrder = WorkOrder.usingRecordTypeRecordIdAndModificationType("place",
+				"alvin-place:1", "update");
+		IndexMessageReceiver receiver = new IndexMessageReceiver(new NoOpCoraClient(),
+				new ThreadConfinedMessageParserFactory(HeaderMessageParser::new),
+				IndexMessengerSettings.usingDefaults()
+						.withSuccessLogSampling(SuccessLogSampling.loggingNone()));
+		dataGroupCreator = receiver.getIndexHandler();
+	}
+
+	@Benchmark
+	public String parseMessage() {
+		parser.reset();
+		parser.parseHeadersAndMessage(headers, BenchmarkMessages.MESSAGE);
+		return parser.getRecordType();
+	}
+
+	@Benchmark
+	public void createWorkOrderUsingClientDataGroup() {
+		dataGroupCreator.handle(workOrder);
+	}
+
+	@Benchmark
+	public String createWorkOrderJsonUsingTemplate() {
+		return WorkOrderJsonTemplate.toJson(workOrder);
+	}
+}
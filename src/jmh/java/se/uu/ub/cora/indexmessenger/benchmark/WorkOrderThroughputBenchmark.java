@@ -0,0 +1,107 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.benchmark;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import se.uu.ub.cora.indexmessenger.IndexMessageReceiver;
+import se.uu.ub.cora.indexmessenger.IndexMessengerSettings;
+import se.uu.ub.cora.indexmessenger.parser.ThreadConfinedMessageParserFactory;
+import se.uu.ub.cora.indexmessenger.workorder.SuccessLogSampling;
+import se.uu.ub.cora.indexmessenger.workorder.SynchronousWorkOrderHandlerFactory;
+import se.uu.ub.cora.indexmessenger.workorder.VirtualThreadWorkOrderHandlerFactory;
+import se.uu.ub.cora.indexmessenger.workorder.WorkOrderHandlerFactory;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+/**
+ * WorkOrderThroughputBenchmark compares how many work orders per second are created on the
+ * receiving thread and on virtual threads, using a {@link LatencyCoraClient} that takes latencyMs
+ * to create each work order. Each invocation receives MESSAGES_PER_INVOCATION messages and waits
+ * until all of them have been created in Cora, so the score is created work orders per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorkOrderThroughputBenchmark {
+	private static final int MESSAGES_PER_INVOCATION = 100;
+	@Param({ "synchronous", "virtualThreads" })
+	public String mode;
+	@Param({ "5" })
+	public long latencyMs;
+	@Param({ "50" })
+	public int maxInFlight;
+
+	private LatencyCoraClient coraClient;
+	private IndexMessageReceiver receiver;
+	private Map<String, String> headers;
+	private long noOfSent = 0;
+
+	@Setup
+	public void setUp() {
+		LoggerProvider.setLoggerFactory(new NoOpLoggerFactory());
+		coraClient = new LatencyCoraClient(latencyMs);
+		receiver = new IndexMessageReceiver(coraClient,
+				new ThreadConfinedMessageParserFactory(HeaderMessageParser::new),
+				IndexMessengerSettings.usingDefaults()
+						.withWorkOrderHandlerFactory(createWorkOrderHandlerFactory())
+						.withSuccessLogSampling(SuccessLogSampling.loggingNone()));
+		headers = BenchmarkMessages.createHeaders();
+	}
+
+	private WorkOrderHandlerFactory createWorkOrderHandlerFactory() {
+		if ("virtualThreads".equals(mode)) {
+			return new VirtualThreadWorkOrderHandlerFactory(maxInFlight);
+		}
+		return new SynchronousWorkOrderHandlerFactory();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(MESSAGES_PER_INVOCATION)
+	public void receiveMessagesAndWaitUntilCreated() {
+		for (int i = 0; i < MESSAGES_PER_INVOCATION; i++) {
+			receiver.receiveMessage(headers, BenchmarkMessages.MESSAGE);
+		}
+		noOfSent += MESSAGES_PER_INVOCATION;
+		coraClient.waitForNoOfCreated(noOfSent);
+	}
+
+	@TearDown
+	public void tearDown() throws InterruptedException {
+		receiver.stop();
+		receiver.awaitTermination(10_000);
+	}
+}
@@ -2,7 +2,11 @@ module se.uu.ub.cora.indexmessenger {
 	requires transitive se.uu.ub.cora.messaging;
 	requires transitive se.uu.ub.cora.javaclient;
 	requires transitive se.uu.ub.cora.clientdata;
+	requires java.management;
 
 	exports se.uu.ub.cora.indexmessenger;
+	exports se.uu.ub.cora.indexmessenger.coraclient;
+	exports se.uu.ub.cora.indexmessenger.metrics;
 	exports se.uu.ub.cora.indexmessenger.parser;
+	exports se.uu.ub.cora.indexmessenger.workorder;
 }
\ No newline at end of file
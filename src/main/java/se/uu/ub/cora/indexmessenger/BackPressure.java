@@ -0,0 +1,151 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.logger.Logger;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+/**
+ * BackPressure pauses consumption of messages when too much work is outstanding. As a
+ * MessageListener can not be paused, consumption is paused by holding the thread delivering
+ * messages to the {@link IndexMessageReceiver} until enough work is done.
+ * <p>
+ * Consumption is paused when the outstanding work reaches the high watermark, and resumed when it
+ * has fallen to the low watermark. If the paused thread is interrupted, consumption continues with
+ * the interrupt flag kept set, and the pause is reported as interrupted instead of resumed. Pauses,
+ * resumes and interrupted pauses are logged and recorded in the {@link IndexMetrics}.
+ */
+public final class BackPressure {
+	private static final long DEFAULT_POLL_INTERVAL_MS = 10;
+	private Logger logger = LoggerProvider.getLoggerForClass(BackPressure.class);
+	private final long highWatermark;
+	private final long lowWatermark;
+	private final long pollIntervalMs;
+	private final LongAdder noOfPauses = new LongAdder();
+	private final LongAdder noOfResumes = new LongAdder();
+	private final LongAdder noOfInterruptedPauses = new LongAdder();
+
+	public static BackPressure usingWatermarks(long highWatermark, long lowWatermark) {
+		return usingWatermarksAndPollInterval(highWatermark, lowWatermark,
+				DEFAULT_POLL_INTERVAL_MS);
+	}
+
+	public static BackPressure usingWatermarksAndPollInterval(long highWatermark,
+			long lowWatermark, long pollIntervalMs) {
+		if (lowWatermark > highWatermark) {
+			throw IndexMessageException
+					.withMessage("Low watermark can not be higher than high watermark");
+		}
+		return new BackPressure(highWatermark, lowWatermark, pollIntervalMs);
+	}
+
+	public static BackPressure none() {
+		return new BackPressure(Long.MAX_VALUE, Long.MAX_VALUE, DEFAULT_POLL_INTERVAL_MS);
+	}
+
+	private BackPressure(long highWatermark, long lowWatermark, long pollIntervalMs) {
+		this.highWatermark = highWatermark;
+		this.lowWatermark = lowWatermark;
+		this.pollIntervalMs = pollIntervalMs;
+	}
+
+	/**
+	 * pauseWhileAboveHighWatermark returns directly if the outstanding work is below the high
+	 * watermark. Otherwise it waits until the outstanding work has fallen to the low watermark, or
+	 * until the thread is interrupted, in which case it returns with the thread still interrupted.
+	 */
+	public void pauseWhileAboveHighWatermark(LongSupplier outstandingWork,
+			IndexMetrics indexMetrics) {
+		long outstanding = outstandingWork.getAsLong();
+		if (outstanding < highWatermark) {
+			return;
+		}
+		pause(outstanding, indexMetrics);
+		long pauseStart = System.nanoTime();
+		boolean reachedLowWatermark = waitForLowWatermark(outstandingWork);
+		long pausedNanos = System.nanoTime() - pauseStart;
+		if (reachedLowWatermark) {
+			resume(outstandingWork.getAsLong(), pausedNanos, indexMetrics);
+		} else {
+			reportInterrupted(outstandingWork.getAsLong(), pausedNanos, indexMetrics);
+		}
+	}
+
+	private void pause(long outstanding, IndexMetrics indexMetrics) {
+		noOfPauses.increment();
+		indexMetrics.getBackPressureMetrics().recordConsumptionPaused();
+		logger.logInfoUsingMessage("Pausing consumption, outstanding work orders: " + outstanding);
+	}
+
+	private boolean waitForLowWatermark(LongSupplier outstandingWork) {
+		while (outstandingWork.getAsLong() > lowWatermark) {
+			try {
+				Thread.sleep(pollIntervalMs);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void resume(long outstanding, long pausedNanos, IndexMetrics indexMetrics) {
+		noOfResumes.increment();
+		indexMetrics.getBackPressureMetrics().recordConsumptionResumedUsingNanos(pausedNanos);
+		logger.logInfoUsingMessage("Resuming consumption after " + pausedNanos / 1_000_000
+				+ " ms, outstanding work orders: " + outstanding);
+	}
+
+	private void reportInterrupted(long outstanding, long pausedNanos,
+			IndexMetrics indexMetrics) {
+		noOfInterruptedPauses.increment();
+		indexMetrics.getBackPressureMetrics()
+				.recordConsumptionPauseInterruptedUsingNanos(pausedNanos);
+		logger.logWarnUsingMessage("Pause interrupted after " + pausedNanos / 1_000_000
+				+ " ms, consumption continues, outstanding work orders: " + outstanding);
+	}
+
+	public long getNoOfPauses() {
+		return noOfPauses.sum();
+	}
+
+	public long getNoOfResumes() {
+		return noOfResumes.sum();
+	}
+
+	public long getNoOfInterruptedPauses() {
+		return noOfInterruptedPauses.sum();
+	}
+
+	public long getHighWatermark() {
+		return highWatermark;
+	}
+
+	public long getLowWatermark() {
+		return lowWatermark;
+	}
+
+	public long getPollIntervalMs() {
+		return pollIntervalMs;
+	}
+}
@@ -18,6 +18,8 @@
  */
 package se.uu.ub.cora.indexmessenger;
 
+import java.util.Objects;
+
 public class CoraCredentials {
 
 	public final String userId;
@@ -28,4 +30,22 @@ public class CoraCredentials {
 		this.appToken = appToken;
 	}
 
+	@Override
+	public boolean equals(Object other) {
+		if (this == other) {
+			return true;
+		}
+		if (!(other instanceof CoraCredentials)) {
+			return false;
+		}
+		CoraCredentials otherCredentials = (CoraCredentials) other;
+		return Objects.equals(userId, otherCredentials.userId)
+				&& Objects.equals(appToken, otherCredentials.appToken);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(userId, appToken);
+	}
+
 }
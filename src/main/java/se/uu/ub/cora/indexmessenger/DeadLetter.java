@@ -0,0 +1,113 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger;
+
+import java.util.Collections;
+import java.util.Map;
+
+import se.uu.ub.cora.indexmessenger.workorder.WorkOrder;
+
+/**
+ * DeadLetter holds a received message that could not be turned into a work order in Cora,
+ * together with the reason and the exception that made it fail. It is immutable so that it can
+ * safely be handed to the {@link DeadLetterPublisher} thread.
+ * <p>
+ * A dead letter for records of a type that were not indexed holds no received message, as it
+ * replaces all work orders collapsed into a burst for the type, see
+ * {@link #forRecordsOfTypeNotIndexed(String, String, Exception)}.
+ */
+public final class DeadLetter {
+	public static final String PARSE_FAILED = "parseFailed";
+	public static final String WORK_ORDER_NOT_CREATED = "workOrderNotCreated";
+	public static final String RECORDS_OF_TYPE_NOT_INDEXED = "recordsOfTypeNotIndexed";
+	private final String reason;
+	private final Map<String, String> headers;
+	private final String message;
+	private final String recordType;
+	private final String recordId;
+	private final Exception exception;
+
+	public static DeadLetter forParseFailure(Map<String, String> headers, String message,
+			Exception exception) {
+		return new DeadLetter(PARSE_FAILED, headers, message, null, null, exception);
+	}
+
+	/**
+	 * forWorkOrderNotCreated returns a dead letter for the message the workOrder was parsed from,
+	 * see {@link WorkOrder#withSourceMessage(Map, String)}.
+	 */
+	public static DeadLetter forWorkOrderNotCreated(WorkOrder workOrder, Exception exception) {
+		return new DeadLetter(WORK_ORDER_NOT_CREATED, workOrder.getSourceHeaders(),
+				workOrder.getSourceMessage(), workOrder.getRecordType(), workOrder.getRecordId(),
+				exception);
+	}
+
+	/**
+	 * forRecordsOfTypeNotIndexed returns a dead letter for an indexRecordsOfType call that was
+	 * given up for the recordType, with the filterAsJson of the call as message, so that the call
+	 * can be made again from the dead letter.
+	 */
+	public static DeadLetter forRecordsOfTypeNotIndexed(String recordType, String filterAsJson,
+			Exception exception) {
+		return new DeadLetter(RECORDS_OF_TYPE_NOT_INDEXED, null, filterAsJson, recordType, null,
+				exception);
+	}
+
+	private DeadLetter(String reason, Map<String, String> headers, String message,
+			String recordType, String recordId, Exception exception) {
+		this.reason = reason;
+		this.headers = headers == null ? Collections.emptyMap() : headers;
+		this.message = message == null ? "" : message;
+		this.recordType = recordType;
+		this.recordId = recordId;
+		this.exception = exception;
+	}
+
+	public String getReason() {
+		return reason;
+	}
+
+	public Map<String, String> getHeaders() {
+		return headers;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	/**
+	 * getRecordType returns the type of the record the message was about, or null if the message
+	 * could not be parsed.
+	 */
+	public String getRecordType() {
+		return recordType;
+	}
+
+	/**
+	 * getRecordId returns the id of the record the message was about, or null if the message
+	 * could not be parsed or was about all records of a type.
+	 */
+	public String getRecordId() {
+		return recordId;
+	}
+
+	public Exception getException() {
+		return exception;
+	}
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger;
+
+import java.text.MessageFormat;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.logger.Logger;
+import se.uu.ub.cora.logger.LoggerProvider;
+import se.uu.ub.cora.messaging.MessageRoutingInfo;
+import se.uu.ub.cora.messaging.MessageSender;
+import se.uu.ub.cora.messaging.MessagingProvider;
+
+/**
+ * DeadLetterPublisher publishes {@link DeadLetter}s to a dead letter topic, using a MessageSender
+ * from the MessagingProvider. Each dead letter is sent with the original message and headers,
+ * with the failure described in headers starting with deadLetter.
+ * <p>
+ * Dead letters are put in a queue holding at most queueCapacity dead letters and published on a
+ * thread of its own, taking up to batchSize dead letters from the queue at a time, so that the
+ * receiving thread never waits for the messaging system. Dead letters that do not fit in the
+ * queue are logged and dropped. A dead letter that fails to be sent is logged and not retried,
+ * the MessageSender is then replaced before the next one is sent.
+ */
+public final class DeadLetterPublisher {
+	private static final long POLL_INTERVAL_MS = 100;
+	private Logger logger = LoggerProvider.getLoggerForClass(DeadLetterPublisher.class);
+	private final MessageRoutingInfo routingInfo;
+	private final int queueCapacity;
+	private final int batchSize;
+	private final IndexMetrics indexMetrics;
+	private BlockingQueue<DeadLetter> queue;
+	private ExecutorService publishThread;
+	private MessageSender messageSender;
+	private volatile boolean shuttingDown = false;
+
+	public static DeadLetterPublisher usingRoutingInfoAndSettings(MessageRoutingInfo routingInfo,
+			int queueCapacity, int batchSize, IndexMetrics indexMetrics) {
+		return new DeadLetterPublisher(routingInfo, queueCapacity, batchSize, indexMetrics);
+	}
+
+	/**
+	 * none returns a publisher that is not enabled, dead letters given to it are only logged
+	 * where they fail.
+	 */
+	public static DeadLetterPublisher none() {
+		return new DeadLetterPublisher(null, 0, 0, null);
+	}
+
+	private DeadLetterPublisher(MessageRoutingInfo routingInfo, int queueCapacity, int batchSize,
+			IndexMetrics indexMetrics) {
+		this.routingInfo = routingInfo;
+		this.queueCapacity = queueCapacity;
+		this.batchSize = batchSize;
+		this.indexMetrics = indexMetrics;
+		if (isEnabled()) {
+			startPublishThread();
+		}
+	}
+
+	private void startPublishThread() {
+		queue = new ArrayBlockingQueue<>(queueCapacity);
+		publishThread = Executors.newSingleThreadExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "indexmessenger-dead-letter");
+			thread.setDaemon(true);
+			return thread;
+		});
+		publishThread.execute(this::publishUntilShutdown);
+	}
+
+	public boolean isEnabled() {
+		return routingInfo != null;
+	}
+
+	/**
+	 * publish queues deadLetter to be published, without waiting for it to be sent. If the queue
+	 * is full, the dead letter is dropped.
+	 */
+	public void publish(DeadLetter deadLetter) {
+		if (!isEnabled()) {
+			return;
+		}
+		if (shuttingDown || !queue.offer(deadLetter)) {
+			indexMetrics.getDeadLetterMetrics().incrementDeadLettersDropped();
+			logError("Dead letter dropped", deadLetter, null);
+		}
+	}
+
+	private void publishUntilShutdown() {
+		List<DeadLetter> batch = new ArrayList<>(batchSize);
+		while (!Thread.currentThread().isInterrupted() && (!shuttingDown || !queue.isEmpty())) {
+			takeBatchInto(batch);
+			publishBatch(batch);
+			batch.clear();
+		}
+	}
+
+	private void takeBatchInto(List<DeadLetter> batch) {
+		try {
+			DeadLetter first = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+			if (first != null) {
+				batch.add(first);
+				queue.drainTo(batch, batchSize - 1);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void publishBatch(List<DeadLetter> batch) {
+		for (DeadLetter deadLetter : batch) {
+			publishOne(deadLetter);
+		}
+	}
+
+	private void publishOne(DeadLetter deadLetter) {
+		try {
+			getMessageSender().sendMessage(createHeaders(deadLetter), deadLetter.getMessage());
+			indexMetrics.getDeadLetterMetrics().incrementDeadLettersPublished();
+		} catch (Exception e) {
+			messageSender = null;
+			indexMetrics.getDeadLetterMetrics().incrementDeadLetterPublishFailures();
+			logError("Dead letter NOT published", deadLetter, e);
+		}
+	}
+
+	private MessageSender getMessageSender() {
+		if (messageSender == null) {
+			messageSender = MessagingProvider.getTopicMessageSender(routingInfo);
+		}
+		return messageSender;
+	}
+
+	private Map<String, Object> createHeaders(DeadLetter deadLetter) {
+		Map<String, Object> headers = new HashMap<>(deadLetter.getHeaders());
+		headers.put("deadLetterReason", deadLetter.getReason());
+		headers.put("deadLetterTime", Instant.now().toString());
+		putIfNotNull(headers, "deadLetterRecordType", deadLetter.getRecordType());
+		putIfNotNull(headers, "deadLetterRecordId", deadLetter.getRecordId());
+		Exception exception = deadLetter.getException();
+		if (exception != null) {
+			headers.put("deadLetterException", exception.getClass().getName());
+			putIfNotNull(headers, "deadLetterExceptionMessage", exception.getMessage());
+		}
+		return headers;
+	}
+
+	private void putIfNotNull(Map<String, Object> headers, String name, String value) {
+		if (value != null) {
+			headers.put(name, value);
+		}
+	}
+
+	private void logError(String start, DeadLetter deadLetter, Exception e) {
+		String logM = MessageFormat.format("{0} with reason: {1} for type: {2} and id: {3}", start,
+				deadLetter.getReason(), deadLetter.getRecordType(), deadLetter.getRecordId());
+		if (e == null) {
+			logger.logErrorUsingMessage(logM);
+		} else {
+			logger.logErrorUsingMessageAndException(logM, e);
+		}
+	}
+
+	public int getNoOfQueued() {
+		return isEnabled() ? queue.size() : 0;
+	}
+
+	/**
+	 * shutdown stops accepting dead letters and stops the publish thread once the queued dead
+	 * letters are published. Use {@link #awaitTermination(long)} to wait for it to finish.
+	 */
+	public void shutdown() {
+		shuttingDown = true;
+		if (isEnabled()) {
+			publishThread.shutdown();
+		}
+	}
+
+	public boolean awaitTermination(long timeoutMs) throws InterruptedException {
+		return !isEnabled() || publishThread.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * shutdownNow stops the publish thread and returns the dead letters still queued, without
+	 * publishing them.
+	 */
+	public List<DeadLetter> shutdownNow() {
+		shuttingDown = true;
+		List<DeadLetter> notPublished = new ArrayList<>();
+		if (isEnabled()) {
+			queue.drainTo(notPublished);
+			publishThread.shutdownNow();
+		}
+		return notPublished;
+	}
+
+	/**
+	 * shutdownWithinMs shuts down the publisher and waits at most timeoutMs milliseconds for the
+	 * queued dead letters to be published. The number of dead letters left after that is logged.
+	 */
+	public void shutdownWithinMs(long timeoutMs) throws InterruptedException {
+		shutdown();
+		if (!awaitTermination(timeoutMs)) {
+			int noOfNotPublished = shutdownNow().size();
+			logger.logErrorUsingMessage("Dead letter publisher shut down with "
+					+ noOfNotPublished + " dead letters NOT published");
+		}
+	}
+
+	public MessageRoutingInfo getRoutingInfo() {
+		// needed for test
+		return routingInfo;
+	}
+
+	public int getQueueCapacity() {
+		// needed for test
+		return queueCapacity;
+	}
+
+	public int getBatchSize() {
+		// needed for test
+		return batchSize;
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2019 Uppsala University Library
+ * Copyright 2019, 2026 Uppsala University Library
  *
  * This file is part of Cora.
  *
@@ -19,18 +19,59 @@
 package se.uu.ub.cora.indexmessenger;
 
 import java.text.MessageFormat;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
 
 import se.uu.ub.cora.clientdata.ClientDataAtomic;
 import se.uu.ub.cora.clientdata.ClientDataGroup;
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.indexmessenger.parser.HeaderRejectingMessageParser;
 import se.uu.ub.cora.indexmessenger.parser.MessageParser;
 import se.uu.ub.cora.indexmessenger.parser.MessageParserFactory;
+import se.uu.ub.cora.indexmessenger.workorder.PriorityClassifier;
+import se.uu.ub.cora.indexmessenger.workorder.SuccessLogSampling;
+import se.uu.ub.cora.indexmessenger.workorder.WorkOrder;
+import se.uu.ub.cora.indexmessenger.workorder.WorkOrderHandler;
+import se.uu.ub.cora.indexmessenger.workorder.WorkOrderOutcome;
+import se.uu.ub.cora.indexmessenger.workorder.WorkOrderSpill;
+import se.uu.ub.cora.indexmessenger.workorder.WorkOrderStage;
 import se.uu.ub.cora.javaclient.cora.CoraClient;
 import se.uu.ub.cora.logger.Logger;
 import se.uu.ub.cora.logger.LoggerProvider;
 import se.uu.ub.cora.messaging.MessageReceiver;
 
+/**
+ * IndexMessageReceiver turns received messages into work orders and hands them to its chain of
+ * work order handlers.
+ * <p>
+ * The receiver is started using {@link #start()} before it is given to a MessageListener, which
+ * replays work orders kept from an earlier run, for instance in a
+ * {@link se.uu.ub.cora.indexmessenger.workorder.WorkOrderSpool}, through the whole chain.
+ * <p>
+ * The receiver is stopped using {@link #stop()} followed by {@link #awaitTermination(long)}. Once
+ * stopped, work orders from messages that are still received are not handed to the chain but to a
+ * leftover spill, and awaitTermination stops the chain, giving the work orders that were not
+ * handled before the deadline to the same spill. The default leftover spill logs each work order,
+ * using {@link #stopUsingLeftoverSpill(WorkOrderSpill)} they can instead be persisted, for
+ * instance in a {@link se.uu.ub.cora.indexmessenger.workorder.WorkOrderSpool}. Using
+ * {@link #stopRejectingMessages()} messages still received are instead rejected, so that the
+ * broker redelivers them.
+ * <p>
+ * How messages are handled is decided by the {@link IndexMessengerSettings} the receiver is
+ * created with. If it is created with a {@link TopicReconnector}, it is used to reconnect the
+ * receiver to its topic when the topic is closed while the receiver is not stopped.
+ * <p>
+ * Messages that can not be parsed, and messages whose work order can not be created in Cora, are
+ * given to the {@link DeadLetterPublisher} of the settings. A work order is only dead-lettered
+ * when it is finally given up: when the chain has a stage that retries work orders, that stage
+ * dead-letters the work orders it gives up on, see
+ * {@link WorkOrderStage#useDeadLetterPublisher(DeadLetterPublisher)}, and the receiver does not
+ * dead-letter the failed attempts. Without such a stage, a work order is dead-lettered when it can
+ * not be created, by the receiver, or by the index mode handler given the publisher when it does
+ * not create workOrder records through the receiver.
+ */
 public class IndexMessageReceiver implements MessageReceiver {
 
 	private static final String RECORD_TYPE = "recordType";
@@ -38,75 +79,286 @@ public class IndexMessageReceiver implements MessageReceiver {
 	private Logger logger = LoggerProvider.getLoggerForClass(IndexMessageReceiver.class);
 	private CoraClient coraClient;
 	private MessageParserFactory messageParserFactory;
+	private SuccessLogSampling successLogSampling;
+	private IndexMetrics indexMetrics;
+	private BackPressure backPressure;
+	private PriorityClassifier priorityClassifier;
+	private LongSupplier outstandingWork;
+	private WorkOrderHandler indexHandler;
+	private WorkOrderHandler workOrderHandler;
+	private final LongAdder noOfRejectedUsingHeaders = new LongAdder();
+	private final LongAdder noOfRejectedAfterParsing = new LongAdder();
+	private volatile boolean stopped = false;
+	private volatile boolean rejectingMessages = false;
+	private WorkOrderSpill leftoverSpill;
+	private final IndexMessengerSettings settings;
+	private final TopicReconnector topicReconnector;
+	private final DeadLetterPublisher deadLetterPublisher;
+	private final boolean deadLetteredByChain;
 
 	public IndexMessageReceiver(CoraClient coraClient, MessageParserFactory messageParserFactory) {
+		this(coraClient, messageParserFactory, IndexMessengerSettings.usingDefaults());
+	}
+
+	/**
+	 * Creates a receiver that handles messages according to settings, and does not reconnect when
+	 * its topic is closed.
+	 */
+	public IndexMessageReceiver(CoraClient coraClient, MessageParserFactory messageParserFactory,
+			IndexMessengerSettings settings) {
+		this(coraClient, messageParserFactory, settings, null);
+	}
+
+	/**
+	 * Creates a receiver that handles messages according to settings, and is reconnected to its
+	 * topic by topicReconnector when the topic is closed while the receiver is not stopped.
+	 */
+	public IndexMessageReceiver(CoraClient coraClient, MessageParserFactory messageParserFactory,
+			IndexMessengerSettings settings, TopicReconnector topicReconnector) {
 		this.coraClient = coraClient;
 		this.messageParserFactory = messageParserFactory;
+		this.settings = settings;
+		this.topicReconnector = topicReconnector;
+		successLogSampling = settings.getSuccessLogSampling();
+		indexMetrics = settings.getIndexMetrics();
+		backPressure = settings.getBackPressure();
+		priorityClassifier = settings.getPriorityClassifier();
+		deadLetterPublisher = settings.getDeadLetterPublisher();
+		indexHandler = settings.getIndexModeFactory()
+				.factorUsingCoraClientAndWorkOrderCreator(coraClient, this::createWorkOrder);
+		workOrderHandler = settings.getWorkOrderHandlerFactory()
+				.factorUsingNextHandler(indexHandler);
+		deadLetteredByChain = WorkOrderStage.useDeadLetterPublisherInChain(workOrderHandler,
+				deadLetterPublisher);
+		WorkOrderStage.useSpoolInChain(workOrderHandler);
+		outstandingWork = () -> WorkOrderStage.countOutstandingInChain(workOrderHandler);
+	}
+
+	/**
+	 * start replays the work orders the stages of the chain kept from an earlier run, by handing
+	 * them to the first handler of the chain. It returns when they are handed over.
+	 */
+	public void start() {
+		List<WorkOrder> toReplay = WorkOrderStage.takeWorkOrdersToReplayInChain(workOrderHandler);
+		if (!toReplay.isEmpty()) {
+			logger.logInfoUsingMessage(
+					"Replaying " + toReplay.size() + " work orders kept from an earlier run");
+			toReplay.forEach(workOrderHandler::handle);
+		}
 	}
 
 	@Override
 	public void receiveMessage(Map<String, String> headers, String message) {
+		if (rejectingMessages) {
+			throw IndexMessageException
+					.withMessage("Receiver stopped, message rejected to be redelivered");
+		}
+		if (!stopped) {
+			backPressure.pauseWhileAboveHighWatermark(outstandingWork, indexMetrics);
+		}
+		indexMetrics.getWorkOrderMetrics().incrementMessagesReceived();
 		MessageParser messageParser = messageParserFactory.factor();
-		messageParser.parseHeadersAndMessage(headers, message);
+		if (isRejectedUsingHeaders(messageParser, headers)) {
+			noOfRejectedUsingHeaders.increment();
+			indexMetrics.getWorkOrderMetrics().incrementMessagesFiltered();
+			return;
+		}
+		if (!parseOrDeadLetter(messageParser, headers, message)) {
+			return;
+		}
 		if (messageParser.shouldWorkOrderBeCreatedForMessage()) {
-			createWorkOrder(messageParser);
+			WorkOrder workOrder = createWorkOrderFromParser(messageParser, headers, message);
+			handleOrSpillIfStopped(priorityClassifier.classify(headers, workOrder));
+		} else {
+			noOfRejectedAfterParsing.increment();
+			indexMetrics.getWorkOrderMetrics().incrementMessagesFiltered();
 		}
 	}
 
-	private void createWorkOrder(MessageParser messageParser) {
-		Map<String, String> logValues = new HashMap<>();
-		ClientDataGroup workOrder = createWorkOrderDataGroup(messageParser, logValues);
+	private boolean parseOrDeadLetter(MessageParser messageParser, Map<String, String> headers,
+			String message) {
+		long parseStart = System.nanoTime();
 		try {
-			coraClient.create("workOrder", workOrder);
-			writeLogMessage(logValues);
+			messageParser.parseHeadersAndMessage(headers, message);
+			indexMetrics.getWorkOrderMetrics()
+					.recordMessageParsedUsingNanos(System.nanoTime() - parseStart);
+			return true;
 		} catch (Exception e) {
-			String logM = "Index workOrder NOT created for type: {0} and id: {1}";
-			String formattedLogMessage = MessageFormat.format(logM, logValues.get(RECORD_TYPE),
-					logValues.get(RECORD_ID));
-			logger.logErrorUsingMessageAndException(formattedLogMessage, e);
+			indexMetrics.getWorkOrderMetrics().incrementMessagesFailedToParse();
+			logger.logErrorUsingMessageAndException("Message could not be parsed", e);
+			deadLetterPublisher.publish(DeadLetter.forParseFailure(headers, message, e));
+			return false;
+		}
+	}
+
+	private void handleOrSpillIfStopped(WorkOrder workOrder) {
+		if (stopped) {
+			spillLeftover(workOrder);
+		} else {
+			workOrderHandler.handle(workOrder);
 		}
 	}
 
-	private ClientDataGroup createWorkOrderDataGroup(MessageParser messageParser,
-			Map<String, String> logValues) {
-		ClientDataGroup workOrder = ClientDataGroup.withNameInData("workOrder");
-		addRecordType(messageParser, workOrder, logValues);
-		addRecordId(messageParser, workOrder, logValues);
-		addWorkOrderType(messageParser, workOrder);
+	private void spillLeftover(WorkOrder workOrder) {
+		indexMetrics.getWorkOrderMetrics().incrementWorkOrdersLeftAtShutdown();
+		leftoverSpill.spill(workOrder);
+	}
+
+	private boolean isRejectedUsingHeaders(MessageParser messageParser,
+			Map<String, String> headers) {
+		return messageParser instanceof HeaderRejectingMessageParser
+				&& ((HeaderRejectingMessageParser) messageParser).isRejectedUsingHeaders(headers);
+	}
+
+	private WorkOrder createWorkOrderFromParser(MessageParser messageParser,
+			Map<String, String> headers, String message) {
+		WorkOrder workOrder = WorkOrder.usingRecordTypeRecordIdAndModificationType(
+				messageParser.getRecordType(), messageParser.getRecordId(),
+				messageParser.getModificationType());
+		if (deadLetterPublisher.isEnabled()) {
+			return workOrder.withSourceMessage(headers, message);
+		}
 		return workOrder;
 	}
 
-	private void addWorkOrderType(MessageParser messageParser, ClientDataGroup workOrder) {
-		String modificationType = messageParser.getModificationType();
-		String workOrderType = "delete".equals(modificationType) ? "removeFromIndex" : "index";
-		workOrder.addChild(ClientDataAtomic.withNameInDataAndValue("type", workOrderType));
+	private void createWorkOrder(WorkOrder workOrder) {
+		ClientDataGroup workOrderGroup = createWorkOrderDataGroup(workOrder);
+		long createStart = System.nanoTime();
+		try {
+			coraClient.create("workOrder", workOrderGroup);
+			indexMetrics.getWorkOrderMetrics()
+					.recordWorkOrderCreatedUsingNanos(System.nanoTime() - createStart);
+			successLogSampling.logSuccess(logger, workOrder, "Index workOrder created",
+					"Index workOrders created");
+		} catch (Exception e) {
+			indexMetrics.getWorkOrderMetrics()
+					.recordWorkOrderFailedUsingNanos(System.nanoTime() - createStart);
+			WorkOrderOutcome.recordFailure(e);
+			String logM = "Index workOrder NOT created for type: {0} and id: {1}";
+			String formattedLogMessage = MessageFormat.format(logM, workOrder.getRecordType(),
+					workOrder.getRecordId());
+			logger.logErrorUsingMessageAndException(formattedLogMessage, e);
+			if (!deadLetteredByChain) {
+				deadLetterPublisher.publish(DeadLetter.forWorkOrderNotCreated(workOrder, e));
+			}
+		}
+	}
+
+	private ClientDataGroup createWorkOrderDataGroup(WorkOrder workOrder) {
+		ClientDataGroup workOrderGroup = ClientDataGroup.withNameInData("workOrder");
+		addRecordType(workOrder, workOrderGroup);
+		addRecordId(workOrder, workOrderGroup);
+		addWorkOrderType(workOrder, workOrderGroup);
+		return workOrderGroup;
 	}
 
-	private void addRecordId(MessageParser messageParser, ClientDataGroup workOrder,
-			Map<String, String> logValues) {
-		String parsedId = messageParser.getRecordId();
-		workOrder.addChild(ClientDataAtomic.withNameInDataAndValue(RECORD_ID, parsedId));
-		logValues.put(RECORD_ID, parsedId);
+	private void addWorkOrderType(WorkOrder workOrder, ClientDataGroup workOrderGroup) {
+		workOrderGroup.addChild(
+				ClientDataAtomic.withNameInDataAndValue("type", workOrder.getWorkOrderType()));
 	}
 
-	private void addRecordType(MessageParser messageParser, ClientDataGroup workOrder,
-			Map<String, String> logValues) {
-		String parsedType = messageParser.getRecordType();
-		ClientDataGroup recordTypeGroup = ClientDataGroup
-				.asLinkWithNameInDataAndTypeAndId(RECORD_TYPE, RECORD_TYPE, parsedType);
-		workOrder.addChild(recordTypeGroup);
-		logValues.put(RECORD_TYPE, parsedType);
+	private void addRecordId(WorkOrder workOrder, ClientDataGroup workOrderGroup) {
+		workOrderGroup.addChild(
+				ClientDataAtomic.withNameInDataAndValue(RECORD_ID, workOrder.getRecordId()));
 	}
 
-	private void writeLogMessage(Map<String, String> logValues) {
-		String logM = "Index workOrder created for type: {0} and id: {1}";
-		logger.logInfoUsingMessage(
-				MessageFormat.format(logM, logValues.get(RECORD_TYPE), logValues.get(RECORD_ID)));
+	private void addRecordType(WorkOrder workOrder, ClientDataGroup workOrderGroup) {
+		ClientDataGroup recordTypeGroup = ClientDataGroup.asLinkWithNameInDataAndTypeAndId(
+				RECORD_TYPE, RECORD_TYPE, workOrder.getRecordType());
+		workOrderGroup.addChild(recordTypeGroup);
 	}
 
 	@Override
 	public void topicClosed() {
 		logger.logFatalUsingMessage("Topic closed!");
+		if (topicReconnector != null && !stopped) {
+			topicReconnector.reconnect(this);
+		}
+	}
+
+	public TopicReconnector getTopicReconnector() {
+		// needed for test
+		return topicReconnector;
+	}
+
+	/**
+	 * stop makes the receiver stop handing work orders to its chain, work orders from messages
+	 * received after this are logged as not handled.
+	 */
+	public void stop() {
+		stopUsingLeftoverSpill(this::logLeftover);
+	}
+
+	private void logLeftover(WorkOrder workOrder) {
+		logger.logErrorUsingMessage(MessageFormat.format(
+				"Receiver stopped, workOrder NOT handled for type: {0} and id: {1}",
+				workOrder.getRecordType(), workOrder.getRecordId()));
+	}
+
+	/**
+	 * stopUsingLeftoverSpill makes the receiver stop handing work orders to its chain, work orders
+	 * from messages received after this, and those left when the chain is stopped, are given to
+	 * leftoverSpill.
+	 */
+	public synchronized void stopUsingLeftoverSpill(WorkOrderSpill leftoverSpill) {
+		this.leftoverSpill = leftoverSpill;
+		stopped = true;
+		if (topicReconnector != null) {
+			topicReconnector.shutdown();
+		}
+		logger.logInfoUsingMessage("Receiver stopped, no more work orders are handled");
+	}
+
+	/**
+	 * stopRejectingMessages makes the receiver stop handing work orders to its chain, and reject
+	 * messages received after this by throwing an {@link IndexMessageException} from
+	 * receiveMessage, so that they are not acknowledged and are redelivered by the broker. It is
+	 * used when the receiver can not be detached from its MessageListener. Work orders left when
+	 * the chain is stopped are logged as not handled.
+	 */
+	public void stopRejectingMessages() {
+		rejectingMessages = true;
+		stop();
+	}
+
+	/**
+	 * awaitTermination stops the chain of work order handlers, letting each stage pass on the work
+	 * orders it holds until timeoutMs milliseconds have passed. The work orders left after that are
+	 * given to the leftover spill. It returns true if all work orders were passed on in time.
+	 */
+	public boolean awaitTermination(long timeoutMs) throws InterruptedException {
+		if (!stopped) {
+			throw IndexMessageException
+					.withMessage("Receiver must be stopped before awaiting termination");
+		}
+		List<WorkOrder> leftovers = WorkOrderStage.shutdownChainWithinMs(workOrderHandler,
+				timeoutMs);
+		for (WorkOrder workOrder : leftovers) {
+			spillLeftover(workOrder);
+		}
+		logTermination(leftovers.size());
+		return leftovers.isEmpty();
+	}
+
+	private void logTermination(int noOfLeftovers) {
+		if (noOfLeftovers == 0) {
+			logger.logInfoUsingMessage("Receiver terminated, all work orders handled");
+		} else {
+			logger.logErrorUsingMessage("Receiver terminated with " + noOfLeftovers
+					+ " work orders NOT handled before the deadline");
+		}
+	}
+
+	public boolean isStopped() {
+		return stopped;
+	}
+
+	public long getNoOfRejectedUsingHeaders() {
+		return noOfRejectedUsingHeaders.sum();
+	}
+
+	public long getNoOfRejectedAfterParsing() {
+		return noOfRejectedAfterParsing.sum();
 	}
 
 	public CoraClient getCoraClient() {
@@ -119,4 +371,27 @@ public class IndexMessageReceiver implements MessageReceiver {
 		return messageParserFactory;
 	}
 
+	public IndexMessengerSettings getSettings() {
+		// needed for test
+		return settings;
+	}
+
+	public IndexMetrics getIndexMetrics() {
+		return indexMetrics;
+	}
+
+	public long getNoOfOutstanding() {
+		return outstandingWork.getAsLong();
+	}
+
+	public WorkOrderHandler getIndexHandler() {
+		// needed for test
+		return indexHandler;
+	}
+
+	public WorkOrderHandler getWorkOrderHandler() {
+		// needed for test
+		return workOrderHandler;
+	}
+
 }
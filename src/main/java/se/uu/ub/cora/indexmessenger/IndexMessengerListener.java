@@ -1,5 +1,5 @@
 /*
- * Copyright 2019 Uppsala University Library
+ * Copyright 2019, 2026 Uppsala University Library
  *
  * This file is part of Cora.
  *
@@ -19,40 +19,99 @@
 
 package se.uu.ub.cora.indexmessenger;
 
+import java.util.concurrent.TimeUnit;
+
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
 import se.uu.ub.cora.indexmessenger.parser.MessageParserFactory;
+import se.uu.ub.cora.indexmessenger.workorder.WorkOrderSpill;
 import se.uu.ub.cora.javaclient.cora.CoraClient;
 import se.uu.ub.cora.javaclient.cora.CoraClientFactory;
+import se.uu.ub.cora.logger.Logger;
+import se.uu.ub.cora.logger.LoggerProvider;
+import se.uu.ub.cora.messaging.AmqpMessageRoutingInfo;
 import se.uu.ub.cora.messaging.MessageListener;
-import se.uu.ub.cora.messaging.MessageReceiver;
 import se.uu.ub.cora.messaging.MessageRoutingInfo;
 import se.uu.ub.cora.messaging.MessagingProvider;
 
+/**
+ * IndexMessengerListener starts listening for index messages when it is created. It is stopped
+ * using {@link #stop()} followed by {@link #awaitTermination(long)}, which lets the work orders
+ * already received be handled until a deadline, see {@link IndexMessageReceiver}.
+ */
 public class IndexMessengerListener {
+	private Logger logger = LoggerProvider.getLoggerForClass(IndexMessengerListener.class);
 	private CoraClientFactory coraClientFactory;
 	private MessageParserFactory messageParserFactory;
 	private MessageRoutingInfo routingInfo;
 	private CoraCredentials credentials;
+	private IndexMessengerSettings settings;
+	private IndexMessageReceiver messageReceiver;
+	private TopicReconnector topicReconnector;
 
 	public IndexMessengerListener(CoraClientFactory coraClientFactory,
 			MessageParserFactory messageParserFactory, MessageRoutingInfo routingInfo,
 			CoraCredentials credentials) {
+		this(coraClientFactory, messageParserFactory, routingInfo, credentials,
+				IndexMessengerSettings.usingDefaults());
+	}
+
+	/**
+	 * Creates a listener whose receiver handles messages according to settings. The metrics of
+	 * the settings are registered as one MXBean per subsystem, named after the routingInfo, and
+	 * the dead letter publisher of the settings is shut down by {@link #awaitTermination(long)}.
+	 */
+	public IndexMessengerListener(CoraClientFactory coraClientFactory,
+			MessageParserFactory messageParserFactory, MessageRoutingInfo routingInfo,
+			CoraCredentials credentials, IndexMessengerSettings settings) {
 
 		this.coraClientFactory = coraClientFactory;
 		this.messageParserFactory = messageParserFactory;
 		this.routingInfo = routingInfo;
 		this.credentials = credentials;
+		this.settings = settings;
 
 		MessageListener topicMessageListener = MessagingProvider
 				.getTopicMessageListener(routingInfo);
 
 		CoraClient coraClient = createCoraClient(coraClientFactory, credentials);
 
-		MessageReceiver messageReceiver = new IndexMessageReceiver(coraClient,
-				messageParserFactory);
+		topicReconnector = TopicReconnector.usingRoutingInfoPolicyAndMetrics(routingInfo,
+				settings.getReconnectPolicy(), settings.getIndexMetrics());
+		messageReceiver = new IndexMessageReceiver(coraClient, messageParserFactory, settings,
+				topicReconnector);
 
+		registerMetricsAsMBeanOrWarn(settings.getIndexMetrics(), createMetricsName(routingInfo),
+				logger);
+		messageReceiver.start();
 		topicMessageListener.listen(messageReceiver);
 	}
 
+	/**
+	 * createMetricsName returns the name the metrics for routingInfo are registered under, host and
+	 * port followed by exchange and routing key for AMQP, so that listeners for different topics
+	 * on the same broker are told apart.
+	 */
+	static String createMetricsName(MessageRoutingInfo routingInfo) {
+		String name = routingInfo.hostname + ":" + routingInfo.port;
+		if (routingInfo instanceof AmqpMessageRoutingInfo) {
+			AmqpMessageRoutingInfo amqpRoutingInfo = (AmqpMessageRoutingInfo) routingInfo;
+			return name + "/" + amqpRoutingInfo.exchange + "/" + amqpRoutingInfo.routingKey;
+		}
+		return name;
+	}
+
+	static void registerMetricsAsMBeanOrWarn(IndexMetrics indexMetrics, String name,
+			Logger logger) {
+		try {
+			indexMetrics.registerAsMBeanUsingName(name);
+		} catch (IndexMessageException e) {
+			logger.logWarnUsingMessageAndException(
+					"Metrics NOT registered as MBean, listening continues without them for: "
+							+ name,
+					e);
+		}
+	}
+
 	private final CoraClient createCoraClient(CoraClientFactory coraClientFactory,
 			CoraCredentials credentials) {
 		String coraUserId = credentials.userId;
@@ -60,6 +119,51 @@ public class IndexMessengerListener {
 		return coraClientFactory.factor(coraUserId, coraAppToken);
 	}
 
+	/**
+	 * stop stops handling received work orders, work orders from messages received after this are
+	 * logged as not handled. The MessageListener has no way to stop listening, so messages keep
+	 * arriving until the process ends.
+	 */
+	public void stop() {
+		messageReceiver.stop();
+	}
+
+	/**
+	 * stopUsingLeftoverSpill stops handling received work orders, work orders from messages
+	 * received after this, and those not handled before the deadline in
+	 * {@link #awaitTermination(long)}, are given to leftoverSpill.
+	 */
+	public void stopUsingLeftoverSpill(WorkOrderSpill leftoverSpill) {
+		messageReceiver.stopUsingLeftoverSpill(leftoverSpill);
+	}
+
+	/**
+	 * awaitTermination waits at most timeoutMs milliseconds for the received work orders to be
+	 * handled, returning true if all of them were. The dead letter publisher is then shut down,
+	 * publishing the dead letters it holds within what is left of timeoutMs.
+	 */
+	public boolean awaitTermination(long timeoutMs) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+		boolean allHandled = messageReceiver.awaitTermination(timeoutMs);
+		long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+		settings.getDeadLetterPublisher().shutdownWithinMs(Math.max(0, remainingMs));
+		return allHandled;
+	}
+
+	public IndexMessageReceiver getMessageReceiver() {
+		return messageReceiver;
+	}
+
+	public TopicReconnector getTopicReconnector() {
+		// needed for test
+		return topicReconnector;
+	}
+
+	public IndexMessengerSettings getSettings() {
+		// needed for test
+		return settings;
+	}
+
 	public CoraClientFactory getCoraClientFactory() {
 		// needed for test
 		return coraClientFactory;
@@ -79,4 +183,8 @@ public class IndexMessengerListener {
 		// needed for test
 		return credentials;
 	}
+
+	public IndexMetrics getIndexMetrics() {
+		return settings.getIndexMetrics();
+	}
 }
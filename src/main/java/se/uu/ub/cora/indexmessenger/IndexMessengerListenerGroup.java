@@ -0,0 +1,274 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.indexmessenger.parser.MessageParserFactory;
+import se.uu.ub.cora.indexmessenger.workorder.WorkOrderSpill;
+import se.uu.ub.cora.javaclient.cora.CoraClient;
+import se.uu.ub.cora.javaclient.cora.CoraClientFactory;
+import se.uu.ub.cora.logger.Logger;
+import se.uu.ub.cora.logger.LoggerProvider;
+import se.uu.ub.cora.messaging.MessageListener;
+import se.uu.ub.cora.messaging.MessageRoutingInfo;
+import se.uu.ub.cora.messaging.MessagingProvider;
+
+/**
+ * IndexMessengerListenerGroup starts one consumer for each of its routingInfos, so that one
+ * process can consume messages on several threads at the same time. Each consumer has a
+ * MessageListener, a CoraClient and an {@link IndexMessageReceiver} of its own, with a work order
+ * handler chain of its own factored by the workOrderHandlerFactory of the settings.
+ * <p>
+ * All consumers share the same {@link IndexMetrics}, which is registered once as an MBean for the
+ * whole group and whose gauges are aggregated over the consumers, and the same
+ * {@link BackPressure}, both taken from the {@link IndexMessengerSettings} of the group. The
+ * consumers are started together by {@link #start()}, and stopped together by {@link #stop()}
+ * followed by {@link #awaitTermination(long)}. A consumer whose topic is closed reconnects on its
+ * own, see {@link TopicReconnector}.
+ */
+public final class IndexMessengerListenerGroup {
+	public static final long STOP_ON_FAILED_START_MS = 5000;
+	private Logger logger = LoggerProvider.getLoggerForClass(IndexMessengerListenerGroup.class);
+	private final CoraClientFactory coraClientFactory;
+	private final MessageParserFactory messageParserFactory;
+	private final List<MessageRoutingInfo> routingInfos;
+	private final CoraCredentials credentials;
+	private final IndexMessengerSettings settings;
+	private final IndexMetrics indexMetrics;
+	private final List<IndexMessageReceiver> receivers = new ArrayList<>();
+	private boolean started = false;
+	private boolean failedToStart = false;
+
+	/**
+	 * routingInfosForNoOfConsumers returns a list holding the routingInfo noOfConsumers times, to
+	 * be used when a group should start several consumers for the same topic.
+	 */
+	public static List<MessageRoutingInfo> routingInfosForNoOfConsumers(
+			MessageRoutingInfo routingInfo, int noOfConsumers) {
+		if (noOfConsumers < 1) {
+			throw IndexMessageException.withMessage("Number of consumers must be at least 1");
+		}
+		return Collections.nCopies(noOfConsumers, routingInfo);
+	}
+
+	/**
+	 * Creates a group whose consumers all handle messages according to settings, sharing its
+	 * metrics, back pressure and dead letter publisher. The dead letter publisher is shut down by
+	 * {@link #awaitTermination(long)}.
+	 */
+	public IndexMessengerListenerGroup(CoraClientFactory coraClientFactory,
+			MessageParserFactory messageParserFactory, List<MessageRoutingInfo> routingInfos,
+			CoraCredentials credentials, IndexMessengerSettings settings) {
+		if (routingInfos.isEmpty()) {
+			throw IndexMessageException.withMessage("A listener group needs at least one consumer");
+		}
+		this.coraClientFactory = coraClientFactory;
+		this.messageParserFactory = messageParserFactory;
+		this.routingInfos = List.copyOf(routingInfos);
+		this.credentials = credentials;
+		this.settings = settings;
+		indexMetrics = settings.getIndexMetrics();
+	}
+
+	/**
+	 * start starts all consumers of the group and registers the shared metrics as an MBean. The
+	 * group is only started once all consumers have started. If a consumer fails to start, the
+	 * error is logged, the metrics are unregistered and an {@link IndexMessageException} is
+	 * thrown. As the MessageListeners of the consumers started before it can not be detached,
+	 * their receivers are stopped within {@link #STOP_ON_FAILED_START_MS} milliseconds and reject
+	 * the messages they still receive, so that the broker redelivers them, see
+	 * {@link IndexMessageReceiver#stopRejectingMessages()}. A group that failed to start can not
+	 * be started again, a new group is created instead.
+	 */
+	public synchronized void start() {
+		if (started) {
+			throw IndexMessageException.withMessage("Listener group already started");
+		}
+		if (failedToStart) {
+			throw IndexMessageException
+					.withMessage("Listener group failed to start and can not be started again");
+		}
+		IndexMessengerListener.registerMetricsAsMBeanOrWarn(indexMetrics, createMetricsName(),
+				logger);
+		for (int consumerNo = 0; consumerNo < routingInfos.size(); consumerNo++) {
+			startConsumer(consumerNo);
+		}
+		started = true;
+		logger.logInfoUsingMessage("Started listener group with " + receivers.size()
+				+ " consumers for: " + createMetricsName());
+	}
+
+	private String createMetricsName() {
+		Set<String> names = new LinkedHashSet<>();
+		for (MessageRoutingInfo routingInfo : routingInfos) {
+			names.add(IndexMessengerListener.createMetricsName(routingInfo));
+		}
+		return String.join(",", names);
+	}
+
+	private void startConsumer(int consumerNo) {
+		try {
+			tryToStartConsumer(routingInfos.get(consumerNo));
+		} catch (Exception e) {
+			String errorMessage = MessageFormat.format("Failed to start consumer {0} of {1}",
+					consumerNo + 1, routingInfos.size());
+			logger.logErrorUsingMessageAndException(errorMessage, e);
+			failedToStart = true;
+			stopStartedConsumers();
+			throw IndexMessageException.withMessageAndException(errorMessage, e);
+		}
+	}
+
+	private void stopStartedConsumers() {
+		for (IndexMessageReceiver receiver : receivers) {
+			receiver.stopRejectingMessages();
+		}
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(STOP_ON_FAILED_START_MS);
+		try {
+			for (IndexMessageReceiver receiver : receivers) {
+				long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+				receiver.awaitTermination(Math.max(0, remainingMs));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		logger.logInfoUsingMessage(
+				"Stopped " + receivers.size() + " consumers started before the failure");
+		receivers.clear();
+		indexMetrics.unregisterAsMBean();
+	}
+
+	private void tryToStartConsumer(MessageRoutingInfo routingInfo) {
+		MessageListener topicMessageListener = MessagingProvider
+				.getTopicMessageListener(routingInfo);
+		CoraClient coraClient = coraClientFactory.factor(credentials.userId,
+				credentials.appToken);
+		TopicReconnector topicReconnector = TopicReconnector.usingRoutingInfoPolicyAndMetrics(
+				routingInfo, settings.getReconnectPolicy(), indexMetrics);
+		IndexMessageReceiver messageReceiver = new IndexMessageReceiver(coraClient,
+				messageParserFactory, settings, topicReconnector);
+		receivers.add(messageReceiver);
+		messageReceiver.start();
+		topicMessageListener.listen(messageReceiver);
+	}
+
+	/**
+	 * stop stops all consumers from handling received work orders, work orders from messages
+	 * received after this are logged as not handled.
+	 */
+	public synchronized void stop() {
+		throwErrorIfNotStarted();
+		for (IndexMessageReceiver receiver : receivers) {
+			receiver.stop();
+		}
+	}
+
+	private void throwErrorIfNotStarted() {
+		if (!started) {
+			throw IndexMessageException.withMessage("Listener group not started");
+		}
+	}
+
+	/**
+	 * stopUsingLeftoverSpill stops all consumers from handling received work orders, work orders
+	 * from messages received after this, and those not handled before the deadline in
+	 * {@link #awaitTermination(long)}, are given to leftoverSpill.
+	 */
+	public synchronized void stopUsingLeftoverSpill(WorkOrderSpill leftoverSpill) {
+		throwErrorIfNotStarted();
+		for (IndexMessageReceiver receiver : receivers) {
+			receiver.stopUsingLeftoverSpill(leftoverSpill);
+		}
+	}
+
+	/**
+	 * awaitTermination lets the consumers handle the work orders they hold, one after the other,
+	 * until timeoutMs milliseconds have passed in total. It returns true if all work orders of all
+	 * consumers were handled. The shared dead letter publisher is then shut down, publishing the
+	 * dead letters it holds within what is left of timeoutMs.
+	 */
+	public boolean awaitTermination(long timeoutMs) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+		boolean allHandled = true;
+		for (IndexMessageReceiver receiver : getReceivers()) {
+			long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+			allHandled &= receiver.awaitTermination(Math.max(0, remainingMs));
+		}
+		long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+		settings.getDeadLetterPublisher().shutdownWithinMs(Math.max(0, remainingMs));
+		logger.logInfoUsingMessage("Listener group terminated for: " + createMetricsName());
+		return allHandled;
+	}
+
+	public synchronized boolean isStarted() {
+		return started;
+	}
+
+	public int getNoOfConsumers() {
+		return routingInfos.size();
+	}
+
+	public synchronized List<IndexMessageReceiver> getReceivers() {
+		return List.copyOf(receivers);
+	}
+
+	/**
+	 * getNoOfOutstanding returns the number of outstanding work orders summed over the work order
+	 * handler chains of all started consumers.
+	 */
+	public long getNoOfOutstanding() {
+		long outstanding = 0;
+		for (IndexMessageReceiver receiver : getReceivers()) {
+			outstanding += receiver.getNoOfOutstanding();
+		}
+		return outstanding;
+	}
+
+	public IndexMetrics getIndexMetrics() {
+		return indexMetrics;
+	}
+
+	public List<MessageRoutingInfo> getMessageRoutingInfos() {
+		// needed for test
+		return routingInfos;
+	}
+
+	public CoraClientFactory getCoraClientFactory() {
+		// needed for test
+		return coraClientFactory;
+	}
+
+	public CoraCredentials getCredentials() {
+		// needed for test
+		return credentials;
+	}
+
+	public IndexMessengerSettings getSettings() {
+		// needed for test
+		return settings;
+	}
+}
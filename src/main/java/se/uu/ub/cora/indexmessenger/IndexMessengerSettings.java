@@ -0,0 +1,198 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger;
+
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.indexmessenger.workorder.IndexModeFactory;
+import se.uu.ub.cora.indexmessenger.workorder.PriorityClassifier;
+import se.uu.ub.cora.indexmessenger.workorder.RetryPolicy;
+import se.uu.ub.cora.indexmessenger.workorder.SuccessLogSampling;
+import se.uu.ub.cora.indexmessenger.workorder.SynchronousWorkOrderHandlerFactory;
+import se.uu.ub.cora.indexmessenger.workorder.WorkOrderHandlerFactory;
+import se.uu.ub.cora.indexmessenger.workorder.WorkOrderIndexModeFactory;
+
+/**
+ * IndexMessengerSettings holds how an {@link IndexMessageReceiver} handles the messages it
+ * receives, and is given to an {@link IndexMessengerListener} or an
+ * {@link IndexMessengerListenerGroup} to be used by their receivers. It is created using
+ * {@link #usingDefaults()} and each with method returns a copy where one setting is changed, so
+ * that a settings object can safely be shared.
+ */
+public final class IndexMessengerSettings {
+	private WorkOrderHandlerFactory workOrderHandlerFactory;
+	private IndexModeFactory indexModeFactory;
+	private SuccessLogSampling successLogSampling;
+	private IndexMetrics indexMetrics;
+	private BackPressure backPressure;
+	private PriorityClassifier priorityClassifier;
+	private RetryPolicy reconnectPolicy;
+	private DeadLetterPublisher deadLetterPublisher;
+
+	/**
+	 * usingDefaults returns settings where work orders are created in Cora on the receiving
+	 * thread, every created work order is logged, consumption is never paused, all work orders
+	 * have normal priority, a closed topic is reconnected using
+	 * {@link TopicReconnector#DEFAULT_RECONNECT_POLICY} and nothing is dead-lettered. The
+	 * settings hold new {@link IndexMetrics}.
+	 */
+	public static IndexMessengerSettings usingDefaults() {
+		return new IndexMessengerSettings();
+	}
+
+	private IndexMessengerSettings() {
+		workOrderHandlerFactory = new SynchronousWorkOrderHandlerFactory();
+		indexModeFactory = new WorkOrderIndexModeFactory();
+		successLogSampling = SuccessLogSampling.loggingAll();
+		indexMetrics = new IndexMetrics();
+		backPressure = BackPressure.none();
+		priorityClassifier = PriorityClassifier.classifyingAllAsNormal();
+		reconnectPolicy = TopicReconnector.DEFAULT_RECONNECT_POLICY;
+		deadLetterPublisher = DeadLetterPublisher.none();
+	}
+
+	private IndexMessengerSettings(IndexMessengerSettings settings) {
+		workOrderHandlerFactory = settings.workOrderHandlerFactory;
+		indexModeFactory = settings.indexModeFactory;
+		successLogSampling = settings.successLogSampling;
+		indexMetrics = settings.indexMetrics;
+		backPressure = settings.backPressure;
+		priorityClassifier = settings.priorityClassifier;
+		reconnectPolicy = settings.reconnectPolicy;
+		deadLetterPublisher = settings.deadLetterPublisher;
+	}
+
+	/**
+	 * withWorkOrderHandlerFactory makes work orders pass through a chain factored by
+	 * workOrderHandlerFactory before they reach Cora, making it possible to choose how work orders
+	 * are executed, for instance through a
+	 * {@link se.uu.ub.cora.indexmessenger.workorder.WorkOrderPipelineFactory}.
+	 */
+	public IndexMessengerSettings withWorkOrderHandlerFactory(
+			WorkOrderHandlerFactory workOrderHandlerFactory) {
+		IndexMessengerSettings settings = new IndexMessengerSettings(this);
+		settings.workOrderHandlerFactory = workOrderHandlerFactory;
+		return settings;
+	}
+
+	/**
+	 * withIndexModeFactory lets indexModeFactory decide how work orders finally reach Cora, for
+	 * instance by indexing records directly through a
+	 * {@link se.uu.ub.cora.indexmessenger.workorder.DirectIndexModeFactory} instead of creating
+	 * workOrder records.
+	 */
+	public IndexMessengerSettings withIndexModeFactory(IndexModeFactory indexModeFactory) {
+		IndexMessengerSettings settings = new IndexMessengerSettings(this);
+		settings.indexModeFactory = indexModeFactory;
+		return settings;
+	}
+
+	/**
+	 * withSuccessLogSampling lets successLogSampling decide which successfully created work orders
+	 * are logged.
+	 */
+	public IndexMessengerSettings withSuccessLogSampling(SuccessLogSampling successLogSampling) {
+		IndexMessengerSettings settings = new IndexMessengerSettings(this);
+		settings.successLogSampling = successLogSampling;
+		return settings;
+	}
+
+	/**
+	 * withIndexMetrics makes what happens on the indexing path be recorded in indexMetrics.
+	 */
+	public IndexMessengerSettings withIndexMetrics(IndexMetrics indexMetrics) {
+		IndexMessengerSettings settings = new IndexMessengerSettings(this);
+		settings.indexMetrics = indexMetrics;
+		return settings;
+	}
+
+	/**
+	 * withBackPressure pauses consumption of messages, according to backPressure, while too many
+	 * work orders are outstanding in the work order handler chain.
+	 */
+	public IndexMessengerSettings withBackPressure(BackPressure backPressure) {
+		IndexMessengerSettings settings = new IndexMessengerSettings(this);
+		settings.backPressure = backPressure;
+		return settings;
+	}
+
+	/**
+	 * withPriorityClassifier lets priorityClassifier decide the priority of each work order, used
+	 * by a {@link se.uu.ub.cora.indexmessenger.workorder.PriorityWorkOrderHandlerFactory} to let
+	 * deletes and interactive changes pass bulk loads.
+	 */
+	public IndexMessengerSettings withPriorityClassifier(PriorityClassifier priorityClassifier) {
+		IndexMessengerSettings settings = new IndexMessengerSettings(this);
+		settings.priorityClassifier = priorityClassifier;
+		return settings;
+	}
+
+	/**
+	 * withReconnectPolicy sets the delays between failed attempts to get a new MessageListener
+	 * when the topic is closed, see {@link TopicReconnector}.
+	 */
+	public IndexMessengerSettings withReconnectPolicy(RetryPolicy reconnectPolicy) {
+		IndexMessengerSettings settings = new IndexMessengerSettings(this);
+		settings.reconnectPolicy = reconnectPolicy;
+		return settings;
+	}
+
+	/**
+	 * withDeadLetterPublisher gives messages that can not be parsed, and work orders that are
+	 * finally given up, to deadLetterPublisher. The publisher is shut down by the listener or
+	 * listener group using the settings.
+	 */
+	public IndexMessengerSettings withDeadLetterPublisher(
+			DeadLetterPublisher deadLetterPublisher) {
+		IndexMessengerSettings settings = new IndexMessengerSettings(this);
+		settings.deadLetterPublisher = deadLetterPublisher;
+		return settings;
+	}
+
+	public WorkOrderHandlerFactory getWorkOrderHandlerFactory() {
+		return workOrderHandlerFactory;
+	}
+
+	public IndexModeFactory getIndexModeFactory() {
+		return indexModeFactory;
+	}
+
+	public SuccessLogSampling getSuccessLogSampling() {
+		return successLogSampling;
+	}
+
+	public IndexMetrics getIndexMetrics() {
+		return indexMetrics;
+	}
+
+	public BackPressure getBackPressure() {
+		return backPressure;
+	}
+
+	public PriorityClassifier getPriorityClassifier() {
+		return priorityClassifier;
+	}
+
+	public RetryPolicy getReconnectPolicy() {
+		return reconnectPolicy;
+	}
+
+	public DeadLetterPublisher getDeadLetterPublisher() {
+		return deadLetterPublisher;
+	}
+}
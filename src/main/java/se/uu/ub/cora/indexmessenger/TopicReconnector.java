@@ -0,0 +1,151 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger;
+
+import java.text.MessageFormat;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.indexmessenger.workorder.RetryPolicy;
+import se.uu.ub.cora.logger.Logger;
+import se.uu.ub.cora.logger.LoggerProvider;
+import se.uu.ub.cora.messaging.MessageListener;
+import se.uu.ub.cora.messaging.MessageReceiver;
+import se.uu.ub.cora.messaging.MessageRoutingInfo;
+import se.uu.ub.cora.messaging.MessagingProvider;
+
+/**
+ * TopicReconnector gets a new MessageListener from the MessagingProvider when a topic has been
+ * closed, and lets it listen using the same MessageReceiver. Attempts are made on a thread of its
+ * own, with delays between failed attempts according to a {@link RetryPolicy}, so that work
+ * orders already accepted by the receiver keep flowing to Cora while reconnecting.
+ * <p>
+ * The number of reconnect attempts and the time the topic was closed are recorded in
+ * {@link IndexMetrics}.
+ */
+public final class TopicReconnector {
+	public static final RetryPolicy DEFAULT_RECONNECT_POLICY = RetryPolicy
+			.usingMaxAttemptsAndDelays(Integer.MAX_VALUE, 1000, 60000);
+	private Logger logger = LoggerProvider.getLoggerForClass(TopicReconnector.class);
+	private final MessageRoutingInfo routingInfo;
+	private final RetryPolicy reconnectPolicy;
+	private final IndexMetrics indexMetrics;
+	private final ScheduledExecutorService reconnectScheduler;
+	private final AtomicBoolean reconnecting = new AtomicBoolean(false);
+	private volatile long closedAtNanos;
+
+	public static TopicReconnector usingRoutingInfoPolicyAndMetrics(MessageRoutingInfo routingInfo,
+			RetryPolicy reconnectPolicy, IndexMetrics indexMetrics) {
+		return new TopicReconnector(routingInfo, reconnectPolicy, indexMetrics);
+	}
+
+	private TopicReconnector(MessageRoutingInfo routingInfo, RetryPolicy reconnectPolicy,
+			IndexMetrics indexMetrics) {
+		this.routingInfo = routingInfo;
+		this.reconnectPolicy = reconnectPolicy;
+		this.indexMetrics = indexMetrics;
+		reconnectScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "indexmessenger-reconnect");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * reconnect starts reconnecting messageReceiver to the topic. If a reconnect is already in
+	 * progress, nothing more is done.
+	 */
+	public void reconnect(MessageReceiver messageReceiver) {
+		if (reconnecting.compareAndSet(false, true)) {
+			closedAtNanos = System.nanoTime();
+			indexMetrics.getTopicMetrics().recordTopicClosed();
+			scheduleAttempt(messageReceiver, 1, 0);
+		}
+	}
+
+	private void scheduleAttempt(MessageReceiver messageReceiver, int attemptNo, long delayMs) {
+		try {
+			reconnectScheduler.schedule(() -> attempt(messageReceiver, attemptNo), delayMs,
+					TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			logger.logErrorUsingMessage("Reconnector shut down, topic NOT reconnected");
+			reconnecting.set(false);
+		}
+	}
+
+	private void attempt(MessageReceiver messageReceiver, int attemptNo) {
+		indexMetrics.getTopicMetrics().incrementReconnectAttempts();
+		try {
+			MessageListener topicMessageListener = MessagingProvider
+					.getTopicMessageListener(routingInfo);
+			topicMessageListener.listen(messageReceiver);
+			recordReconnected(attemptNo);
+		} catch (Exception e) {
+			retryOrGiveUp(messageReceiver, attemptNo, e);
+		}
+	}
+
+	private void recordReconnected(int attemptNo) {
+		long downtimeNanos = System.nanoTime() - closedAtNanos;
+		indexMetrics.getTopicMetrics().recordTopicReconnectedUsingNanos(downtimeNanos);
+		logger.logInfoUsingMessage(MessageFormat.format(
+				"Reconnected to topic after {0} attempts and {1} ms", String.valueOf(attemptNo),
+				String.valueOf(TimeUnit.NANOSECONDS.toMillis(downtimeNanos))));
+		reconnecting.set(false);
+	}
+
+	private void retryOrGiveUp(MessageReceiver messageReceiver, int attemptNo, Exception e) {
+		if (reconnectPolicy.isRetryAllowedAfterAttempt(attemptNo)) {
+			long delayMs = reconnectPolicy.getDelayMsForRetry(attemptNo);
+			logger.logErrorUsingMessageAndException(MessageFormat.format(
+					"Reconnect attempt {0} failed, next attempt in {1} ms",
+					String.valueOf(attemptNo), String.valueOf(delayMs)), e);
+			scheduleAttempt(messageReceiver, attemptNo + 1, delayMs);
+		} else {
+			logger.logFatalUsingMessageAndException(
+					"Giving up reconnecting to topic after " + attemptNo + " attempts", e);
+			reconnecting.set(false);
+		}
+	}
+
+	public boolean isReconnecting() {
+		return reconnecting.get();
+	}
+
+	/**
+	 * shutdown stops any reconnect in progress, no further attempts are made.
+	 */
+	public void shutdown() {
+		reconnectScheduler.shutdownNow();
+	}
+
+	public MessageRoutingInfo getRoutingInfo() {
+		// needed for test
+		return routingInfo;
+	}
+
+	public RetryPolicy getReconnectPolicy() {
+		// needed for test
+		return reconnectPolicy;
+	}
+}
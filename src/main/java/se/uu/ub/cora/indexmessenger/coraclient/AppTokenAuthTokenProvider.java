@@ -0,0 +1,63 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.coraclient;
+
+import se.uu.ub.cora.indexmessenger.CoraCredentials;
+import se.uu.ub.cora.javaclient.apptoken.AppTokenClient;
+import se.uu.ub.cora.javaclient.apptoken.AppTokenClientFactory;
+
+/**
+ * AppTokenAuthTokenProvider is the {@link AuthTokenProvider} used in production. It logs in to
+ * Cora with the appToken of the credentials, using an AppTokenClient from the javaclient, and
+ * returns the authToken as valid for validForMs, as the login does not return how long the
+ * authToken is valid. validForMs should therefore be set to the authToken lifetime configured
+ * for Cora.
+ */
+public final class AppTokenAuthTokenProvider implements AuthTokenProvider {
+	private final AppTokenClientFactory appTokenClientFactory;
+	private final long validForMs;
+
+	public static AppTokenAuthTokenProvider usingAppTokenClientFactoryAndValidForMs(
+			AppTokenClientFactory appTokenClientFactory, long validForMs) {
+		return new AppTokenAuthTokenProvider(appTokenClientFactory, validForMs);
+	}
+
+	private AppTokenAuthTokenProvider(AppTokenClientFactory appTokenClientFactory,
+			long validForMs) {
+		this.appTokenClientFactory = appTokenClientFactory;
+		this.validForMs = validForMs;
+	}
+
+	@Override
+	public AuthToken fetchAuthTokenUsingCredentials(CoraCredentials credentials) {
+		AppTokenClient appTokenClient = appTokenClientFactory.factor(credentials.userId,
+				credentials.appToken);
+		return AuthToken.usingTokenAndValidForMs(appTokenClient.getAuthToken(), validForMs);
+	}
+
+	public AppTokenClientFactory getAppTokenClientFactory() {
+		// needed for test
+		return appTokenClientFactory;
+	}
+
+	public long getValidForMs() {
+		// needed for test
+		return validForMs;
+	}
+}
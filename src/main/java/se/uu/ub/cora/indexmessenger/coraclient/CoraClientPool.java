@@ -0,0 +1,244 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.coraclient;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import se.uu.ub.cora.indexmessenger.CoraCredentials;
+import se.uu.ub.cora.indexmessenger.IndexMessageException;
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.javaclient.cora.CoraClient;
+import se.uu.ub.cora.javaclient.cora.CoraClientFactory;
+import se.uu.ub.cora.logger.Logger;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+/**
+ * CoraClientPool holds up to size CoraClients, so that each client is used by one thread at a
+ * time. Clients are factored when needed and reused when checked in.
+ * <p>
+ * Checkout is fair, threads get clients in the order they asked for them. A thread that can not
+ * get a client within checkoutTimeoutMs gets an {@link IndexMessageException}. A client whose call
+ * fails on the transport or on authentication is evicted from the pool, as its connection or
+ * authToken can not be trusted, and a new client is factored in its place the next time one is
+ * needed. A client whose call is only refused by Cora, for instance as the record is invalid, is
+ * checked in again.
+ * <p>
+ * Failures are told apart by exception type only. The javaclient reports an authToken rejected by
+ * Cora with the same exception type as any other refusal, so such a client is checked in again.
+ * Pooled clients should therefore be factored by a {@link RefreshingCoraClientFactory}, whose
+ * clients replace their authToken before it expires without being evicted.
+ */
+public final class CoraClientPool {
+	private Logger logger = LoggerProvider.getLoggerForClass(CoraClientPool.class);
+	private final Supplier<CoraClient> clientSupplier;
+	private final int size;
+	private final long checkoutTimeoutMs;
+	private final IndexMetrics indexMetrics;
+	private final Semaphore permits;
+	private final Deque<CoraClient> idleClients = new ArrayDeque<>();
+	private final AtomicLong noOfCreated = new AtomicLong();
+	private final AtomicLong noOfEvicted = new AtomicLong();
+	private final AtomicLong noOfCheckoutWaits = new AtomicLong();
+	private final AtomicLong noOfCheckoutTimeouts = new AtomicLong();
+
+	public static CoraClientPool usingFactoryCredentialsAndSettings(
+			CoraClientFactory coraClientFactory, CoraCredentials credentials, int size,
+			long checkoutTimeoutMs, IndexMetrics indexMetrics) {
+		return usingClientSupplierAndSettings(
+				() -> coraClientFactory.factor(credentials.userId, credentials.appToken), size,
+				checkoutTimeoutMs, indexMetrics);
+	}
+
+	static CoraClientPool usingClientSupplierAndSettings(Supplier<CoraClient> clientSupplier,
+			int size, long checkoutTimeoutMs, IndexMetrics indexMetrics) {
+		if (size < 1) {
+			throw IndexMessageException.withMessage("Pool size must be at least 1");
+		}
+		return new CoraClientPool(clientSupplier, size, checkoutTimeoutMs, indexMetrics);
+	}
+
+	private CoraClientPool(Supplier<CoraClient> clientSupplier, int size, long checkoutTimeoutMs,
+			IndexMetrics indexMetrics) {
+		this.clientSupplier = clientSupplier;
+		this.size = size;
+		this.checkoutTimeoutMs = checkoutTimeoutMs;
+		this.indexMetrics = indexMetrics;
+		permits = new Semaphore(size, true);
+		indexMetrics.getClientPoolMetrics().addToClientPoolSize(size);
+	}
+
+	/**
+	 * useClient checks out a client, calls the call with it and checks it in again, also if the
+	 * call throws an exception. If the exception is a transport or authentication failure, see
+	 * {@link #isTransportOrAuthenticationFailure(Exception)}, the client is evicted instead. The
+	 * exception is rethrown.
+	 */
+	public <T> T useClient(Function<CoraClient, T> call) {
+		CoraClient client = checkOut();
+		boolean evictClient = false;
+		try {
+			return call.apply(client);
+		} catch (RuntimeException e) {
+			evictClient = isTransportOrAuthenticationFailure(e);
+			throw e;
+		} finally {
+			checkInOrEvict(client, evictClient);
+		}
+	}
+
+	private void checkInOrEvict(CoraClient client, boolean evictClient) {
+		if (evictClient) {
+			evict(client);
+		} else {
+			checkIn(client);
+		}
+	}
+
+	/**
+	 * isTransportOrAuthenticationFailure returns true if the exception, or any of its causes, is
+	 * an IOException, as thrown when Cora can not be reached, or an {@link AuthTokenException}, as
+	 * thrown when no authToken could be fetched for the client.
+	 */
+	public static boolean isTransportOrAuthenticationFailure(Exception exception) {
+		for (Throwable current = exception; current != null; current = current.getCause()) {
+			if (current instanceof IOException || current instanceof AuthTokenException) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public CoraClient checkOut() {
+		long startNanos = System.nanoTime();
+		acquirePermit();
+		try {
+			CoraClient client = takeIdleOrCreateClient();
+			indexMetrics.getClientPoolMetrics()
+					.recordClientCheckedOutUsingNanos(System.nanoTime() - startNanos);
+			return client;
+		} catch (RuntimeException e) {
+			permits.release();
+			throw e;
+		}
+	}
+
+	private void acquirePermit() {
+		try {
+			if (!permits.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+				noOfCheckoutWaits.incrementAndGet();
+				indexMetrics.getClientPoolMetrics().incrementClientCheckoutWaits();
+				waitForPermit();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw IndexMessageException.withMessageAndException(
+					"Interrupted while waiting for a CoraClient from the pool", e);
+		}
+	}
+
+	private void waitForPermit() throws InterruptedException {
+		if (!permits.tryAcquire(checkoutTimeoutMs, TimeUnit.MILLISECONDS)) {
+			noOfCheckoutTimeouts.incrementAndGet();
+			indexMetrics.getClientPoolMetrics().incrementClientCheckoutTimeouts();
+			throw IndexMessageException.withMessage("No CoraClient available in pool of size "
+					+ size + " within " + checkoutTimeoutMs + " ms");
+		}
+	}
+
+	private CoraClient takeIdleOrCreateClient() {
+		CoraClient client;
+		synchronized (idleClients) {
+			client = idleClients.pollFirst();
+		}
+		if (client == null) {
+			client = clientSupplier.get();
+			noOfCreated.incrementAndGet();
+		}
+		return client;
+	}
+
+	public void checkIn(CoraClient client) {
+		synchronized (idleClients) {
+			idleClients.addFirst(client);
+		}
+		releaseCheckedOut();
+	}
+
+	private void releaseCheckedOut() {
+		indexMetrics.getClientPoolMetrics().recordClientCheckedIn();
+		permits.release();
+	}
+
+	/**
+	 * evict removes a checked out client from the pool instead of checking it in.
+	 */
+	public void evict(CoraClient client) {
+		noOfEvicted.incrementAndGet();
+		indexMetrics.getClientPoolMetrics().incrementClientsEvicted();
+		logger.logWarnUsingMessage("Evicted CoraClient from pool after failed call");
+		releaseCheckedOut();
+	}
+
+	public int getNoOfIdle() {
+		synchronized (idleClients) {
+			return idleClients.size();
+		}
+	}
+
+	public int getNoOfCheckedOut() {
+		return size - permits.availablePermits();
+	}
+
+	public int getNoOfWaiting() {
+		return permits.getQueueLength();
+	}
+
+	public long getNoOfCreated() {
+		return noOfCreated.get();
+	}
+
+	public long getNoOfEvicted() {
+		return noOfEvicted.get();
+	}
+
+	public long getNoOfCheckoutWaits() {
+		return noOfCheckoutWaits.get();
+	}
+
+	public long getNoOfCheckoutTimeouts() {
+		return noOfCheckoutTimeouts.get();
+	}
+
+	public int getSize() {
+		// needed for test
+		return size;
+	}
+
+	public long getCheckoutTimeoutMs() {
+		// needed for test
+		return checkoutTimeoutMs;
+	}
+}
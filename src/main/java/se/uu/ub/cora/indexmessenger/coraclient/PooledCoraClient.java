@@ -0,0 +1,123 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.coraclient;
+
+import java.util.List;
+
+import se.uu.ub.cora.clientdata.ClientDataGroup;
+import se.uu.ub.cora.clientdata.ClientDataRecord;
+import se.uu.ub.cora.javaclient.cora.CoraClient;
+
+/**
+ * PooledCoraClient is a CoraClient that makes each call using a client checked out from a
+ * {@link CoraClientPool}, so that it can be shared by many threads where a single CoraClient can
+ * not.
+ */
+public final class PooledCoraClient implements CoraClient {
+	private final CoraClientPool pool;
+
+	public static PooledCoraClient usingPool(CoraClientPool pool) {
+		return new PooledCoraClient(pool);
+	}
+
+	private PooledCoraClient(CoraClientPool pool) {
+		this.pool = pool;
+	}
+
+	@Override
+	public String create(String recordType, String json) {
+		return pool.useClient(client -> client.create(recordType, json));
+	}
+
+	@Override
+	public String create(String recordType, ClientDataGroup dataGroup) {
+		return pool.useClient(client -> client.create(recordType, dataGroup));
+	}
+
+	@Override
+	public String read(String recordType, String recordId) {
+		return pool.useClient(client -> client.read(recordType, recordId));
+	}
+
+	@Override
+	public String update(String recordType, String recordId, String json) {
+		return pool.useClient(client -> client.update(recordType, recordId, json));
+	}
+
+	@Override
+	public String delete(String recordType, String recordId) {
+		return pool.useClient(client -> client.delete(recordType, recordId));
+	}
+
+	@Override
+	public String readList(String recordType) {
+		return pool.useClient(client -> client.readList(recordType));
+	}
+
+	@Override
+	public String readIncomingLinks(String recordType, String recordId) {
+		return pool.useClient(client -> client.readIncomingLinks(recordType, recordId));
+	}
+
+	@Override
+	public ClientDataRecord readAsDataRecord(String recordType, String recordId) {
+		return pool.useClient(client -> client.readAsDataRecord(recordType, recordId));
+	}
+
+	@Override
+	public String update(String recordType, String recordId, ClientDataGroup dataGroup) {
+		return pool.useClient(client -> client.update(recordType, recordId, dataGroup));
+	}
+
+	@Override
+	public List<ClientDataRecord> readListAsDataRecords(String recordType) {
+		return pool.useClient(client -> client.readListAsDataRecords(recordType));
+	}
+
+	@Override
+	public String indexData(ClientDataRecord clientDataRecord) {
+		return pool.useClient(client -> client.indexData(clientDataRecord));
+	}
+
+	@Override
+	public String indexData(String recordType, String recordId) {
+		return pool.useClient(client -> client.indexData(recordType, recordId));
+	}
+
+	@Override
+	public String removeFromIndex(String recordType, String recordId) {
+		return pool.useClient(client -> client.removeFromIndex(recordType, recordId));
+	}
+
+	@Override
+	public String indexDataWithoutExplicitCommit(String recordType, String recordId) {
+		return pool.useClient(
+				client -> client.indexDataWithoutExplicitCommit(recordType, recordId));
+	}
+
+	@Override
+	public String indexRecordsOfType(String recordType, String filterAsJson) {
+		return pool.useClient(client -> client.indexRecordsOfType(recordType, filterAsJson));
+	}
+
+	public CoraClientPool getPool() {
+		// needed for test
+		return pool;
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.coraclient;
+
+import se.uu.ub.cora.indexmessenger.CoraCredentials;
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.javaclient.cora.CoraClient;
+import se.uu.ub.cora.javaclient.cora.CoraClientFactory;
+
+/**
+ * PooledCoraClientFactory factors {@link PooledCoraClient}s, each backed by a
+ * {@link CoraClientPool} of its own filled with clients from the wrapped coraClientFactory. It can
+ * be used wherever a CoraClientFactory is expected, making the receivers use a pool without
+ * knowing about it.
+ */
+public final class PooledCoraClientFactory implements CoraClientFactory {
+	private final CoraClientFactory coraClientFactory;
+	private final int poolSize;
+	private final long checkoutTimeoutMs;
+	private final IndexMetrics indexMetrics;
+
+	public PooledCoraClientFactory(CoraClientFactory coraClientFactory, int poolSize,
+			long checkoutTimeoutMs, IndexMetrics indexMetrics) {
+		this.coraClientFactory = coraClientFactory;
+		this.poolSize = poolSize;
+		this.checkoutTimeoutMs = checkoutTimeoutMs;
+		this.indexMetrics = indexMetrics;
+	}
+
+	@Override
+	public PooledCoraClient factor(String userId, String appToken) {
+		CoraClientPool pool = CoraClientPool.usingFactoryCredentialsAndSettings(coraClientFactory,
+				new CoraCredentials(userId, appToken), poolSize, checkoutTimeoutMs, indexMetrics);
+		return PooledCoraClient.usingPool(pool);
+	}
+
+	@Override
+	public CoraClient factorUsingAuthToken(String authToken) {
+		CoraClientPool pool = CoraClientPool.usingClientSupplierAndSettings(
+				() -> coraClientFactory.factorUsingAuthToken(authToken), poolSize,
+				checkoutTimeoutMs, indexMetrics);
+		return PooledCoraClient.usingPool(pool);
+	}
+
+	public CoraClientFactory getCoraClientFactory() {
+		// needed for test
+		return coraClientFactory;
+	}
+
+	public int getPoolSize() {
+		// needed for test
+		return poolSize;
+	}
+
+	public long getCheckoutTimeoutMs() {
+		// needed for test
+		return checkoutTimeoutMs;
+	}
+
+	public IndexMetrics getIndexMetrics() {
+		// needed for test
+		return indexMetrics;
+	}
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.coraclient;
+
+import java.util.List;
+
+import se.uu.ub.cora.clientdata.ClientDataGroup;
+import se.uu.ub.cora.clientdata.ClientDataRecord;
+import se.uu.ub.cora.javaclient.cora.CoraClient;
+import se.uu.ub.cora.javaclient.cora.CoraClientFactory;
+
+/**
+ * RefreshingCoraClient is a CoraClient that passes each call on to a client for the current
+ * authToken of its credentials. The authToken is shared by all clients factored for the same
+ * credentials, and is refreshed by the {@link RefreshingCoraClientFactory} in the background
+ * before it expires, so that calls normally never wait for a login. If the authToken has expired
+ * anyway, because the background refresh failed or is late, the call fetches a new one on the
+ * calling thread before it is passed on, instead of being made with the expired authToken. When
+ * a call finds that the authToken has been refreshed, a new client is factored for it using the
+ * coraClientFactory, which does not log in.
+ * <p>
+ * A RefreshingCoraClient holds no scheduled work of its own, so a client that is dropped, for
+ * instance when it is evicted from a {@link CoraClientPool}, leaves nothing behind.
+ */
+public final class RefreshingCoraClient implements CoraClient {
+	private final CoraClientFactory coraClientFactory;
+	private final SharedAuthToken sharedAuthToken;
+	private volatile ClientForAuthToken current;
+
+	RefreshingCoraClient(CoraClientFactory coraClientFactory, SharedAuthToken sharedAuthToken) {
+		this.coraClientFactory = coraClientFactory;
+		this.sharedAuthToken = sharedAuthToken;
+		current = factorClientForAuthToken(sharedAuthToken.getAuthToken());
+	}
+
+	private ClientForAuthToken factorClientForAuthToken(AuthToken authToken) {
+		return new ClientForAuthToken(authToken,
+				coraClientFactory.factorUsingAuthToken(authToken.token));
+	}
+
+	private CoraClient currentClient() {
+		AuthToken authToken = sharedAuthToken.getValidAuthToken();
+		ClientForAuthToken clientForAuthToken = current;
+		if (clientForAuthToken.authToken != authToken) {
+			clientForAuthToken = factorClientForAuthToken(authToken);
+			current = clientForAuthToken;
+		}
+		return clientForAuthToken.client;
+	}
+
+	@Override
+	public String create(String recordType, String json) {
+		return currentClient().create(recordType, json);
+	}
+
+	@Override
+	public String create(String recordType, ClientDataGroup dataGroup) {
+		return currentClient().create(recordType, dataGroup);
+	}
+
+	@Override
+	public String read(String recordType, String recordId) {
+		return currentClient().read(recordType, recordId);
+	}
+
+	@Override
+	public String update(String recordType, String recordId, String json) {
+		return currentClient().update(recordType, recordId, json);
+	}
+
+	@Override
+	public String delete(String recordType, String recordId) {
+		return currentClient().delete(recordType, recordId);
+	}
+
+	@Override
+	public String readList(String recordType) {
+		return currentClient().readList(recordType);
+	}
+
+	@Override
+	public String readIncomingLinks(String recordType, String recordId) {
+		return currentClient().readIncomingLinks(recordType, recordId);
+	}
+
+	@Override
+	public ClientDataRecord readAsDataRecord(String recordType, String recordId) {
+		return currentClient().readAsDataRecord(recordType, recordId);
+	}
+
+	@Override
+	public String update(String recordType, String recordId, ClientDataGroup dataGroup) {
+		return currentClient().update(recordType, recordId, dataGroup);
+	}
+
+	@Override
+	public List<ClientDataRecord> readListAsDataRecords(String recordType) {
+		return currentClient().readListAsDataRecords(recordType);
+	}
+
+	@Override
+	public String indexData(ClientDataRecord clientDataRecord) {
+		return currentClient().indexData(clientDataRecord);
+	}
+
+	@Override
+	public String indexData(String recordType, String recordId) {
+		return currentClient().indexData(recordType, recordId);
+	}
+
+	@Override
+	public String removeFromIndex(String recordType, String recordId) {
+		return currentClient().removeFromIndex(recordType, recordId);
+	}
+
+	@Override
+	public String indexDataWithoutExplicitCommit(String recordType, String recordId) {
+		return currentClient().indexDataWithoutExplicitCommit(recordType, recordId);
+	}
+
+	@Override
+	public String indexRecordsOfType(String recordType, String filterAsJson) {
+		return currentClient().indexRecordsOfType(recordType, filterAsJson);
+	}
+
+	public CoraClient getCurrentClient() {
+		// needed for test
+		return currentClient();
+	}
+
+	public long getTokenExpiresAtMillis() {
+		return sharedAuthToken.getExpiresAtMillis();
+	}
+
+	private static final class ClientForAuthToken {
+		private final AuthToken authToken;
+		private final CoraClient client;
+
+		private ClientForAuthToken(AuthToken authToken, CoraClient client) {
+			this.authToken = authToken;
+			this.client = client;
+		}
+	}
+}
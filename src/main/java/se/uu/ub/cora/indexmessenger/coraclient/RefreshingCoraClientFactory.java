@@ -0,0 +1,190 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.coraclient;
+
+import java.text.MessageFormat;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import se.uu.ub.cora.indexmessenger.CoraCredentials;
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.javaclient.cora.CoraClient;
+import se.uu.ub.cora.javaclient.cora.CoraClientFactory;
+import se.uu.ub.cora.logger.Logger;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+/**
+ * RefreshingCoraClientFactory factors {@link RefreshingCoraClient}s that log in before their
+ * authToken expires, instead of when a call finds it expired.
+ * <p>
+ * One authToken is kept per set of credentials and shared by all clients factored for them, so
+ * there is at most one scheduled refresh per credentials, however many clients are factored,
+ * evicted or dropped. The first authToken is fetched when the first client for the credentials is
+ * factored, or again, on the calling thread, when a client is factored or called and the shared
+ * one has expired. After that a new authToken is fetched from the
+ * authTokenProvider, on a background thread, refreshMarginMs before the current one expires, but
+ * never before half its lifetime has passed, and replaces the shared one. A failed refresh is
+ * logged and tried again after failureRetryMs.
+ */
+public final class RefreshingCoraClientFactory implements CoraClientFactory {
+	private Logger logger = LoggerProvider.getLoggerForClass(RefreshingCoraClientFactory.class);
+	private final CoraClientFactory coraClientFactory;
+	private final AuthTokenProvider authTokenProvider;
+	private final long refreshMarginMs;
+	private final long failureRetryMs;
+	private final IndexMetrics indexMetrics;
+	private final ScheduledExecutorService refreshScheduler;
+	private final Map<CoraCredentials, SharedAuthToken> sharedAuthTokens = new HashMap<>();
+
+	public RefreshingCoraClientFactory(CoraClientFactory coraClientFactory,
+			AuthTokenProvider authTokenProvider, long refreshMarginMs, long failureRetryMs,
+			IndexMetrics indexMetrics) {
+		this.coraClientFactory = coraClientFactory;
+		this.authTokenProvider = authTokenProvider;
+		this.refreshMarginMs = refreshMarginMs;
+		this.failureRetryMs = failureRetryMs;
+		this.indexMetrics = indexMetrics;
+		refreshScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "indexmessenger-token-refresh");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	@Override
+	public RefreshingCoraClient factor(String userId, String appToken) {
+		CoraCredentials credentials = new CoraCredentials(userId, appToken);
+		return new RefreshingCoraClient(coraClientFactory, getOrStartRefreshing(credentials));
+	}
+
+	private synchronized SharedAuthToken getOrStartRefreshing(CoraCredentials credentials) {
+		SharedAuthToken sharedAuthToken = sharedAuthTokens.get(credentials);
+		if (sharedAuthToken == null) {
+			AuthToken authToken = fetchAuthTokenOnCallingThread(credentials);
+			sharedAuthToken = new SharedAuthToken(authToken, calculateExpiresAt(authToken),
+					() -> fetchAuthTokenOnCallingThread(credentials));
+			sharedAuthTokens.put(credentials, sharedAuthToken);
+			scheduleRefresh(sharedAuthToken, credentials, calculateRefreshDelayMs(authToken));
+		} else {
+			sharedAuthToken.replaceIfExpired();
+		}
+		return sharedAuthToken;
+	}
+
+	private AuthToken fetchAuthTokenOnCallingThread(CoraCredentials credentials) {
+		try {
+			return fetchAuthToken(credentials);
+		} catch (Exception e) {
+			throw AuthTokenException.withMessageAndException(
+					"Could not fetch authToken for user: " + credentials.userId, e);
+		}
+	}
+
+	private AuthToken fetchAuthToken(CoraCredentials credentials) {
+		long startNanos = System.nanoTime();
+		AuthToken authToken = authTokenProvider.fetchAuthTokenUsingCredentials(credentials);
+		indexMetrics.getTokenMetrics().recordTokenRefreshedUsingNanos(
+				System.nanoTime() - startNanos, calculateExpiresAt(authToken));
+		return authToken;
+	}
+
+	private long calculateExpiresAt(AuthToken authToken) {
+		return System.currentTimeMillis() + authToken.validForMs;
+	}
+
+	long calculateRefreshDelayMs(AuthToken authToken) {
+		return Math.max(authToken.validForMs / 2, authToken.validForMs - refreshMarginMs);
+	}
+
+	private void scheduleRefresh(SharedAuthToken sharedAuthToken, CoraCredentials credentials,
+			long delayMs) {
+		try {
+			refreshScheduler.schedule(() -> refresh(sharedAuthToken, credentials), delayMs,
+					TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			logger.logInfoUsingMessage(
+					"Token refresh not scheduled as factory is shut down, for user: "
+							+ credentials.userId);
+		}
+	}
+
+	private void refresh(SharedAuthToken sharedAuthToken, CoraCredentials credentials) {
+		try {
+			AuthToken authToken = fetchAuthToken(credentials);
+			sharedAuthToken.replace(authToken, calculateExpiresAt(authToken));
+			long nextRefreshMs = calculateRefreshDelayMs(authToken);
+			logger.logInfoUsingMessage(MessageFormat.format(
+					"Refreshed authToken for user: {0}, next refresh in {1} ms",
+					credentials.userId, String.valueOf(nextRefreshMs)));
+			scheduleRefresh(sharedAuthToken, credentials, nextRefreshMs);
+		} catch (Exception e) {
+			indexMetrics.getTokenMetrics().incrementTokenRefreshFailures();
+			logger.logErrorUsingMessageAndException(MessageFormat.format(
+					"Failed to refresh authToken for user: {0}, retrying in {1} ms",
+					credentials.userId, String.valueOf(failureRetryMs)), e);
+			scheduleRefresh(sharedAuthToken, credentials, failureRetryMs);
+		}
+	}
+
+	/**
+	 * factorUsingAuthToken factors a client from the wrapped factory, as an authToken given from
+	 * outside can not be refreshed.
+	 */
+	@Override
+	public CoraClient factorUsingAuthToken(String authToken) {
+		return coraClientFactory.factorUsingAuthToken(authToken);
+	}
+
+	/**
+	 * shutdown stops all scheduled refreshes. Factored clients keep working until their current
+	 * authToken expires.
+	 */
+	public void shutdown() {
+		refreshScheduler.shutdownNow();
+	}
+
+	public synchronized int getNoOfRefreshedCredentials() {
+		// needed for test
+		return sharedAuthTokens.size();
+	}
+
+	public CoraClientFactory getCoraClientFactory() {
+		// needed for test
+		return coraClientFactory;
+	}
+
+	public AuthTokenProvider getAuthTokenProvider() {
+		// needed for test
+		return authTokenProvider;
+	}
+
+	public long getRefreshMarginMs() {
+		// needed for test
+		return refreshMarginMs;
+	}
+
+	public long getFailureRetryMs() {
+		// needed for test
+		return failureRetryMs;
+	}
+}
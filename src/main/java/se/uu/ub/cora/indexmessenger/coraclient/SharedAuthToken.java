@@ -0,0 +1,73 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.coraclient;
+
+import java.util.function.Supplier;
+
+/**
+ * SharedAuthToken holds the current authToken for one set of credentials. It is shared by all
+ * {@link RefreshingCoraClient}s factored for the credentials and replaced by the one scheduled
+ * refresh for them in {@link RefreshingCoraClientFactory}.
+ * <p>
+ * If the authToken has expired anyway, because the scheduled refresh failed or is late,
+ * {@link #getValidAuthToken()} fetches a new one on the calling thread using the authTokenFetcher.
+ * Only one thread fetches, other threads asking at the same time wait for its authToken.
+ */
+final class SharedAuthToken {
+	private final Supplier<AuthToken> authTokenFetcher;
+	private volatile long expiresAtMillis;
+	private volatile AuthToken authToken;
+
+	SharedAuthToken(AuthToken authToken, long expiresAtMillis,
+			Supplier<AuthToken> authTokenFetcher) {
+		this.authTokenFetcher = authTokenFetcher;
+		replace(authToken, expiresAtMillis);
+	}
+
+	void replace(AuthToken authToken, long expiresAtMillis) {
+		this.expiresAtMillis = expiresAtMillis;
+		this.authToken = authToken;
+	}
+
+	AuthToken getAuthToken() {
+		return authToken;
+	}
+
+	AuthToken getValidAuthToken() {
+		if (hasExpired()) {
+			replaceIfExpired();
+		}
+		return authToken;
+	}
+
+	synchronized void replaceIfExpired() {
+		if (hasExpired()) {
+			AuthToken fetchedAuthToken = authTokenFetcher.get();
+			replace(fetchedAuthToken, System.currentTimeMillis() + fetchedAuthToken.validForMs);
+		}
+	}
+
+	long getExpiresAtMillis() {
+		return expiresAtMillis;
+	}
+
+	boolean hasExpired() {
+		return System.currentTimeMillis() >= expiresAtMillis;
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * BackPressureMetrics counts how often, and for how long, consumption of messages has been
+ * paused while too many work orders were outstanding.
+ */
+public class BackPressureMetrics implements BackPressureMetricsMXBean {
+	private final LongAdder consumptionPauses = new LongAdder();
+	private final LongAdder consumptionResumes = new LongAdder();
+	private final LongAdder consumptionPausesInterrupted = new LongAdder();
+	private final LongAdder consumptionPausedNanos = new LongAdder();
+	private volatile boolean consumptionPaused = false;
+
+	public void recordConsumptionPaused() {
+		consumptionPauses.increment();
+		consumptionPaused = true;
+	}
+
+	public void recordConsumptionResumedUsingNanos(long pausedNanos) {
+		consumptionResumes.increment();
+		consumptionPausedNanos.add(pausedNanos);
+		consumptionPaused = false;
+	}
+
+	public void recordConsumptionPauseInterruptedUsingNanos(long pausedNanos) {
+		consumptionPausesInterrupted.increment();
+		consumptionPausedNanos.add(pausedNanos);
+		consumptionPaused = false;
+	}
+
+	@Override
+	public long getConsumptionPauses() {
+		return consumptionPauses.sum();
+	}
+
+	@Override
+	public long getConsumptionResumes() {
+		return consumptionResumes.sum();
+	}
+
+	@Override
+	public long getConsumptionPausesInterrupted() {
+		return consumptionPausesInterrupted.sum();
+	}
+
+	@Override
+	public long getConsumptionPausedMillis() {
+		return consumptionPausedNanos.sum() / 1_000_000;
+	}
+
+	@Override
+	public boolean isConsumptionPaused() {
+		return consumptionPaused;
+	}
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * BurstMetrics counts bursts of work orders for one record type that are collapsed into one
+ * reindex of the type.
+ */
+public class BurstMetrics implements BurstMetricsMXBean {
+	private final LongAdder burstsDetected = new LongAdder();
+	private final LongAdder burstsIndexed = new LongAdder();
+	private final LongAdder burstIndexFailures = new LongAdder();
+	private final LongAdder workOrdersCollapsedIntoBursts = new LongAdder();
+
+	public void incrementBurstsDetected() {
+		burstsDetected.increment();
+	}
+
+	public void incrementBurstsIndexed() {
+		burstsIndexed.increment();
+	}
+
+	public void incrementBurstIndexFailures() {
+		burstIndexFailures.increment();
+	}
+
+	public void incrementWorkOrdersCollapsedIntoBursts() {
+		workOrdersCollapsedIntoBursts.increment();
+	}
+
+	@Override
+	public long getBurstsDetected() {
+		return burstsDetected.sum();
+	}
+
+	@Override
+	public long getBurstsIndexed() {
+		return burstsIndexed.sum();
+	}
+
+	@Override
+	public long getBurstIndexFailures() {
+		return burstIndexFailures.sum();
+	}
+
+	@Override
+	public long getWorkOrdersCollapsedIntoBursts() {
+		return workOrdersCollapsedIntoBursts.sum();
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ClientPoolMetrics keeps the size and use of the pools of Cora clients, summed over all pools
+ * sharing the metrics, and a latency histogram for checking out clients.
+ */
+public class ClientPoolMetrics implements ClientPoolMetricsMXBean {
+	private final LongAdder clientPoolSize = new LongAdder();
+	private final LongAdder clientsInUse = new LongAdder();
+	private final LongAdder clientCheckouts = new LongAdder();
+	private final LongAdder clientCheckoutWaits = new LongAdder();
+	private final LongAdder clientCheckoutTimeouts = new LongAdder();
+	private final LongAdder clientsEvicted = new LongAdder();
+	private final LatencyHistogram clientCheckoutLatency = new LatencyHistogram();
+
+	public void addToClientPoolSize(int size) {
+		clientPoolSize.add(size);
+	}
+
+	public void recordClientCheckedOutUsingNanos(long waitNanos) {
+		clientCheckouts.increment();
+		clientsInUse.increment();
+		clientCheckoutLatency.recordNanos(waitNanos);
+	}
+
+	public void recordClientCheckedIn() {
+		clientsInUse.decrement();
+	}
+
+	public void incrementClientCheckoutWaits() {
+		clientCheckoutWaits.increment();
+	}
+
+	public void incrementClientCheckoutTimeouts() {
+		clientCheckoutTimeouts.increment();
+	}
+
+	public void incrementClientsEvicted() {
+		clientsEvicted.increment();
+	}
+
+	@Override
+	public long getClientPoolSize() {
+		return clientPoolSize.sum();
+	}
+
+	@Override
+	public long getClientsInUse() {
+		return clientsInUse.sum();
+	}
+
+	@Override
+	public long getClientCheckouts() {
+		return clientCheckouts.sum();
+	}
+
+	@Override
+	public long getClientCheckoutWaits() {
+		return clientCheckoutWaits.sum();
+	}
+
+	@Override
+	public long getClientCheckoutTimeouts() {
+		return clientCheckoutTimeouts.sum();
+	}
+
+	@Override
+	public long getClientsEvicted() {
+		return clientsEvicted.sum();
+	}
+
+	@Override
+	public long[] getClientCheckoutLatencyBucketCounts() {
+		return clientCheckoutLatency.getBucketCounts();
+	}
+
+	@Override
+	public long[] getLatencyBucketUpperBoundsMicros() {
+		return LatencyHistogram.getBucketUpperBoundsMicros();
+	}
+
+	public LatencyHistogram getClientCheckoutLatency() {
+		return clientCheckoutLatency;
+	}
+}
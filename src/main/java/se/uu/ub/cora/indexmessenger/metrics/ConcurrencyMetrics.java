@@ -0,0 +1,62 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ConcurrencyMetrics keeps the adaptive concurrency limits of the consumers, summed over all
+ * consumers sharing the metrics, and the round-trip time they are adapted to.
+ */
+public class ConcurrencyMetrics implements ConcurrencyMetricsMXBean {
+	private final LongAdder concurrencyLimit = new LongAdder();
+	private volatile long smoothedRttNanos = 0;
+	private final LongAdder concurrencyLimitDecreases = new LongAdder();
+
+	/**
+	 * addToConcurrencyLimit adds a change of the limit of one adaptive concurrency limit, so that
+	 * the limits of several consumers sharing the metrics are summed.
+	 */
+	public void addToConcurrencyLimit(int change) {
+		concurrencyLimit.add(change);
+	}
+
+	public void recordSmoothedRttNanos(long rttNanos) {
+		smoothedRttNanos = rttNanos;
+	}
+
+	public void incrementConcurrencyLimitDecreases() {
+		concurrencyLimitDecreases.increment();
+	}
+
+	@Override
+	public int getConcurrencyLimit() {
+		return concurrencyLimit.intValue();
+	}
+
+	@Override
+	public long getSmoothedRttMicros() {
+		return smoothedRttNanos / 1000;
+	}
+
+	@Override
+	public long getConcurrencyLimitDecreases() {
+		return concurrencyLimitDecreases.sum();
+	}
+}
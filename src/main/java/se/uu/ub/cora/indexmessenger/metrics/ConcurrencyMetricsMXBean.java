@@ -0,0 +1,39 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.metrics;
+
+/**
+ * ConcurrencyMetricsMXBean is the JMX view of {@link ConcurrencyMetrics}.
+ */
+public interface ConcurrencyMetricsMXBean {
+
+	/**
+	 * Returns the number of work orders currently allowed in flight by the adaptive concurrency
+	 * limits of all consumers using the metrics, or 0 if no adaptive limit is used.
+	 */
+	int getConcurrencyLimit();
+
+	/**
+	 * Returns the smoothed round-trip time of work orders last measured by any adaptive concurrency
+	 * limit, in microseconds.
+	 */
+	long getSmoothedRttMicros();
+
+	long getConcurrencyLimitDecreases();
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * DeadLetterMetrics counts the dead letters published for work orders and messages that could
+ * not be handled.
+ */
+public class DeadLetterMetrics implements DeadLetterMetricsMXBean {
+	private final LongAdder deadLettersPublished = new LongAdder();
+	private final LongAdder deadLettersDropped = new LongAdder();
+	private final LongAdder deadLetterPublishFailures = new LongAdder();
+
+	public void incrementDeadLettersPublished() {
+		deadLettersPublished.increment();
+	}
+
+	public void incrementDeadLettersDropped() {
+		deadLettersDropped.increment();
+	}
+
+	public void incrementDeadLetterPublishFailures() {
+		deadLetterPublishFailures.increment();
+	}
+
+	@Override
+	public long getDeadLettersPublished() {
+		return deadLettersPublished.sum();
+	}
+
+	@Override
+	public long getDeadLettersDropped() {
+		return deadLettersDropped.sum();
+	}
+
+	@Override
+	public long getDeadLetterPublishFailures() {
+		return deadLetterPublishFailures.sum();
+	}
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import se.uu.ub.cora.indexmessenger.IndexMessageException;
+
+/**
+ * IndexMetrics holds the metrics of one listener, or one listener group, split per subsystem:
+ * {@link WorkOrderMetrics} for the indexing path from received messages to created work orders,
+ * {@link RetryMetrics} for retries and circuit breakers, {@link ConcurrencyMetrics},
+ * {@link BackPressureMetrics}, {@link ClientPoolMetrics}, {@link TokenMetrics},
+ * {@link BurstMetrics}, {@link TopicMetrics} and {@link DeadLetterMetrics}. All counters are
+ * {@link java.util.concurrent.atomic.LongAdder}s so that they can be updated from many threads
+ * with low contention. Gauges that several consumers update, such as the concurrency limit and the
+ * circuit breaker state, are aggregated over all of them instead of showing the latest update.
+ * <p>
+ * The metrics can be registered in the platform MBeanServer, using
+ * {@link #registerAsMBeanUsingName(String)}, as one MXBean per subsystem so that existing JVM
+ * monitoring can read them. All attributes are open types, so that generic JMX clients can read
+ * them without the classes of this module.
+ */
+public class IndexMetrics {
+	public static final String OBJECT_NAME_PREFIX = "se.uu.ub.cora.indexmessenger:"
+			+ "type=IndexMetrics,name=";
+	private final WorkOrderMetrics workOrderMetrics = new WorkOrderMetrics();
+	private final RetryMetrics retryMetrics = new RetryMetrics();
+	private final ConcurrencyMetrics concurrencyMetrics = new ConcurrencyMetrics();
+	private final BackPressureMetrics backPressureMetrics = new BackPressureMetrics();
+	private final ClientPoolMetrics clientPoolMetrics = new ClientPoolMetrics();
+	private final TokenMetrics tokenMetrics = new TokenMetrics();
+	private final BurstMetrics burstMetrics = new BurstMetrics();
+	private final TopicMetrics topicMetrics = new TopicMetrics();
+	private final DeadLetterMetrics deadLetterMetrics = new DeadLetterMetrics();
+	private List<ObjectName> objectNames = Collections.emptyList();
+
+	public WorkOrderMetrics getWorkOrderMetrics() {
+		return workOrderMetrics;
+	}
+
+	public RetryMetrics getRetryMetrics() {
+		return retryMetrics;
+	}
+
+	public ConcurrencyMetrics getConcurrencyMetrics() {
+		return concurrencyMetrics;
+	}
+
+	public BackPressureMetrics getBackPressureMetrics() {
+		return backPressureMetrics;
+	}
+
+	public ClientPoolMetrics getClientPoolMetrics() {
+		return clientPoolMetrics;
+	}
+
+	public TokenMetrics getTokenMetrics() {
+		return tokenMetrics;
+	}
+
+	public BurstMetrics getBurstMetrics() {
+		return burstMetrics;
+	}
+
+	public TopicMetrics getTopicMetrics() {
+		return topicMetrics;
+	}
+
+	public DeadLetterMetrics getDeadLetterMetrics() {
+		return deadLetterMetrics;
+	}
+
+	/**
+	 * Registers the metrics of each subsystem as an MXBean in the platform MBeanServer under the
+	 * ObjectName {@value #OBJECT_NAME_PREFIX} followed by the quoted name and the subsystem, for
+	 * instance {@code ,subsystem=WorkOrders}. These metrics are first unregistered from any name
+	 * they were registered under before. If other metrics are already registered under the same
+	 * name, an {@link IndexMessageException} is thrown and the other metrics are left registered.
+	 */
+	public synchronized List<ObjectName> registerAsMBeanUsingName(String name) {
+		unregisterAsMBean();
+		MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+		Map<ObjectName, Object> mxBeans = createMXBeansUsingName(name);
+		for (ObjectName nameToRegister : mxBeans.keySet()) {
+			if (mBeanServer.isRegistered(nameToRegister)) {
+				throw IndexMessageException
+						.withMessage("Other metrics already registered as MBean: " + name);
+			}
+		}
+		List<ObjectName> registeredNames = new ArrayList<>();
+		try {
+			for (Entry<ObjectName, Object> mxBean : mxBeans.entrySet()) {
+				mBeanServer.registerMBean(mxBean.getValue(), mxBean.getKey());
+				registeredNames.add(mxBean.getKey());
+			}
+			objectNames = Collections.unmodifiableList(registeredNames);
+			return objectNames;
+		} catch (Exception e) {
+			unregisterNames(mBeanServer, registeredNames);
+			throw IndexMessageException
+					.withMessageAndException("Could not register metrics as MBean: " + name, e);
+		}
+	}
+
+	private Map<ObjectName, Object> createMXBeansUsingName(String name) {
+		Map<ObjectName, Object> mxBeans = new LinkedHashMap<>();
+		mxBeans.put(createObjectName(name, "WorkOrders"), workOrderMetrics);
+		mxBeans.put(createObjectName(name, "Retries"), retryMetrics);
+		mxBeans.put(createObjectName(name, "Concurrency"), concurrencyMetrics);
+		mxBeans.put(createObjectName(name, "BackPressure"), backPressureMetrics);
+		mxBeans.put(createObjectName(name, "ClientPool"), clientPoolMetrics);
+		mxBeans.put(createObjectName(name, "Tokens"), tokenMetrics);
+		mxBeans.put(createObjectName(name, "Bursts"), burstMetrics);
+		mxBeans.put(createObjectName(name, "Topic"), topicMetrics);
+		mxBeans.put(createObjectName(name, "DeadLetters"), deadLetterMetrics);
+		return mxBeans;
+	}
+
+	private ObjectName createObjectName(String name, String subsystem) {
+		try {
+			return new ObjectName(
+					OBJECT_NAME_PREFIX + ObjectName.quote(name) + ",subsystem=" + subsystem);
+		} catch (Exception e) {
+			throw IndexMessageException
+					.withMessageAndException("Could not register metrics as MBean: " + name, e);
+		}
+	}
+
+	private void unregisterNames(MBeanServer mBeanServer, List<ObjectName> names) {
+		for (ObjectName name : names) {
+			try {
+				if (mBeanServer.isRegistered(name)) {
+					mBeanServer.unregisterMBean(name);
+				}
+			} catch (Exception e) {
+				throw IndexMessageException.withMessageAndException(
+						"Could not unregister metrics as MBean: " + name, e);
+			}
+		}
+	}
+
+	public synchronized void unregisterAsMBean() {
+		List<ObjectName> namesToUnregister = objectNames;
+		objectNames = Collections.emptyList();
+		unregisterNames(ManagementFactory.getPlatformMBeanServer(), namesToUnregister);
+	}
+
+	/**
+	 * Returns the ObjectNames the metrics of each subsystem are registered under, or an empty list
+	 * if the metrics are not registered.
+	 */
+	public synchronized List<ObjectName> getObjectNames() {
+		return objectNames;
+	}
+}
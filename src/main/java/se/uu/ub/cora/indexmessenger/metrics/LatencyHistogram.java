@@ -0,0 +1,88 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LatencyHistogram counts latencies in a fixed set of buckets. Each bucket is a {@link LongAdder}
+ * so that recording from many threads does not contend on a single counter, and recording never
+ * allocates.
+ */
+public final class LatencyHistogram {
+	private static final long[] BUCKET_UPPER_BOUNDS_MICROS = { 100, 250, 500, 1_000, 2_500, 5_000,
+			10_000, 25_000, 50_000, 100_000, 250_000, 500_000, 1_000_000, 2_500_000, 5_000_000,
+			10_000_000 };
+	private final LongAdder[] buckets = new LongAdder[BUCKET_UPPER_BOUNDS_MICROS.length + 1];
+	private final LongAdder totalNanos = new LongAdder();
+
+	public LatencyHistogram() {
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+
+	public void recordNanos(long nanos) {
+		buckets[findBucketIndex(nanos / 1000)].increment();
+		totalNanos.add(nanos);
+	}
+
+	private int findBucketIndex(long micros) {
+		for (int i = 0; i < BUCKET_UPPER_BOUNDS_MICROS.length; i++) {
+			if (micros <= BUCKET_UPPER_BOUNDS_MICROS[i]) {
+				return i;
+			}
+		}
+		return BUCKET_UPPER_BOUNDS_MICROS.length;
+	}
+
+	/**
+	 * Returns the upper bound of each bucket in microseconds. The last bucket, returned by
+	 * {@link #getBucketCounts()} but without an upper bound, counts everything above the largest
+	 * bound.
+	 */
+	public static long[] getBucketUpperBoundsMicros() {
+		return BUCKET_UPPER_BOUNDS_MICROS.clone();
+	}
+
+	public long[] getBucketCounts() {
+		long[] counts = new long[buckets.length];
+		for (int i = 0; i < buckets.length; i++) {
+			counts[i] = buckets[i].sum();
+		}
+		return counts;
+	}
+
+	public long getCount() {
+		long count = 0;
+		for (LongAdder bucket : buckets) {
+			count += bucket.sum();
+		}
+		return count;
+	}
+
+	public long getTotalNanos() {
+		return totalNanos.sum();
+	}
+
+	public double getMeanMicros() {
+		long count = getCount();
+		return count == 0 ? 0 : getTotalNanos() / 1000.0 / count;
+	}
+}
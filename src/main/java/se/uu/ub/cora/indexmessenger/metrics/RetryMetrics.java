@@ -0,0 +1,124 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * RetryMetrics counts retried work orders and keeps the state of the circuit breakers that stop
+ * calls to Cora while it fails. The circuit breaker state is aggregated over all circuit breakers
+ * sharing the metrics instead of showing the latest update.
+ */
+public class RetryMetrics implements RetryMetricsMXBean {
+	private static final String OPEN = "OPEN";
+	private static final String HALF_OPEN = "HALF_OPEN";
+	private static final String CLOSED = "CLOSED";
+	private final LongAdder retriesScheduled = new LongAdder();
+	private final LongAdder retriesExhausted = new LongAdder();
+	private final LongAdder failuresNotRetryable = new LongAdder();
+	private final LongAdder workOrdersRejectedByCircuitBreaker = new LongAdder();
+	private final LongAdder circuitBreakerOpenings = new LongAdder();
+	private final Map<String, LongAdder> noOfCircuitBreakersPerState = new ConcurrentHashMap<>();
+
+	public void incrementRetriesScheduled() {
+		retriesScheduled.increment();
+	}
+
+	public void incrementRetriesExhausted() {
+		retriesExhausted.increment();
+	}
+
+	public void incrementFailuresNotRetryable() {
+		failuresNotRetryable.increment();
+	}
+
+	public void incrementWorkOrdersRejectedByCircuitBreaker() {
+		workOrdersRejectedByCircuitBreaker.increment();
+	}
+
+	/**
+	 * recordCircuitBreakerStateChange records that a circuit breaker went from oldState to
+	 * newState, oldState is null for a new circuit breaker. The number of circuit breakers in each
+	 * state is kept, so that several circuit breakers can share the metrics.
+	 */
+	public void recordCircuitBreakerStateChange(String oldState, String newState) {
+		if (oldState != null) {
+			noOfCircuitBreakersInState(oldState).decrement();
+		}
+		noOfCircuitBreakersInState(newState).increment();
+		if (OPEN.equals(newState)) {
+			circuitBreakerOpenings.increment();
+		}
+	}
+
+	private LongAdder noOfCircuitBreakersInState(String state) {
+		return noOfCircuitBreakersPerState.computeIfAbsent(state, key -> new LongAdder());
+	}
+
+	@Override
+	public long getRetriesScheduled() {
+		return retriesScheduled.sum();
+	}
+
+	@Override
+	public long getRetriesExhausted() {
+		return retriesExhausted.sum();
+	}
+
+	@Override
+	public long getFailuresNotRetryable() {
+		return failuresNotRetryable.sum();
+	}
+
+	@Override
+	public long getWorkOrdersRejectedByCircuitBreaker() {
+		return workOrdersRejectedByCircuitBreaker.sum();
+	}
+
+	@Override
+	public String getCircuitBreakerState() {
+		if (getNoOfCircuitBreakersInState(OPEN) > 0) {
+			return OPEN;
+		}
+		if (getNoOfCircuitBreakersInState(HALF_OPEN) > 0) {
+			return HALF_OPEN;
+		}
+		if (getNoOfCircuitBreakersInState(CLOSED) > 0) {
+			return CLOSED;
+		}
+		return "NONE";
+	}
+
+	private long getNoOfCircuitBreakersInState(String state) {
+		LongAdder noInState = noOfCircuitBreakersPerState.get(state);
+		return noInState == null ? 0 : noInState.sum();
+	}
+
+	@Override
+	public long getNoOfOpenCircuitBreakers() {
+		return getNoOfCircuitBreakersInState(OPEN);
+	}
+
+	@Override
+	public long getCircuitBreakerOpenings() {
+		return circuitBreakerOpenings.sum();
+	}
+}
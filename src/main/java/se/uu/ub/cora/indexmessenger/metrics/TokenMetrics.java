@@ -0,0 +1,72 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * TokenMetrics counts the authTokens fetched ahead of expiry and keeps a latency histogram for
+ * fetching them.
+ */
+public class TokenMetrics implements TokenMetricsMXBean {
+	private final LongAdder tokenRefreshes = new LongAdder();
+	private final LongAdder tokenRefreshFailures = new LongAdder();
+	private volatile long tokenExpiresAtMillis = 0;
+	private final LatencyHistogram tokenRefreshLatency = new LatencyHistogram();
+
+	public void recordTokenRefreshedUsingNanos(long nanos, long expiresAtMillis) {
+		tokenRefreshes.increment();
+		tokenRefreshLatency.recordNanos(nanos);
+		tokenExpiresAtMillis = expiresAtMillis;
+	}
+
+	public void incrementTokenRefreshFailures() {
+		tokenRefreshFailures.increment();
+	}
+
+	@Override
+	public long getTokenRefreshes() {
+		return tokenRefreshes.sum();
+	}
+
+	@Override
+	public long getTokenRefreshFailures() {
+		return tokenRefreshFailures.sum();
+	}
+
+	@Override
+	public long getMillisUntilTokenExpiry() {
+		long expiresAt = tokenExpiresAtMillis;
+		return expiresAt == 0 ? -1 : expiresAt - System.currentTimeMillis();
+	}
+
+	@Override
+	public long[] getTokenRefreshLatencyBucketCounts() {
+		return tokenRefreshLatency.getBucketCounts();
+	}
+
+	@Override
+	public long[] getLatencyBucketUpperBoundsMicros() {
+		return LatencyHistogram.getBucketUpperBoundsMicros();
+	}
+
+	public LatencyHistogram getTokenRefreshLatency() {
+		return tokenRefreshLatency;
+	}
+}
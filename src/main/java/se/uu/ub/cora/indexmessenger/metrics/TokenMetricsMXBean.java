@@ -0,0 +1,41 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.metrics;
+
+/**
+ * TokenMetricsMXBean is the JMX view of {@link TokenMetrics}. Latency bucket counts follow the
+ * bounds in {@link #getLatencyBucketUpperBoundsMicros()}, with one extra last bucket for
+ * everything above the largest bound.
+ */
+public interface TokenMetricsMXBean {
+
+	long getTokenRefreshes();
+
+	long getTokenRefreshFailures();
+
+	/**
+	 * Returns the number of milliseconds until the latest fetched authToken expires, or -1 if no
+	 * authToken has been fetched.
+	 */
+	long getMillisUntilTokenExpiry();
+
+	long[] getTokenRefreshLatencyBucketCounts();
+
+	long[] getLatencyBucketUpperBoundsMicros();
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * TopicMetrics counts how often the message topic has been closed and reconnected, and for how
+ * long it has been closed.
+ */
+public class TopicMetrics implements TopicMetricsMXBean {
+	private final LongAdder topicCloses = new LongAdder();
+	private final LongAdder reconnectAttempts = new LongAdder();
+	private final LongAdder reconnects = new LongAdder();
+	private final LongAdder topicDowntimeNanos = new LongAdder();
+	private volatile boolean topicClosed = false;
+
+	public void recordTopicClosed() {
+		topicCloses.increment();
+		topicClosed = true;
+	}
+
+	public void incrementReconnectAttempts() {
+		reconnectAttempts.increment();
+	}
+
+	public void recordTopicReconnectedUsingNanos(long downtimeNanos) {
+		reconnects.increment();
+		topicDowntimeNanos.add(downtimeNanos);
+		topicClosed = false;
+	}
+
+	@Override
+	public long getTopicCloses() {
+		return topicCloses.sum();
+	}
+
+	@Override
+	public long getReconnectAttempts() {
+		return reconnectAttempts.sum();
+	}
+
+	@Override
+	public long getReconnects() {
+		return reconnects.sum();
+	}
+
+	@Override
+	public long getTopicDowntimeMillis() {
+		return topicDowntimeNanos.sum() / 1_000_000;
+	}
+
+	@Override
+	public boolean isTopicClosed() {
+		return topicClosed;
+	}
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * WorkOrderMetrics counts what happens on the indexing path, from received messages to created
+ * work orders, and keeps latency histograms for parsing, for creating work orders in Cora and for
+ * each work order priority.
+ */
+public class WorkOrderMetrics implements WorkOrderMetricsMXBean {
+	private final LongAdder messagesReceived = new LongAdder();
+	private final LongAdder messagesFiltered = new LongAdder();
+	private final LongAdder messagesParsed = new LongAdder();
+	private final LongAdder messagesFailedToParse = new LongAdder();
+	private final LongAdder workOrdersCreated = new LongAdder();
+	private final LongAdder workOrdersFailed = new LongAdder();
+	private final LongAdder workOrdersLeftAtShutdown = new LongAdder();
+	private final Map<String, LatencyHistogram> priorityLatencies = new ConcurrentHashMap<>();
+	private final LatencyHistogram parseLatency = new LatencyHistogram();
+	private final LatencyHistogram createLatency = new LatencyHistogram();
+
+	public void incrementMessagesReceived() {
+		messagesReceived.increment();
+	}
+
+	public void incrementMessagesFiltered() {
+		messagesFiltered.increment();
+	}
+
+	public void recordMessageParsedUsingNanos(long nanos) {
+		messagesParsed.increment();
+		parseLatency.recordNanos(nanos);
+	}
+
+	public void incrementMessagesFailedToParse() {
+		messagesFailedToParse.increment();
+	}
+
+	public void recordWorkOrderCreatedUsingNanos(long nanos) {
+		workOrdersCreated.increment();
+		createLatency.recordNanos(nanos);
+	}
+
+	public void recordWorkOrderFailedUsingNanos(long nanos) {
+		workOrdersFailed.increment();
+		createLatency.recordNanos(nanos);
+	}
+
+	public void incrementWorkOrdersLeftAtShutdown() {
+		workOrdersLeftAtShutdown.increment();
+	}
+
+	public void recordPriorityLatencyUsingNanos(String priority, long nanos) {
+		getPriorityLatency(priority).recordNanos(nanos);
+	}
+
+	@Override
+	public long getMessagesReceived() {
+		return messagesReceived.sum();
+	}
+
+	@Override
+	public long getMessagesFiltered() {
+		return messagesFiltered.sum();
+	}
+
+	@Override
+	public long getMessagesParsed() {
+		return messagesParsed.sum();
+	}
+
+	@Override
+	public long getMessagesFailedToParse() {
+		return messagesFailedToParse.sum();
+	}
+
+	@Override
+	public long getWorkOrdersCreated() {
+		return workOrdersCreated.sum();
+	}
+
+	@Override
+	public long getWorkOrdersFailed() {
+		return workOrdersFailed.sum();
+	}
+
+	@Override
+	public long getWorkOrdersLeftAtShutdown() {
+		return workOrdersLeftAtShutdown.sum();
+	}
+
+	@Override
+	public Map<String, Double> getPriorityLatencyMeanMicros() {
+		Map<String, Double> means = new TreeMap<>();
+		priorityLatencies.forEach((priority, latency) -> means.put(priority,
+				latency.getMeanMicros()));
+		return means;
+	}
+
+	@Override
+	public Map<String, long[]> getPriorityLatencyBucketCounts() {
+		Map<String, long[]> bucketCounts = new TreeMap<>();
+		priorityLatencies.forEach((priority, latency) -> bucketCounts.put(priority,
+				latency.getBucketCounts()));
+		return bucketCounts;
+	}
+
+	@Override
+	public long[] getLatencyBucketUpperBoundsMicros() {
+		return LatencyHistogram.getBucketUpperBoundsMicros();
+	}
+
+	@Override
+	public long[] getParseLatencyBucketCounts() {
+		return parseLatency.getBucketCounts();
+	}
+
+	@Override
+	public double getParseLatencyMeanMicros() {
+		return parseLatency.getMeanMicros();
+	}
+
+	@Override
+	public long[] getCreateLatencyBucketCounts() {
+		return createLatency.getBucketCounts();
+	}
+
+	@Override
+	public double getCreateLatencyMeanMicros() {
+		return createLatency.getMeanMicros();
+	}
+
+	public LatencyHistogram getParseLatency() {
+		return parseLatency;
+	}
+
+	public LatencyHistogram getCreateLatency() {
+		return createLatency;
+	}
+
+	public LatencyHistogram getPriorityLatency(String priority) {
+		return priorityLatencies.computeIfAbsent(priority, p -> new LatencyHistogram());
+	}
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.metrics;
+
+import java.util.Map;
+
+/**
+ * WorkOrderMetricsMXBean is the JMX view of {@link WorkOrderMetrics}. Latency bucket counts
+ * follow the bounds in {@link #getLatencyBucketUpperBoundsMicros()}, with one extra last bucket
+ * for everything above the largest bound. Latencies per priority are shown as tables keyed by
+ * priority.
+ */
+public interface WorkOrderMetricsMXBean {
+
+	long getMessagesReceived();
+
+	long getMessagesFiltered();
+
+	long getMessagesParsed();
+
+	long getMessagesFailedToParse();
+
+	long getWorkOrdersCreated();
+
+	long getWorkOrdersFailed();
+
+	/**
+	 * Returns the number of work orders given to the leftover spill of a stopped receiver, as they
+	 * were received after it was stopped or not handled before its deadline.
+	 */
+	long getWorkOrdersLeftAtShutdown();
+
+	/**
+	 * Returns the mean time from queueing until handled for each work order priority, in
+	 * microseconds.
+	 */
+	Map<String, Double> getPriorityLatencyMeanMicros();
+
+	Map<String, long[]> getPriorityLatencyBucketCounts();
+
+	long[] getLatencyBucketUpperBoundsMicros();
+
+	long[] getParseLatencyBucketCounts();
+
+	double getParseLatencyMeanMicros();
+
+	long[] getCreateLatencyBucketCounts();
+
+	double getCreateLatencyMeanMicros();
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.parser;
+
+import java.util.Map;
+
+/**
+ * HeaderRejectingMessageParser is a {@link MessageParser} that can tell from the headers alone that
+ * no work order should be created for a message, making it possible to skip parsing the message
+ * body.
+ */
+public interface HeaderRejectingMessageParser extends MessageParser {
+
+	/**
+	 * isRejectedUsingHeaders returns true if the headers carry enough information to decide that
+	 * no work order should be created for the message. It returns false if a work order might be
+	 * needed, in which case the message is parsed as usual.
+	 * 
+	 * @param headers
+	 *            the headers of the message
+	 * @return a boolean, true if the message can be rejected without parsing the body
+	 */
+	boolean isRejectedUsingHeaders(Map<String, String> headers);
+
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.parser;
+
+/**
+ * ThreadConfinedMessageParserFactory wraps a MessageParserFactory and keeps one parser per thread,
+ * so that a new parser does not have to be factored for each message.
+ * <p>
+ * Parsers are only reused if they implement {@link ReusableMessageParser}, and they are reset
+ * before they are returned. Other parsers are factored anew for each call, as before.
+ */
+public class ThreadConfinedMessageParserFactory implements MessageParserFactory {
+
+	private final MessageParserFactory messageParserFactory;
+	private final ThreadLocal<ReusableMessageParser> parsers = new ThreadLocal<>();
+
+	public ThreadConfinedMessageParserFactory(MessageParserFactory messageParserFactory) {
+		this.messageParserFactory = messageParserFactory;
+	}
+
+	@Override
+	public MessageParser factor() {
+		ReusableMessageParser parser = parsers.get();
+		if (parser != null) {
+			parser.reset();
+			return parser;
+		}
+		return factorAndKeepIfReusable();
+	}
+
+	private MessageParser factorAndKeepIfReusable() {
+		MessageParser factored = messageParserFactory.factor();
+		if (factored instanceof ReusableMessageParser) {
+			parsers.set((ReusableMessageParser) factored);
+		}
+		return factored;
+	}
+
+	public MessageParserFactory getMessageParserFactory() {
+		// needed for test
+		return messageParserFactory;
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+/**
+ * AdaptiveConcurrencyLimit decides how many work orders may be in flight to Cora at the same time,
+ * using additive increase and multiplicative decrease (AIMD) based on the round-trip time (RTT)
+ * of finished work orders.
+ * <p>
+ * Each finished work order is reported as a sample. The RTT is smoothed, and compared to the
+ * lowest RTT seen, the no load RTT. While the smoothed RTT is below latencyTolerance times the no
+ * load RTT and the limit is used, the limit grows by about one for each limit samples, that is by
+ * one per round trip. When the smoothed RTT rises above it, or a work order fails, the limit is
+ * multiplied by backoffRatio, at most once for each limit samples so that the work orders already
+ * in flight do not reduce it several times for the same overload.
+ * <p>
+ * The no load RTT slowly follows higher RTTs, so that the limit can grow again if Cora stays
+ * slower without being overloaded.
+ */
+public final class AdaptiveConcurrencyLimit {
+	private static final int RTT_SMOOTHING_DIVISOR = 8;
+	private static final int NO_LOAD_RTT_DRIFT_DIVISOR = 256;
+	private final int minLimit;
+	private final int maxLimit;
+	private final double latencyTolerance;
+	private final double backoffRatio;
+	private double limit;
+	private long smoothedRttNanos = 0;
+	private long noLoadRttNanos = 0;
+	private long noOfSamplesSinceDecrease = 0;
+
+	public static AdaptiveConcurrencyLimit usingLimits(int initialLimit, int minLimit,
+			int maxLimit) {
+		return new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, 2.0, 0.9);
+	}
+
+	public static AdaptiveConcurrencyLimit usingLimitsAndSettings(int initialLimit, int minLimit,
+			int maxLimit, double latencyTolerance, double backoffRatio) {
+		return new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, latencyTolerance,
+				backoffRatio);
+	}
+
+	private AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit,
+			double latencyTolerance, double backoffRatio) {
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.latencyTolerance = latencyTolerance;
+		this.backoffRatio = backoffRatio;
+		limit = Math.min(maxLimit, Math.max(minLimit, initialLimit));
+	}
+
+	/**
+	 * onSample updates the limit using the RTT of one finished work order, the number of work
+	 * orders in flight when it finished, including itself, and whether it failed. It returns true
+	 * if the limit was decreased.
+	 */
+	public synchronized boolean onSample(long rttNanos, int inFlight, boolean failed) {
+		updateRtts(rttNanos);
+		noOfSamplesSinceDecrease++;
+		if (failed || isLatencyAboveTolerance()) {
+			return decreaseOncePerWindow();
+		}
+		if (inFlight * 2 >= limit) {
+			limit = Math.min(maxLimit, limit + 1 / limit);
+		}
+		return false;
+	}
+
+	private void updateRtts(long rttNanos) {
+		if (smoothedRttNanos == 0) {
+			smoothedRttNanos = rttNanos;
+		} else {
+			smoothedRttNanos += (rttNanos - smoothedRttNanos) / RTT_SMOOTHING_DIVISOR;
+		}
+		if (noLoadRttNanos == 0 || rttNanos < noLoadRttNanos) {
+			noLoadRttNanos = rttNanos;
+		} else {
+			noLoadRttNanos += (rttNanos - noLoadRttNanos) / NO_LOAD_RTT_DRIFT_DIVISOR;
+		}
+	}
+
+	private boolean isLatencyAboveTolerance() {
+		return smoothedRttNanos > noLoadRttNanos * latencyTolerance;
+	}
+
+	private boolean decreaseOncePerWindow() {
+		if (noOfSamplesSinceDecrease < limit) {
+			return false;
+		}
+		noOfSamplesSinceDecrease = 0;
+		double decreased = Math.max(minLimit, limit * backoffRatio);
+		boolean wasDecreased = decreased < limit;
+		limit = decreased;
+		return wasDecreased;
+	}
+
+	public synchronized int getLimit() {
+		return (int) limit;
+	}
+
+	public synchronized long getSmoothedRttNanos() {
+		return smoothedRttNanos;
+	}
+
+	public synchronized long getNoLoadRttNanos() {
+		return noLoadRttNanos;
+	}
+
+	public int getMinLimit() {
+		// needed for test
+		return minLimit;
+	}
+
+	public int getMaxLimit() {
+		// needed for test
+		return maxLimit;
+	}
+}
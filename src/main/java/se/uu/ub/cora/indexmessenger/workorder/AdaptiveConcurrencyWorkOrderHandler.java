@@ -0,0 +1,195 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import java.text.MessageFormat;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.logger.Logger;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+/**
+ * AdaptiveConcurrencyWorkOrderHandler passes each work order on to the next handler on a thread
+ * of its own, like {@link VirtualThreadWorkOrderHandler}, but the number of work orders in flight
+ * is limited by an {@link AdaptiveConcurrencyLimit} instead of a fixed number. When the limit is
+ * reached the receiving thread waits until a work order is finished.
+ * <p>
+ * The time the next handler takes for each work order, and whether it failed, is reported to the
+ * limit, so that fewer work orders are sent at the same time when Cora gets slower or starts
+ * failing. The current limit and the smoothed round-trip time are exported through IndexMetrics.
+ * The limit is added to the limits of other handlers sharing the metrics, such as those of the
+ * other consumers in an {@link se.uu.ub.cora.indexmessenger.IndexMessengerListenerGroup}, until
+ * the handler is shut down.
+ */
+public class AdaptiveConcurrencyWorkOrderHandler implements WorkOrderStage {
+	private Logger logger = LoggerProvider
+			.getLoggerForClass(AdaptiveConcurrencyWorkOrderHandler.class);
+	private final WorkOrderHandler nextHandler;
+	private final AdaptiveConcurrencyLimit concurrencyLimit;
+	private final IndexMetrics indexMetrics;
+	private final ExecutorService executor;
+	private final Object inFlightLock = new Object();
+	private int noOfInFlight = 0;
+	private int reportedLimit;
+
+	public static AdaptiveConcurrencyWorkOrderHandler usingNextHandlerLimitAndMetrics(
+			WorkOrderHandler nextHandler, AdaptiveConcurrencyLimit concurrencyLimit,
+			IndexMetrics indexMetrics) {
+		return new AdaptiveConcurrencyWorkOrderHandler(nextHandler, concurrencyLimit,
+				indexMetrics);
+	}
+
+	private AdaptiveConcurrencyWorkOrderHandler(WorkOrderHandler nextHandler,
+			AdaptiveConcurrencyLimit concurrencyLimit, IndexMetrics indexMetrics) {
+		this.nextHandler = nextHandler;
+		this.concurrencyLimit = concurrencyLimit;
+		this.indexMetrics = indexMetrics;
+		executor = Executors
+				.newCachedThreadPool(new WorkOrderThreadFactory("indexmessenger-adaptive-"));
+		reportedLimit = concurrencyLimit.getLimit();
+		indexMetrics.getConcurrencyMetrics().addToConcurrencyLimit(reportedLimit);
+	}
+
+	@Override
+	public void handle(WorkOrder workOrder) {
+		try {
+			waitForFreeSlot();
+			executeOnOwnThread(workOrder);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			logger.logErrorUsingMessageAndException(
+					formatMessage("Interrupted while waiting to handle workOrder", workOrder), e);
+		}
+	}
+
+	private void waitForFreeSlot() throws InterruptedException {
+		synchronized (inFlightLock) {
+			while (noOfInFlight >= concurrencyLimit.getLimit()) {
+				inFlightLock.wait();
+			}
+			noOfInFlight++;
+		}
+	}
+
+	private void executeOnOwnThread(WorkOrder workOrder) {
+		try {
+			executor.execute(() -> passOnToNextHandler(workOrder));
+		} catch (RejectedExecutionException e) {
+			releaseSlot();
+			logger.logErrorUsingMessageAndException(
+					formatMessage("Handler shut down, rejected workOrder", workOrder), e);
+		}
+	}
+
+	private void passOnToNextHandler(WorkOrder workOrder) {
+		boolean failed = false;
+		WorkOrderOutcome.takeFailure();
+		long start = System.nanoTime();
+		try {
+			nextHandler.handle(workOrder);
+		} catch (Exception e) {
+			failed = true;
+			logger.logErrorUsingMessageAndException(
+					formatMessage("Failed to handle workOrder", workOrder), e);
+		} finally {
+			failed |= WorkOrderOutcome.takeFailure() != null;
+			recordSampleAndReleaseSlot(System.nanoTime() - start, failed);
+		}
+	}
+
+	private void recordSampleAndReleaseSlot(long rttNanos, boolean failed) {
+		synchronized (inFlightLock) {
+			if (concurrencyLimit.onSample(rttNanos, noOfInFlight, failed)) {
+				indexMetrics.getConcurrencyMetrics().incrementConcurrencyLimitDecreases();
+			}
+			reportLimitChange(executor.isShutdown() ? 0 : concurrencyLimit.getLimit());
+			noOfInFlight--;
+			inFlightLock.notifyAll();
+		}
+		indexMetrics.getConcurrencyMetrics()
+				.recordSmoothedRttNanos(concurrencyLimit.getSmoothedRttNanos());
+	}
+
+	private void reportLimitChange(int limit) {
+		indexMetrics.getConcurrencyMetrics().addToConcurrencyLimit(limit - reportedLimit);
+		reportedLimit = limit;
+	}
+
+	private void releaseSlot() {
+		synchronized (inFlightLock) {
+			noOfInFlight--;
+			inFlightLock.notifyAll();
+		}
+	}
+
+	private String formatMessage(String start, WorkOrder workOrder) {
+		return MessageFormat.format("{0} for type: {1} and id: {2}", start,
+				workOrder.getRecordType(), workOrder.getRecordId());
+	}
+
+	public int getNoOfInFlight() {
+		synchronized (inFlightLock) {
+			return noOfInFlight;
+		}
+	}
+
+	@Override
+	public void shutdown() {
+		synchronized (inFlightLock) {
+			executor.shutdown();
+			reportLimitChange(0);
+		}
+	}
+
+	@Override
+	public boolean awaitTermination(long timeoutMs) throws InterruptedException {
+		return executor.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * shutdownNow interrupts the threads passing work orders on. No work orders are held by this
+	 * handler, as the receiving thread waits for a free slot before a work order is accepted.
+	 */
+	@Override
+	public List<WorkOrder> shutdownNow() {
+		executor.shutdownNow();
+		return Collections.emptyList();
+	}
+
+	@Override
+	public long getNoOfOutstanding() {
+		return getNoOfInFlight();
+	}
+
+	@Override
+	public WorkOrderHandler getNextHandler() {
+		return nextHandler;
+	}
+
+	public AdaptiveConcurrencyLimit getConcurrencyLimit() {
+		// needed for test
+		return concurrencyLimit;
+	}
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+
+/**
+ * AdaptiveConcurrencyWorkOrderHandlerFactory factors {@link AdaptiveConcurrencyWorkOrderHandler}s,
+ * each with its own {@link AdaptiveConcurrencyLimit} starting at initialLimit and kept between
+ * minLimit and maxLimit.
+ */
+public class AdaptiveConcurrencyWorkOrderHandlerFactory implements WorkOrderHandlerFactory {
+
+	private int initialLimit;
+	private int minLimit;
+	private int maxLimit;
+	private IndexMetrics indexMetrics;
+
+	public AdaptiveConcurrencyWorkOrderHandlerFactory(int initialLimit, int minLimit,
+			int maxLimit, IndexMetrics indexMetrics) {
+		this.initialLimit = initialLimit;
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.indexMetrics = indexMetrics;
+	}
+
+	@Override
+	public AdaptiveConcurrencyWorkOrderHandler factorUsingNextHandler(
+			WorkOrderHandler nextHandler) {
+		AdaptiveConcurrencyLimit concurrencyLimit = AdaptiveConcurrencyLimit
+				.usingLimits(initialLimit, minLimit, maxLimit);
+		return AdaptiveConcurrencyWorkOrderHandler.usingNextHandlerLimitAndMetrics(nextHandler,
+				concurrencyLimit, indexMetrics);
+	}
+}
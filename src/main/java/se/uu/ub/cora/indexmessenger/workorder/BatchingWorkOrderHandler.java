@@ -0,0 +1,299 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import se.uu.ub.cora.logger.Logger;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+/**
+ * BatchingWorkOrderHandler collects work orders into batches. A batch is flushed when it holds
+ * batchSize work orders or when lingerMs milliseconds have passed since its first work order was
+ * added, whichever comes first.
+ * <p>
+ * CoraClient has no endpoint taking several work orders at once, so a flushed batch is passed on
+ * to the next handler one work order at a time, with at most flushConcurrency work orders handled
+ * in parallel. There is no barrier between batches, a work order of the next batch starts as soon
+ * as a work order of the previous one is finished, so one slow work order does not hold back the
+ * others.
+ * <p>
+ * Batches are flushed on a dedicated flush thread, so the receiving thread does not wait for
+ * Cora. At most {@value #MAX_QUEUED_FLUSHES} full batches wait to be flushed, when that many are
+ * waiting the receiving thread waits until a flush has started.
+ */
+public class BatchingWorkOrderHandler implements WorkOrderStage {
+	static final int MAX_QUEUED_FLUSHES = 4;
+	private Logger logger = LoggerProvider.getLoggerForClass(BatchingWorkOrderHandler.class);
+	private final WorkOrderHandler nextHandler;
+	private final int batchSize;
+	private final long lingerMs;
+	private final int flushConcurrency;
+	private final ScheduledExecutorService flushScheduler;
+	private final ExecutorService flushWorkers;
+	private final Semaphore queuedFlushPermits = new Semaphore(MAX_QUEUED_FLUSHES);
+	private final Semaphore workerPermits;
+	private List<WorkOrder> currentBatch;
+	private ScheduledFuture<?> lingerTimer;
+	private final AtomicLong noOfOutstanding = new AtomicLong();
+	private final AtomicLong noOfBatches = new AtomicLong();
+	private final AtomicLong noOfBatchedWorkOrders = new AtomicLong();
+	private final AtomicLong noOfSizeTriggeredFlushes = new AtomicLong();
+	private final AtomicLong largestBatchSize = new AtomicLong();
+
+	public static BatchingWorkOrderHandler usingNextHandlerAndSettings(
+			WorkOrderHandler nextHandler, int batchSize, long lingerMs, int flushConcurrency) {
+		return new BatchingWorkOrderHandler(nextHandler, batchSize, lingerMs, flushConcurrency);
+	}
+
+	private BatchingWorkOrderHandler(WorkOrderHandler nextHandler, int batchSize, long lingerMs,
+			int flushConcurrency) {
+		this.nextHandler = nextHandler;
+		this.batchSize = batchSize;
+		this.lingerMs = lingerMs;
+		this.flushConcurrency = flushConcurrency;
+		workerPermits = new Semaphore(flushConcurrency);
+		currentBatch = new ArrayList<>(batchSize);
+		flushScheduler = Executors.newSingleThreadScheduledExecutor(
+				new WorkOrderThreadFactory("indexmessenger-batch-flush-"));
+		flushWorkers = Executors.newFixedThreadPool(flushConcurrency,
+				new WorkOrderThreadFactory("indexmessenger-batch-worker-"));
+	}
+
+	@Override
+	public void handle(WorkOrder workOrder) {
+		noOfOutstanding.incrementAndGet();
+		List<WorkOrder> fullBatch = addToCurrentBatch(workOrder);
+		if (fullBatch != null) {
+			noOfSizeTriggeredFlushes.incrementAndGet();
+			queueFlush(fullBatch);
+		}
+	}
+
+	private void queueFlush(List<WorkOrder> batch) {
+		try {
+			queuedFlushPermits.acquire();
+			flushScheduler.execute(() -> {
+				queuedFlushPermits.release();
+				flushBatch(batch);
+			});
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			logger.logErrorUsingMessageAndException("Interrupted while waiting to flush batch, "
+					+ batch.size() + " work orders NOT handled", e);
+		}
+	}
+
+	private synchronized List<WorkOrder> addToCurrentBatch(WorkOrder workOrder) {
+		currentBatch.add(workOrder);
+		if (currentBatch.size() == 1) {
+			startLingerTimer(currentBatch);
+		}
+		if (currentBatch.size() >= batchSize) {
+			return takeCurrentBatch();
+		}
+		return null;
+	}
+
+	private void startLingerTimer(List<WorkOrder> batch) {
+		lingerTimer = flushScheduler.schedule(() -> flushBatchIfStillCurrent(batch), lingerMs,
+				TimeUnit.MILLISECONDS);
+	}
+
+	private List<WorkOrder> takeCurrentBatch() {
+		List<WorkOrder> batch = currentBatch;
+		currentBatch = new ArrayList<>(batchSize);
+		lingerTimer.cancel(false);
+		return batch;
+	}
+
+	private void flushBatchIfStillCurrent(List<WorkOrder> batch) {
+		if (takeBatchIfStillCurrent(batch)) {
+			flushBatch(batch);
+		}
+	}
+
+	private synchronized boolean takeBatchIfStillCurrent(List<WorkOrder> batch) {
+		if (currentBatch != batch) {
+			return false;
+		}
+		currentBatch = new ArrayList<>(batchSize);
+		return true;
+	}
+
+	private void flushBatch(List<WorkOrder> batch) {
+		updateBatchStatistics(batch.size());
+		try {
+			for (WorkOrder workOrder : batch) {
+				workerPermits.acquire();
+				passOnOnWorker(workOrder);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			logger.logErrorUsingMessageAndException("Interrupted while flushing batch", e);
+		}
+	}
+
+	private void passOnOnWorker(WorkOrder workOrder) {
+		try {
+			flushWorkers.execute(() -> passOnToNextHandler(workOrder));
+		} catch (RejectedExecutionException e) {
+			workerPermits.release();
+			logger.logErrorUsingMessageAndException(MessageFormat.format(
+					"Handler shut down, workOrder NOT handled for type: {0} and id: {1}",
+					workOrder.getRecordType(), workOrder.getRecordId()), e);
+		}
+	}
+
+	private void updateBatchStatistics(int size) {
+		noOfBatches.incrementAndGet();
+		noOfBatchedWorkOrders.addAndGet(size);
+		largestBatchSize.accumulateAndGet(size, Math::max);
+		logger.logDebugUsingMessageSupplier(() -> "Flushing batch of size: " + size);
+	}
+
+	private void passOnToNextHandler(WorkOrder workOrder) {
+		try {
+			nextHandler.handle(workOrder);
+		} catch (Exception e) {
+			String logM = "Index workOrder NOT created for type: {0} and id: {1}";
+			logger.logErrorUsingMessageAndException(MessageFormat.format(logM,
+					workOrder.getRecordType(), workOrder.getRecordId()), e);
+		} finally {
+			noOfOutstanding.decrementAndGet();
+			workerPermits.release();
+		}
+	}
+
+	/**
+	 * flush flushes the current batch without waiting for it to be full or for its linger time to
+	 * pass. The flush is made on the flush thread, this method does not wait for it to finish.
+	 */
+	public void flush() {
+		List<WorkOrder> batch = takeCurrentBatchIfNotEmpty();
+		if (batch != null) {
+			queueFlush(batch);
+		}
+	}
+
+	private synchronized List<WorkOrder> takeCurrentBatchIfNotEmpty() {
+		if (currentBatch.isEmpty()) {
+			return null;
+		}
+		return takeCurrentBatch();
+	}
+
+	public long getNoOfBatches() {
+		return noOfBatches.get();
+	}
+
+	public long getNoOfBatchedWorkOrders() {
+		return noOfBatchedWorkOrders.get();
+	}
+
+	public long getNoOfSizeTriggeredFlushes() {
+		return noOfSizeTriggeredFlushes.get();
+	}
+
+	public long getLargestBatchSize() {
+		return largestBatchSize.get();
+	}
+
+	public double getAverageBatchSize() {
+		long batches = noOfBatches.get();
+		return batches == 0 ? 0 : (double) noOfBatchedWorkOrders.get() / batches;
+	}
+
+	/**
+	 * shutdown flushes the current batch and then stops the handler once all flushed work orders
+	 * are handled. Use {@link #awaitTermination(long)} to wait for it to finish.
+	 */
+	@Override
+	public void shutdown() {
+		flush();
+		flushScheduler.shutdown();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeoutMs) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+		boolean flushesDone = flushScheduler.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+		flushWorkers.shutdown();
+		long remainingNanos = Math.max(0, deadline - System.nanoTime());
+		return flushesDone && flushWorkers.awaitTermination(remainingNanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * shutdownNow returns the current batch without flushing it and interrupts the flush threads.
+	 * Work orders in batches that are already being flushed can not be taken back, their number
+	 * is logged.
+	 */
+	@Override
+	public List<WorkOrder> shutdownNow() {
+		List<WorkOrder> notPassedOn = takeCurrentBatchOrEmpty();
+		long noOfBeingFlushed = noOfOutstanding.addAndGet(-notPassedOn.size());
+		if (noOfBeingFlushed > 0) {
+			logger.logErrorUsingMessage("Shutting down with " + noOfBeingFlushed
+					+ " work orders in flushed batches, they may NOT be handled");
+		}
+		flushScheduler.shutdownNow();
+		flushWorkers.shutdownNow();
+		return notPassedOn;
+	}
+
+	private synchronized List<WorkOrder> takeCurrentBatchOrEmpty() {
+		List<WorkOrder> batch = takeCurrentBatchIfNotEmpty();
+		return batch == null ? new ArrayList<>() : batch;
+	}
+
+	@Override
+	public long getNoOfOutstanding() {
+		return noOfOutstanding.get();
+	}
+
+	@Override
+	public WorkOrderHandler getNextHandler() {
+		return nextHandler;
+	}
+
+	public int getBatchSize() {
+		// needed for test
+		return batchSize;
+	}
+
+	public long getLingerMs() {
+		// needed for test
+		return lingerMs;
+	}
+
+	public int getFlushConcurrency() {
+		// needed for test
+		return flushConcurrency;
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+/**
+ * BatchingWorkOrderHandlerFactory factors {@link BatchingWorkOrderHandler}s that flush batches of
+ * batchSize work orders, or smaller batches after lingerMs milliseconds, with at most
+ * flushConcurrency work orders created in parallel.
+ */
+public class BatchingWorkOrderHandlerFactory implements WorkOrderHandlerFactory {
+
+	private int batchSize;
+	private long lingerMs;
+	private int flushConcurrency;
+
+	public BatchingWorkOrderHandlerFactory(int batchSize, long lingerMs, int flushConcurrency) {
+		this.batchSize = batchSize;
+		this.lingerMs = lingerMs;
+		this.flushConcurrency = flushConcurrency;
+	}
+
+	@Override
+	public BatchingWorkOrderHandler factorUsingNextHandler(WorkOrderHandler nextHandler) {
+		return BatchingWorkOrderHandler.usingNextHandlerAndSettings(nextHandler, batchSize,
+				lingerMs, flushConcurrency);
+	}
+
+}
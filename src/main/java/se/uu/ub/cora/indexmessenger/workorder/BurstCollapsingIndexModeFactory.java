@@ -0,0 +1,83 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import se.uu.ub.cora.indexmessenger.DeadLetterPublisher;
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.javaclient.cora.CoraClient;
+
+/**
+ * BurstCollapsingIndexModeFactory puts a {@link BurstCollapsingWorkOrderHandler} in front of the
+ * handler factored by another IndexModeFactory, so that bursts of work orders for one record type
+ * are replaced by one call to indexRecordsOfType.
+ * <p>
+ * All handlers factored by one factory share one {@link BurstDetector}, so that the consumers of
+ * a listener group, which all factor their chains from the same factory, detect bursts over all
+ * their work orders together. The detector is created when the first handler is factored, using
+ * the CoraClient of that consumer, and created again if all its handlers have been shut down, for
+ * instance when a group is restarted. Types whose indexRecordsOfType is given up by the detector
+ * are given to the deadLetterPublisher, which should be the one of the listener settings.
+ */
+public class BurstCollapsingIndexModeFactory implements IndexModeFactory {
+
+	private IndexModeFactory indexModeFactory;
+	private long windowMs;
+	private long threshold;
+	private String filterAsJson;
+	private RetryPolicy retryPolicy;
+	private DeadLetterPublisher deadLetterPublisher;
+	private IndexMetrics indexMetrics;
+	private BurstDetector burstDetector;
+
+	public BurstCollapsingIndexModeFactory(IndexModeFactory indexModeFactory, long windowMs,
+			long threshold, String filterAsJson, RetryPolicy retryPolicy,
+			DeadLetterPublisher deadLetterPublisher, IndexMetrics indexMetrics) {
+		this.indexModeFactory = indexModeFactory;
+		this.windowMs = windowMs;
+		this.threshold = threshold;
+		this.filterAsJson = filterAsJson;
+		this.retryPolicy = retryPolicy;
+		this.deadLetterPublisher = deadLetterPublisher;
+		this.indexMetrics = indexMetrics;
+	}
+
+	@Override
+	public BurstCollapsingWorkOrderHandler factorUsingCoraClientAndWorkOrderCreator(
+			CoraClient coraClient, WorkOrderHandler workOrderCreator) {
+		WorkOrderHandler indexHandler = indexModeFactory
+				.factorUsingCoraClientAndWorkOrderCreator(coraClient, workOrderCreator);
+		return BurstCollapsingWorkOrderHandler.usingNextHandlerAndBurstDetector(indexHandler,
+				addHandlerToBurstDetector(coraClient));
+	}
+
+	private synchronized BurstDetector addHandlerToBurstDetector(CoraClient coraClient) {
+		if (burstDetector == null || !burstDetector.tryAddHandler()) {
+			burstDetector = BurstDetector.usingCoraClientSettingsAndRetryPolicy(coraClient,
+					windowMs, threshold, filterAsJson, retryPolicy, deadLetterPublisher,
+					indexMetrics);
+			burstDetector.tryAddHandler();
+		}
+		return burstDetector;
+	}
+
+	public IndexModeFactory getIndexModeFactory() {
+		// needed for test
+		return indexModeFactory;
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import se.uu.ub.cora.javaclient.cora.CoraClient;
+
+/**
+ * BurstCollapsingWorkOrderHandler asks a {@link BurstDetector} whether each work order is part of
+ * a burst of work orders for its record type, and only passes on the work orders that are not.
+ * The collapsed work orders are instead replaced by the detector with one call to
+ * {@link CoraClient#indexRecordsOfType(String, String)} after the burst has ended, so the index
+ * reflects every change made during it. Deletes are always passed on to the next handler, as a
+ * deleted record is not indexed by indexRecordsOfType and must be removed from the index on its
+ * own. Collapsed work orders are acknowledged in the spool given through
+ * {@link #useSpool(WorkOrderSpool)}, so that they are not replayed.
+ * <p>
+ * The detector can be shared by the handlers of all consumers of a listener group. Each handler
+ * is added to the detector when created, and removed when shut down.
+ */
+public class BurstCollapsingWorkOrderHandler implements WorkOrderStage {
+	private final WorkOrderHandler nextHandler;
+	private final BurstDetector burstDetector;
+	private volatile WorkOrderSpool spool;
+
+	/**
+	 * usingNextHandlerAndBurstDetector creates a handler using a burstDetector that it has already
+	 * been added to, using {@link BurstDetector#tryAddHandler()}.
+	 */
+	public static BurstCollapsingWorkOrderHandler usingNextHandlerAndBurstDetector(
+			WorkOrderHandler nextHandler, BurstDetector burstDetector) {
+		return new BurstCollapsingWorkOrderHandler(nextHandler, burstDetector);
+	}
+
+	private BurstCollapsingWorkOrderHandler(WorkOrderHandler nextHandler,
+			BurstDetector burstDetector) {
+		this.nextHandler = nextHandler;
+		this.burstDetector = burstDetector;
+	}
+
+	@Override
+	public void handle(WorkOrder workOrder) {
+		if (workOrder.isDelete() || !isCollapsedIntoBurst(workOrder)) {
+			nextHandler.handle(workOrder);
+		} else {
+			acknowledgeInSpool(workOrder);
+		}
+	}
+
+	private void acknowledgeInSpool(WorkOrder workOrder) {
+		WorkOrderSpool currentSpool = spool;
+		if (currentSpool != null) {
+			currentSpool.acknowledgeIfSpooled(workOrder);
+		}
+	}
+
+	private boolean isCollapsedIntoBurst(WorkOrder workOrder) {
+		return burstDetector.isCollapsedIntoBurst(workOrder.getRecordType());
+	}
+
+	/**
+	 * shutdown removes the handler from its burst detector. When it is the last handler using the
+	 * detector, all ongoing bursts are ended and indexed on the calling thread.
+	 */
+	@Override
+	public void shutdown() {
+		burstDetector.removeHandler();
+	}
+
+	@Override
+	public void useSpool(WorkOrderSpool spool) {
+		this.spool = spool;
+	}
+
+	@Override
+	public WorkOrderHandler getNextHandler() {
+		return nextHandler;
+	}
+
+	public BurstDetector getBurstDetector() {
+		// needed for test
+		return burstDetector;
+	}
+
+	public WorkOrderSpool getSpool() {
+		// needed for test
+		return spool;
+	}
+}
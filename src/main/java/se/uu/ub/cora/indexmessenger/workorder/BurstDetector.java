@@ -0,0 +1,353 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import java.text.MessageFormat;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import se.uu.ub.cora.indexmessenger.DeadLetter;
+import se.uu.ub.cora.indexmessenger.DeadLetterPublisher;
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.javaclient.cora.CoraClient;
+import se.uu.ub.cora.logger.Logger;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+/**
+ * BurstDetector counts work orders per record type in a sliding window of windowMs milliseconds,
+ * for all {@link BurstCollapsingWorkOrderHandler}s using it, so that the consumers of a listener
+ * group see one burst instead of one partial burst each. When more than threshold work orders for
+ * one record type are counted, a burst has started, and further work orders for that type are
+ * collapsed into it. Once the number of work orders in the window has fallen to the threshold,
+ * the burst has ended and all records of the type are indexed using one call to
+ * {@link CoraClient#indexRecordsOfType(String, String)} with the filterAsJson.
+ * <p>
+ * If indexRecordsOfType fails, the collapsed work orders are kept pending for the type and the
+ * call is retried after the delays of the retryPolicy. A burst that starts again for the type
+ * while the call is pending takes the pending work orders over. When the retryPolicy allows no
+ * more attempts, the failure is logged as work orders NOT handled, and the type is given to the
+ * deadLetterPublisher as records of a type not indexed, so that the collapsed work orders, which
+ * have already been acknowledged, are not lost without a trace.
+ * <p>
+ * The detector is shut down when the last handler using it is removed, ending all bursts and
+ * making a last attempt for all pending types on the calling thread, dead-lettering the types
+ * that still fail.
+ */
+public final class BurstDetector {
+	private static final int NO_OF_SLOTS = 10;
+	private Logger logger = LoggerProvider.getLoggerForClass(BurstDetector.class);
+	private final CoraClient coraClient;
+	private final long windowMs;
+	private final long threshold;
+	private final String filterAsJson;
+	private final RetryPolicy retryPolicy;
+	private final DeadLetterPublisher deadLetterPublisher;
+	private final IndexMetrics indexMetrics;
+	private final LongSupplier clock;
+	private final Map<String, TypeBurst> typeBursts = new ConcurrentHashMap<>();
+	private final ScheduledExecutorService burstScheduler;
+	private int noOfHandlers = 0;
+	private boolean shutdown = false;
+
+	public static BurstDetector usingCoraClientSettingsAndRetryPolicy(CoraClient coraClient,
+			long windowMs, long threshold, String filterAsJson, RetryPolicy retryPolicy,
+			DeadLetterPublisher deadLetterPublisher, IndexMetrics indexMetrics) {
+		return new BurstDetector(coraClient, windowMs, threshold, filterAsJson, retryPolicy,
+				deadLetterPublisher, indexMetrics, System::currentTimeMillis);
+	}
+
+	static BurstDetector usingCoraClientSettingsRetryPolicyAndClock(CoraClient coraClient,
+			long windowMs, long threshold, String filterAsJson, RetryPolicy retryPolicy,
+			DeadLetterPublisher deadLetterPublisher, IndexMetrics indexMetrics,
+			LongSupplier clock) {
+		return new BurstDetector(coraClient, windowMs, threshold, filterAsJson, retryPolicy,
+				deadLetterPublisher, indexMetrics, clock);
+	}
+
+	private BurstDetector(CoraClient coraClient, long windowMs, long threshold,
+			String filterAsJson, RetryPolicy retryPolicy, DeadLetterPublisher deadLetterPublisher,
+			IndexMetrics indexMetrics, LongSupplier clock) {
+		this.coraClient = coraClient;
+		this.windowMs = windowMs;
+		this.threshold = threshold;
+		this.filterAsJson = filterAsJson;
+		this.retryPolicy = retryPolicy;
+		this.deadLetterPublisher = deadLetterPublisher;
+		this.indexMetrics = indexMetrics;
+		this.clock = clock;
+		burstScheduler = Executors.newSingleThreadScheduledExecutor(
+				new WorkOrderThreadFactory("indexmessenger-burst-"));
+		long checkIntervalMs = Math.max(1, windowMs / NO_OF_SLOTS);
+		burstScheduler.scheduleWithFixedDelay(this::endFinishedBursts, checkIntervalMs,
+				checkIntervalMs, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * tryAddHandler adds a handler using the detector, returning false if the detector has
+	 * already been shut down by removing its last handler.
+	 */
+	public synchronized boolean tryAddHandler() {
+		if (shutdown) {
+			return false;
+		}
+		noOfHandlers++;
+		return true;
+	}
+
+	/**
+	 * removeHandler removes a handler using the detector, and shuts the detector down when the
+	 * last handler is removed.
+	 */
+	public void removeHandler() {
+		if (isLastHandlerRemoved()) {
+			shutdown();
+		}
+	}
+
+	private synchronized boolean isLastHandlerRemoved() {
+		if (shutdown) {
+			return false;
+		}
+		noOfHandlers--;
+		shutdown = noOfHandlers <= 0;
+		return shutdown;
+	}
+
+	/**
+	 * isCollapsedIntoBurst counts a work order for the recordType and returns true if it is
+	 * collapsed into a burst, false if it should be handled on its own. Once the detector is shut
+	 * down, no work order is collapsed.
+	 */
+	public boolean isCollapsedIntoBurst(String recordType) {
+		if (isShutdown()) {
+			return false;
+		}
+		TypeBurst typeBurst = typeBursts.computeIfAbsent(recordType,
+				type -> new TypeBurst(windowMs));
+		synchronized (typeBurst) {
+			long count = typeBurst.counter.incrementAndGetCount(clock.getAsLong());
+			if (!typeBurst.inBurst && count > threshold) {
+				startBurst(recordType, typeBurst);
+			}
+			if (typeBurst.inBurst) {
+				typeBurst.noOfCollapsed++;
+				indexMetrics.getBurstMetrics().incrementWorkOrdersCollapsedIntoBursts();
+			}
+			return typeBurst.inBurst;
+		}
+	}
+
+	private void startBurst(String recordType, TypeBurst typeBurst) {
+		typeBurst.inBurst = true;
+		indexMetrics.getBurstMetrics().incrementBurstsDetected();
+		logger.logInfoUsingMessage(MessageFormat.format(
+				"Burst detected for type: {0}, more than {1} work orders in {2} ms", recordType,
+				String.valueOf(threshold), String.valueOf(windowMs)));
+	}
+
+	/**
+	 * endFinishedBursts ends all bursts where the number of work orders in the window has fallen
+	 * to the threshold, indexing all records of their types, and retries the types whose
+	 * indexRecordsOfType has failed once their retry delay has passed. It is called periodically
+	 * on the burst thread.
+	 */
+	void endFinishedBursts() {
+		long nowMs = clock.getAsLong();
+		for (Entry<String, TypeBurst> entry : typeBursts.entrySet()) {
+			TypeBurst typeBurst = entry.getValue();
+			long noOfCollapsed = takeCollapsedIfDue(typeBurst, nowMs);
+			if (noOfCollapsed > 0) {
+				indexRecordsOfType(entry.getKey(), typeBurst, noOfCollapsed, true);
+			}
+		}
+	}
+
+	private long takeCollapsedIfDue(TypeBurst typeBurst, long nowMs) {
+		synchronized (typeBurst) {
+			if (typeBurst.inBurst && typeBurst.counter.getCount(nowMs) <= threshold) {
+				typeBurst.inBurst = false;
+				return takeCollapsed(typeBurst);
+			}
+			if (!typeBurst.inBurst && typeBurst.noOfFailedAttempts > 0
+					&& nowMs >= typeBurst.retryAtMs) {
+				return takeCollapsed(typeBurst);
+			}
+			return 0;
+		}
+	}
+
+	private long takeCollapsed(TypeBurst typeBurst) {
+		long noOfCollapsed = typeBurst.noOfCollapsed;
+		typeBurst.noOfCollapsed = 0;
+		return noOfCollapsed;
+	}
+
+	private void indexRecordsOfType(String recordType, TypeBurst typeBurst, long noOfCollapsed,
+			boolean retryAllowed) {
+		try {
+			coraClient.indexRecordsOfType(recordType, filterAsJson);
+			resetFailedAttempts(typeBurst);
+			indexMetrics.getBurstMetrics().incrementBurstsIndexed();
+			logger.logInfoUsingMessage(MessageFormat.format(
+					"Burst ended for type: {0}, {1} work orders replaced by indexRecordsOfType",
+					recordType, String.valueOf(noOfCollapsed)));
+		} catch (Exception e) {
+			indexMetrics.getBurstMetrics().incrementBurstIndexFailures();
+			keepPendingOrGiveUp(recordType, typeBurst, noOfCollapsed, retryAllowed, e);
+		}
+	}
+
+	private void resetFailedAttempts(TypeBurst typeBurst) {
+		synchronized (typeBurst) {
+			typeBurst.noOfFailedAttempts = 0;
+		}
+	}
+
+	private void keepPendingOrGiveUp(String recordType, TypeBurst typeBurst, long noOfCollapsed,
+			boolean retryAllowed, Exception e) {
+		synchronized (typeBurst) {
+			typeBurst.noOfFailedAttempts++;
+			if (retryAllowed
+					&& retryPolicy.isRetryAllowedAfterAttempt(typeBurst.noOfFailedAttempts)) {
+				keepPending(recordType, typeBurst, noOfCollapsed, e);
+			} else {
+				giveUp(recordType, typeBurst, noOfCollapsed, e);
+			}
+		}
+	}
+
+	private void keepPending(String recordType, TypeBurst typeBurst, long noOfCollapsed,
+			Exception e) {
+		long delayMs = retryPolicy.getDelayMsForRetry(typeBurst.noOfFailedAttempts);
+		typeBurst.noOfCollapsed += noOfCollapsed;
+		typeBurst.retryAtMs = clock.getAsLong() + delayMs;
+		logger.logWarnUsingMessageAndException(MessageFormat.format(
+				"indexRecordsOfType failed for type: {0}, {1} work orders kept, retrying in {2} ms",
+				recordType, String.valueOf(noOfCollapsed), String.valueOf(delayMs)), e);
+	}
+
+	private void giveUp(String recordType, TypeBurst typeBurst, long noOfCollapsed, Exception e) {
+		long noOfAttempts = typeBurst.noOfFailedAttempts;
+		typeBurst.noOfFailedAttempts = 0;
+		logger.logErrorUsingMessageAndException(MessageFormat.format(
+				"indexRecordsOfType failed for type: {0} after {1} attempts, "
+						+ "{2} work orders NOT handled",
+				recordType, String.valueOf(noOfAttempts), String.valueOf(noOfCollapsed)), e);
+		deadLetterPublisher
+				.publish(DeadLetter.forRecordsOfTypeNotIndexed(recordType, filterAsJson, e));
+	}
+
+	public boolean isInBurst(String recordType) {
+		TypeBurst typeBurst = typeBursts.get(recordType);
+		if (typeBurst == null) {
+			return false;
+		}
+		synchronized (typeBurst) {
+			return typeBurst.inBurst;
+		}
+	}
+
+	/**
+	 * Returns the number of work orders collapsed for the recordType that are not yet replaced by
+	 * a successful indexRecordsOfType.
+	 */
+	public long getNoOfPending(String recordType) {
+		TypeBurst typeBurst = typeBursts.get(recordType);
+		if (typeBurst == null) {
+			return 0;
+		}
+		synchronized (typeBurst) {
+			return typeBurst.noOfCollapsed;
+		}
+	}
+
+	private void shutdown() {
+		burstScheduler.shutdownNow();
+		for (Entry<String, TypeBurst> entry : typeBursts.entrySet()) {
+			TypeBurst typeBurst = entry.getValue();
+			long noOfCollapsed = endBurstAndTakeCollapsed(typeBurst);
+			if (noOfCollapsed > 0) {
+				indexRecordsOfType(entry.getKey(), typeBurst, noOfCollapsed, false);
+			}
+		}
+	}
+
+	private long endBurstAndTakeCollapsed(TypeBurst typeBurst) {
+		synchronized (typeBurst) {
+			typeBurst.inBurst = false;
+			return takeCollapsed(typeBurst);
+		}
+	}
+
+	public synchronized boolean isShutdown() {
+		return shutdown;
+	}
+
+	public synchronized int getNoOfHandlers() {
+		// needed for test
+		return noOfHandlers;
+	}
+
+	public CoraClient getCoraClient() {
+		// needed for test
+		return coraClient;
+	}
+
+	public long getWindowMs() {
+		// needed for test
+		return windowMs;
+	}
+
+	public long getThreshold() {
+		// needed for test
+		return threshold;
+	}
+
+	public String getFilterAsJson() {
+		// needed for test
+		return filterAsJson;
+	}
+
+	public RetryPolicy getRetryPolicy() {
+		// needed for test
+		return retryPolicy;
+	}
+
+	public DeadLetterPublisher getDeadLetterPublisher() {
+		// needed for test
+		return deadLetterPublisher;
+	}
+
+	private static final class TypeBurst {
+		private final SlidingWindowCounter counter;
+		private boolean inBurst = false;
+		private long noOfCollapsed = 0;
+		private int noOfFailedAttempts = 0;
+		private long retryAtMs = 0;
+
+		private TypeBurst(long windowMs) {
+			counter = SlidingWindowCounter.usingWindowMsAndNoOfSlots(windowMs, NO_OF_SLOTS);
+		}
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * ChainedWorkOrderHandlerFactory combines several factories into a chain of handlers. The handler
+ * from the first factory receives the work orders from the message receiver and the handler from
+ * the last factory passes them on to the final next handler.
+ */
+public class ChainedWorkOrderHandlerFactory implements WorkOrderHandlerFactory {
+
+	private List<WorkOrderHandlerFactory> factories;
+
+	public static ChainedWorkOrderHandlerFactory usingFactories(
+			WorkOrderHandlerFactory... factories) {
+		return new ChainedWorkOrderHandlerFactory(Arrays.asList(factories));
+	}
+
+	private ChainedWorkOrderHandlerFactory(List<WorkOrderHandlerFactory> factories) {
+		this.factories = factories;
+	}
+
+	@Override
+	public WorkOrderHandler factorUsingNextHandler(WorkOrderHandler nextHandler) {
+		WorkOrderHandler handler = nextHandler;
+		for (int i = factories.size() - 1; i >= 0; i--) {
+			handler = factories.get(i).factorUsingNextHandler(handler);
+		}
+		return handler;
+	}
+
+	public List<WorkOrderHandlerFactory> getFactories() {
+		// needed for test
+		return factories;
+	}
+}
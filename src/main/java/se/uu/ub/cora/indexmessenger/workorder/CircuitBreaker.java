@@ -0,0 +1,140 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import java.util.function.LongSupplier;
+
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.logger.Logger;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+/**
+ * CircuitBreaker stops calls to Cora after a number of consecutive failures. While it is open no
+ * calls are allowed. When it has been open for openMs it becomes half open and allows one probe
+ * call, which closes it again if it succeeds and opens it again if it fails.
+ * <p>
+ * Changes of state are logged and recorded in the {@link IndexMetrics}.
+ */
+public class CircuitBreaker {
+	private Logger logger = LoggerProvider.getLoggerForClass(CircuitBreaker.class);
+	private final int failureThreshold;
+	private final long openMs;
+	private final IndexMetrics indexMetrics;
+	private final LongSupplier clockMs;
+	private CircuitBreakerState state = CircuitBreakerState.CLOSED;
+	private int noOfConsecutiveFailures = 0;
+	private long openedAtMs;
+	private boolean probeInProgress = false;
+	private long noOfOpenings = 0;
+
+	public static CircuitBreaker usingFailureThresholdOpenMsAndMetrics(int failureThreshold,
+			long openMs, IndexMetrics indexMetrics) {
+		return new CircuitBreaker(failureThreshold, openMs, indexMetrics,
+				System::currentTimeMillis);
+	}
+
+	static CircuitBreaker usingFailureThresholdOpenMsMetricsAndClock(int failureThreshold,
+			long openMs, IndexMetrics indexMetrics, LongSupplier clockMs) {
+		return new CircuitBreaker(failureThreshold, openMs, indexMetrics, clockMs);
+	}
+
+	private CircuitBreaker(int failureThreshold, long openMs, IndexMetrics indexMetrics,
+			LongSupplier clockMs) {
+		this.failureThreshold = failureThreshold;
+		this.openMs = openMs;
+		this.indexMetrics = indexMetrics;
+		this.clockMs = clockMs;
+		indexMetrics.getRetryMetrics().recordCircuitBreakerStateChange(null, state.name());
+	}
+
+	/**
+	 * allowsCall returns true if a call to Cora may be made. If the circuit breaker has been open
+	 * long enough it becomes half open, and only the first caller is allowed to make a probe call
+	 * until that call is recorded as a success or failure.
+	 */
+	public synchronized boolean allowsCall() {
+		if (state == CircuitBreakerState.CLOSED) {
+			return true;
+		}
+		if (state == CircuitBreakerState.OPEN && clockMs.getAsLong() - openedAtMs >= openMs) {
+			changeState(CircuitBreakerState.HALF_OPEN);
+			logger.logInfoUsingMessage("Circuit breaker half open, probing Cora");
+		}
+		if (state == CircuitBreakerState.HALF_OPEN && !probeInProgress) {
+			probeInProgress = true;
+			return true;
+		}
+		return false;
+	}
+
+	public synchronized void recordSuccess() {
+		noOfConsecutiveFailures = 0;
+		probeInProgress = false;
+		if (state != CircuitBreakerState.CLOSED) {
+			changeState(CircuitBreakerState.CLOSED);
+			logger.logInfoUsingMessage("Circuit breaker closed");
+		}
+	}
+
+	public synchronized void recordFailure() {
+		noOfConsecutiveFailures++;
+		probeInProgress = false;
+		if (state == CircuitBreakerState.HALF_OPEN) {
+			open("Circuit breaker opened again after failed probe");
+		} else if (state == CircuitBreakerState.CLOSED
+				&& noOfConsecutiveFailures >= failureThreshold) {
+			open("Circuit breaker opened after " + noOfConsecutiveFailures
+					+ " consecutive failures");
+		}
+	}
+
+	private void open(String message) {
+		openedAtMs = clockMs.getAsLong();
+		noOfOpenings++;
+		changeState(CircuitBreakerState.OPEN);
+		logger.logWarnUsingMessage(message);
+	}
+
+	private void changeState(CircuitBreakerState newState) {
+		indexMetrics.getRetryMetrics()
+				.recordCircuitBreakerStateChange(state.name(), newState.name());
+		state = newState;
+	}
+
+	public synchronized CircuitBreakerState getState() {
+		return state;
+	}
+
+	public synchronized long getNoOfOpenings() {
+		return noOfOpenings;
+	}
+
+	public int getFailureThreshold() {
+		return failureThreshold;
+	}
+
+	public long getOpenMs() {
+		return openMs;
+	}
+
+	public IndexMetrics getIndexMetrics() {
+		// needed for test
+		return indexMetrics;
+	}
+}
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import se.uu.ub.cora.logger.Logger;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+/**
+ * CoalescingWorkOrderHandler holds back work orders for windowMs milliseconds, counted from the
+ * first work order for a record, and only passes the latest work order for each record on to the
+ * next handler when the window closes.
+ * <p>
+ * As the latest work order always wins, a delete supersedes a pending index and a later update
+ * supersedes an earlier delete. A work order replaced by one of the same work order type is
+ * counted as coalesced, a work order replaced by one of the other type is counted as suppressed.
+ * A replaced work order is acknowledged in the spool given through
+ * {@link #useSpool(WorkOrderSpool)}, so that it is not replayed.
+ * <p>
+ * At most maxPending records are held back at a time. A work order for a new record arriving when
+ * maxPending records are pending is passed on directly on the calling thread, without waiting for
+ * a window, so that memory stays bounded and a next handler that is slower than the window closes
+ * slows down the receiving thread instead of growing the pending records.
+ */
+public class CoalescingWorkOrderHandler implements WorkOrderStage {
+	public static final int DEFAULT_MAX_PENDING = 10_000;
+	private Logger logger = LoggerProvider.getLoggerForClass(CoalescingWorkOrderHandler.class);
+	private final WorkOrderHandler nextHandler;
+	private final long windowMs;
+	private final int maxPending;
+	private final Map<RecordKey, WorkOrder> pending = new HashMap<>();
+	private final ScheduledExecutorService windowScheduler;
+	private final AtomicLong noOfReceived = new AtomicLong();
+	private final AtomicLong noOfPassedOn = new AtomicLong();
+	private final AtomicLong noOfCoalesced = new AtomicLong();
+	private final AtomicLong noOfSuppressed = new AtomicLong();
+	private final AtomicLong noOfPassedOnDirectly = new AtomicLong();
+	private volatile WorkOrderSpool spool;
+
+	public static CoalescingWorkOrderHandler usingNextHandlerAndWindowMs(
+			WorkOrderHandler nextHandler, long windowMs) {
+		return new CoalescingWorkOrderHandler(nextHandler, windowMs, DEFAULT_MAX_PENDING);
+	}
+
+	public static CoalescingWorkOrderHandler usingNextHandlerWindowMsAndMaxPending(
+			WorkOrderHandler nextHandler, long windowMs, int maxPending) {
+		return new CoalescingWorkOrderHandler(nextHandler, windowMs, maxPending);
+	}
+
+	private CoalescingWorkOrderHandler(WorkOrderHandler nextHandler, long windowMs,
+			int maxPending) {
+		this.nextHandler = nextHandler;
+		this.windowMs = windowMs;
+		this.maxPending = maxPending;
+		windowScheduler = Executors.newSingleThreadScheduledExecutor(
+				new WorkOrderThreadFactory("indexmessenger-coalesce-"));
+	}
+
+	@Override
+	public void handle(WorkOrder workOrder) {
+		noOfReceived.incrementAndGet();
+		if (!holdBackIfRoom(workOrder)) {
+			noOfPassedOnDirectly.incrementAndGet();
+			passOnToNextHandler(workOrder);
+		}
+	}
+
+	private boolean holdBackIfRoom(WorkOrder workOrder) {
+		RecordKey key = RecordKey.forWorkOrder(workOrder);
+		WorkOrder replaced;
+		synchronized (pending) {
+			replaced = pending.get(key);
+			if (replaced == null && pending.size() >= maxPending) {
+				return false;
+			}
+			pending.put(key, workOrder);
+			if (replaced == null) {
+				startWindow(key);
+				return true;
+			}
+			countReplaced(replaced, workOrder);
+		}
+		acknowledgeInSpool(replaced);
+		return true;
+	}
+
+	private void acknowledgeInSpool(WorkOrder workOrder) {
+		WorkOrderSpool currentSpool = spool;
+		if (currentSpool != null) {
+			currentSpool.acknowledgeIfSpooled(workOrder);
+		}
+	}
+
+	private void startWindow(RecordKey key) {
+		windowScheduler.schedule(() -> closeWindow(key), windowMs, TimeUnit.MILLISECONDS);
+	}
+
+	private void countReplaced(WorkOrder replaced, WorkOrder workOrder) {
+		if (replaced.isDelete() == workOrder.isDelete()) {
+			noOfCoalesced.incrementAndGet();
+		} else {
+			noOfSuppressed.incrementAndGet();
+		}
+	}
+
+	private void closeWindow(RecordKey key) {
+		WorkOrder latest;
+		synchronized (pending) {
+			latest = pending.remove(key);
+		}
+		if (latest != null) {
+			passOnToNextHandler(latest);
+		}
+	}
+
+	private void passOnToNextHandler(WorkOrder workOrder) {
+		noOfPassedOn.incrementAndGet();
+		try {
+			nextHandler.handle(workOrder);
+		} catch (Exception e) {
+			String logM = "Failed to handle workOrder for type: {0} and id: {1}";
+			logger.logErrorUsingMessageAndException(MessageFormat.format(logM,
+					workOrder.getRecordType(), workOrder.getRecordId()), e);
+		}
+	}
+
+	/**
+	 * flush closes all open windows, passing the latest pending work order for each record on to
+	 * the next handler on the calling thread.
+	 */
+	public void flush() {
+		List<WorkOrder> toPassOn;
+		synchronized (pending) {
+			toPassOn = new ArrayList<>(pending.values());
+			pending.clear();
+		}
+		for (WorkOrder workOrder : toPassOn) {
+			passOnToNextHandler(workOrder);
+		}
+	}
+
+	public int getNoOfPending() {
+		synchronized (pending) {
+			return pending.size();
+		}
+	}
+
+	public long getNoOfReceived() {
+		return noOfReceived.get();
+	}
+
+	public long getNoOfPassedOn() {
+		return noOfPassedOn.get();
+	}
+
+	public long getNoOfCoalesced() {
+		return noOfCoalesced.get();
+	}
+
+	public long getNoOfSuppressed() {
+		return noOfSuppressed.get();
+	}
+
+	/**
+	 * getNoOfPassedOnDirectly returns the number of work orders passed on without a window, as
+	 * maxPending records were already pending.
+	 */
+	public long getNoOfPassedOnDirectly() {
+		return noOfPassedOnDirectly.get();
+	}
+
+	/**
+	 * shutdown passes all pending work orders on to the next handler and stops the window timers.
+	 */
+	@Override
+	public void shutdown() {
+		windowScheduler.shutdownNow();
+		flush();
+	}
+
+	/**
+	 * shutdownNow stops the window timers and returns the pending work orders without passing them
+	 * on.
+	 */
+	@Override
+	public List<WorkOrder> shutdownNow() {
+		windowScheduler.shutdownNow();
+		synchronized (pending) {
+			List<WorkOrder> notPassedOn = new ArrayList<>(pending.values());
+			pending.clear();
+			return notPassedOn;
+		}
+	}
+
+	@Override
+	public long getNoOfOutstanding() {
+		return getNoOfPending();
+	}
+
+	@Override
+	public WorkOrderHandler getNextHandler() {
+		return nextHandler;
+	}
+
+	public long getWindowMs() {
+		// needed for test
+		return windowMs;
+	}
+
+	@Override
+	public void useSpool(WorkOrderSpool spool) {
+		this.spool = spool;
+	}
+
+	public int getMaxPending() {
+		// needed for test
+		return maxPending;
+	}
+
+	public WorkOrderSpool getSpool() {
+		// needed for test
+		return spool;
+	}
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+/**
+ * CoalescingWorkOrderHandlerFactory factors {@link CoalescingWorkOrderHandler}s that only pass on
+ * the latest work order for a record within a window of windowMs milliseconds, holding back at
+ * most maxPending records at a time.
+ */
+public class CoalescingWorkOrderHandlerFactory implements WorkOrderHandlerFactory {
+
+	private long windowMs;
+	private int maxPending;
+
+	public CoalescingWorkOrderHandlerFactory(long windowMs) {
+		this(windowMs, CoalescingWorkOrderHandler.DEFAULT_MAX_PENDING);
+	}
+
+	public CoalescingWorkOrderHandlerFactory(long windowMs, int maxPending) {
+		this.windowMs = windowMs;
+		this.maxPending = maxPending;
+	}
+
+	@Override
+	public CoalescingWorkOrderHandler factorUsingNextHandler(WorkOrderHandler nextHandler) {
+		return CoalescingWorkOrderHandler.usingNextHandlerWindowMsAndMaxPending(nextHandler,
+				windowMs, maxPending);
+	}
+
+}
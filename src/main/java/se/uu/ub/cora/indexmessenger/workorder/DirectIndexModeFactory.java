@@ -0,0 +1,55 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.javaclient.cora.CoraClient;
+
+/**
+ * DirectIndexModeFactory factors {@link DirectIndexWorkOrderHandler}s that index records directly
+ * instead of creating workOrder records, committing every commitEveryNoOfRecords records or every
+ * commitIntervalMs milliseconds.
+ */
+public class DirectIndexModeFactory implements IndexModeFactory {
+
+	private int commitEveryNoOfRecords;
+	private long commitIntervalMs;
+	private SuccessLogSampling successLogSampling;
+	private IndexMetrics indexMetrics;
+
+	/**
+	 * Creates a factory whose handlers record indexed and failed records in indexMetrics, normally
+	 * the same {@link IndexMetrics} as the one used by the listener.
+	 */
+	public DirectIndexModeFactory(int commitEveryNoOfRecords, long commitIntervalMs,
+			SuccessLogSampling successLogSampling, IndexMetrics indexMetrics) {
+		this.commitEveryNoOfRecords = commitEveryNoOfRecords;
+		this.commitIntervalMs = commitIntervalMs;
+		this.successLogSampling = successLogSampling;
+		this.indexMetrics = indexMetrics;
+	}
+
+	@Override
+	public DirectIndexWorkOrderHandler factorUsingCoraClientAndWorkOrderCreator(
+			CoraClient coraClient, WorkOrderHandler workOrderCreator) {
+		return DirectIndexWorkOrderHandler.usingCoraClientCommitSettingsAndMetrics(coraClient,
+				commitEveryNoOfRecords, commitIntervalMs, successLogSampling, indexMetrics);
+	}
+
+}
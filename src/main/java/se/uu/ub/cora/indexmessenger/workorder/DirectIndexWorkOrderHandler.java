@@ -0,0 +1,310 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import java.text.MessageFormat;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import se.uu.ub.cora.indexmessenger.DeadLetter;
+import se.uu.ub.cora.indexmessenger.DeadLetterPublisher;
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.javaclient.cora.CoraClient;
+import se.uu.ub.cora.logger.Logger;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+/**
+ * DirectIndexWorkOrderHandler indexes records directly using the CoraClient instead of creating
+ * workOrder records, saving the server the round trip of storing a workOrder.
+ * <p>
+ * Records are indexed without explicit commit. As the CoraClient has no separate commit call, a
+ * commit is made by indexing a record with explicit commit. This is done for every
+ * commitEveryNoOfRecords record, and every commitIntervalMs milliseconds the last record indexed
+ * without commit is indexed again with explicit commit if any records are uncommitted. Records
+ * only count as committed once a commit has succeeded, if a commit fails the uncommitted records
+ * are committed through the last record indexed without commit by the next periodic commit.
+ * Deleted records are removed from the index using removeFromIndex. A deleted record can not be
+ * indexed again, so if it is the last record indexed without commit, the uncommitted records are
+ * instead committed through the next record indexed, which is then indexed with explicit commit.
+ * <p>
+ * The handler ends a chain of handlers, it is a {@link WorkOrderStage} only so that stopping the
+ * chain also stops the periodic commit and commits the records left uncommitted, and so that it is
+ * given the publisher to dead-letter the work orders it fails to index or remove from the index,
+ * see {@link WorkOrderStage#useDeadLetterPublisherInChain(WorkOrderHandler, DeadLetterPublisher)}.
+ */
+public class DirectIndexWorkOrderHandler implements WorkOrderStage {
+	private Logger logger = LoggerProvider.getLoggerForClass(DirectIndexWorkOrderHandler.class);
+	private final CoraClient coraClient;
+	private final int commitEveryNoOfRecords;
+	private final long commitIntervalMs;
+	private final SuccessLogSampling successLogSampling;
+	private final IndexMetrics indexMetrics;
+	private final ScheduledExecutorService commitScheduler;
+	private int noOfUncommitted = 0;
+	private WorkOrder lastUncommitted;
+	private boolean commitInProgress = false;
+	private int noOfUncommittedAtCommitStart = 0;
+	private volatile DeadLetterPublisher deadLetterPublisher = DeadLetterPublisher.none();
+
+	public static DirectIndexWorkOrderHandler usingCoraClientCommitSettingsAndMetrics(
+			CoraClient coraClient, int commitEveryNoOfRecords, long commitIntervalMs,
+			SuccessLogSampling successLogSampling, IndexMetrics indexMetrics) {
+		return new DirectIndexWorkOrderHandler(coraClient, commitEveryNoOfRecords,
+				commitIntervalMs, successLogSampling, indexMetrics);
+	}
+
+	private DirectIndexWorkOrderHandler(CoraClient coraClient, int commitEveryNoOfRecords,
+			long commitIntervalMs, SuccessLogSampling successLogSampling,
+			IndexMetrics indexMetrics) {
+		this.coraClient = coraClient;
+		this.commitEveryNoOfRecords = commitEveryNoOfRecords;
+		this.commitIntervalMs = commitIntervalMs;
+		this.successLogSampling = successLogSampling;
+		this.indexMetrics = indexMetrics;
+		commitScheduler = Executors.newSingleThreadScheduledExecutor(
+				new WorkOrderThreadFactory("indexmessenger-commit-"));
+		commitScheduler.scheduleWithFixedDelay(this::commitUncommitted, commitIntervalMs,
+				commitIntervalMs, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void handle(WorkOrder workOrder) {
+		long start = System.nanoTime();
+		try {
+			removeFromIndexOrIndex(workOrder);
+			indexMetrics.getWorkOrderMetrics()
+					.recordWorkOrderCreatedUsingNanos(System.nanoTime() - start);
+		} catch (Exception e) {
+			indexMetrics.getWorkOrderMetrics()
+					.recordWorkOrderFailedUsingNanos(System.nanoTime() - start);
+			WorkOrderOutcome.recordFailure(e);
+			deadLetterPublisher.publish(DeadLetter.forWorkOrderNotCreated(workOrder, e));
+		}
+	}
+
+	private void removeFromIndexOrIndex(WorkOrder workOrder) {
+		if (workOrder.isDelete()) {
+			removeFromIndex(workOrder);
+		} else if (startCommitIfDue()) {
+			indexWithCommit(workOrder);
+		} else {
+			indexWithoutCommit(workOrder);
+		}
+	}
+
+	private void removeFromIndex(WorkOrder workOrder) {
+		stopCommittingThroughDeleted(workOrder);
+		try {
+			coraClient.removeFromIndex(workOrder.getRecordType(), workOrder.getRecordId());
+			logSuccess("Record removed from index", workOrder);
+		} catch (RuntimeException e) {
+			logError("Record NOT removed from index for type: {0} and id: {1}", workOrder, e);
+			throw e;
+		}
+	}
+
+	private synchronized void stopCommittingThroughDeleted(WorkOrder deleted) {
+		if (lastUncommitted != null && RecordKey.forWorkOrder(lastUncommitted)
+				.equals(RecordKey.forWorkOrder(deleted))) {
+			lastUncommitted = null;
+		}
+	}
+
+	private synchronized boolean startCommitIfDue() {
+		if (commitInProgress || !isCommitDue()) {
+			return false;
+		}
+		startCommit();
+		return true;
+	}
+
+	private boolean isCommitDue() {
+		boolean uncommittedLeftWithoutRecordToCommitThrough = noOfUncommitted > 0
+				&& lastUncommitted == null;
+		return uncommittedLeftWithoutRecordToCommitThrough
+				|| noOfUncommitted + 1 >= commitEveryNoOfRecords;
+	}
+
+	private void startCommit() {
+		commitInProgress = true;
+		noOfUncommittedAtCommitStart = noOfUncommitted;
+	}
+
+	private void indexWithCommit(WorkOrder workOrder) {
+		boolean committed = false;
+		try {
+			coraClient.indexData(workOrder.getRecordType(), workOrder.getRecordId());
+			committed = true;
+			logSuccess("Record indexed and committed", workOrder);
+		} catch (RuntimeException e) {
+			logError("Record NOT indexed for type: {0} and id: {1}", workOrder, e);
+			throw e;
+		} finally {
+			finishCommit(committed);
+		}
+	}
+
+	private synchronized void finishCommit(boolean committed) {
+		commitInProgress = false;
+		if (committed) {
+			noOfUncommitted -= noOfUncommittedAtCommitStart;
+			if (noOfUncommitted == 0) {
+				lastUncommitted = null;
+			}
+		}
+	}
+
+	private void indexWithoutCommit(WorkOrder workOrder) {
+		try {
+			coraClient.indexDataWithoutExplicitCommit(workOrder.getRecordType(),
+					workOrder.getRecordId());
+			countUncommitted(workOrder);
+			logSuccess("Record indexed", workOrder);
+		} catch (RuntimeException e) {
+			logError("Record NOT indexed for type: {0} and id: {1}", workOrder, e);
+			throw e;
+		}
+	}
+
+	private synchronized void countUncommitted(WorkOrder workOrder) {
+		noOfUncommitted++;
+		lastUncommitted = workOrder;
+	}
+
+	/**
+	 * commitUncommitted commits any uncommitted records by indexing the last record indexed without
+	 * commit again with explicit commit. Nothing is done if a commit is already in progress.
+	 */
+	public void commitUncommitted() {
+		WorkOrder toCommit = startCommitOfLastUncommitted();
+		if (toCommit != null) {
+			tryToCommitThrough(toCommit);
+		}
+	}
+
+	private synchronized WorkOrder startCommitOfLastUncommitted() {
+		if (commitInProgress || lastUncommitted == null) {
+			return null;
+		}
+		startCommit();
+		return lastUncommitted;
+	}
+
+	private void tryToCommitThrough(WorkOrder toCommit) {
+		try {
+			indexWithCommit(toCommit);
+		} catch (RuntimeException e) {
+			// logged by indexWithCommit, the records stay uncommitted until the next commit
+		}
+	}
+
+	private void logSuccess(String successMessage, WorkOrder workOrder) {
+		successLogSampling.logSuccess(logger, workOrder, successMessage,
+				"Records indexed or removed from index");
+	}
+
+	private void logError(String logM, WorkOrder workOrder, Exception e) {
+		logger.logErrorUsingMessageAndException(MessageFormat.format(logM,
+				workOrder.getRecordType(), workOrder.getRecordId()), e);
+	}
+
+	public synchronized int getNoOfUncommitted() {
+		return noOfUncommitted;
+	}
+
+	/**
+	 * useDeadLetterPublisher makes the handler dead-letter the work orders it fails to index or
+	 * remove from the index using deadLetterPublisher. It returns false, as a failed work order is
+	 * only given up here when no stage in front of it retries work orders.
+	 */
+	@Override
+	public boolean useDeadLetterPublisher(DeadLetterPublisher deadLetterPublisher) {
+		this.deadLetterPublisher = deadLetterPublisher;
+		return false;
+	}
+
+	@Override
+	public boolean passesOnOnCallingThread() {
+		return true;
+	}
+
+	@Override
+	public WorkOrderHandler getNextHandler() {
+		return null;
+	}
+
+	/**
+	 * shutdown stops the periodic commit and commits any uncommitted records on the commit thread,
+	 * use {@link #awaitTermination(long)} to wait for the commit to finish.
+	 */
+	@Override
+	public void shutdown() {
+		try {
+			commitScheduler.execute(this::commitUncommitted);
+		} catch (RejectedExecutionException e) {
+			// already shut down
+		}
+		commitScheduler.shutdown();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeoutMs) throws InterruptedException {
+		return commitScheduler.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public List<WorkOrder> shutdownNow() {
+		commitScheduler.shutdownNow();
+		return Collections.emptyList();
+	}
+
+	public CoraClient getCoraClient() {
+		// needed for test
+		return coraClient;
+	}
+
+	public SuccessLogSampling getSuccessLogSampling() {
+		// needed for test
+		return successLogSampling;
+	}
+
+	public IndexMetrics getIndexMetrics() {
+		// needed for test
+		return indexMetrics;
+	}
+
+	public int getCommitEveryNoOfRecords() {
+		// needed for test
+		return commitEveryNoOfRecords;
+	}
+
+	public long getCommitIntervalMs() {
+		// needed for test
+		return commitIntervalMs;
+	}
+
+	public DeadLetterPublisher getDeadLetterPublisher() {
+		// needed for test
+		return deadLetterPublisher;
+	}
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import se.uu.ub.cora.javaclient.cora.CoraClient;
+
+/**
+ * IndexModeFactory decides how a work order finally reaches Cora, by factoring the last handler
+ * in the chain of work order handlers.
+ */
+public interface IndexModeFactory {
+
+	/**
+	 * factorUsingCoraClientAndWorkOrderCreator factors the handler that sends work orders to Cora.
+	 * 
+	 * @param coraClient
+	 *            the CoraClient to use when talking to Cora
+	 * @param workOrderCreator
+	 *            the handler that creates work orders in Cora as workOrder records, which is the
+	 *            default mode
+	 * @return a WorkOrderHandler that sends work orders to Cora
+	 */
+	WorkOrderHandler factorUsingCoraClientAndWorkOrderCreator(CoraClient coraClient,
+			WorkOrderHandler workOrderCreator);
+
+}
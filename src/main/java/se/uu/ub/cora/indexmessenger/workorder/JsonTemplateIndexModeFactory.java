@@ -0,0 +1,49 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.javaclient.cora.CoraClient;
+
+/**
+ * JsonTemplateIndexModeFactory creates workOrder records like the default mode, but posts json
+ * filled from a precompiled template instead of building a ClientDataGroup for each work order.
+ */
+public class JsonTemplateIndexModeFactory implements IndexModeFactory {
+
+	private SuccessLogSampling successLogSampling;
+	private IndexMetrics indexMetrics;
+
+	/**
+	 * Creates a factory whose creators record created and failed work orders in indexMetrics,
+	 * normally the same {@link IndexMetrics} as the one used by the listener.
+	 */
+	public JsonTemplateIndexModeFactory(SuccessLogSampling successLogSampling,
+			IndexMetrics indexMetrics) {
+		this.successLogSampling = successLogSampling;
+		this.indexMetrics = indexMetrics;
+	}
+
+	@Override
+	public JsonTemplateWorkOrderCreator factorUsingCoraClientAndWorkOrderCreator(
+			CoraClient coraClient, WorkOrderHandler workOrderCreator) {
+		return new JsonTemplateWorkOrderCreator(coraClient, successLogSampling, indexMetrics);
+	}
+
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import java.text.MessageFormat;
+
+import se.uu.ub.cora.indexmessenger.DeadLetter;
+import se.uu.ub.cora.indexmessenger.DeadLetterPublisher;
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.javaclient.cora.CoraClient;
+import se.uu.ub.cora.logger.Logger;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+/**
+ * JsonTemplateWorkOrderCreator creates workOrder records in Cora from json produced by
+ * {@link WorkOrderJsonTemplate}, avoiding the ClientDataGroup tree and its conversion to json.
+ * <p>
+ * The creator ends a chain of handlers, it is a {@link WorkOrderStage} only so that it is given
+ * the publisher to dead-letter the work orders it fails to create, see
+ * {@link WorkOrderStage#useDeadLetterPublisherInChain(WorkOrderHandler, DeadLetterPublisher)}.
+ */
+public class JsonTemplateWorkOrderCreator implements WorkOrderStage {
+	private Logger logger = LoggerProvider.getLoggerForClass(JsonTemplateWorkOrderCreator.class);
+	private final CoraClient coraClient;
+	private final SuccessLogSampling successLogSampling;
+	private final IndexMetrics indexMetrics;
+	private volatile DeadLetterPublisher deadLetterPublisher = DeadLetterPublisher.none();
+
+	public JsonTemplateWorkOrderCreator(CoraClient coraClient,
+			SuccessLogSampling successLogSampling, IndexMetrics indexMetrics) {
+		this.coraClient = coraClient;
+		this.successLogSampling = successLogSampling;
+		this.indexMetrics = indexMetrics;
+	}
+
+	@Override
+	public void handle(WorkOrder workOrder) {
+		String json = WorkOrderJsonTemplate.toJson(workOrder);
+		long createStart = System.nanoTime();
+		try {
+			coraClient.create("workOrder", json);
+			indexMetrics.getWorkOrderMetrics()
+					.recordWorkOrderCreatedUsingNanos(System.nanoTime() - createStart);
+			successLogSampling.logSuccess(logger, workOrder, "Index workOrder created",
+					"Index workOrders created");
+		} catch (Exception e) {
+			indexMetrics.getWorkOrderMetrics()
+					.recordWorkOrderFailedUsingNanos(System.nanoTime() - createStart);
+			WorkOrderOutcome.recordFailure(e);
+			String logM = "Index workOrder NOT created for type: {0} and id: {1}";
+			logger.logErrorUsingMessageAndException(MessageFormat.format(logM,
+					workOrder.getRecordType(), workOrder.getRecordId()), e);
+			deadLetterPublisher.publish(DeadLetter.forWorkOrderNotCreated(workOrder, e));
+		}
+	}
+
+	/**
+	 * useDeadLetterPublisher makes the creator dead-letter the work orders it fails to create using
+	 * deadLetterPublisher. It returns false, as a failed work order is only given up here when no
+	 * stage in front of it retries work orders.
+	 */
+	@Override
+	public boolean useDeadLetterPublisher(DeadLetterPublisher deadLetterPublisher) {
+		this.deadLetterPublisher = deadLetterPublisher;
+		return false;
+	}
+
+	@Override
+	public boolean passesOnOnCallingThread() {
+		return true;
+	}
+
+	@Override
+	public WorkOrderHandler getNextHandler() {
+		return null;
+	}
+
+	public SuccessLogSampling getSuccessLogSampling() {
+		// needed for test
+		return successLogSampling;
+	}
+
+	public IndexMetrics getIndexMetrics() {
+		// needed for test
+		return indexMetrics;
+	}
+
+	public CoraClient getCoraClient() {
+		// needed for test
+		return coraClient;
+	}
+
+	public DeadLetterPublisher getDeadLetterPublisher() {
+		// needed for test
+		return deadLetterPublisher;
+	}
+}
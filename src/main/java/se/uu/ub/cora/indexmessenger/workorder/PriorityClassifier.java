@@ -0,0 +1,140 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * PriorityClassifier decides the {@link WorkOrderPriority} of work orders, using the headers of
+ * the message they were created from, their modificationType and their recordType.
+ * <p>
+ * The rules are tried in this order:
+ * <ol>
+ * <li>If the message has the priority header and its value names a priority, such as "bulk", that
+ * priority is used.</li>
+ * <li>Deletes get the delete priority.</li>
+ * <li>If the recordType matches a record type rule, the priority of the rule is used. A rule is
+ * either an exact record type or a prefix ending with *, such as "alvin-*".</li>
+ * <li>Otherwise, and for work orders without recordType, the work order gets priority
+ * NORMAL.</li>
+ * </ol>
+ */
+public final class PriorityClassifier {
+	private static final String PREFIX_MARKER = "*";
+	private final String priorityHeaderName;
+	private final WorkOrderPriority deletePriority;
+	private final Map<String, WorkOrderPriority> typePriorities = new HashMap<>();
+	private final List<Entry<String, WorkOrderPriority>> prefixPriorities = new ArrayList<>();
+	private final Map<String, WorkOrderPriority> decisions = new ConcurrentHashMap<>();
+
+	public static PriorityClassifier usingHeaderDeleteAndRecordTypeRules(
+			String priorityHeaderName, WorkOrderPriority deletePriority,
+			Map<String, WorkOrderPriority> recordTypeRules) {
+		return new PriorityClassifier(priorityHeaderName, deletePriority, recordTypeRules);
+	}
+
+	public static PriorityClassifier classifyingAllAsNormal() {
+		return new PriorityClassifier(null, WorkOrderPriority.NORMAL, Map.of());
+	}
+
+	private PriorityClassifier(String priorityHeaderName, WorkOrderPriority deletePriority,
+			Map<String, WorkOrderPriority> recordTypeRules) {
+		this.priorityHeaderName = priorityHeaderName;
+		this.deletePriority = deletePriority;
+		compileRules(recordTypeRules);
+	}
+
+	private void compileRules(Map<String, WorkOrderPriority> recordTypeRules) {
+		for (Entry<String, WorkOrderPriority> rule : recordTypeRules.entrySet()) {
+			String recordType = rule.getKey();
+			if (recordType.endsWith(PREFIX_MARKER)) {
+				String prefix = recordType.substring(0,
+						recordType.length() - PREFIX_MARKER.length());
+				prefixPriorities.add(Map.entry(prefix, rule.getValue()));
+			} else {
+				typePriorities.put(recordType, rule.getValue());
+			}
+		}
+	}
+
+	/**
+	 * classify returns the workOrder with the priority decided by the rules.
+	 */
+	public WorkOrder classify(Map<String, String> headers, WorkOrder workOrder) {
+		return workOrder.withPriority(decidePriority(headers, workOrder));
+	}
+
+	private WorkOrderPriority decidePriority(Map<String, String> headers, WorkOrder workOrder) {
+		WorkOrderPriority headerPriority = readPriorityFromHeaders(headers);
+		if (headerPriority != null) {
+			return headerPriority;
+		}
+		if (workOrder.isDelete()) {
+			return deletePriority;
+		}
+		if (workOrder.getRecordType() == null) {
+			return WorkOrderPriority.NORMAL;
+		}
+		return decisions.computeIfAbsent(workOrder.getRecordType(), this::decideForRecordType);
+	}
+
+	private WorkOrderPriority readPriorityFromHeaders(Map<String, String> headers) {
+		if (priorityHeaderName == null || headers == null) {
+			return null;
+		}
+		String value = headers.get(priorityHeaderName);
+		if (value == null) {
+			return null;
+		}
+		try {
+			return WorkOrderPriority.valueOf(value.toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	private WorkOrderPriority decideForRecordType(String recordType) {
+		WorkOrderPriority typePriority = typePriorities.get(recordType);
+		if (typePriority != null) {
+			return typePriority;
+		}
+		for (Entry<String, WorkOrderPriority> prefixPriority : prefixPriorities) {
+			if (recordType.startsWith(prefixPriority.getKey())) {
+				return prefixPriority.getValue();
+			}
+		}
+		return WorkOrderPriority.NORMAL;
+	}
+
+	public String getPriorityHeaderName() {
+		// needed for test
+		return priorityHeaderName;
+	}
+
+	public WorkOrderPriority getDeletePriority() {
+		// needed for test
+		return deletePriority;
+	}
+}
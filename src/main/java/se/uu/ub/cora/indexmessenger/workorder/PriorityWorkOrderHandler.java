@@ -0,0 +1,329 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import java.text.MessageFormat;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import se.uu.ub.cora.indexmessenger.IndexMessageException;
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.indexmessenger.metrics.LatencyHistogram;
+import se.uu.ub.cora.logger.Logger;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+/**
+ * PriorityWorkOrderHandler keeps one bounded queue for each {@link WorkOrderPriority} and lets a
+ * pool of worker threads pass the work orders on to the next handler. When work orders of several
+ * priorities are waiting, the next one is chosen using smooth weighted round robin, so that each
+ * priority gets its share of the workers according to its weight and no priority starves.
+ * <p>
+ * With weights 8, 4 and 1 for HIGH, NORMAL and BULK, a delete waits behind at most a few bulk work
+ * orders even when hundreds of thousands of them are queued. When a queue is full the receiving
+ * thread waits. The time from queueing until a work order is handled is recorded per priority.
+ */
+public class PriorityWorkOrderHandler implements WorkOrderStage {
+	private static final long POLL_TIMEOUT_MS = 100;
+	private Logger logger = LoggerProvider.getLoggerForClass(PriorityWorkOrderHandler.class);
+	private final WorkOrderHandler nextHandler;
+	private final int queueCapacityPerPriority;
+	private final int numberOfWorkers;
+	private final IndexMetrics indexMetrics;
+	private final Map<WorkOrderPriority, Integer> weights = new EnumMap<>(
+			WorkOrderPriority.class);
+	private final Map<WorkOrderPriority, Deque<QueuedWorkOrder>> queues = new EnumMap<>(
+			WorkOrderPriority.class);
+	private final Map<WorkOrderPriority, Long> currentWeights = new EnumMap<>(
+			WorkOrderPriority.class);
+	private final Map<WorkOrderPriority, AtomicLong> noOfHandled = new EnumMap<>(
+			WorkOrderPriority.class);
+	private final Map<WorkOrderPriority, LatencyHistogram> latencies = new EnumMap<>(
+			WorkOrderPriority.class);
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+	private final AtomicLong noOfOutstanding = new AtomicLong();
+	private final ExecutorService workers;
+	private volatile boolean running = true;
+
+	public static PriorityWorkOrderHandler usingNextHandlerAndSettings(
+			WorkOrderHandler nextHandler, int queueCapacityPerPriority, int numberOfWorkers,
+			Map<WorkOrderPriority, Integer> weights, IndexMetrics indexMetrics) {
+		return new PriorityWorkOrderHandler(nextHandler, queueCapacityPerPriority,
+				numberOfWorkers, weights, indexMetrics);
+	}
+
+	private PriorityWorkOrderHandler(WorkOrderHandler nextHandler, int queueCapacityPerPriority,
+			int numberOfWorkers, Map<WorkOrderPriority, Integer> weights,
+			IndexMetrics indexMetrics) {
+		this.nextHandler = nextHandler;
+		this.queueCapacityPerPriority = queueCapacityPerPriority;
+		this.numberOfWorkers = numberOfWorkers;
+		this.indexMetrics = indexMetrics;
+		for (WorkOrderPriority priority : WorkOrderPriority.values()) {
+			this.weights.put(priority, readWeight(weights, priority));
+			queues.put(priority, new ArrayDeque<>());
+			currentWeights.put(priority, 0L);
+			noOfHandled.put(priority, new AtomicLong());
+			latencies.put(priority, new LatencyHistogram());
+		}
+		workers = Executors.newFixedThreadPool(numberOfWorkers,
+				new WorkOrderThreadFactory("indexmessenger-priority-"));
+		startWorkers();
+	}
+
+	private int readWeight(Map<WorkOrderPriority, Integer> weights, WorkOrderPriority priority) {
+		Integer weight = weights.get(priority);
+		if (weight == null || weight < 1) {
+			throw IndexMessageException
+					.withMessage("Weight for priority " + priority + " must be at least 1");
+		}
+		return weight;
+	}
+
+	private void startWorkers() {
+		for (int i = 0; i < numberOfWorkers; i++) {
+			workers.execute(this::handleQueuedWorkOrders);
+		}
+	}
+
+	@Override
+	public void handle(WorkOrder workOrder) {
+		Deque<QueuedWorkOrder> queue = queues.get(workOrder.getPriority());
+		lock.lock();
+		try {
+			waitForRoomInQueue(queue);
+			queue.addLast(new QueuedWorkOrder(workOrder, System.nanoTime()));
+			noOfOutstanding.incrementAndGet();
+			notEmpty.signal();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			logger.logErrorUsingMessageAndException(
+					formatMessage("Interrupted while waiting to queue workOrder", workOrder), e);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void waitForRoomInQueue(Deque<QueuedWorkOrder> queue) throws InterruptedException {
+		while (queue.size() >= queueCapacityPerPriority) {
+			notFull.await();
+		}
+	}
+
+	private void handleQueuedWorkOrders() {
+		QueuedWorkOrder queued = takeNext();
+		while (queued != null) {
+			passOnToNextHandler(queued);
+			queued = takeNext();
+		}
+	}
+
+	private QueuedWorkOrder takeNext() {
+		lock.lock();
+		try {
+			while (allQueuesAreEmpty()) {
+				if (!running) {
+					return null;
+				}
+				awaitNotEmpty();
+			}
+			QueuedWorkOrder queued = queues.get(choosePriority()).pollFirst();
+			notFull.signalAll();
+			return queued;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void awaitNotEmpty() {
+		try {
+			notEmpty.await(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			// workers are only stopped through running, an interrupt must not stop other workers
+		}
+	}
+
+	private boolean allQueuesAreEmpty() {
+		for (Deque<QueuedWorkOrder> queue : queues.values()) {
+			if (!queue.isEmpty()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * choosePriority uses smooth weighted round robin. Each waiting priority has its weight added
+	 * to its current weight, the priority with the highest current weight is chosen and has the sum
+	 * of the weights of all waiting priorities subtracted from its current weight.
+	 */
+	private WorkOrderPriority choosePriority() {
+		WorkOrderPriority chosen = null;
+		long totalWeight = 0;
+		for (WorkOrderPriority priority : WorkOrderPriority.values()) {
+			if (!queues.get(priority).isEmpty()) {
+				int weight = weights.get(priority);
+				currentWeights.merge(priority, (long) weight, Long::sum);
+				totalWeight += weight;
+				if (chosen == null
+						|| currentWeights.get(priority) > currentWeights.get(chosen)) {
+					chosen = priority;
+				}
+			}
+		}
+		currentWeights.merge(chosen, -totalWeight, Long::sum);
+		return chosen;
+	}
+
+	private void passOnToNextHandler(QueuedWorkOrder queued) {
+		WorkOrder workOrder = queued.workOrder;
+		try {
+			nextHandler.handle(workOrder);
+		} catch (Exception e) {
+			logger.logErrorUsingMessageAndException(
+					formatMessage("Failed to handle workOrder", workOrder), e);
+		} finally {
+			recordHandled(workOrder.getPriority(), System.nanoTime() - queued.queuedNanos);
+			noOfOutstanding.decrementAndGet();
+		}
+	}
+
+	private void recordHandled(WorkOrderPriority priority, long nanos) {
+		noOfHandled.get(priority).incrementAndGet();
+		latencies.get(priority).recordNanos(nanos);
+		indexMetrics.getWorkOrderMetrics().recordPriorityLatencyUsingNanos(priority.name(), nanos);
+	}
+
+	private String formatMessage(String start, WorkOrder workOrder) {
+		return MessageFormat.format("{0} for type: {1} and id: {2}", start,
+				workOrder.getRecordType(), workOrder.getRecordId());
+	}
+
+	public int getQueueDepth(WorkOrderPriority priority) {
+		lock.lock();
+		try {
+			return queues.get(priority).size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public long getNoOfHandled(WorkOrderPriority priority) {
+		return noOfHandled.get(priority).get();
+	}
+
+	/**
+	 * getLatency returns the histogram of the time from queueing until handled, for work orders of
+	 * the priority.
+	 */
+	public LatencyHistogram getLatency(WorkOrderPriority priority) {
+		return latencies.get(priority);
+	}
+
+	/**
+	 * shutdown stops the workers once all queues are drained. It returns directly, use
+	 * {@link #awaitTermination(long)} to wait for the workers to finish.
+	 */
+	@Override
+	public void shutdown() {
+		running = false;
+		workers.shutdown();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeoutMs) throws InterruptedException {
+		return workers.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * shutdownNow takes all work orders still waiting in the queues, highest priority first, and
+	 * interrupts the workers.
+	 */
+	@Override
+	public List<WorkOrder> shutdownNow() {
+		running = false;
+		List<WorkOrder> notPassedOn = new ArrayList<>();
+		lock.lock();
+		try {
+			for (Deque<QueuedWorkOrder> queue : queues.values()) {
+				takeAllFromQueue(queue, notPassedOn);
+			}
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		noOfOutstanding.addAndGet(-notPassedOn.size());
+		workers.shutdownNow();
+		return notPassedOn;
+	}
+
+	private void takeAllFromQueue(Deque<QueuedWorkOrder> queue, List<WorkOrder> notPassedOn) {
+		QueuedWorkOrder queued = queue.pollFirst();
+		while (queued != null) {
+			notPassedOn.add(queued.workOrder);
+			queued = queue.pollFirst();
+		}
+	}
+
+	@Override
+	public long getNoOfOutstanding() {
+		return noOfOutstanding.get();
+	}
+
+	@Override
+	public WorkOrderHandler getNextHandler() {
+		return nextHandler;
+	}
+
+	public int getWeight(WorkOrderPriority priority) {
+		// needed for test
+		return weights.get(priority);
+	}
+
+	public int getQueueCapacityPerPriority() {
+		// needed for test
+		return queueCapacityPerPriority;
+	}
+
+	public int getNumberOfWorkers() {
+		// needed for test
+		return numberOfWorkers;
+	}
+
+	private static final class QueuedWorkOrder {
+		private final WorkOrder workOrder;
+		private final long queuedNanos;
+
+		private QueuedWorkOrder(WorkOrder workOrder, long queuedNanos) {
+			this.workOrder = workOrder;
+			this.queuedNanos = queuedNanos;
+		}
+	}
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import java.util.Map;
+
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+
+/**
+ * PriorityWorkOrderHandlerFactory factors {@link PriorityWorkOrderHandler}s, letting work orders
+ * of higher priority pass work orders of lower priority that are waiting.
+ */
+public class PriorityWorkOrderHandlerFactory implements WorkOrderHandlerFactory {
+	/**
+	 * DEFAULT_WEIGHTS gives HIGH eight and NORMAL four times as many turns as BULK.
+	 */
+	public static final Map<WorkOrderPriority, Integer> DEFAULT_WEIGHTS = Map.of(
+			WorkOrderPriority.HIGH, 8, WorkOrderPriority.NORMAL, 4, WorkOrderPriority.BULK, 1);
+
+	private int queueCapacityPerPriority;
+	private int numberOfWorkers;
+	private Map<WorkOrderPriority, Integer> weights;
+	private IndexMetrics indexMetrics;
+
+	public PriorityWorkOrderHandlerFactory(int queueCapacityPerPriority, int numberOfWorkers,
+			Map<WorkOrderPriority, Integer> weights, IndexMetrics indexMetrics) {
+		this.queueCapacityPerPriority = queueCapacityPerPriority;
+		this.numberOfWorkers = numberOfWorkers;
+		this.weights = weights;
+		this.indexMetrics = indexMetrics;
+	}
+
+	@Override
+	public PriorityWorkOrderHandler factorUsingNextHandler(WorkOrderHandler nextHandler) {
+		return PriorityWorkOrderHandler.usingNextHandlerAndSettings(nextHandler,
+				queueCapacityPerPriority, numberOfWorkers, weights, indexMetrics);
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import java.util.Objects;
+
+/**
+ * RecordKey identifies the record a work order is for, by its recordType and recordId.
+ */
+public final class RecordKey {
+	private final String recordType;
+	private final String recordId;
+
+	public static RecordKey forWorkOrder(WorkOrder workOrder) {
+		return new RecordKey(workOrder.getRecordType(), workOrder.getRecordId());
+	}
+
+	private RecordKey(String recordType, String recordId) {
+		this.recordType = recordType;
+		this.recordId = recordId;
+	}
+
+	public String getRecordType() {
+		return recordType;
+	}
+
+	public String getRecordId() {
+		return recordId;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(recordType, recordId);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof RecordKey)) {
+			return false;
+		}
+		RecordKey other = (RecordKey) obj;
+		return Objects.equals(recordType, other.recordType)
+				&& Objects.equals(recordId, other.recordId);
+	}
+}
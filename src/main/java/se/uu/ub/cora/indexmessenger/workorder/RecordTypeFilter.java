@@ -0,0 +1,121 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * RecordTypeFilter decides which record types work orders should be created for, using allow and
+ * deny rules. A rule is either an exact record type or a prefix ending with *, such as "alvin-*".
+ * <p>
+ * A record type is allowed if there are no allow rules or it matches an allow rule, and it does
+ * not match a deny rule. The rules are compiled into hash sets and prefix lists once. Decisions
+ * for record types matching a prefix rule are cached, so that after the first message of such a
+ * type the decision is a single hash lookup. Record types matching no prefix rule are not cached,
+ * as record types are taken from the messages and would otherwise grow the cache without limit,
+ * and at most MAX_CACHED_DECISIONS decisions are cached. A missing record type is never allowed.
+ */
+public final class RecordTypeFilter {
+	static final int MAX_CACHED_DECISIONS = 1000;
+	private static final String PREFIX_MARKER = "*";
+	private final Set<String> allowedTypes = new HashSet<>();
+	private final List<String> allowedPrefixes = new ArrayList<>();
+	private final Set<String> deniedTypes = new HashSet<>();
+	private final List<String> deniedPrefixes = new ArrayList<>();
+	private final boolean hasAllowRules;
+	private final Map<String, Boolean> decisions = new ConcurrentHashMap<>();
+
+	public static RecordTypeFilter usingAllowAndDenyRules(Collection<String> allowRules,
+			Collection<String> denyRules) {
+		return new RecordTypeFilter(allowRules, denyRules);
+	}
+
+	public static RecordTypeFilter allowingAll() {
+		return new RecordTypeFilter(Set.of(), Set.of());
+	}
+
+	private RecordTypeFilter(Collection<String> allowRules, Collection<String> denyRules) {
+		compileRules(allowRules, allowedTypes, allowedPrefixes);
+		compileRules(denyRules, deniedTypes, deniedPrefixes);
+		hasAllowRules = !allowRules.isEmpty();
+	}
+
+	private void compileRules(Collection<String> rules, Set<String> types, List<String> prefixes) {
+		for (String rule : rules) {
+			if (rule.endsWith(PREFIX_MARKER)) {
+				prefixes.add(rule.substring(0, rule.length() - PREFIX_MARKER.length()));
+			} else {
+				types.add(rule);
+			}
+		}
+	}
+
+	public boolean isAllowed(String recordType) {
+		if (recordType == null) {
+			return false;
+		}
+		Boolean cachedDecision = decisions.get(recordType);
+		if (cachedDecision != null) {
+			return cachedDecision;
+		}
+		boolean allowed = decide(recordType);
+		cacheIfMatchingPrefixRule(recordType, allowed);
+		return allowed;
+	}
+
+	private void cacheIfMatchingPrefixRule(String recordType, boolean allowed) {
+		if (decisions.size() < MAX_CACHED_DECISIONS && (matchesPrefix(recordType, allowedPrefixes)
+				|| matchesPrefix(recordType, deniedPrefixes))) {
+			decisions.put(recordType, allowed);
+		}
+	}
+
+	private boolean decide(String recordType) {
+		return isAllowedByAllowRules(recordType)
+				&& !matches(recordType, deniedTypes, deniedPrefixes);
+	}
+
+	private boolean isAllowedByAllowRules(String recordType) {
+		return !hasAllowRules || matches(recordType, allowedTypes, allowedPrefixes);
+	}
+
+	private boolean matches(String recordType, Set<String> types, List<String> prefixes) {
+		return types.contains(recordType) || matchesPrefix(recordType, prefixes);
+	}
+
+	private boolean matchesPrefix(String recordType, List<String> prefixes) {
+		for (String prefix : prefixes) {
+			if (recordType.startsWith(prefix)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	int getNoOfCachedDecisions() {
+		// needed for test
+		return decisions.size();
+	}
+}
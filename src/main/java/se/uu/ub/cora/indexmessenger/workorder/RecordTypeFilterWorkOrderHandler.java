@@ -0,0 +1,122 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+
+/**
+ * RecordTypeFilterWorkOrderHandler only passes work orders on to the next handler if their record
+ * type is allowed by the {@link RecordTypeFilter}. Filtered work orders are counted per record
+ * type, work orders without record type are always filtered and counted separately. All filtered
+ * work orders are also counted as filtered messages in the {@link IndexMetrics}, and are
+ * acknowledged in the spool given through {@link #useSpool(WorkOrderSpool)}, so that they are not
+ * replayed.
+ */
+public class RecordTypeFilterWorkOrderHandler implements WorkOrderStage {
+	private final WorkOrderHandler nextHandler;
+	private final RecordTypeFilter recordTypeFilter;
+	private final IndexMetrics indexMetrics;
+	private final Map<String, LongAdder> noOfFilteredPerType = new ConcurrentHashMap<>();
+	private final LongAdder noOfFilteredWithoutType = new LongAdder();
+	private volatile WorkOrderSpool spool;
+
+	public RecordTypeFilterWorkOrderHandler(WorkOrderHandler nextHandler,
+			RecordTypeFilter recordTypeFilter, IndexMetrics indexMetrics) {
+		this.nextHandler = nextHandler;
+		this.recordTypeFilter = recordTypeFilter;
+		this.indexMetrics = indexMetrics;
+	}
+
+	@Override
+	public void handle(WorkOrder workOrder) {
+		String recordType = workOrder.getRecordType();
+		if (recordTypeFilter.isAllowed(recordType)) {
+			nextHandler.handle(workOrder);
+		} else {
+			countFiltered(recordType);
+			acknowledgeInSpool(workOrder);
+		}
+	}
+
+	private void acknowledgeInSpool(WorkOrder workOrder) {
+		WorkOrderSpool currentSpool = spool;
+		if (currentSpool != null) {
+			currentSpool.acknowledgeIfSpooled(workOrder);
+		}
+	}
+
+	private void countFiltered(String recordType) {
+		indexMetrics.getWorkOrderMetrics().incrementMessagesFiltered();
+		if (recordType == null) {
+			noOfFilteredWithoutType.increment();
+		} else {
+			noOfFilteredPerType.computeIfAbsent(recordType, type -> new LongAdder()).increment();
+		}
+	}
+
+	public long getNoOfFilteredForType(String recordType) {
+		LongAdder counter = noOfFilteredPerType.get(recordType);
+		return counter == null ? 0 : counter.sum();
+	}
+
+	public long getNoOfFilteredWithoutType() {
+		return noOfFilteredWithoutType.sum();
+	}
+
+	public Map<String, Long> getNoOfFilteredPerType() {
+		Map<String, Long> counts = new HashMap<>();
+		noOfFilteredPerType.forEach((type, counter) -> counts.put(type, counter.sum()));
+		return counts;
+	}
+
+	@Override
+	public void useSpool(WorkOrderSpool spool) {
+		this.spool = spool;
+	}
+
+	@Override
+	public boolean passesOnOnCallingThread() {
+		return true;
+	}
+
+	@Override
+	public WorkOrderHandler getNextHandler() {
+		return nextHandler;
+	}
+
+	public RecordTypeFilter getRecordTypeFilter() {
+		// needed for test
+		return recordTypeFilter;
+	}
+
+	public IndexMetrics getIndexMetrics() {
+		// needed for test
+		return indexMetrics;
+	}
+
+	public WorkOrderSpool getSpool() {
+		// needed for test
+		return spool;
+	}
+}
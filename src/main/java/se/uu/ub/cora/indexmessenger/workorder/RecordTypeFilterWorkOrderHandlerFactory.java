@@ -0,0 +1,46 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+
+/**
+ * RecordTypeFilterWorkOrderHandlerFactory factors {@link RecordTypeFilterWorkOrderHandler}s that
+ * all share the same compiled {@link RecordTypeFilter}. Placed first in a
+ * {@link ChainedWorkOrderHandlerFactory} the filter is applied directly after parsing, on the
+ * receiving thread. Filtered work orders are counted in the given {@link IndexMetrics}, normally
+ * the same as the one used by the listener.
+ */
+public class RecordTypeFilterWorkOrderHandlerFactory implements WorkOrderHandlerFactory {
+
+	private RecordTypeFilter recordTypeFilter;
+	private IndexMetrics indexMetrics;
+
+	public RecordTypeFilterWorkOrderHandlerFactory(RecordTypeFilter recordTypeFilter,
+			IndexMetrics indexMetrics) {
+		this.recordTypeFilter = recordTypeFilter;
+		this.indexMetrics = indexMetrics;
+	}
+
+	@Override
+	public RecordTypeFilterWorkOrderHandler factorUsingNextHandler(WorkOrderHandler nextHandler) {
+		return new RecordTypeFilterWorkOrderHandler(nextHandler, recordTypeFilter, indexMetrics);
+	}
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+import se.uu.ub.cora.javaclient.cora.CoraClientException;
+
+/**
+ * RetryPolicy decides how many times a failed work order is attempted and how long to wait
+ * between the attempts. The backoff doubles for each retry, starting at the initial delay and
+ * limited by the max delay. The delay used is randomly chosen between half the backoff and the
+ * full backoff, so that work orders that failed together are not all retried at the same time.
+ * <p>
+ * Only failures accepted by the retryableFailure predicate are retried. By default that is
+ * {@link #isTransientFailure(Exception)}, another predicate can be set using
+ * {@link #withRetryableFailure(Predicate)}.
+ */
+public final class RetryPolicy {
+	private final int maxAttempts;
+	private final long initialDelayMs;
+	private final long maxDelayMs;
+	private final Predicate<Exception> retryableFailure;
+
+	public static RetryPolicy usingMaxAttemptsAndDelays(int maxAttempts, long initialDelayMs,
+			long maxDelayMs) {
+		return new RetryPolicy(maxAttempts, initialDelayMs, maxDelayMs,
+				RetryPolicy::isTransientFailure);
+	}
+
+	public static RetryPolicy noRetries() {
+		return new RetryPolicy(1, 0, 0, RetryPolicy::isTransientFailure);
+	}
+
+	private RetryPolicy(int maxAttempts, long initialDelayMs, long maxDelayMs,
+			Predicate<Exception> retryableFailure) {
+		this.maxAttempts = maxAttempts;
+		this.initialDelayMs = initialDelayMs;
+		this.maxDelayMs = maxDelayMs;
+		this.retryableFailure = retryableFailure;
+	}
+
+	/**
+	 * withRetryableFailure returns a copy of this policy that only retries failures accepted by
+	 * retryableFailure.
+	 */
+	public RetryPolicy withRetryableFailure(Predicate<Exception> retryableFailure) {
+		return new RetryPolicy(maxAttempts, initialDelayMs, maxDelayMs, retryableFailure);
+	}
+
+	public boolean isRetryAllowedAfterAttempt(int attemptNo) {
+		return attemptNo < maxAttempts;
+	}
+
+	public boolean isRetryable(Exception failure) {
+		return retryableFailure.test(failure);
+	}
+
+	/**
+	 * isTransientFailure returns false if Cora answered the call with an error, that is if the
+	 * failure is a CoraClientException from the javaclient, such as for a record that does not
+	 * exist or a record type that is not known, as the same call gets the same answer when retried.
+	 * Any other failure is transient, as is a CoraClientException caused by an IOException, thrown
+	 * when Cora could not be reached.
+	 */
+	public static boolean isTransientFailure(Exception failure) {
+		return !(failure instanceof CoraClientException) || isCausedByIOException(failure);
+	}
+
+	private static boolean isCausedByIOException(Exception failure) {
+		for (Throwable cause = failure.getCause(); cause != null; cause = cause.getCause()) {
+			if (cause instanceof IOException) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * getBackoffMsForRetry returns the backoff before retry number retryNo, where the first retry
+	 * has number 1, without jitter.
+	 */
+	public long getBackoffMsForRetry(int retryNo) {
+		int doublings = Math.min(retryNo - 1, 62);
+		long backoff = initialDelayMs << doublings;
+		if (backoff < 0 || backoff >> doublings != initialDelayMs) {
+			return maxDelayMs;
+		}
+		return Math.min(backoff, maxDelayMs);
+	}
+
+	public long getDelayMsForRetry(int retryNo) {
+		long backoff = getBackoffMsForRetry(retryNo);
+		long half = backoff / 2;
+		return half + ThreadLocalRandom.current().nextLong(backoff - half + 1);
+	}
+
+	public int getMaxAttempts() {
+		return maxAttempts;
+	}
+
+	public long getInitialDelayMs() {
+		return initialDelayMs;
+	}
+
+	public long getMaxDelayMs() {
+		return maxDelayMs;
+	}
+
+	public Predicate<Exception> getRetryableFailure() {
+		// needed for test
+		return retryableFailure;
+	}
+}
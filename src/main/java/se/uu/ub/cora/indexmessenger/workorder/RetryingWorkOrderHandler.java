@@ -0,0 +1,378 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import se.uu.ub.cora.indexmessenger.DeadLetter;
+import se.uu.ub.cora.indexmessenger.DeadLetterPublisher;
+import se.uu.ub.cora.indexmessenger.IndexMessageException;
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.logger.Logger;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+/**
+ * RetryingWorkOrderHandler retries work orders that the next handler failed to send to Cora,
+ * according to a {@link RetryPolicy}. Retries are scheduled on a separate thread, so the thread
+ * handing over the work order is never held while waiting for a retry.
+ * <p>
+ * All calls pass a {@link CircuitBreaker}. Work orders handled while it is open are handled
+ * according to the {@link OpenCircuitPolicy}. Queued work orders are retried on the scheduler
+ * thread every openMs of the circuit breaker, the first one as the probe. At most maxQueued work
+ * orders are queued, work orders arriving when the queue is full are rejected.
+ * <p>
+ * Failures are detected through {@link WorkOrderOutcome}, and exceptions thrown by the next
+ * handler count as failures. Only failures that are retryable according to
+ * {@link RetryPolicy#isRetryable(Exception)} are retried and counted by the circuit breaker,
+ * other failures show that Cora answered and are given up at once. As outcomes are only seen
+ * when recorded on the calling thread, all handlers after this one must pass work orders on on
+ * the calling thread, see {@link WorkOrderStage#passesOnOnCallingThread()}. This is checked when
+ * the handler is created.
+ * <p>
+ * Work orders are dead-lettered, using the publisher given through
+ * {@link #useDeadLetterPublisher(DeadLetterPublisher)}, only when they are finally given up: when
+ * the failure is not retryable, when the retryPolicy allows no more attempts, when they are
+ * rejected while the circuit breaker is open, and when a retry can not be scheduled as the
+ * handler is shut down. Once dead-lettered, a spooled work order is acknowledged in the spool
+ * given through {@link #useSpool(WorkOrderSpool)}, so that it is not replayed.
+ */
+public class RetryingWorkOrderHandler implements WorkOrderStage {
+	public static final int DEFAULT_MAX_QUEUED = 10_000;
+	private Logger logger = LoggerProvider.getLoggerForClass(RetryingWorkOrderHandler.class);
+	private final WorkOrderHandler nextHandler;
+	private final RetryPolicy retryPolicy;
+	private final CircuitBreaker circuitBreaker;
+	private final OpenCircuitPolicy openCircuitPolicy;
+	private final IndexMetrics indexMetrics;
+	private final int maxQueued;
+	private final ScheduledExecutorService scheduler;
+	private final BlockingQueue<QueuedAttempt> queuedWhileOpen;
+	private final Set<QueuedAttempt> scheduledRetries = ConcurrentHashMap.newKeySet();
+	private volatile DeadLetterPublisher deadLetterPublisher = DeadLetterPublisher.none();
+	private volatile WorkOrderSpool spool;
+
+	public static RetryingWorkOrderHandler usingNextHandlerAndSettings(WorkOrderHandler nextHandler,
+			RetryPolicy retryPolicy, CircuitBreaker circuitBreaker,
+			OpenCircuitPolicy openCircuitPolicy) {
+		return usingNextHandlerSettingsAndMaxQueued(nextHandler, retryPolicy, circuitBreaker,
+				openCircuitPolicy, DEFAULT_MAX_QUEUED);
+	}
+
+	public static RetryingWorkOrderHandler usingNextHandlerSettingsAndMaxQueued(
+			WorkOrderHandler nextHandler, RetryPolicy retryPolicy, CircuitBreaker circuitBreaker,
+			OpenCircuitPolicy openCircuitPolicy, int maxQueued) {
+		ensureOutcomeIsReportedOnCallingThread(nextHandler);
+		return new RetryingWorkOrderHandler(nextHandler, retryPolicy, circuitBreaker,
+				openCircuitPolicy, maxQueued);
+	}
+
+	private static void ensureOutcomeIsReportedOnCallingThread(WorkOrderHandler nextHandler) {
+		WorkOrderHandler current = nextHandler;
+		while (current instanceof WorkOrderStage) {
+			WorkOrderStage stage = (WorkOrderStage) current;
+			if (!stage.passesOnOnCallingThread()) {
+				throw IndexMessageException.withMessage("Retrying handler can not be followed by "
+						+ stage.getClass().getSimpleName()
+						+ ", failures are only seen from handlers on the calling thread");
+			}
+			current = stage.getNextHandler();
+		}
+	}
+
+	private RetryingWorkOrderHandler(WorkOrderHandler nextHandler, RetryPolicy retryPolicy,
+			CircuitBreaker circuitBreaker, OpenCircuitPolicy openCircuitPolicy, int maxQueued) {
+		this.nextHandler = nextHandler;
+		this.retryPolicy = retryPolicy;
+		this.circuitBreaker = circuitBreaker;
+		this.openCircuitPolicy = openCircuitPolicy;
+		this.maxQueued = maxQueued;
+		this.indexMetrics = circuitBreaker.getIndexMetrics();
+		queuedWhileOpen = new LinkedBlockingQueue<>(maxQueued);
+		scheduler = Executors.newSingleThreadScheduledExecutor(
+				new WorkOrderThreadFactory("indexmessenger-retry-"));
+		scheduleRetryOfQueued();
+	}
+
+	private void scheduleRetryOfQueued() {
+		if (openCircuitPolicy == OpenCircuitPolicy.QUEUE) {
+			long openMs = circuitBreaker.getOpenMs();
+			scheduler.scheduleWithFixedDelay(this::retryQueued, openMs, openMs,
+					TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@Override
+	public void handle(WorkOrder workOrder) {
+		attempt(workOrder, 1);
+	}
+
+	private void attempt(WorkOrder workOrder, int attemptNo) {
+		if (circuitBreaker.allowsCall()) {
+			attemptAllowed(workOrder, attemptNo);
+		} else {
+			handleWhileOpen(workOrder, attemptNo);
+		}
+	}
+
+	private void attemptAllowed(WorkOrder workOrder, int attemptNo) {
+		Exception failure = passOnAndTakeFailure(workOrder);
+		if (failure == null) {
+			circuitBreaker.recordSuccess();
+		} else if (retryPolicy.isRetryable(failure)) {
+			circuitBreaker.recordFailure();
+			retryOrGiveUp(workOrder, attemptNo, failure);
+		} else {
+			circuitBreaker.recordSuccess();
+			giveUpNotRetryable(workOrder, failure);
+		}
+	}
+
+	private void giveUpNotRetryable(WorkOrder workOrder, Exception failure) {
+		indexMetrics.getRetryMetrics().incrementFailuresNotRetryable();
+		logError("Failure is not retryable, workOrder NOT handled for type: {0} and id: {1}",
+				workOrder);
+		giveUp(workOrder, failure);
+	}
+
+	private Exception passOnAndTakeFailure(WorkOrder workOrder) {
+		WorkOrderOutcome.takeFailure();
+		try {
+			nextHandler.handle(workOrder);
+			return WorkOrderOutcome.takeFailure();
+		} catch (RuntimeException e) {
+			logger.logErrorUsingMessageAndException(MessageFormat.format(
+					"Failed to handle workOrder for type: {0} and id: {1}",
+					workOrder.getRecordType(), workOrder.getRecordId()), e);
+			return e;
+		} finally {
+			WorkOrderOutcome.takeFailure();
+		}
+	}
+
+	private void handleWhileOpen(WorkOrder workOrder, int attemptNo) {
+		if (openCircuitPolicy == OpenCircuitPolicy.QUEUE) {
+			queueOrReject(workOrder, attemptNo);
+		} else {
+			reject("Circuit breaker open, workOrder NOT handled for type: {0} and id: {1}",
+					workOrder);
+		}
+	}
+
+	private void queueOrReject(WorkOrder workOrder, int attemptNo) {
+		if (!queuedWhileOpen.offer(new QueuedAttempt(workOrder, attemptNo))) {
+			reject("Circuit breaker open and " + maxQueued
+					+ " work orders queued, workOrder NOT handled for type: {0} and id: {1}",
+					workOrder);
+		}
+	}
+
+	private void reject(String logM, WorkOrder workOrder) {
+		indexMetrics.getRetryMetrics().incrementWorkOrdersRejectedByCircuitBreaker();
+		String message = logError(logM, workOrder);
+		giveUp(workOrder, IndexMessageException.withMessage(message));
+	}
+
+	private void retryOrGiveUp(WorkOrder workOrder, int attemptNo, Exception failure) {
+		if (retryPolicy.isRetryAllowedAfterAttempt(attemptNo)) {
+			scheduleRetry(workOrder, attemptNo + 1, failure);
+		} else {
+			indexMetrics.getRetryMetrics().incrementRetriesExhausted();
+			logError("Giving up after " + attemptNo
+					+ " attempts, workOrder NOT handled for type: {0} and id: {1}", workOrder);
+			giveUp(workOrder, failure);
+		}
+	}
+
+	private void giveUp(WorkOrder workOrder, Exception failure) {
+		deadLetterPublisher.publish(DeadLetter.forWorkOrderNotCreated(workOrder, failure));
+		acknowledgeInSpool(workOrder);
+	}
+
+	private void acknowledgeInSpool(WorkOrder workOrder) {
+		WorkOrderSpool currentSpool = spool;
+		if (currentSpool != null) {
+			currentSpool.acknowledgeIfSpooled(workOrder);
+		}
+	}
+
+	private void scheduleRetry(WorkOrder workOrder, int nextAttemptNo, Exception failure) {
+		long delayMs = retryPolicy.getDelayMsForRetry(nextAttemptNo - 1);
+		indexMetrics.getRetryMetrics().incrementRetriesScheduled();
+		QueuedAttempt retry = new QueuedAttempt(workOrder, nextAttemptNo);
+		scheduledRetries.add(retry);
+		try {
+			scheduler.schedule(() -> runRetry(retry), delayMs, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			scheduledRetries.remove(retry);
+			logError("Retry not scheduled as handler is shut down, "
+					+ "workOrder NOT handled for type: {0} and id: {1}", workOrder);
+			giveUp(workOrder, failure);
+		}
+	}
+
+	private void runRetry(QueuedAttempt retry) {
+		if (scheduledRetries.remove(retry)) {
+			attempt(retry.workOrder, retry.attemptNo);
+		}
+	}
+
+	private String logError(String logM, WorkOrder workOrder) {
+		String message = MessageFormat.format(logM, workOrder.getRecordType(),
+				workOrder.getRecordId());
+		logger.logErrorUsingMessage(message);
+		return message;
+	}
+
+	/**
+	 * retryQueued attempts the work orders queued while the circuit breaker was open, for as long
+	 * as the circuit breaker allows calls.
+	 */
+	public void retryQueued() {
+		QueuedAttempt queued = queuedWhileOpen.peek();
+		while (queued != null && circuitBreaker.allowsCall()) {
+			queuedWhileOpen.remove();
+			attemptAllowed(queued.workOrder, queued.attemptNo);
+			queued = queuedWhileOpen.peek();
+		}
+	}
+
+	private static final class QueuedAttempt {
+		private final WorkOrder workOrder;
+		private final int attemptNo;
+
+		private QueuedAttempt(WorkOrder workOrder, int attemptNo) {
+			this.workOrder = workOrder;
+			this.attemptNo = attemptNo;
+		}
+	}
+
+	public int getNoOfQueued() {
+		return queuedWhileOpen.size();
+	}
+
+	public int getNoOfScheduledRetries() {
+		return scheduledRetries.size();
+	}
+
+	/**
+	 * shutdown stops the scheduler without waiting for scheduled retries. The number of work
+	 * orders waiting for retry or queued is logged, they are returned by {@link #shutdownNow()}.
+	 */
+	@Override
+	public void shutdown() {
+		scheduler.shutdownNow();
+		int noOfWaiting = scheduledRetries.size() + queuedWhileOpen.size();
+		if (noOfWaiting > 0) {
+			logger.logWarnUsingMessage("Shutting down with " + noOfWaiting
+					+ " work orders waiting for retry, they are NOT retried but handed over as "
+					+ "not passed on");
+		}
+	}
+
+	@Override
+	public boolean awaitTermination(long timeoutMs) throws InterruptedException {
+		return scheduler.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * shutdownNow stops the scheduler and returns the work orders waiting for retry, both scheduled
+	 * and queued while the circuit breaker was open.
+	 */
+	@Override
+	public List<WorkOrder> shutdownNow() {
+		scheduler.shutdownNow();
+		List<WorkOrder> notPassedOn = new ArrayList<>();
+		for (QueuedAttempt retry : scheduledRetries) {
+			if (scheduledRetries.remove(retry)) {
+				notPassedOn.add(retry.workOrder);
+			}
+		}
+		QueuedAttempt queued = queuedWhileOpen.poll();
+		while (queued != null) {
+			notPassedOn.add(queued.workOrder);
+			queued = queuedWhileOpen.poll();
+		}
+		return notPassedOn;
+	}
+
+	/**
+	 * useDeadLetterPublisher makes the handler dead-letter the work orders it gives up on using
+	 * deadLetterPublisher, and returns true as failed attempts are decided on here.
+	 */
+	@Override
+	public boolean useDeadLetterPublisher(DeadLetterPublisher deadLetterPublisher) {
+		this.deadLetterPublisher = deadLetterPublisher;
+		return true;
+	}
+
+	@Override
+	public void useSpool(WorkOrderSpool spool) {
+		this.spool = spool;
+	}
+
+	@Override
+	public long getNoOfOutstanding() {
+		return (long) getNoOfScheduledRetries() + getNoOfQueued();
+	}
+
+	@Override
+	public WorkOrderHandler getNextHandler() {
+		return nextHandler;
+	}
+
+	public RetryPolicy getRetryPolicy() {
+		// needed for test
+		return retryPolicy;
+	}
+
+	public CircuitBreaker getCircuitBreaker() {
+		// needed for test
+		return circuitBreaker;
+	}
+
+	public OpenCircuitPolicy getOpenCircuitPolicy() {
+		// needed for test
+		return openCircuitPolicy;
+	}
+
+	public int getMaxQueued() {
+		// needed for test
+		return maxQueued;
+	}
+
+	public DeadLetterPublisher getDeadLetterPublisher() {
+		// needed for test
+		return deadLetterPublisher;
+	}
+
+	public WorkOrderSpool getSpool() {
+		// needed for test
+		return spool;
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+/**
+ * RetryingWorkOrderHandlerFactory factors {@link RetryingWorkOrderHandler}s. As the handlers
+ * detect failures through {@link WorkOrderOutcome}, this factory must be the last one in a
+ * {@link ChainedWorkOrderHandlerFactory}, or only be followed by a
+ * {@link SpoolAcknowledgingWorkOrderHandlerFactory}. All factored handlers share the same circuit
+ * breaker.
+ */
+public class RetryingWorkOrderHandlerFactory implements WorkOrderHandlerFactory {
+
+	private RetryPolicy retryPolicy;
+	private CircuitBreaker circuitBreaker;
+	private OpenCircuitPolicy openCircuitPolicy;
+	private int maxQueued;
+
+	public RetryingWorkOrderHandlerFactory(RetryPolicy retryPolicy, CircuitBreaker circuitBreaker,
+			OpenCircuitPolicy openCircuitPolicy) {
+		this(retryPolicy, circuitBreaker, openCircuitPolicy,
+				RetryingWorkOrderHandler.DEFAULT_MAX_QUEUED);
+	}
+
+	public RetryingWorkOrderHandlerFactory(RetryPolicy retryPolicy, CircuitBreaker circuitBreaker,
+			OpenCircuitPolicy openCircuitPolicy, int maxQueued) {
+		this.retryPolicy = retryPolicy;
+		this.circuitBreaker = circuitBreaker;
+		this.openCircuitPolicy = openCircuitPolicy;
+		this.maxQueued = maxQueued;
+	}
+
+	@Override
+	public RetryingWorkOrderHandler factorUsingNextHandler(WorkOrderHandler nextHandler) {
+		return RetryingWorkOrderHandler.usingNextHandlerSettingsAndMaxQueued(nextHandler,
+				retryPolicy, circuitBreaker, openCircuitPolicy, maxQueued);
+	}
+
+	public RetryPolicy getRetryPolicy() {
+		// needed for test
+		return retryPolicy;
+	}
+
+	public CircuitBreaker getCircuitBreaker() {
+		// needed for test
+		return circuitBreaker;
+	}
+
+	public OpenCircuitPolicy getOpenCircuitPolicy() {
+		// needed for test
+		return openCircuitPolicy;
+	}
+}
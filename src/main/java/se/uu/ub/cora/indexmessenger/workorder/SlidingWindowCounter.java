@@ -0,0 +1,72 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import java.util.Arrays;
+
+/**
+ * SlidingWindowCounter counts events during the last windowMs milliseconds. The window is divided
+ * into noOfSlots slots, and events older than the window are forgotten one slot at a time.
+ * <p>
+ * SlidingWindowCounter is not thread safe, callers must synchronize access to it.
+ */
+public final class SlidingWindowCounter {
+	private final long slotMs;
+	private final int noOfSlots;
+	private final long[] slotNos;
+	private final long[] counts;
+
+	public static SlidingWindowCounter usingWindowMsAndNoOfSlots(long windowMs, int noOfSlots) {
+		return new SlidingWindowCounter(Math.max(1, windowMs / noOfSlots), noOfSlots);
+	}
+
+	private SlidingWindowCounter(long slotMs, int noOfSlots) {
+		this.slotMs = slotMs;
+		this.noOfSlots = noOfSlots;
+		slotNos = new long[noOfSlots];
+		Arrays.fill(slotNos, -1);
+		counts = new long[noOfSlots];
+	}
+
+	/**
+	 * incrementAndGetCount counts one event at nowMs and returns the number of events in the
+	 * window ending at nowMs.
+	 */
+	public long incrementAndGetCount(long nowMs) {
+		long slotNo = nowMs / slotMs;
+		int index = (int) (slotNo % noOfSlots);
+		if (slotNos[index] != slotNo) {
+			slotNos[index] = slotNo;
+			counts[index] = 0;
+		}
+		counts[index]++;
+		return getCount(nowMs);
+	}
+
+	public long getCount(long nowMs) {
+		long oldestSlotNo = nowMs / slotMs - noOfSlots + 1;
+		long count = 0;
+		for (int i = 0; i < noOfSlots; i++) {
+			if (slotNos[i] >= oldestSlotNo) {
+				count += counts[i];
+			}
+		}
+		return count;
+	}
+}
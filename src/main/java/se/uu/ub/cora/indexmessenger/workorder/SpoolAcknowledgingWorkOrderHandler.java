@@ -0,0 +1,73 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+/**
+ * SpoolAcknowledgingWorkOrderHandler acknowledges work orders appended by a
+ * {@link SpoolingWorkOrderHandler} in their {@link WorkOrderSpool} when the next handler has sent
+ * them to Cora without failure. Failures are detected through {@link WorkOrderOutcome} and
+ * recorded again for any {@link RetryingWorkOrderHandler} in front of this handler, so it is placed
+ * last in the chain, directly in front of the handler sending work orders to Cora.
+ */
+public class SpoolAcknowledgingWorkOrderHandler implements WorkOrderStage {
+	private final WorkOrderHandler nextHandler;
+	private final WorkOrderSpool spool;
+
+	public static SpoolAcknowledgingWorkOrderHandler usingNextHandlerAndSpool(
+			WorkOrderHandler nextHandler, WorkOrderSpool spool) {
+		return new SpoolAcknowledgingWorkOrderHandler(nextHandler, spool);
+	}
+
+	private SpoolAcknowledgingWorkOrderHandler(WorkOrderHandler nextHandler,
+			WorkOrderSpool spool) {
+		this.nextHandler = nextHandler;
+		this.spool = spool;
+	}
+
+	@Override
+	public void handle(WorkOrder workOrder) {
+		WorkOrderOutcome.takeFailure();
+		Exception failure;
+		try {
+			nextHandler.handle(workOrder);
+		} finally {
+			failure = WorkOrderOutcome.takeFailure();
+		}
+		if (failure != null) {
+			WorkOrderOutcome.recordFailure(failure);
+		} else {
+			spool.acknowledgeIfSpooled(workOrder);
+		}
+	}
+
+	@Override
+	public boolean passesOnOnCallingThread() {
+		return true;
+	}
+
+	@Override
+	public WorkOrderHandler getNextHandler() {
+		return nextHandler;
+	}
+
+	public WorkOrderSpool getSpool() {
+		// needed for test
+		return spool;
+	}
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+/**
+ * SpoolAcknowledgingWorkOrderHandlerFactory factors {@link SpoolAcknowledgingWorkOrderHandler}s
+ * sharing one {@link WorkOrderSpool}. As the handlers detect failures through
+ * {@link WorkOrderOutcome}, this factory must be the last one in a
+ * {@link ChainedWorkOrderHandlerFactory} whose first one is a
+ * {@link SpoolingWorkOrderHandlerFactory} using the same spool.
+ */
+public class SpoolAcknowledgingWorkOrderHandlerFactory implements WorkOrderHandlerFactory {
+
+	private WorkOrderSpool spool;
+
+	public SpoolAcknowledgingWorkOrderHandlerFactory(WorkOrderSpool spool) {
+		this.spool = spool;
+	}
+
+	@Override
+	public SpoolAcknowledgingWorkOrderHandler factorUsingNextHandler(
+			WorkOrderHandler nextHandler) {
+		return SpoolAcknowledgingWorkOrderHandler.usingNextHandlerAndSpool(nextHandler, spool);
+	}
+
+	public WorkOrderSpool getSpool() {
+		// needed for test
+		return spool;
+	}
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+import se.uu.ub.cora.logger.Logger;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+/**
+ * SpoolingWorkOrderHandler appends each work order to a {@link WorkOrderSpool} and passes it on
+ * to the next handler holding the id of its entry in the spool, so that a
+ * {@link SpoolAcknowledgingWorkOrderHandler} at the end of the chain can acknowledge it once it is
+ * sent to Cora. It is the first stage of a chain, so that work orders are in the spool before they
+ * are handed to queues or threads that may lose them. A work order that is already spooled, such
+ * as a replayed one, is passed on as it is.
+ * <p>
+ * Stages that are done with a work order without passing it on, because it is filtered, given up,
+ * collapsed into a burst or superseded by a later work order for the same record, acknowledge it
+ * themselves using the spool given to them through {@link WorkOrderStage#useSpool(WorkOrderSpool)}.
+ * Work orders that are never acknowledged, such as those lost when the process stops, stay
+ * pending in the spool and are replayed the next time it is opened. They are replayed through the
+ * whole chain by {@link #takeWorkOrdersToReplay()}.
+ * <p>
+ * If a work order can not be appended, the error is logged and it is passed on without being
+ * spooled.
+ */
+public class SpoolingWorkOrderHandler implements WorkOrderStage {
+	private Logger logger = LoggerProvider.getLoggerForClass(SpoolingWorkOrderHandler.class);
+	private final WorkOrderHandler nextHandler;
+	private final WorkOrderSpool spool;
+
+	public static SpoolingWorkOrderHandler usingNextHandlerAndSpool(WorkOrderHandler nextHandler,
+			WorkOrderSpool spool) {
+		return new SpoolingWorkOrderHandler(nextHandler, spool);
+	}
+
+	private SpoolingWorkOrderHandler(WorkOrderHandler nextHandler, WorkOrderSpool spool) {
+		this.nextHandler = nextHandler;
+		this.spool = spool;
+	}
+
+	@Override
+	public void handle(WorkOrder workOrder) {
+		nextHandler.handle(appendIfNotSpooled(workOrder));
+	}
+
+	private WorkOrder appendIfNotSpooled(WorkOrder workOrder) {
+		if (workOrder.isSpooled()) {
+			return workOrder;
+		}
+		try {
+			return workOrder.withSpoolEntryId(spool.append(workOrder));
+		} catch (RuntimeException e) {
+			String logM = "WorkOrder NOT spooled, passed on without it for type: {0} and id: {1}";
+			logger.logErrorUsingMessageAndException(MessageFormat.format(logM,
+					workOrder.getRecordType(), workOrder.getRecordId()), e);
+			return workOrder;
+		}
+	}
+
+	/**
+	 * takeWorkOrdersToReplay returns the work orders that were pending in the spool when it was
+	 * opened, each holding the id of its entry in the spool.
+	 */
+	@Override
+	public List<WorkOrder> takeWorkOrdersToReplay() {
+		List<WorkOrder> toReplay = new ArrayList<>();
+		spool.takePendingForReplay().forEach(
+				(entryId, workOrder) -> toReplay.add(workOrder.withSpoolEntryId(entryId)));
+		return toReplay;
+	}
+
+	@Override
+	public WorkOrderSpool getSpoolAppendedTo() {
+		return spool;
+	}
+
+	@Override
+	public boolean passesOnOnCallingThread() {
+		return true;
+	}
+
+	@Override
+	public WorkOrderHandler getNextHandler() {
+		return nextHandler;
+	}
+
+	public WorkOrderSpool getSpool() {
+		// needed for test
+		return spool;
+	}
+}
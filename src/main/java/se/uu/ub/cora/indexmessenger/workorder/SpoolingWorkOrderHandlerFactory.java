@@ -0,0 +1,45 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+/**
+ * SpoolingWorkOrderHandlerFactory factors {@link SpoolingWorkOrderHandler}s sharing one
+ * {@link WorkOrderSpool}. It is the first factory in a {@link ChainedWorkOrderHandlerFactory},
+ * only preceded by a {@link RecordTypeFilterWorkOrderHandlerFactory} if filtered work orders should
+ * not be spooled, and a {@link SpoolAcknowledgingWorkOrderHandlerFactory} using the same spool is
+ * the last one.
+ */
+public class SpoolingWorkOrderHandlerFactory implements WorkOrderHandlerFactory {
+
+	private WorkOrderSpool spool;
+
+	public SpoolingWorkOrderHandlerFactory(WorkOrderSpool spool) {
+		this.spool = spool;
+	}
+
+	@Override
+	public SpoolingWorkOrderHandler factorUsingNextHandler(WorkOrderHandler nextHandler) {
+		return SpoolingWorkOrderHandler.usingNextHandlerAndSpool(nextHandler, spool);
+	}
+
+	public WorkOrderSpool getSpool() {
+		// needed for test
+		return spool;
+	}
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import se.uu.ub.cora.indexmessenger.IndexMessageException;
+import se.uu.ub.cora.logger.Logger;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+/**
+ * StripedWorkOrderHandler spreads work orders over a fixed number of lanes, each with a bounded
+ * queue and a worker thread of its own. The lane is chosen from the {@link RecordKey} of the work
+ * order, so all work orders for one record go through the same lane and are passed on to the next
+ * handler in the order they arrived, while work orders for different records are handled in
+ * parallel.
+ * <p>
+ * When a lane is full the receiving thread waits, as dropping or spilling a work order would break
+ * the order for its record. The depth of each lane can be read to find records that are updated
+ * much more often than others.
+ */
+public class StripedWorkOrderHandler implements WorkOrderStage {
+	private static final long POLL_TIMEOUT_MS = 100;
+	private Logger logger = LoggerProvider.getLoggerForClass(StripedWorkOrderHandler.class);
+	private final WorkOrderHandler nextHandler;
+	private final int noOfLanes;
+	private final int laneCapacity;
+	private final List<BlockingQueue<WorkOrder>> lanes;
+	private final AtomicLongArray noOfHandledPerLane;
+	private final AtomicLong noOfOutstanding = new AtomicLong();
+	private final ExecutorService workers;
+	private volatile boolean running = true;
+
+	public static StripedWorkOrderHandler usingNextHandlerAndSettings(WorkOrderHandler nextHandler,
+			int noOfLanes, int laneCapacity) {
+		if (noOfLanes < 1) {
+			throw IndexMessageException.withMessage("Number of lanes must be at least 1");
+		}
+		return new StripedWorkOrderHandler(nextHandler, noOfLanes, laneCapacity);
+	}
+
+	private StripedWorkOrderHandler(WorkOrderHandler nextHandler, int noOfLanes,
+			int laneCapacity) {
+		this.nextHandler = nextHandler;
+		this.noOfLanes = noOfLanes;
+		this.laneCapacity = laneCapacity;
+		lanes = new ArrayList<>(noOfLanes);
+		noOfHandledPerLane = new AtomicLongArray(noOfLanes);
+		workers = Executors.newFixedThreadPool(noOfLanes,
+				new WorkOrderThreadFactory("indexmessenger-lane-"));
+		for (int laneNo = 0; laneNo < noOfLanes; laneNo++) {
+			lanes.add(new ArrayBlockingQueue<>(laneCapacity));
+		}
+		startWorkers();
+	}
+
+	private void startWorkers() {
+		for (int laneNo = 0; laneNo < noOfLanes; laneNo++) {
+			int workerLaneNo = laneNo;
+			workers.execute(() -> drainLane(workerLaneNo));
+		}
+	}
+
+	private void drainLane(int laneNo) {
+		BlockingQueue<WorkOrder> lane = lanes.get(laneNo);
+		while (running || !lane.isEmpty()) {
+			WorkOrder workOrder = pollLane(lane);
+			if (workOrder != null) {
+				passOnToNextHandler(workOrder);
+				noOfHandledPerLane.incrementAndGet(laneNo);
+			}
+		}
+	}
+
+	private WorkOrder pollLane(BlockingQueue<WorkOrder> lane) {
+		try {
+			return lane.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			// lanes are only stopped through running, an interrupt must not stop other lanes
+			return null;
+		}
+	}
+
+	private void passOnToNextHandler(WorkOrder workOrder) {
+		try {
+			nextHandler.handle(workOrder);
+		} catch (Exception e) {
+			logger.logErrorUsingMessageAndException(
+					formatMessage("Lane failed to handle workOrder", workOrder), e);
+		} finally {
+			noOfOutstanding.decrementAndGet();
+		}
+	}
+
+	@Override
+	public void handle(WorkOrder workOrder) {
+		BlockingQueue<WorkOrder> lane = lanes
+				.get(getLaneNoForRecordKey(RecordKey.forWorkOrder(workOrder)));
+		noOfOutstanding.incrementAndGet();
+		try {
+			lane.put(workOrder);
+		} catch (InterruptedException e) {
+			noOfOutstanding.decrementAndGet();
+			Thread.currentThread().interrupt();
+			logger.logErrorUsingMessageAndException(
+					formatMessage("Interrupted while waiting to queue workOrder", workOrder), e);
+		}
+	}
+
+	/**
+	 * getLaneNoForRecordKey returns the number of the lane used for all work orders for the record
+	 * identified by recordKey.
+	 */
+	public int getLaneNoForRecordKey(RecordKey recordKey) {
+		int hash = recordKey.hashCode();
+		return Math.floorMod(hash ^ (hash >>> 16), noOfLanes);
+	}
+
+	private String formatMessage(String start, WorkOrder workOrder) {
+		return MessageFormat.format("{0} for type: {1} and id: {2}", start,
+				workOrder.getRecordType(), workOrder.getRecordId());
+	}
+
+	/**
+	 * getLaneDepths returns the number of work orders waiting in each lane, a lane much deeper than
+	 * the others is a sign of a hot record.
+	 */
+	public int[] getLaneDepths() {
+		int[] depths = new int[noOfLanes];
+		for (int laneNo = 0; laneNo < noOfLanes; laneNo++) {
+			depths[laneNo] = lanes.get(laneNo).size();
+		}
+		return depths;
+	}
+
+	public int getDeepestLaneDepth() {
+		int deepest = 0;
+		for (BlockingQueue<WorkOrder> lane : lanes) {
+			deepest = Math.max(deepest, lane.size());
+		}
+		return deepest;
+	}
+
+	public long[] getNoOfHandledPerLane() {
+		long[] handled = new long[noOfLanes];
+		for (int laneNo = 0; laneNo < noOfLanes; laneNo++) {
+			handled[laneNo] = noOfHandledPerLane.get(laneNo);
+		}
+		return handled;
+	}
+
+	/**
+	 * shutdown stops the workers once all lanes are drained. It returns directly, use
+	 * {@link #awaitTermination(long)} to wait for the workers to finish.
+	 */
+	@Override
+	public void shutdown() {
+		running = false;
+		workers.shutdown();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeoutMs) throws InterruptedException {
+		return workers.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * shutdownNow takes all work orders still waiting in the lanes and interrupts the workers.
+	 */
+	@Override
+	public List<WorkOrder> shutdownNow() {
+		running = false;
+		List<WorkOrder> notPassedOn = new ArrayList<>();
+		for (BlockingQueue<WorkOrder> lane : lanes) {
+			lane.drainTo(notPassedOn);
+		}
+		noOfOutstanding.addAndGet(-notPassedOn.size());
+		workers.shutdownNow();
+		return notPassedOn;
+	}
+
+	@Override
+	public long getNoOfOutstanding() {
+		return noOfOutstanding.get();
+	}
+
+	@Override
+	public WorkOrderHandler getNextHandler() {
+		return nextHandler;
+	}
+
+	public int getNoOfLanes() {
+		// needed for test
+		return noOfLanes;
+	}
+
+	public int getLaneCapacity() {
+		// needed for test
+		return laneCapacity;
+	}
+}
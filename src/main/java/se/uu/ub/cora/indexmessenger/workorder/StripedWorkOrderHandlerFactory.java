@@ -0,0 +1,40 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+/**
+ * StripedWorkOrderHandlerFactory factors {@link StripedWorkOrderHandler}s, handling work orders
+ * for different records in parallel while keeping the order of work orders for each record.
+ */
+public class StripedWorkOrderHandlerFactory implements WorkOrderHandlerFactory {
+
+	private int noOfLanes;
+	private int laneCapacity;
+
+	public StripedWorkOrderHandlerFactory(int noOfLanes, int laneCapacity) {
+		this.noOfLanes = noOfLanes;
+		this.laneCapacity = laneCapacity;
+	}
+
+	@Override
+	public StripedWorkOrderHandler factorUsingNextHandler(WorkOrderHandler nextHandler) {
+		return StripedWorkOrderHandler.usingNextHandlerAndSettings(nextHandler, noOfLanes,
+				laneCapacity);
+	}
+}
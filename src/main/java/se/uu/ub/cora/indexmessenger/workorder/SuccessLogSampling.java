@@ -0,0 +1,130 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import se.uu.ub.cora.indexmessenger.IndexMessageException;
+import se.uu.ub.cora.logger.Logger;
+
+/**
+ * SuccessLogSampling decides which successfully handled work orders are logged. Errors are always
+ * logged in full, this only concerns the info lines written for successes.
+ * <p>
+ * Successes can be logged all, none, one in every n, or as one summary line per interval. Deciding
+ * does not allocate, so that no log message needs to be built for successes that are not logged.
+ */
+public final class SuccessLogSampling {
+	private enum Mode {
+		ALL, NONE, ONE_IN_N, SUMMARY
+	}
+
+	private final Mode mode;
+	private final long oneInN;
+	private final long summaryIntervalNanos;
+	private final AtomicLong noOfSuccesses = new AtomicLong();
+	private final AtomicLong noOfSuccessesAtLastSummary = new AtomicLong();
+	private final AtomicLong lastSummaryNanos = new AtomicLong(System.nanoTime());
+
+	public static SuccessLogSampling loggingAll() {
+		return new SuccessLogSampling(Mode.ALL, 1, 0);
+	}
+
+	public static SuccessLogSampling loggingNone() {
+		return new SuccessLogSampling(Mode.NONE, 1, 0);
+	}
+
+	public static SuccessLogSampling loggingOneInEvery(long oneInN) {
+		if (oneInN < 1) {
+			throw IndexMessageException.withMessage("One in every n must be at least 1");
+		}
+		return new SuccessLogSampling(Mode.ONE_IN_N, oneInN, 0);
+	}
+
+	public static SuccessLogSampling loggingSummaryEvery(long intervalMs) {
+		return new SuccessLogSampling(Mode.SUMMARY, 1, TimeUnit.MILLISECONDS.toNanos(intervalMs));
+	}
+
+	private SuccessLogSampling(Mode mode, long oneInN, long summaryIntervalNanos) {
+		this.mode = mode;
+		this.oneInN = oneInN;
+		this.summaryIntervalNanos = summaryIntervalNanos;
+	}
+
+	/**
+	 * recordSuccessAndCheckIfLogged counts a success and returns true if it should be logged on a
+	 * line of its own.
+	 * 
+	 * @return a boolean, true if the success should be logged
+	 */
+	public boolean recordSuccessAndCheckIfLogged() {
+		long successNo = noOfSuccesses.incrementAndGet();
+		if (mode == Mode.ALL) {
+			return true;
+		}
+		if (mode == Mode.ONE_IN_N) {
+			return (successNo - 1) % oneInN == 0;
+		}
+		return false;
+	}
+
+	/**
+	 * takeNoOfSuccessesIfSummaryIsDue returns the number of successes since the last summary, if
+	 * summaries are logged and the summary interval has passed. Otherwise it returns -1. Only one
+	 * caller gets the count for each interval.
+	 * 
+	 * @return a long with the number of successes to summarize, or -1 if no summary is due
+	 */
+	public long takeNoOfSuccessesIfSummaryIsDue() {
+		if (mode != Mode.SUMMARY) {
+			return -1;
+		}
+		long now = System.nanoTime();
+		long lastSummary = lastSummaryNanos.get();
+		if (now - lastSummary < summaryIntervalNanos
+				|| !lastSummaryNanos.compareAndSet(lastSummary, now)) {
+			return -1;
+		}
+		long successes = noOfSuccesses.get();
+		return successes - noOfSuccessesAtLastSummary.getAndSet(successes);
+	}
+
+	/**
+	 * logSuccess records a success and logs it using the logger, as "successMessage for type: X and
+	 * id: Y" if the success should be logged on a line of its own, and as "summaryMessage since
+	 * last summary: N" if a summary is due. The log message is only built if something is logged.
+	 */
+	public void logSuccess(Logger logger, WorkOrder workOrder, String successMessage,
+			String summaryMessage) {
+		if (recordSuccessAndCheckIfLogged()) {
+			logger.logInfoUsingMessage(successMessage + " for type: " + workOrder.getRecordType()
+					+ " and id: " + workOrder.getRecordId());
+		}
+		long noOfSuccessesToSummarize = takeNoOfSuccessesIfSummaryIsDue();
+		if (noOfSuccessesToSummarize >= 0) {
+			logger.logInfoUsingMessage(
+					summaryMessage + " since last summary: " + noOfSuccessesToSummarize);
+		}
+	}
+
+	public long getNoOfSuccesses() {
+		return noOfSuccesses.get();
+	}
+}
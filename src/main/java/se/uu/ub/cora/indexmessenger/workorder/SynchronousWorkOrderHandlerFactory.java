@@ -0,0 +1,32 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+/**
+ * SynchronousWorkOrderHandlerFactory returns the next handler as is, so that work orders are
+ * created on the thread that receives the message. This is the default mode.
+ */
+public class SynchronousWorkOrderHandlerFactory implements WorkOrderHandlerFactory {
+
+	@Override
+	public WorkOrderHandler factorUsingNextHandler(WorkOrderHandler nextHandler) {
+		return nextHandler;
+	}
+
+}
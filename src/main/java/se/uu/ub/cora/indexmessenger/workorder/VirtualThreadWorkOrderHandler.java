@@ -0,0 +1,165 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import java.text.MessageFormat;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import se.uu.ub.cora.logger.Logger;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+/**
+ * VirtualThreadWorkOrderHandler passes each work order on to the next handler on a thread of its
+ * own, so that many work orders can wait for Cora at the same time. The number of work orders in
+ * flight is limited by a semaphore, when the limit is reached the receiving thread waits until a
+ * work order is finished.
+ * <p>
+ * Virtual threads are used if the runtime supports them, otherwise a warning is logged and a pool
+ * of at most maxInFlight platform threads is used, where idle threads are ended after a minute.
+ */
+public class VirtualThreadWorkOrderHandler implements WorkOrderStage {
+	private static final long IDLE_THREAD_KEEP_ALIVE_S = 60;
+	private Logger logger = LoggerProvider.getLoggerForClass(VirtualThreadWorkOrderHandler.class);
+	private final WorkOrderHandler nextHandler;
+	private final int maxInFlight;
+	private final Semaphore inFlightPermits;
+	private final ExecutorService executor;
+	private boolean usesVirtualThreads = true;
+
+	public static VirtualThreadWorkOrderHandler usingNextHandlerAndMaxInFlight(
+			WorkOrderHandler nextHandler, int maxInFlight) {
+		return new VirtualThreadWorkOrderHandler(nextHandler, maxInFlight);
+	}
+
+	private VirtualThreadWorkOrderHandler(WorkOrderHandler nextHandler, int maxInFlight) {
+		this.nextHandler = nextHandler;
+		this.maxInFlight = maxInFlight;
+		inFlightPermits = new Semaphore(maxInFlight);
+		executor = createExecutor();
+	}
+
+	private ExecutorService createExecutor() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+					.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			usesVirtualThreads = false;
+			logger.logWarnUsingMessage("Virtual threads not supported by the runtime, "
+					+ "using at most " + maxInFlight + " platform threads");
+			return createBoundedPlatformThreadPool();
+		}
+	}
+
+	private ExecutorService createBoundedPlatformThreadPool() {
+		ThreadPoolExecutor pool = new ThreadPoolExecutor(maxInFlight, maxInFlight,
+				IDLE_THREAD_KEEP_ALIVE_S, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+				new WorkOrderThreadFactory("indexmessenger-inflight-"));
+		pool.allowCoreThreadTimeOut(true);
+		return pool;
+	}
+
+	@Override
+	public void handle(WorkOrder workOrder) {
+		try {
+			inFlightPermits.acquire();
+			executeOnOwnThread(workOrder);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			logger.logErrorUsingMessageAndException(
+					formatMessage("Interrupted while waiting to handle workOrder", workOrder), e);
+		}
+	}
+
+	private void executeOnOwnThread(WorkOrder workOrder) {
+		try {
+			executor.execute(() -> passOnToNextHandler(workOrder));
+		} catch (RejectedExecutionException e) {
+			inFlightPermits.release();
+			logger.logErrorUsingMessageAndException(
+					formatMessage("Handler shut down, rejected workOrder", workOrder), e);
+		}
+	}
+
+	private void passOnToNextHandler(WorkOrder workOrder) {
+		try {
+			nextHandler.handle(workOrder);
+		} catch (Exception e) {
+			logger.logErrorUsingMessageAndException(
+					formatMessage("Failed to handle workOrder", workOrder), e);
+		} finally {
+			inFlightPermits.release();
+		}
+	}
+
+	private String formatMessage(String start, WorkOrder workOrder) {
+		return MessageFormat.format("{0} for type: {1} and id: {2}", start,
+				workOrder.getRecordType(), workOrder.getRecordId());
+	}
+
+	public int getNoOfInFlight() {
+		return maxInFlight - inFlightPermits.availablePermits();
+	}
+
+	public boolean usesVirtualThreads() {
+		return usesVirtualThreads;
+	}
+
+	@Override
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeoutMs) throws InterruptedException {
+		return executor.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * shutdownNow interrupts the threads passing work orders on. No work orders are held by this
+	 * handler, as the receiving thread waits for a free slot before a work order is accepted.
+	 */
+	@Override
+	public List<WorkOrder> shutdownNow() {
+		executor.shutdownNow();
+		return Collections.emptyList();
+	}
+
+	@Override
+	public long getNoOfOutstanding() {
+		return getNoOfInFlight();
+	}
+
+	@Override
+	public WorkOrderHandler getNextHandler() {
+		return nextHandler;
+	}
+
+	public int getMaxInFlight() {
+		// needed for test
+		return maxInFlight;
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import java.util.Map;
+
+/**
+ * WorkOrder holds the values parsed from a message that are needed to create an index work order
+ * in Cora. It is immutable so that it can safely be handed between threads.
+ */
+public final class WorkOrder {
+
+	private static final String DELETE = "delete";
+	private final String recordType;
+	private final String recordId;
+	private final String modificationType;
+	private final WorkOrderPriority priority;
+	private final Map<String, String> sourceHeaders;
+	private final String sourceMessage;
+	private final long spoolEntryId;
+
+	public static WorkOrder usingRecordTypeRecordIdAndModificationType(String recordType,
+			String recordId, String modificationType) {
+		return new WorkOrder(recordType, recordId, modificationType, WorkOrderPriority.NORMAL,
+				null, null, 0);
+	}
+
+	private WorkOrder(String recordType, String recordId, String modificationType,
+			WorkOrderPriority priority, Map<String, String> sourceHeaders, String sourceMessage,
+			long spoolEntryId) {
+		this.recordType = recordType;
+		this.recordId = recordId;
+		this.modificationType = modificationType;
+		this.priority = priority;
+		this.sourceHeaders = sourceHeaders;
+		this.sourceMessage = sourceMessage;
+		this.spoolEntryId = spoolEntryId;
+	}
+
+	/**
+	 * withPriority returns a work order for the same record and modification with the given
+	 * priority, or this work order if it already has that priority.
+	 */
+	public WorkOrder withPriority(WorkOrderPriority priority) {
+		if (this.priority == priority) {
+			return this;
+		}
+		return new WorkOrder(recordType, recordId, modificationType, priority, sourceHeaders,
+				sourceMessage, spoolEntryId);
+	}
+
+	/**
+	 * withSourceMessage returns a work order that also holds the headers and message it was parsed
+	 * from, so that the message can be dead-lettered if the work order can not be created. The
+	 * message is only kept when dead-lettering is used, as it is held for as long as the work
+	 * order is.
+	 */
+	public WorkOrder withSourceMessage(Map<String, String> headers, String message) {
+		return new WorkOrder(recordType, recordId, modificationType, priority, headers, message,
+				spoolEntryId);
+	}
+
+	/**
+	 * withSpoolEntryId returns a work order that also holds the id it was appended to a
+	 * {@link WorkOrderSpool} with, so that it can be acknowledged in the spool once it has been
+	 * sent to Cora.
+	 */
+	public WorkOrder withSpoolEntryId(long spoolEntryId) {
+		return new WorkOrder(recordType, recordId, modificationType, priority, sourceHeaders,
+				sourceMessage, spoolEntryId);
+	}
+
+	public String getRecordType() {
+		return recordType;
+	}
+
+	public String getRecordId() {
+		return recordId;
+	}
+
+	public String getModificationType() {
+		return modificationType;
+	}
+
+	public WorkOrderPriority getPriority() {
+		return priority;
+	}
+
+	/**
+	 * getSourceHeaders returns the headers of the message the work order was parsed from, or null
+	 * if they are not kept.
+	 */
+	public Map<String, String> getSourceHeaders() {
+		return sourceHeaders;
+	}
+
+	/**
+	 * getSourceMessage returns the message the work order was parsed from, or null if it is not
+	 * kept.
+	 */
+	public String getSourceMessage() {
+		return sourceMessage;
+	}
+
+	/**
+	 * getSpoolEntryId returns the id the work order was appended to a spool with, or 0 if it is
+	 * not spooled.
+	 */
+	public long getSpoolEntryId() {
+		return spoolEntryId;
+	}
+
+	public boolean isSpooled() {
+		return spoolEntryId != 0;
+	}
+
+	/**
+	 * getWorkOrderType returns the type of work order that should be created in Cora, removeFromIndex
+	 * for deleted records and index for all other modifications.
+	 * 
+	 * @return a String with the work order type
+	 */
+	public String getWorkOrderType() {
+		return isDelete() ? "removeFromIndex" : "index";
+	}
+
+	public boolean isDelete() {
+		return DELETE.equals(modificationType);
+	}
+
+}
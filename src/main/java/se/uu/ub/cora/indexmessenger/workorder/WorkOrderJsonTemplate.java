@@ -0,0 +1,111 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+/**
+ * WorkOrderJsonTemplate produces the json for a workOrder record by filling a precompiled template
+ * with the escaped recordType and recordId, instead of building a ClientDataGroup and converting
+ * it.
+ * <p>
+ * The produced json is equal to the json the CoraClient produces when converting the
+ * corresponding ClientDataGroup, with keys in the order the json builder writes them and strings
+ * escaped the same way.
+ */
+public final class WorkOrderJsonTemplate {
+	private static final String BEFORE_RECORD_TYPE = "{\"children\":[{\"children\":["
+			+ "{\"name\":\"linkedRecordType\",\"value\":\"recordType\"},"
+			+ "{\"name\":\"linkedRecordId\",\"value\":\"";
+	private static final String BEFORE_RECORD_ID = "\"}],\"name\":\"recordType\"},"
+			+ "{\"name\":\"recordId\",\"value\":\"";
+	private static final String END_FOR_INDEX = "\"},{\"name\":\"type\",\"value\":\"index\"}],"
+			+ "\"name\":\"workOrder\"}";
+	private static final String END_FOR_REMOVE = "\"},{\"name\":\"type\","
+			+ "\"value\":\"removeFromIndex\"}],\"name\":\"workOrder\"}";
+	private static final int FIXED_LENGTH = BEFORE_RECORD_TYPE.length()
+			+ BEFORE_RECORD_ID.length() + END_FOR_REMOVE.length();
+	private static final String SHORT_ESCAPED_CHARS = "\b\t\n\f\r";
+	private static final String SHORT_ESCAPES = "btnfr";
+	private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	private WorkOrderJsonTemplate() {
+		// not called
+	}
+
+	public static String toJson(WorkOrder workOrder) {
+		String recordType = workOrder.getRecordType();
+		String recordId = workOrder.getRecordId();
+		StringBuilder json = new StringBuilder(
+				FIXED_LENGTH + recordType.length() + recordId.length() + 16);
+		json.append(BEFORE_RECORD_TYPE);
+		appendEscaped(json, recordType);
+		json.append(BEFORE_RECORD_ID);
+		appendEscaped(json, recordId);
+		json.append(workOrder.isDelete() ? END_FOR_REMOVE : END_FOR_INDEX);
+		return json.toString();
+	}
+
+	private static void appendEscaped(StringBuilder json, String value) {
+		char previous = 0;
+		for (int i = 0; i < value.length(); i++) {
+			char current = value.charAt(i);
+			appendEscapedChar(json, previous, current);
+			previous = current;
+		}
+	}
+
+	private static void appendEscapedChar(StringBuilder json, char previous, char current) {
+		if (current == '\\' || current == '"') {
+			json.append('\\').append(current);
+		} else if (current == '/') {
+			appendSlash(json, previous);
+		} else {
+			appendOtherChar(json, current);
+		}
+	}
+
+	private static void appendSlash(StringBuilder json, char previous) {
+		if (previous == '<') {
+			json.append('\\');
+		}
+		json.append('/');
+	}
+
+	private static void appendOtherChar(StringBuilder json, char current) {
+		int shortEscapeIndex = SHORT_ESCAPED_CHARS.indexOf(current);
+		if (shortEscapeIndex >= 0) {
+			json.append('\\').append(SHORT_ESCAPES.charAt(shortEscapeIndex));
+		} else if (needsUnicodeEscape(current)) {
+			appendUnicodeEscaped(json, current);
+		} else {
+			json.append(current);
+		}
+	}
+
+	private static boolean needsUnicodeEscape(char current) {
+		return current < ' ' || (current >= '\u0080' && current < '\u00a0')
+				|| (current >= '\u2000' && current < '\u2100');
+	}
+
+	private static void appendUnicodeEscaped(StringBuilder json, char current) {
+		json.append("\\u");
+		for (int shift = 12; shift >= 0; shift -= 4) {
+			json.append(HEX_DIGITS[(current >> shift) & 0xF]);
+		}
+	}
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+/**
+ * WorkOrderOutcome lets the handlers that finally send work orders to Cora report a failure to a
+ * handler earlier in the same thread, such as {@link RetryingWorkOrderHandler}, without changing
+ * how the failure is logged. The failure is kept per thread until it is taken.
+ * <p>
+ * As work orders are handled on pooled and reused threads, a handler consuming the outcome takes
+ * it before passing a work order on, so that no failure left from an earlier work order is seen,
+ * and again in a finally block, so that no failure is left on the thread when the next handler
+ * throws.
+ */
+public final class WorkOrderOutcome {
+	private static final ThreadLocal<Exception> FAILURE = new ThreadLocal<>();
+
+	private WorkOrderOutcome() {
+	}
+
+	public static void recordFailure(Exception exception) {
+		FAILURE.set(exception);
+	}
+
+	/**
+	 * takeFailure returns the failure recorded in the current thread since the last call, or null
+	 * if there is none, and clears it.
+	 */
+	public static Exception takeFailure() {
+		Exception failure = FAILURE.get();
+		FAILURE.remove();
+		return failure;
+	}
+}
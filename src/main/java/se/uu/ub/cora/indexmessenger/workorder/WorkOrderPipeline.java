@@ -0,0 +1,235 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import se.uu.ub.cora.indexmessenger.IndexMessageException;
+import se.uu.ub.cora.logger.Logger;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+/**
+ * WorkOrderPipeline puts handled work orders on a bounded queue and returns directly. A pool of
+ * worker threads drains the queue and passes the work orders on to the next handler. What happens
+ * when the queue is full is decided by the {@link FullQueuePolicy}.
+ * <p>
+ * A worker that is interrupted while the pipeline is running logs a warning and keeps draining
+ * the queue, only {@link #shutdownNow()} stops the workers through interrupts.
+ */
+public class WorkOrderPipeline implements WorkOrderStage {
+	private static final long POLL_TIMEOUT_MS = 100;
+	private Logger logger = LoggerProvider.getLoggerForClass(WorkOrderPipeline.class);
+	private final WorkOrderHandler nextHandler;
+	private final BlockingQueue<WorkOrder> queue;
+	private final FullQueuePolicy fullQueuePolicy;
+	private final WorkOrderSpill spill;
+	private final int numberOfWorkers;
+	private final ExecutorService workers;
+	private final AtomicLong droppedCount = new AtomicLong();
+	private final AtomicLong spilledCount = new AtomicLong();
+	private final AtomicLong noOfOutstanding = new AtomicLong();
+	private volatile boolean running = true;
+
+	public static WorkOrderPipeline usingNextHandlerAndSettings(WorkOrderHandler nextHandler,
+			int queueCapacity, int numberOfWorkers, FullQueuePolicy fullQueuePolicy,
+			WorkOrderSpill spill) {
+		return new WorkOrderPipeline(nextHandler, queueCapacity, numberOfWorkers, fullQueuePolicy,
+				spill);
+	}
+
+	private WorkOrderPipeline(WorkOrderHandler nextHandler, int queueCapacity, int numberOfWorkers,
+			FullQueuePolicy fullQueuePolicy, WorkOrderSpill spill) {
+		throwErrorIfSpillIsMissing(fullQueuePolicy, spill);
+		this.nextHandler = nextHandler;
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+		this.fullQueuePolicy = fullQueuePolicy;
+		this.spill = spill;
+		this.numberOfWorkers = numberOfWorkers;
+		workers = Executors.newFixedThreadPool(numberOfWorkers,
+				new WorkOrderThreadFactory("indexmessenger-pipeline-"));
+		startWorkers();
+	}
+
+	private void throwErrorIfSpillIsMissing(FullQueuePolicy fullQueuePolicy,
+			WorkOrderSpill spill) {
+		if (fullQueuePolicy == FullQueuePolicy.SPILL && spill == null) {
+			throw IndexMessageException
+					.withMessage("A WorkOrderSpill is needed when using FullQueuePolicy SPILL");
+		}
+	}
+
+	private void startWorkers() {
+		for (int i = 0; i < numberOfWorkers; i++) {
+			workers.execute(this::drainQueue);
+		}
+	}
+
+	private void drainQueue() {
+		while (running || !queue.isEmpty()) {
+			try {
+				passOnPolledWorkOrder();
+			} catch (InterruptedException e) {
+				if (!running) {
+					Thread.currentThread().interrupt();
+					return;
+				}
+				logger.logWarnUsingMessage("Pipeline worker interrupted while running, "
+						+ "the worker keeps draining the queue");
+			}
+		}
+	}
+
+	private void passOnPolledWorkOrder() throws InterruptedException {
+		WorkOrder workOrder = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+		if (workOrder != null) {
+			passOnToNextHandler(workOrder);
+		}
+	}
+
+	private void passOnToNextHandler(WorkOrder workOrder) {
+		try {
+			nextHandler.handle(workOrder);
+		} catch (Exception e) {
+			logger.logErrorUsingMessageAndException(
+					formatMessage("Pipeline failed to handle workOrder", workOrder), e);
+		} finally {
+			noOfOutstanding.decrementAndGet();
+		}
+	}
+
+	@Override
+	public void handle(WorkOrder workOrder) {
+		noOfOutstanding.incrementAndGet();
+		if (fullQueuePolicy == FullQueuePolicy.BLOCK) {
+			putOnQueue(workOrder);
+		} else if (!queue.offer(workOrder)) {
+			noOfOutstanding.decrementAndGet();
+			handleFullQueue(workOrder);
+		}
+	}
+
+	private void putOnQueue(WorkOrder workOrder) {
+		try {
+			queue.put(workOrder);
+		} catch (InterruptedException e) {
+			noOfOutstanding.decrementAndGet();
+			Thread.currentThread().interrupt();
+			logger.logErrorUsingMessageAndException(
+					formatMessage("Interrupted while waiting to queue workOrder", workOrder), e);
+		}
+	}
+
+	private void handleFullQueue(WorkOrder workOrder) {
+		if (fullQueuePolicy == FullQueuePolicy.SPILL) {
+			spilledCount.incrementAndGet();
+			spill.spill(workOrder);
+		} else {
+			droppedCount.incrementAndGet();
+			logger.logErrorUsingMessage(
+					formatMessage("Queue full, dropped workOrder", workOrder));
+		}
+	}
+
+	private String formatMessage(String start, WorkOrder workOrder) {
+		return MessageFormat.format("{0} for type: {1} and id: {2}", start,
+				workOrder.getRecordType(), workOrder.getRecordId());
+	}
+
+	public int getQueueDepth() {
+		return queue.size();
+	}
+
+	public int getRemainingCapacity() {
+		return queue.remainingCapacity();
+	}
+
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	public long getSpilledCount() {
+		return spilledCount.get();
+	}
+
+	/**
+	 * shutdown stops the workers once the queue is drained. It returns directly, use
+	 * {@link #awaitTermination(long)} to wait for the workers to finish.
+	 */
+	@Override
+	public void shutdown() {
+		running = false;
+		workers.shutdown();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeoutMs) throws InterruptedException {
+		return workers.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * shutdownNow takes all work orders still on the queue and interrupts the workers, work orders
+	 * the workers are passing on are finished or logged by the next handler.
+	 */
+	@Override
+	public List<WorkOrder> shutdownNow() {
+		running = false;
+		List<WorkOrder> notPassedOn = new ArrayList<>();
+		queue.drainTo(notPassedOn);
+		noOfOutstanding.addAndGet(-notPassedOn.size());
+		workers.shutdownNow();
+		return notPassedOn;
+	}
+
+	/**
+	 * getNoOfOutstanding returns the number of work orders on the queue plus those the workers are
+	 * passing on to the next handler.
+	 */
+	@Override
+	public long getNoOfOutstanding() {
+		return noOfOutstanding.get();
+	}
+
+	@Override
+	public WorkOrderHandler getNextHandler() {
+		return nextHandler;
+	}
+
+	public FullQueuePolicy getFullQueuePolicy() {
+		// needed for test
+		return fullQueuePolicy;
+	}
+
+	public int getNumberOfWorkers() {
+		// needed for test
+		return numberOfWorkers;
+	}
+
+	public WorkOrderSpill getSpill() {
+		// needed for test
+		return spill;
+	}
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+/**
+ * WorkOrderPipelineFactory factors {@link WorkOrderPipeline}s, making the message receiver return
+ * as soon as a work order is queued instead of waiting for it to be created in Cora.
+ */
+public class WorkOrderPipelineFactory implements WorkOrderHandlerFactory {
+
+	private int queueCapacity;
+	private int numberOfWorkers;
+	private FullQueuePolicy fullQueuePolicy;
+	private WorkOrderSpill spill;
+
+	public WorkOrderPipelineFactory(int queueCapacity, int numberOfWorkers,
+			FullQueuePolicy fullQueuePolicy, WorkOrderSpill spill) {
+		this.queueCapacity = queueCapacity;
+		this.numberOfWorkers = numberOfWorkers;
+		this.fullQueuePolicy = fullQueuePolicy;
+		this.spill = spill;
+	}
+
+	@Override
+	public WorkOrderPipeline factorUsingNextHandler(WorkOrderHandler nextHandler) {
+		return WorkOrderPipeline.usingNextHandlerAndSettings(nextHandler, queueCapacity,
+				numberOfWorkers, fullQueuePolicy, spill);
+	}
+
+}
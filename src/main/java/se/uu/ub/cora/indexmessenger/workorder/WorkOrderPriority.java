@@ -0,0 +1,38 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+/**
+ * WorkOrderPriority is the priority class of a work order, decided by a {@link PriorityClassifier}
+ * and used by a {@link PriorityWorkOrderHandler} to choose which work order to handle next.
+ */
+public enum WorkOrderPriority {
+	/**
+	 * Deletes and changes made by users, that should reach the index quickly.
+	 */
+	HIGH,
+	/**
+	 * Work orders without any other priority.
+	 */
+	NORMAL,
+	/**
+	 * Work orders from bulk loads and reindexing, that may wait.
+	 */
+	BULK
+}
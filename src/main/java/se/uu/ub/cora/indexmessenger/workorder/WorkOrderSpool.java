@@ -0,0 +1,584 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import se.uu.ub.cora.indexmessenger.IndexMessageException;
+import se.uu.ub.cora.logger.Logger;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+/**
+ * WorkOrderSpool is a durable, append only log of work orders, kept in memory mapped segment
+ * files in a directory. A work order is appended before it is sent to Cora and acknowledged when
+ * it has been sent, so that work orders not acknowledged when the process stops can be replayed
+ * when the spool is opened again.
+ * <p>
+ * Writes only go to the mapped memory. The active segment is forced to disk by a background
+ * thread every fsyncIntervalMs, and when a segment is rolled or the spool is closed, so that the
+ * spool does not add disk latency to each work order.
+ * <p>
+ * When a segment is full a new one is started. Old segments are deleted as soon as all their work
+ * orders are acknowledged. Appending never makes the spool grow past maxSegments segments: when
+ * it is full, the work orders still pending in the oldest segment are copied to a new segment if
+ * they fill at most half of it, so that the oldest segment can be deleted. Otherwise append waits
+ * for acknowledgements, which slows down the work orders being received. Acknowledgements are
+ * always written, as they are what makes room.
+ * <p>
+ * Records are written as length, checksum, kind and entry id followed, for work orders, by record
+ * type, record id and modification type, each written as its length in bytes followed by its UTF-8
+ * bytes, where a missing value is written as the length 0xFFFF. The length is written last, so a
+ * record only partly written when the process stopped is seen as the end of the segment. As the
+ * pages of a segment may reach the disk in any order, the checksum, a CRC32 of the record after
+ * it, is checked when the spool is opened, and records failing it are logged and skipped.
+ * <p>
+ * Work orders copied when compacting are forced to disk before the segment they are copied from
+ * is deleted.
+ */
+public final class WorkOrderSpool implements WorkOrderSpill {
+	public static final long DEFAULT_MAX_WAIT_MS = 30_000;
+	private static final String SEGMENT_PREFIX = "spool-";
+	private static final String SEGMENT_SUFFIX = ".seg";
+	private static final byte KIND_WORK_ORDER = 1;
+	private static final byte KIND_ACKNOWLEDGE = 2;
+	private static final int LENGTH_SIZE = Integer.BYTES;
+	private static final int CHECKSUM_SIZE = Integer.BYTES;
+	private static final int HEADER_SIZE = LENGTH_SIZE + CHECKSUM_SIZE;
+	private static final int ACKNOWLEDGE_SIZE = Byte.BYTES + Long.BYTES;
+	private static final int NULL_STRING_LENGTH = 0xFFFF;
+	private Logger logger = LoggerProvider.getLoggerForClass(WorkOrderSpool.class);
+	private final Path directory;
+	private final int segmentSizeBytes;
+	private final int maxSegments;
+	private final long fsyncIntervalMs;
+	private final long maxWaitMs;
+	private final TreeMap<Long, Integer> noOfPendingPerSegment = new TreeMap<>();
+	private final Map<Long, PendingEntry> pendingEntries = new LinkedHashMap<>();
+	private final ScheduledExecutorService fsyncScheduler;
+	private long activeSegmentNo;
+	private FileChannel activeChannel;
+	private MappedByteBuffer activeBuffer;
+	private long nextEntryId = 1;
+	private boolean unsyncedWrites = false;
+	private boolean replayTaken = false;
+	private boolean closed = false;
+	private long noOfFsyncs = 0;
+
+	public static WorkOrderSpool openUsingDirectoryAndSettings(Path directory, int segmentSizeBytes,
+			int maxSegments, long fsyncIntervalMs) {
+		return new WorkOrderSpool(directory, segmentSizeBytes, maxSegments, fsyncIntervalMs,
+				DEFAULT_MAX_WAIT_MS);
+	}
+
+	public static WorkOrderSpool openUsingDirectorySettingsAndMaxWaitMs(Path directory,
+			int segmentSizeBytes, int maxSegments, long fsyncIntervalMs, long maxWaitMs) {
+		return new WorkOrderSpool(directory, segmentSizeBytes, maxSegments, fsyncIntervalMs,
+				maxWaitMs);
+	}
+
+	private WorkOrderSpool(Path directory, int segmentSizeBytes, int maxSegments,
+			long fsyncIntervalMs, long maxWaitMs) {
+		throwErrorIfLessThanTwoSegments(maxSegments);
+		this.directory = directory;
+		this.segmentSizeBytes = segmentSizeBytes;
+		this.maxSegments = maxSegments;
+		this.fsyncIntervalMs = fsyncIntervalMs;
+		this.maxWaitMs = maxWaitMs;
+		openSegments();
+		fsyncScheduler = Executors.newSingleThreadScheduledExecutor(
+				new WorkOrderThreadFactory("indexmessenger-spool-"));
+		fsyncScheduler.scheduleWithFixedDelay(this::forceIfNeeded, fsyncIntervalMs,
+				fsyncIntervalMs, TimeUnit.MILLISECONDS);
+	}
+
+	private static void throwErrorIfLessThanTwoSegments(int maxSegments) {
+		if (maxSegments < 2) {
+			throw IndexMessageException.withMessage("Max segments must be at least 2");
+		}
+	}
+
+	private void openSegments() {
+		try {
+			Files.createDirectories(directory);
+			List<Long> segmentNos = findSegmentNos();
+			for (long segmentNo : segmentNos) {
+				noOfPendingPerSegment.put(segmentNo, 0);
+			}
+			int lastPosition = readSegments(segmentNos);
+			if (segmentNos.isEmpty()) {
+				startSegment(1);
+			} else {
+				mapActiveSegment(segmentNos.get(segmentNos.size() - 1), lastPosition);
+			}
+			deleteSegmentsWithoutPendingEntries();
+		} catch (IOException e) {
+			throw IndexMessageException
+					.withMessageAndException("Could not open spool in: " + directory, e);
+		}
+	}
+
+	private List<Long> findSegmentNos() throws IOException {
+		List<Long> segmentNos = new ArrayList<>();
+		try (DirectoryStream<Path> segments = Files.newDirectoryStream(directory,
+				SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+			for (Path segment : segments) {
+				String fileName = segment.getFileName().toString();
+				segmentNos.add(Long.parseLong(fileName.substring(SEGMENT_PREFIX.length(),
+						fileName.length() - SEGMENT_SUFFIX.length())));
+			}
+		}
+		Collections.sort(segmentNos);
+		return segmentNos;
+	}
+
+	private int readSegments(List<Long> segmentNos) throws IOException {
+		int position = 0;
+		for (long segmentNo : segmentNos) {
+			try (FileChannel channel = FileChannel.open(segmentPath(segmentNo),
+					StandardOpenOption.READ)) {
+				MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+						channel.size());
+				position = readSegment(segmentNo, buffer);
+			}
+		}
+		return position;
+	}
+
+	private int readSegment(long segmentNo, MappedByteBuffer buffer) {
+		int position = 0;
+		while (position + HEADER_SIZE <= buffer.limit()) {
+			int length = buffer.getInt(position);
+			if (length <= 0 || position + HEADER_SIZE + length > buffer.limit()) {
+				return position;
+			}
+			readRecordIfChecksumMatches(segmentNo, buffer, position, length);
+			position += HEADER_SIZE + length;
+		}
+		return position;
+	}
+
+	private void readRecordIfChecksumMatches(long segmentNo, MappedByteBuffer buffer,
+			int position, int length) {
+		int checksum = buffer.getInt(position + LENGTH_SIZE);
+		if (checksum != calculateChecksum(buffer, position + HEADER_SIZE, length)) {
+			logger.logErrorUsingMessage(MessageFormat.format(
+					"Skipped spool record with wrong checksum at position {0} in: {1}",
+					String.valueOf(position), segmentPath(segmentNo)));
+			return;
+		}
+		buffer.position(position + HEADER_SIZE);
+		readRecord(segmentNo, buffer);
+	}
+
+	private static int calculateChecksum(ByteBuffer buffer, int position, int length) {
+		ByteBuffer recordBytes = buffer.duplicate();
+		recordBytes.limit(position + length);
+		recordBytes.position(position);
+		CRC32 crc = new CRC32();
+		crc.update(recordBytes);
+		return (int) crc.getValue();
+	}
+
+	private void readRecord(long segmentNo, MappedByteBuffer buffer) {
+		byte kind = buffer.get();
+		long entryId = buffer.getLong();
+		nextEntryId = Math.max(nextEntryId, entryId + 1);
+		if (kind == KIND_WORK_ORDER) {
+			removePending(entryId);
+			WorkOrder workOrder = WorkOrder.usingRecordTypeRecordIdAndModificationType(
+					readString(buffer), readString(buffer), readString(buffer));
+			addPending(entryId, workOrder, segmentNo);
+		} else {
+			removePending(entryId);
+		}
+	}
+
+	private String readString(MappedByteBuffer buffer) {
+		int length = buffer.getShort() & 0xFFFF;
+		if (length == NULL_STRING_LENGTH) {
+			return null;
+		}
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private void addPending(long entryId, WorkOrder workOrder, long segmentNo) {
+		pendingEntries.put(entryId, new PendingEntry(workOrder, segmentNo));
+		noOfPendingPerSegment.merge(segmentNo, 1, Integer::sum);
+	}
+
+	private void removePending(long entryId) {
+		PendingEntry removed = pendingEntries.remove(entryId);
+		if (removed != null) {
+			noOfPendingPerSegment.merge(removed.segmentNo, -1, Integer::sum);
+		}
+	}
+
+	private Path segmentPath(long segmentNo) {
+		return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, segmentNo,
+				SEGMENT_SUFFIX));
+	}
+
+	private void startSegment(long segmentNo) throws IOException {
+		noOfPendingPerSegment.put(segmentNo, 0);
+		mapActiveSegment(segmentNo, 0);
+	}
+
+	private void mapActiveSegment(long segmentNo, int position) throws IOException {
+		activeSegmentNo = segmentNo;
+		activeChannel = FileChannel.open(segmentPath(segmentNo), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		long size = Math.max(segmentSizeBytes, activeChannel.size());
+		activeBuffer = activeChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+		activeBuffer.position(position);
+	}
+
+	/**
+	 * append writes the work order to the spool and returns the id to acknowledge it with. If the
+	 * spool already has maxSegments segments and the pending work orders in the oldest segment can
+	 * not be compacted, append waits for work orders to be acknowledged for at most maxWaitMs
+	 * milliseconds before throwing an {@link IndexMessageException}.
+	 */
+	public synchronized long append(WorkOrder workOrder) {
+		throwErrorIfClosed();
+		WorkOrderRecord record = new WorkOrderRecord(nextEntryId, workOrder);
+		makeRoomForWorkOrder(record);
+		nextEntryId++;
+		putWorkOrder(record);
+		return record.entryId;
+	}
+
+	private void throwErrorIfClosed() {
+		if (closed) {
+			throw IndexMessageException.withMessage("Spool is closed: " + directory);
+		}
+	}
+
+	private void makeRoomForWorkOrder(WorkOrderRecord record) {
+		throwErrorIfRecordDoesNotFitInSegment(record.length);
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+		while (activeBuffer.remaining() < HEADER_SIZE + record.length) {
+			if (noOfPendingPerSegment.size() < maxSegments) {
+				rollSegment();
+			} else if (canOldestSegmentBeCompacted()) {
+				compactOldestSegment();
+			} else {
+				waitForAcknowledgements(deadline);
+			}
+		}
+	}
+
+	private void throwErrorIfRecordDoesNotFitInSegment(int length) {
+		int needed = HEADER_SIZE + length;
+		if (needed > segmentSizeBytes) {
+			throw IndexMessageException.withMessage("Record of " + needed
+					+ " bytes does not fit in spool segments of " + segmentSizeBytes + " bytes");
+		}
+	}
+
+	private boolean canOldestSegmentBeCompacted() {
+		long oldestSegmentNo = noOfPendingPerSegment.firstKey();
+		if (oldestSegmentNo == activeSegmentNo) {
+			return false;
+		}
+		int neededBytes = 0;
+		for (WorkOrderRecord record : findPendingInSegment(oldestSegmentNo)) {
+			neededBytes += HEADER_SIZE + record.length;
+		}
+		return neededBytes <= segmentSizeBytes / 2;
+	}
+
+	private void compactOldestSegment() {
+		List<WorkOrderRecord> toCompact = findPendingInSegment(noOfPendingPerSegment.firstKey());
+		rollSegment();
+		for (WorkOrderRecord record : toCompact) {
+			removePending(record.entryId);
+			putWorkOrder(record);
+		}
+		forceActive();
+		deleteOldSegments();
+	}
+
+	private List<WorkOrderRecord> findPendingInSegment(long segmentNo) {
+		List<WorkOrderRecord> found = new ArrayList<>();
+		for (Map.Entry<Long, PendingEntry> pending : pendingEntries.entrySet()) {
+			if (pending.getValue().segmentNo == segmentNo) {
+				found.add(new WorkOrderRecord(pending.getKey(), pending.getValue().workOrder));
+			}
+		}
+		return found;
+	}
+
+	private void waitForAcknowledgements(long deadline) {
+		long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+		if (remainingMs <= 0) {
+			throw IndexMessageException.withMessage("Spool full with " + maxSegments
+					+ " segments, work order NOT spooled in: " + directory);
+		}
+		try {
+			wait(remainingMs);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw IndexMessageException.withMessageAndException(
+					"Interrupted while waiting for room in spool: " + directory, e);
+		}
+		throwErrorIfClosed();
+	}
+
+	private void putWorkOrder(WorkOrderRecord record) {
+		int start = activeBuffer.position();
+		activeBuffer.position(start + HEADER_SIZE);
+		activeBuffer.put(KIND_WORK_ORDER).putLong(record.entryId);
+		putString(record.recordType);
+		putString(record.recordId);
+		putString(record.modificationType);
+		finishRecord(start, record.length);
+		addPending(record.entryId, record.workOrder, activeSegmentNo);
+	}
+
+	private void finishRecord(int start, int length) {
+		activeBuffer.putInt(start + LENGTH_SIZE,
+				calculateChecksum(activeBuffer, start + HEADER_SIZE, length));
+		activeBuffer.putInt(start, length);
+		unsyncedWrites = true;
+	}
+
+	private void putString(byte[] bytes) {
+		if (bytes == null) {
+			activeBuffer.putShort((short) NULL_STRING_LENGTH);
+		} else {
+			activeBuffer.putShort((short) bytes.length);
+			activeBuffer.put(bytes);
+		}
+	}
+
+	private void rollSegment() {
+		try {
+			forceActive();
+			activeChannel.close();
+			startSegment(activeSegmentNo + 1);
+			deleteSegmentsWithoutPendingEntries();
+		} catch (IOException e) {
+			throw IndexMessageException
+					.withMessageAndException("Could not roll spool segment in: " + directory, e);
+		}
+	}
+
+	private void deleteSegmentsWithoutPendingEntries() throws IOException {
+		while (noOfPendingPerSegment.size() > 1
+				&& noOfPendingPerSegment.firstEntry().getValue() == 0) {
+			long oldestSegmentNo = noOfPendingPerSegment.pollFirstEntry().getKey();
+			Files.deleteIfExists(segmentPath(oldestSegmentNo));
+		}
+	}
+
+	/**
+	 * acknowledge marks the work order appended with entryId as done, so that it is not replayed.
+	 */
+	public synchronized void acknowledge(long entryId) {
+		if (closed || !pendingEntries.containsKey(entryId)) {
+			return;
+		}
+		if (activeBuffer.remaining() < HEADER_SIZE + ACKNOWLEDGE_SIZE) {
+			rollSegment();
+		}
+		int start = activeBuffer.position();
+		activeBuffer.position(start + HEADER_SIZE);
+		activeBuffer.put(KIND_ACKNOWLEDGE).putLong(entryId);
+		finishRecord(start, ACKNOWLEDGE_SIZE);
+		removePending(entryId);
+		deleteOldSegments();
+		notifyAll();
+	}
+
+	/**
+	 * acknowledgeIfSpooled acknowledges workOrder if it holds the id of an entry in a spool, see
+	 * {@link #acknowledge(long)}.
+	 */
+	public void acknowledgeIfSpooled(WorkOrder workOrder) {
+		if (workOrder.isSpooled()) {
+			acknowledge(workOrder.getSpoolEntryId());
+		}
+	}
+
+	private void deleteOldSegments() {
+		try {
+			deleteSegmentsWithoutPendingEntries();
+		} catch (IOException e) {
+			logger.logErrorUsingMessageAndException(
+					"Could not delete old spool segment in: " + directory, e);
+		}
+	}
+
+	/**
+	 * spill appends the work order to the spool, so that it is replayed the next time the spool is
+	 * opened.
+	 */
+	@Override
+	public void spill(WorkOrder workOrder) {
+		if (!isPending(workOrder)) {
+			append(workOrder);
+		}
+	}
+
+	private synchronized boolean isPending(WorkOrder workOrder) {
+		return workOrder.isSpooled() && pendingEntries.containsKey(workOrder.getSpoolEntryId());
+	}
+
+	/**
+	 * takePendingForReplay returns the work orders that were pending when the spool was opened,
+	 * ordered by entry id. They are only returned on the first call, so that they are replayed
+	 * once.
+	 */
+	public synchronized Map<Long, WorkOrder> takePendingForReplay() {
+		Map<Long, WorkOrder> toReplay = new LinkedHashMap<>();
+		if (!replayTaken) {
+			replayTaken = true;
+			new TreeMap<>(pendingEntries)
+					.forEach((entryId, pending) -> toReplay.put(entryId, pending.workOrder));
+		}
+		return toReplay;
+	}
+
+	private synchronized void forceIfNeeded() {
+		if (unsyncedWrites && !closed) {
+			forceActive();
+		}
+	}
+
+	private void forceActive() {
+		activeBuffer.force();
+		unsyncedWrites = false;
+		noOfFsyncs++;
+	}
+
+	/**
+	 * close forces written work orders to disk and stops the background fsync.
+	 */
+	public synchronized void close() {
+		if (closed) {
+			return;
+		}
+		fsyncScheduler.shutdownNow();
+		forceActive();
+		closed = true;
+		notifyAll();
+		try {
+			activeChannel.close();
+		} catch (IOException e) {
+			logger.logErrorUsingMessageAndException("Could not close spool in: " + directory, e);
+		}
+	}
+
+	public synchronized int getNoOfPending() {
+		return pendingEntries.size();
+	}
+
+	public synchronized int getNoOfSegments() {
+		return noOfPendingPerSegment.size();
+	}
+
+	public synchronized long getNoOfFsyncs() {
+		return noOfFsyncs;
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+	public int getSegmentSizeBytes() {
+		return segmentSizeBytes;
+	}
+
+	public int getMaxSegments() {
+		return maxSegments;
+	}
+
+	public long getFsyncIntervalMs() {
+		return fsyncIntervalMs;
+	}
+
+	public long getMaxWaitMs() {
+		return maxWaitMs;
+	}
+
+	private static final class WorkOrderRecord {
+		private final long entryId;
+		private final WorkOrder workOrder;
+		private final byte[] recordType;
+		private final byte[] recordId;
+		private final byte[] modificationType;
+		private final int length;
+
+		private WorkOrderRecord(long entryId, WorkOrder workOrder) {
+			this.entryId = entryId;
+			this.workOrder = workOrder;
+			recordType = toBytes(workOrder.getRecordType());
+			recordId = toBytes(workOrder.getRecordId());
+			modificationType = toBytes(workOrder.getModificationType());
+			length = ACKNOWLEDGE_SIZE + 3 * Short.BYTES + noOfBytes(recordType)
+					+ noOfBytes(recordId) + noOfBytes(modificationType);
+		}
+
+		private byte[] toBytes(String value) {
+			if (value == null) {
+				return null;
+			}
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			if (bytes.length >= NULL_STRING_LENGTH) {
+				throw IndexMessageException.withMessage("Value too long to spool: " + value);
+			}
+			return bytes;
+		}
+
+		private int noOfBytes(byte[] bytes) {
+			return bytes == null ? 0 : bytes.length;
+		}
+	}
+
+	private static final class PendingEntry {
+		private final WorkOrder workOrder;
+		private final long segmentNo;
+
+		private PendingEntry(WorkOrder workOrder, long segmentNo) {
+			this.workOrder = workOrder;
+			this.segmentNo = segmentNo;
+		}
+	}
+}
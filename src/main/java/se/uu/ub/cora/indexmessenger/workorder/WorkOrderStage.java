@@ -0,0 +1,217 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import se.uu.ub.cora.indexmessenger.DeadLetterPublisher;
+
+/**
+ * WorkOrderStage is a handler in a chain of handlers, passing work orders on to a next handler.
+ * Stages that keep work orders after handle has returned, such as queues, batches and scheduled
+ * retries, report how many they keep through {@link #getNoOfOutstanding()}.
+ * <p>
+ * Stages with threads of their own are stopped using {@link #shutdown()},
+ * {@link #awaitTermination(long)} and {@link #shutdownNow()}, a whole chain is stopped using
+ * {@link #shutdownChainWithinMs(WorkOrderHandler, long)}.
+ */
+public interface WorkOrderStage extends WorkOrderHandler {
+
+	WorkOrderHandler getNextHandler();
+
+	/**
+	 * passesOnOnCallingThread returns true if handle has passed the work order on to the next
+	 * handler, on the calling thread, when it returns, so that a failure recorded in
+	 * {@link WorkOrderOutcome} by a later handler is seen by the stages in front of this one.
+	 */
+	default boolean passesOnOnCallingThread() {
+		return false;
+	}
+
+	/**
+	 * getNoOfOutstanding returns the number of work orders this stage has accepted but not yet
+	 * passed on to the next handler, or is passing on on other threads.
+	 */
+	default long getNoOfOutstanding() {
+		return 0;
+	}
+
+	/**
+	 * takeWorkOrdersToReplay returns the work orders this stage kept from an earlier run, such as
+	 * work orders left pending in a {@link WorkOrderSpool}, so that they can be handled again
+	 * through the whole chain. They are only returned once.
+	 */
+	default List<WorkOrder> takeWorkOrdersToReplay() {
+		return Collections.emptyList();
+	}
+
+	/**
+	 * useDeadLetterPublisher gives the stage the publisher to dead-letter work orders it gives up
+	 * on. It returns true if the stage decides when a failed work order is given up, as a stage
+	 * retrying work orders does, so that the handlers after it must not dead-letter each failed
+	 * attempt themselves.
+	 */
+	default boolean useDeadLetterPublisher(DeadLetterPublisher deadLetterPublisher) {
+		return false;
+	}
+
+	/**
+	 * getSpoolAppendedTo returns the {@link WorkOrderSpool} this stage appends work orders to, or
+	 * null if it does not append them to a spool.
+	 */
+	default WorkOrderSpool getSpoolAppendedTo() {
+		return null;
+	}
+
+	/**
+	 * useSpool gives the stage the spool the work orders of its chain are appended to, so that it
+	 * can acknowledge the spooled work orders it is done with without passing them on, such as
+	 * filtered, superseded and given up work orders, which would otherwise be replayed the next
+	 * time the spool is opened.
+	 */
+	default void useSpool(WorkOrderSpool spool) {
+		// nothing to acknowledge for stages passing on every work order
+	}
+
+	/**
+	 * shutdown stops the stage once the work orders it holds are passed on to the next handler. It
+	 * returns directly, use {@link #awaitTermination(long)} to wait for it to finish.
+	 */
+	default void shutdown() {
+		// nothing to stop for stages without threads of their own
+	}
+
+	default boolean awaitTermination(long timeoutMs) throws InterruptedException {
+		return true;
+	}
+
+	/**
+	 * shutdownNow stops the stage without waiting for the work orders it holds, and returns the
+	 * work orders that were never passed on to the next handler.
+	 */
+	default List<WorkOrder> shutdownNow() {
+		return Collections.emptyList();
+	}
+
+	/**
+	 * shutdownChainWithinMs stops all stages of the chain starting with handler, one after the
+	 * other from the first, so that each stage passes the work orders it holds on to stages that
+	 * are still running. Each stage is waited for until timeoutMs milliseconds have passed since
+	 * the call, after that the remaining stages are stopped without waiting. The work orders that
+	 * were never passed on are returned.
+	 */
+	static List<WorkOrder> shutdownChainWithinMs(WorkOrderHandler handler, long timeoutMs)
+			throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+		List<WorkOrder> notPassedOn = new ArrayList<>();
+		WorkOrderHandler current = handler;
+		while (current instanceof WorkOrderStage) {
+			WorkOrderStage stage = (WorkOrderStage) current;
+			stage.shutdown();
+			long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+			stage.awaitTermination(Math.max(0, remainingMs));
+			notPassedOn.addAll(stage.shutdownNow());
+			current = stage.getNextHandler();
+		}
+		return notPassedOn;
+	}
+
+	/**
+	 * countOutstandingInChain returns the sum of outstanding work orders in all stages of the chain
+	 * starting with handler.
+	 */
+	static long countOutstandingInChain(WorkOrderHandler handler) {
+		long outstanding = 0;
+		WorkOrderHandler current = handler;
+		while (current instanceof WorkOrderStage) {
+			WorkOrderStage stage = (WorkOrderStage) current;
+			outstanding += stage.getNoOfOutstanding();
+			current = stage.getNextHandler();
+		}
+		return outstanding;
+	}
+
+	/**
+	 * takeWorkOrdersToReplayInChain returns the work orders to replay from all stages of the chain
+	 * starting with handler.
+	 */
+	static List<WorkOrder> takeWorkOrdersToReplayInChain(WorkOrderHandler handler) {
+		List<WorkOrder> toReplay = new ArrayList<>();
+		WorkOrderHandler current = handler;
+		while (current instanceof WorkOrderStage) {
+			WorkOrderStage stage = (WorkOrderStage) current;
+			toReplay.addAll(stage.takeWorkOrdersToReplay());
+			current = stage.getNextHandler();
+		}
+		return toReplay;
+	}
+
+	/**
+	 * useDeadLetterPublisherInChain gives the deadLetterPublisher to the stages of the chain
+	 * starting with handler, and returns true if any of them decides when failed work orders are
+	 * given up, see {@link #useDeadLetterPublisher(DeadLetterPublisher)}. The stages after such a
+	 * stage are given {@link DeadLetterPublisher#none()}, so that they do not dead-letter each
+	 * failed attempt.
+	 */
+	static boolean useDeadLetterPublisherInChain(WorkOrderHandler handler,
+			DeadLetterPublisher deadLetterPublisher) {
+		boolean givesUpInChain = false;
+		WorkOrderHandler current = handler;
+		while (current instanceof WorkOrderStage) {
+			WorkOrderStage stage = (WorkOrderStage) current;
+			givesUpInChain |= stage.useDeadLetterPublisher(
+					givesUpInChain ? DeadLetterPublisher.none() : deadLetterPublisher);
+			current = stage.getNextHandler();
+		}
+		return givesUpInChain;
+	}
+
+	/**
+	 * useSpoolInChain gives the spool that a stage of the chain starting with handler appends work
+	 * orders to, to all stages of the chain, see {@link #useSpool(WorkOrderSpool)}. Nothing is
+	 * done if no stage appends work orders to a spool.
+	 */
+	static void useSpoolInChain(WorkOrderHandler handler) {
+		WorkOrderSpool spool = findSpoolInChain(handler);
+		if (spool == null) {
+			return;
+		}
+		WorkOrderHandler current = handler;
+		while (current instanceof WorkOrderStage) {
+			WorkOrderStage stage = (WorkOrderStage) current;
+			stage.useSpool(spool);
+			current = stage.getNextHandler();
+		}
+	}
+
+	private static WorkOrderSpool findSpoolInChain(WorkOrderHandler handler) {
+		WorkOrderHandler current = handler;
+		while (current instanceof WorkOrderStage) {
+			WorkOrderStage stage = (WorkOrderStage) current;
+			if (stage.getSpoolAppendedTo() != null) {
+				return stage.getSpoolAppendedTo();
+			}
+			current = stage.getNextHandler();
+		}
+		return null;
+	}
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.indexmessenger.log.LoggerFactorySpy;
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+public class BackPressureTest {
+	private LoggerFactorySpy loggerFactory;
+	private String testedClassName = "BackPressure";
+	private IndexMetrics indexMetrics;
+
+	@BeforeMethod
+	public void setUp() {
+		loggerFactory = new LoggerFactorySpy();
+		LoggerProvider.setLoggerFactory(loggerFactory);
+		indexMetrics = new IndexMetrics();
+	}
+
+	@Test
+	public void testUsingWatermarks() throws Exception {
+		BackPressure backPressure = BackPressure.usingWatermarks(100, 10);
+		assertEquals(backPressure.getHighWatermark(), 100);
+		assertEquals(backPressure.getLowWatermark(), 10);
+		assertEquals(backPressure.getPollIntervalMs(), 10);
+	}
+
+	@Test(expectedExceptions = IndexMessageException.class, expectedExceptionsMessageRegExp = ""
+			+ "Low watermark can not be higher than high watermark")
+	public void testLowWatermarkAboveHighWatermark() throws Exception {
+		BackPressure.usingWatermarks(10, 11);
+	}
+
+	@Test
+	public void testNoneNeverPauses() throws Exception {
+		BackPressure backPressure = BackPressure.none();
+
+		backPressure.pauseWhileAboveHighWatermark(() -> Long.MAX_VALUE - 1, indexMetrics);
+
+		assertEquals(backPressure.getNoOfPauses(), 0);
+		assertEquals(indexMetrics.getBackPressureMetrics().getConsumptionPauses(), 0);
+	}
+
+	@Test
+	public void testBelowHighWatermarkDoesNotPause() throws Exception {
+		BackPressure backPressure = BackPressure.usingWatermarks(10, 5);
+
+		backPressure.pauseWhileAboveHighWatermark(() -> 9, indexMetrics);
+
+		assertEquals(backPressure.getNoOfPauses(), 0);
+		assertEquals(loggerFactory.getNoOfInfoLogMessagesUsingClassname(testedClassName), 0);
+	}
+
+	@Test
+	public void testPausesUntilLowWatermarkIsReached() throws Exception {
+		BackPressure backPressure = BackPressure.usingWatermarksAndPollInterval(10, 5, 1);
+		AtomicLong outstanding = new AtomicLong(10);
+		Thread worker = startWorkerDecreasingOutstandingUntilPaused(outstanding);
+
+		backPressure.pauseWhileAboveHighWatermark(outstanding::get, indexMetrics);
+		worker.join();
+
+		assertEquals(outstanding.get(), 5);
+		assertEquals(backPressure.getNoOfPauses(), 1);
+		assertEquals(backPressure.getNoOfResumes(), 1);
+		assertEquals(indexMetrics.getBackPressureMetrics().getConsumptionPauses(), 1);
+		assertEquals(indexMetrics.getBackPressureMetrics().getConsumptionResumes(), 1);
+		assertFalse(indexMetrics.getBackPressureMetrics().isConsumptionPaused());
+		assertEquals(loggerFactory.getInfoLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"Pausing consumption, outstanding work orders: 10");
+		assertTrue(loggerFactory.getInfoLogMessageUsingClassNameAndNo(testedClassName, 1)
+				.matches("Resuming consumption after \\d+ ms, outstanding work orders: 5"));
+	}
+
+	private Thread startWorkerDecreasingOutstandingUntilPaused(AtomicLong outstanding) {
+		Thread worker = new Thread(() -> {
+			waitUntilPaused();
+			while (outstanding.get() > 5) {
+				outstanding.decrementAndGet();
+				sleep(2);
+			}
+		});
+		worker.start();
+		return worker;
+	}
+
+	private void waitUntilPaused() {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!indexMetrics.getBackPressureMetrics().isConsumptionPaused()
+				&& System.currentTimeMillis() < deadline) {
+			sleep(1);
+		}
+	}
+
+	private void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Test
+	public void testInterruptedWhilePausedIsReportedAsInterrupted() throws Exception {
+		BackPressure backPressure = BackPressure.usingWatermarksAndPollInterval(1, 0, 1);
+		Thread.currentThread().interrupt();
+
+		backPressure.pauseWhileAboveHighWatermark(() -> 1, indexMetrics);
+
+		assertTrue(Thread.interrupted());
+		assertEquals(backPressure.getNoOfResumes(), 0);
+		assertEquals(backPressure.getNoOfInterruptedPauses(), 1);
+		assertEquals(indexMetrics.getBackPressureMetrics().getConsumptionResumes(), 0);
+		assertEquals(indexMetrics.getBackPressureMetrics().getConsumptionPausesInterrupted(), 1);
+		assertFalse(indexMetrics.getBackPressureMetrics().isConsumptionPaused());
+		assertEquals(loggerFactory.getNoOfInfoLogMessagesUsingClassname(testedClassName), 1);
+		assertTrue(loggerFactory.getWarnLogMessageUsingClassNameAndNo(testedClassName, 0)
+				.matches("Pause interrupted after \\d+ ms, consumption continues, "
+						+ "outstanding work orders: 1"));
+	}
+}
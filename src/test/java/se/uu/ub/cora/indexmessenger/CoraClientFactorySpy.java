@@ -18,29 +18,45 @@
  */
 package se.uu.ub.cora.indexmessenger;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import se.uu.ub.cora.javaclient.cora.CoraClient;
 import se.uu.ub.cora.javaclient.cora.CoraClientFactory;
 
 public class CoraClientFactorySpy implements CoraClientFactory {
 
 	public CoraClientSpy factoredClient;
+	public List<CoraClientSpy> factoredClients = new ArrayList<>();
 	public String userId;
 	public String appToken;
 	public boolean factoredHasBeenCalled = false;
+	public List<String> authTokens = Collections.synchronizedList(new ArrayList<>());
+	public List<CoraClientSpy> factoredAuthTokenClients = Collections
+			.synchronizedList(new ArrayList<>());
+
+	public int throwErrorOnFactorNo = 0;
 
 	@Override
 	public CoraClient factor(String userId, String appToken) {
 		factoredHasBeenCalled = true;
+		if (factoredClients.size() + 1 == throwErrorOnFactorNo) {
+			throw new RuntimeException("Error from CoraClientFactorySpy");
+		}
 		this.userId = userId;
 		this.appToken = appToken;
 		factoredClient = new CoraClientSpy();
+		factoredClients.add(factoredClient);
 		return factoredClient;
 	}
 
 	@Override
 	public CoraClient factorUsingAuthToken(String authToken) {
-		// TODO Auto-generated method stub
-		return null;
+		authTokens.add(authToken);
+		CoraClientSpy client = new CoraClientSpy();
+		factoredAuthTokenClients.add(client);
+		return client;
 	}
 
 }
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import se.uu.ub.cora.clientdata.ClientDataGroup;
+
+public class CoraClientLatencySpy extends CoraClientSpy {
+
+	public volatile long latencyMs;
+	public AtomicInteger noOfCreateCalls = new AtomicInteger();
+	public AtomicInteger maxConcurrentCreates = new AtomicInteger();
+	private AtomicInteger concurrentCreates = new AtomicInteger();
+
+	public CoraClientLatencySpy(long latencyMs) {
+		this.latencyMs = latencyMs;
+	}
+
+	@Override
+	public String create(String recordType, ClientDataGroup dataGroup) {
+		int concurrent = concurrentCreates.incrementAndGet();
+		maxConcurrentCreates.accumulateAndGet(concurrent, Math::max);
+		try {
+			Thread.sleep(latencyMs);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			concurrentCreates.decrementAndGet();
+		}
+		noOfCreateCalls.incrementAndGet();
+		return null;
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2019 Uppsala University Library
+ * Copyright 2019, 2026 Uppsala University Library
  *
  * This file is part of Cora.
  *
@@ -19,6 +19,8 @@
 
 package se.uu.ub.cora.indexmessenger;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import se.uu.ub.cora.clientdata.ClientDataGroup;
@@ -30,11 +32,22 @@ public class CoraClientSpy implements CoraClient {
 	public boolean createWasCalled = false;
 	public String createdRecordType = "";
 	public ClientDataGroup createdDataGroup;
+	public String createdJson;
 	public boolean throwErrorOnCreate = false;
+	public boolean throwErrorOnIndex = false;
+	public boolean throwErrorOnIndexWithCommit = false;
+	public List<String> indexedWithoutCommit = Collections.synchronizedList(new ArrayList<>());
+	public List<String> indexedWithCommit = Collections.synchronizedList(new ArrayList<>());
+	public List<String> removedFromIndex = Collections.synchronizedList(new ArrayList<>());
 
 	@Override
 	public String create(String recordType, String json) {
-		// TODO Auto-generated method stub
+		createWasCalled = true;
+		createdRecordType = recordType;
+		createdJson = json;
+		if (throwErrorOnCreate) {
+			throw new RuntimeException("Error from CoraClientSpy on create");
+		}
 		return null;
 	}
 
@@ -105,19 +118,31 @@ public class CoraClientSpy implements CoraClient {
 
 	@Override
 	public String indexData(String recordType, String recordId) {
-		// TODO Auto-generated method stub
+		indexedWithCommit.add(recordType + "/" + recordId);
+		throwErrorIfSet();
+		if (throwErrorOnIndexWithCommit) {
+			throw new RuntimeException("Error from CoraClientSpy on index with commit");
+		}
 		return null;
 	}
 
+	private void throwErrorIfSet() {
+		if (throwErrorOnIndex) {
+			throw new RuntimeException("Error from CoraClientSpy on index");
+		}
+	}
+
 	@Override
 	public String removeFromIndex(String recordType, String recordId) {
-		// TODO Auto-generated method stub
+		removedFromIndex.add(recordType + "/" + recordId);
+		throwErrorIfSet();
 		return null;
 	}
 
 	@Override
 	public String indexDataWithoutExplicitCommit(String recordType, String recordId) {
-		// TODO Auto-generated method stub
+		indexedWithoutCommit.add(recordType + "/" + recordId);
+		throwErrorIfSet();
 		return null;
 	}
 
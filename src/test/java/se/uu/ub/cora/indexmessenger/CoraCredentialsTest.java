@@ -19,6 +19,7 @@
 package se.uu.ub.cora.indexmessenger;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
 
 import org.testng.annotations.Test;
 
@@ -32,4 +33,15 @@ public class CoraCredentialsTest {
 		assertEquals(credentials.userId, userId);
 		assertEquals(credentials.appToken, appToken);
 	}
+
+	@Test
+	public void testCredentialsWithSameValuesAreEqual() {
+		CoraCredentials credentials = new CoraCredentials("someUserId", "someAppToken");
+
+		assertEquals(credentials, new CoraCredentials("someUserId", "someAppToken"));
+		assertEquals(credentials.hashCode(),
+				new CoraCredentials("someUserId", "someAppToken").hashCode());
+		assertNotEquals(credentials, new CoraCredentials("otherUserId", "someAppToken"));
+		assertNotEquals(credentials, new CoraCredentials("someUserId", "otherAppToken"));
+	}
 }
@@ -0,0 +1,237 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.indexmessenger.log.LoggerFactorySpy;
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.indexmessenger.workorder.WorkOrder;
+import se.uu.ub.cora.logger.LoggerProvider;
+import se.uu.ub.cora.messaging.AmqpMessageRoutingInfo;
+import se.uu.ub.cora.messaging.MessageRoutingInfo;
+import se.uu.ub.cora.messaging.MessageSender;
+import se.uu.ub.cora.messaging.MessagingProvider;
+
+public class DeadLetterPublisherTest {
+	private String testedClassname = "DeadLetterPublisher";
+	private LoggerFactorySpy loggerFactory;
+	private MessagingFactorySpy messagingFactorySpy;
+	private AmqpMessageRoutingInfo routingInfo;
+	private IndexMetrics indexMetrics;
+	private DeadLetterPublisher publisher;
+	private Map<String, String> headers = Map.of("PID", "alvin-place:1");
+
+	@BeforeMethod
+	public void setUp() {
+		loggerFactory = new LoggerFactorySpy();
+		LoggerProvider.setLoggerFactory(loggerFactory);
+		messagingFactorySpy = new MessagingFactorySpy();
+		MessagingProvider.setMessagingFactory(messagingFactorySpy);
+		routingInfo = new AmqpMessageRoutingInfo("messaging.alvin-portal.org", "5672", "alvin",
+				"deadLetter", "#");
+		indexMetrics = new IndexMetrics();
+		publisher = DeadLetterPublisher.usingRoutingInfoAndSettings(routingInfo, 10, 4,
+				indexMetrics);
+	}
+
+	@AfterMethod
+	public void tearDown() {
+		publisher.shutdownNow();
+	}
+
+	@Test
+	public void testInit() {
+		assertTrue(publisher.isEnabled());
+		assertSame(publisher.getRoutingInfo(), routingInfo);
+		assertEquals(publisher.getQueueCapacity(), 10);
+		assertEquals(publisher.getBatchSize(), 4);
+	}
+
+	@Test
+	public void testNoneIsNotEnabled() throws Exception {
+		DeadLetterPublisher none = DeadLetterPublisher.none();
+
+		none.publish(createParseFailure());
+		none.shutdownWithinMs(100);
+
+		assertFalse(none.isEnabled());
+		assertEquals(none.getNoOfQueued(), 0);
+		assertTrue(none.shutdownNow().isEmpty());
+		assertTrue(messagingFactorySpy.messageSenderSpies.isEmpty());
+	}
+
+	private DeadLetter createParseFailure() {
+		return DeadLetter.forParseFailure(headers, "someMessage",
+				new RuntimeException("some parse error"));
+	}
+
+	@Test
+	public void testPublishSendsOriginalMessageWithFailureHeaders() throws Exception {
+		publisher.publish(createParseFailure());
+
+		publisher.shutdownWithinMs(2000);
+
+		assertSame(messagingFactorySpy.senderRoutingInfo, routingInfo);
+		MessageSenderSpy sender = messagingFactorySpy.messageSenderSpies.get(0);
+		assertEquals(sender.sentMessages.get(0), "someMessage");
+		Map<String, Object> sentHeaders = sender.sentHeaders.get(0);
+		assertEquals(sentHeaders.get("PID"), "alvin-place:1");
+		assertEquals(sentHeaders.get("deadLetterReason"), DeadLetter.PARSE_FAILED);
+		assertEquals(sentHeaders.get("deadLetterException"), "java.lang.RuntimeException");
+		assertEquals(sentHeaders.get("deadLetterExceptionMessage"), "some parse error");
+		assertNotNull(sentHeaders.get("deadLetterTime"));
+		assertFalse(sentHeaders.containsKey("deadLetterRecordType"));
+		assertEquals(indexMetrics.getDeadLetterMetrics().getDeadLettersPublished(), 1);
+	}
+
+	@Test
+	public void testPublishWorkOrderNotCreatedAddsRecordHeaders() throws Exception {
+		WorkOrder workOrder = WorkOrder
+				.usingRecordTypeRecordIdAndModificationType("someType", "someId", "update")
+				.withSourceMessage(headers, "someMessage");
+		publisher.publish(DeadLetter.forWorkOrderNotCreated(workOrder,
+				new RuntimeException("some create error")));
+
+		publisher.shutdownWithinMs(2000);
+
+		Map<String, Object> sentHeaders = messagingFactorySpy.messageSenderSpies.get(0).sentHeaders
+				.get(0);
+		assertEquals(sentHeaders.get("deadLetterReason"), DeadLetter.WORK_ORDER_NOT_CREATED);
+		assertEquals(sentHeaders.get("deadLetterRecordType"), "someType");
+		assertEquals(sentHeaders.get("deadLetterRecordId"), "someId");
+	}
+
+	@Test
+	public void testAllQueuedDeadLettersArePublishedUsingOneSender() throws Exception {
+		for (int i = 0; i < 10; i++) {
+			publisher.publish(DeadLetter.forParseFailure(headers, "message" + i, null));
+		}
+
+		publisher.shutdownWithinMs(2000);
+
+		assertEquals(messagingFactorySpy.messageSenderSpies.size(), 1);
+		List<String> sentMessages = messagingFactorySpy.messageSenderSpies.get(0).sentMessages;
+		assertEquals(sentMessages.size(), 10);
+		assertEquals(sentMessages.get(9), "message9");
+		assertEquals(indexMetrics.getDeadLetterMetrics().getDeadLettersPublished(), 10);
+	}
+
+	@Test
+	public void testFailedSendIsLoggedAndSenderReplaced() throws Exception {
+		publisher.shutdownNow();
+		publisher = DeadLetterPublisher.usingRoutingInfoAndSettings(routingInfo, 10, 4,
+				indexMetrics);
+		MessageSenderSpy failingSender = new MessageSenderSpy();
+		failingSender.noOfMessagesToFailToSend = 1;
+		MessagingProvider.setMessagingFactory(new MessagingFactorySpy() {
+			@Override
+			public MessageSender factorTopicMessageSender(MessageRoutingInfo routingInfo) {
+				messageSenderSpies.add(failingSender);
+				return failingSender;
+			}
+		});
+
+		publisher.publish(createParseFailure());
+		publisher.publish(createParseFailure());
+		publisher.shutdownWithinMs(2000);
+
+		assertEquals(indexMetrics.getDeadLetterMetrics().getDeadLetterPublishFailures(), 1);
+		assertEquals(indexMetrics.getDeadLetterMetrics().getDeadLettersPublished(), 1);
+		assertEquals(loggerFactory.getErrorLogMessageUsingClassNameAndNo(testedClassname, 0),
+				"Dead letter NOT published with reason: parseFailed for type: null and id: null");
+		assertEquals(
+				loggerFactory.getErrorLogErrorUsingClassNameAndNo(testedClassname, 0).getMessage(),
+				"Error from MessageSenderSpy on send");
+	}
+
+	@Test
+	public void testFullQueueDropsDeadLetter() throws Exception {
+		publisher.shutdownNow();
+		publisher = DeadLetterPublisher.usingRoutingInfoAndSettings(routingInfo, 1, 1,
+				indexMetrics);
+		MessagingProvider.setMessagingFactory(new MessagingFactorySpy() {
+			@Override
+			public MessageSender factorTopicMessageSender(MessageRoutingInfo routingInfo) {
+				sleepUninterrupted(300);
+				return super.factorTopicMessageSender(routingInfo);
+			}
+		});
+
+		for (int i = 0; i < 5; i++) {
+			publisher.publish(createParseFailure());
+		}
+
+		assertTrue(indexMetrics.getDeadLetterMetrics().getDeadLettersDropped() >= 3);
+		assertTrue(loggerFactory.getErrorLogMessageUsingClassNameAndNo(testedClassname, 0)
+				.startsWith("Dead letter dropped with reason: parseFailed"));
+	}
+
+	private void sleepUninterrupted(long ms) {
+		try {
+			Thread.sleep(ms);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Test
+	public void testPublishAfterShutdownDropsDeadLetter() throws Exception {
+		publisher.shutdown();
+
+		publisher.publish(createParseFailure());
+
+		assertEquals(indexMetrics.getDeadLetterMetrics().getDeadLettersDropped(), 1);
+		assertTrue(publisher.awaitTermination(2000));
+	}
+
+	@Test
+	public void testShutdownWithinMsLogsDeadLettersNotPublished() throws Exception {
+		publisher.shutdownNow();
+		publisher = DeadLetterPublisher.usingRoutingInfoAndSettings(routingInfo, 10, 1,
+				indexMetrics);
+		MessagingProvider.setMessagingFactory(new MessagingFactorySpy() {
+			@Override
+			public MessageSender factorTopicMessageSender(MessageRoutingInfo routingInfo) {
+				sleepUninterrupted(500);
+				return super.factorTopicMessageSender(routingInfo);
+			}
+		});
+		for (int i = 0; i < 3; i++) {
+			publisher.publish(createParseFailure());
+		}
+		Thread.sleep(50);
+
+		publisher.shutdownWithinMs(50);
+
+		assertEquals(loggerFactory.getErrorLogMessageUsingClassNameAndNo(testedClassname, 0),
+				"Dead letter publisher shut down with 2 dead letters NOT published");
+	}
+}
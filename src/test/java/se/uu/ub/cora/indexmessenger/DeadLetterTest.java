@@ -0,0 +1,87 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.indexmessenger.workorder.WorkOrder;
+
+public class DeadLetterTest {
+	private Map<String, String> headers = Map.of("PID", "alvin-place:1");
+	private Exception exception = new RuntimeException("some error");
+
+	@Test
+	public void testForParseFailure() {
+		DeadLetter deadLetter = DeadLetter.forParseFailure(headers, "someMessage", exception);
+
+		assertEquals(deadLetter.getReason(), DeadLetter.PARSE_FAILED);
+		assertSame(deadLetter.getHeaders(), headers);
+		assertEquals(deadLetter.getMessage(), "someMessage");
+		assertNull(deadLetter.getRecordType());
+		assertNull(deadLetter.getRecordId());
+		assertSame(deadLetter.getException(), exception);
+	}
+
+	@Test
+	public void testForWorkOrderNotCreated() {
+		WorkOrder workOrder = WorkOrder
+				.usingRecordTypeRecordIdAndModificationType("someType", "someId", "update")
+				.withSourceMessage(headers, "someMessage");
+
+		DeadLetter deadLetter = DeadLetter.forWorkOrderNotCreated(workOrder, exception);
+
+		assertEquals(deadLetter.getReason(), DeadLetter.WORK_ORDER_NOT_CREATED);
+		assertSame(deadLetter.getHeaders(), headers);
+		assertEquals(deadLetter.getMessage(), "someMessage");
+		assertEquals(deadLetter.getRecordType(), "someType");
+		assertEquals(deadLetter.getRecordId(), "someId");
+		assertSame(deadLetter.getException(), exception);
+	}
+
+	@Test
+	public void testForRecordsOfTypeNotIndexed() {
+		DeadLetter deadLetter = DeadLetter.forRecordsOfTypeNotIndexed("someType",
+				"{\"filter\":\"some\"}", exception);
+
+		assertEquals(deadLetter.getReason(), DeadLetter.RECORDS_OF_TYPE_NOT_INDEXED);
+		assertTrue(deadLetter.getHeaders().isEmpty());
+		assertEquals(deadLetter.getMessage(), "{\"filter\":\"some\"}");
+		assertEquals(deadLetter.getRecordType(), "someType");
+		assertNull(deadLetter.getRecordId());
+		assertSame(deadLetter.getException(), exception);
+	}
+
+	@Test
+	public void testForWorkOrderWithoutSourceMessage() {
+		WorkOrder workOrder = WorkOrder.usingRecordTypeRecordIdAndModificationType("someType",
+				"someId", "update");
+
+		DeadLetter deadLetter = DeadLetter.forWorkOrderNotCreated(workOrder, exception);
+
+		assertTrue(deadLetter.getHeaders().isEmpty());
+		assertEquals(deadLetter.getMessage(), "");
+	}
+}
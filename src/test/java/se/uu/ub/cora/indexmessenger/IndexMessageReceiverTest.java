@@ -1,5 +1,5 @@
 /*
- * Copyright 2019 Uppsala University Library
+ * Copyright 2019, 2026 Uppsala University Library
  *
  * This file is part of Cora.
  *
@@ -21,20 +21,63 @@ package se.uu.ub.cora.indexmessenger;
 
 import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import se.uu.ub.cora.clientdata.ClientDataGroup;
+import se.uu.ub.cora.clientdata.converter.javatojson.DataToJsonConverter;
+import se.uu.ub.cora.clientdata.converter.javatojson.DataToJsonConverterFactoryImp;
 import se.uu.ub.cora.indexmessenger.log.LoggerFactorySpy;
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.indexmessenger.parser.HeaderRejectingMessageParserSpy;
+import se.uu.ub.cora.indexmessenger.parser.MessageParserFactoryCountingSpy;
 import se.uu.ub.cora.indexmessenger.parser.MessageParserSpy;
+import se.uu.ub.cora.indexmessenger.parser.ThreadConfinedMessageParserFactory;
+import se.uu.ub.cora.indexmessenger.workorder.BatchingWorkOrderHandler;
+import se.uu.ub.cora.indexmessenger.workorder.BatchingWorkOrderHandlerFactory;
+import se.uu.ub.cora.indexmessenger.workorder.ChainedWorkOrderHandlerFactory;
+import se.uu.ub.cora.indexmessenger.workorder.CircuitBreaker;
+import se.uu.ub.cora.indexmessenger.workorder.DirectIndexModeFactory;
+import se.uu.ub.cora.indexmessenger.workorder.DirectIndexWorkOrderHandler;
+import se.uu.ub.cora.indexmessenger.workorder.FullQueuePolicy;
+import se.uu.ub.cora.indexmessenger.workorder.JsonTemplateIndexModeFactory;
+import se.uu.ub.cora.indexmessenger.workorder.OpenCircuitPolicy;
+import se.uu.ub.cora.indexmessenger.workorder.PriorityClassifier;
+import se.uu.ub.cora.indexmessenger.workorder.RecordTypeFilter;
+import se.uu.ub.cora.indexmessenger.workorder.RecordTypeFilterWorkOrderHandler;
+import se.uu.ub.cora.indexmessenger.workorder.RecordTypeFilterWorkOrderHandlerFactory;
+import se.uu.ub.cora.indexmessenger.workorder.RetryPolicy;
+import se.uu.ub.cora.indexmessenger.workorder.RetryingWorkOrderHandlerFactory;
+import se.uu.ub.cora.indexmessenger.workorder.SpoolAcknowledgingWorkOrderHandlerFactory;
+import se.uu.ub.cora.indexmessenger.workorder.SpoolingWorkOrderHandlerFactory;
+import se.uu.ub.cora.indexmessenger.workorder.SuccessLogSampling;
+import se.uu.ub.cora.indexmessenger.workorder.SynchronousWorkOrderHandlerFactory;
+import se.uu.ub.cora.indexmessenger.workorder.WorkOrder;
+import se.uu.ub.cora.indexmessenger.workorder.WorkOrderHandlerFactorySpy;
+import se.uu.ub.cora.indexmessenger.workorder.WorkOrderJsonTemplate;
+import se.uu.ub.cora.indexmessenger.workorder.WorkOrderOutcome;
+import se.uu.ub.cora.indexmessenger.workorder.WorkOrderPipeline;
+import se.uu.ub.cora.indexmessenger.workorder.WorkOrderPipelineFactory;
+import se.uu.ub.cora.indexmessenger.workorder.WorkOrderPriority;
+import se.uu.ub.cora.indexmessenger.workorder.WorkOrderSpillSpy;
+import se.uu.ub.cora.indexmessenger.workorder.WorkOrderSpool;
+import se.uu.ub.cora.json.builder.org.OrgJsonBuilderFactoryAdapter;
 import se.uu.ub.cora.logger.LoggerProvider;
+import se.uu.ub.cora.messaging.AmqpMessageRoutingInfo;
 import se.uu.ub.cora.messaging.MessageReceiver;
+import se.uu.ub.cora.messaging.MessagingProvider;
 
 public class IndexMessageReceiverTest {
 	private String message;
@@ -205,4 +248,788 @@ public class IndexMessageReceiverTest {
 		assertEquals(firstFatalLogMessage, "Topic closed!");
 	}
 
+	@Test
+	public void testTopicClosedReconnectsUsingTopicReconnector() throws Exception {
+		MessagingFactorySpy messagingFactorySpy = new MessagingFactorySpy();
+		MessagingProvider.setMessagingFactory(messagingFactorySpy);
+		IndexMetrics indexMetrics = new IndexMetrics();
+		TopicReconnector reconnector = TopicReconnector.usingRoutingInfoPolicyAndMetrics(
+				createRoutingInfo(), RetryPolicy.noRetries(), indexMetrics);
+		IndexMessageReceiver indexReceiver = new IndexMessageReceiver(coraClientSpy,
+				messageParserFactorySpy, IndexMessengerSettings.usingDefaults(), reconnector);
+		receiver = indexReceiver;
+		assertSame(indexReceiver.getTopicReconnector(), reconnector);
+
+		receiver.topicClosed();
+
+		waitUntilNotReconnecting(reconnector);
+		assertEquals(indexMetrics.getTopicMetrics().getReconnects(), 1);
+		assertSame(messagingFactorySpy.messageListenerSpy.messageReceiver, receiver);
+	}
+
+	private AmqpMessageRoutingInfo createRoutingInfo() {
+		return new AmqpMessageRoutingInfo("messaging.alvin-portal.org", "5672", "alvin", "index",
+				"#");
+	}
+
+	private void waitUntilNotReconnecting(TopicReconnector reconnector)
+			throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 2000;
+		while (reconnector.isReconnecting() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+	}
+
+	@Test
+	public void testDefaultDeadLetterPublisherIsNotEnabled() throws Exception {
+		IndexMessageReceiver indexReceiver = (IndexMessageReceiver) receiver;
+		assertFalse(indexReceiver.getSettings().getDeadLetterPublisher().isEnabled());
+	}
+
+	@Test
+	public void testParseFailureIsLoggedAndDeadLettered() throws Exception {
+		MessagingFactorySpy messagingFactorySpy = new MessagingFactorySpy();
+		IndexMetrics indexMetrics = new IndexMetrics();
+		DeadLetterPublisher deadLetterPublisher = createDeadLetterPublisher(messagingFactorySpy,
+				indexMetrics);
+		receiver = createReceiverUsingSettings(IndexMessengerSettings.usingDefaults()
+				.withDeadLetterPublisher(deadLetterPublisher));
+		messageParserFactorySpy.throwErrorOnParse = true;
+
+		receiver.receiveMessage(headers, message);
+		deadLetterPublisher.shutdownWithinMs(2000);
+
+		assertFalse(coraClientSpy.createWasCalled);
+		assertEquals(loggerFactory.getErrorLogMessageUsingClassNameAndNo(testedClassname, 0),
+				"Message could not be parsed");
+		assertEquals(
+				loggerFactory.getErrorLogErrorUsingClassNameAndNo(testedClassname, 0).getMessage(),
+				"Error from MessageParserSpy on parse");
+		MessageSenderSpy sender = messagingFactorySpy.messageSenderSpies.get(0);
+		assertEquals(sender.sentMessages.get(0), message);
+		assertEquals(sender.sentHeaders.get(0).get("deadLetterReason"), DeadLetter.PARSE_FAILED);
+		IndexMetrics receiverMetrics = ((IndexMessageReceiver) receiver).getIndexMetrics();
+		assertEquals(receiverMetrics.getWorkOrderMetrics().getMessagesFailedToParse(), 1);
+		assertEquals(indexMetrics.getDeadLetterMetrics().getDeadLettersPublished(), 1);
+	}
+
+	private DeadLetterPublisher createDeadLetterPublisher(
+			MessagingFactorySpy messagingFactorySpy, IndexMetrics indexMetrics) {
+		MessagingProvider.setMessagingFactory(messagingFactorySpy);
+		return DeadLetterPublisher.usingRoutingInfoAndSettings(createRoutingInfo(), 10, 4,
+				indexMetrics);
+	}
+
+	private IndexMessageReceiver createReceiverUsingSettings(IndexMessengerSettings settings) {
+		return new IndexMessageReceiver(coraClientSpy, messageParserFactorySpy, settings);
+	}
+
+	@Test
+	public void testWorkOrderNotCreatedIsDeadLetteredWithOriginalMessage() throws Exception {
+		MessagingFactorySpy messagingFactorySpy = new MessagingFactorySpy();
+		DeadLetterPublisher deadLetterPublisher = createDeadLetterPublisher(messagingFactorySpy,
+				new IndexMetrics());
+		receiver = createReceiverUsingSettings(IndexMessengerSettings.usingDefaults()
+				.withDeadLetterPublisher(deadLetterPublisher));
+		coraClientSpy.throwErrorOnCreate = true;
+
+		receiver.receiveMessage(headers, message);
+		deadLetterPublisher.shutdownWithinMs(2000);
+
+		MessageSenderSpy sender = messagingFactorySpy.messageSenderSpies.get(0);
+		assertEquals(sender.sentMessages.get(0), message);
+		Map<String, Object> sentHeaders = sender.sentHeaders.get(0);
+		assertEquals(sentHeaders.get("PID"), "alvin-place:1");
+		assertEquals(sentHeaders.get("deadLetterReason"), DeadLetter.WORK_ORDER_NOT_CREATED);
+		assertEquals(sentHeaders.get("deadLetterRecordType"),
+				"someParsedTypeFromMessageParserSpy");
+		assertEquals(sentHeaders.get("deadLetterRecordId"), "someParsedIdFromMessageParserSpy");
+	}
+
+	@Test
+	public void testFailedAttemptIsNotDeadLetteredWhenChainRetries() throws Exception {
+		IndexMetrics indexMetrics = new IndexMetrics();
+		RetryingWorkOrderHandlerFactory retryingFactory = new RetryingWorkOrderHandlerFactory(
+				RetryPolicy.usingMaxAttemptsAndDelays(2, 5, 5), CircuitBreaker
+						.usingFailureThresholdOpenMsAndMetrics(10, 10000, indexMetrics),
+				OpenCircuitPolicy.FAIL_FAST);
+		MessagingFactorySpy messagingFactorySpy = new MessagingFactorySpy();
+		DeadLetterPublisher deadLetterPublisher = createDeadLetterPublisher(messagingFactorySpy,
+				indexMetrics);
+		receiver = createReceiverUsingSettings(IndexMessengerSettings.usingDefaults()
+				.withWorkOrderHandlerFactory(retryingFactory)
+				.withDeadLetterPublisher(deadLetterPublisher));
+		coraClientSpy.throwErrorOnCreate = true;
+
+		receiver.receiveMessage(headers, message);
+		waitUntilDeadLetterPublished(indexMetrics);
+		deadLetterPublisher.shutdownWithinMs(2000);
+
+		assertEquals(indexMetrics.getRetryMetrics().getRetriesExhausted(), 1);
+		assertEquals(indexMetrics.getDeadLetterMetrics().getDeadLettersPublished(), 1);
+		MessageSenderSpy sender = messagingFactorySpy.messageSenderSpies.get(0);
+		assertEquals(sender.sentMessages, List.of(message));
+		((IndexMessageReceiver) receiver).stop();
+		((IndexMessageReceiver) receiver).awaitTermination(1000);
+	}
+
+	@Test
+	public void testWorkOrderNotCreatedInJsonTemplateModeIsDeadLettered() throws Exception {
+		MessagingFactorySpy messagingFactorySpy = new MessagingFactorySpy();
+		DeadLetterPublisher deadLetterPublisher = createDeadLetterPublisher(messagingFactorySpy,
+				new IndexMetrics());
+		receiver = createReceiverUsingSettings(IndexMessengerSettings.usingDefaults()
+				.withIndexModeFactory(new JsonTemplateIndexModeFactory(
+						SuccessLogSampling.loggingAll(), new IndexMetrics()))
+				.withDeadLetterPublisher(deadLetterPublisher));
+		coraClientSpy.throwErrorOnCreate = true;
+
+		receiver.receiveMessage(headers, message);
+		deadLetterPublisher.shutdownWithinMs(2000);
+
+		MessageSenderSpy sender = messagingFactorySpy.messageSenderSpies.get(0);
+		assertEquals(sender.sentMessages, List.of(message));
+		assertEquals(sender.sentHeaders.get(0).get("deadLetterReason"),
+				DeadLetter.WORK_ORDER_NOT_CREATED);
+	}
+
+	@Test
+	public void testRecordNotIndexedInDirectIndexModeIsDeadLettered() throws Exception {
+		MessagingFactorySpy messagingFactorySpy = new MessagingFactorySpy();
+		DeadLetterPublisher deadLetterPublisher = createDeadLetterPublisher(messagingFactorySpy,
+				new IndexMetrics());
+		IndexMessageReceiver directReceiver = createReceiverUsingSettings(
+				IndexMessengerSettings.usingDefaults()
+						.withIndexModeFactory(new DirectIndexModeFactory(100, 10000,
+								SuccessLogSampling.loggingAll(), new IndexMetrics()))
+						.withDeadLetterPublisher(deadLetterPublisher));
+		coraClientSpy.throwErrorOnIndex = true;
+
+		directReceiver.receiveMessage(headers, message);
+		deadLetterPublisher.shutdownWithinMs(2000);
+		((DirectIndexWorkOrderHandler) directReceiver.getIndexHandler()).shutdown();
+
+		MessageSenderSpy sender = messagingFactorySpy.messageSenderSpies.get(0);
+		assertEquals(sender.sentMessages, List.of(message));
+		assertEquals(sender.sentHeaders.get(0).get("deadLetterRecordId"),
+				"someParsedIdFromMessageParserSpy");
+	}
+
+	@Test
+	public void testFailedAttemptInJsonTemplateModeIsNotDeadLetteredWhenChainRetries()
+			throws Exception {
+		IndexMetrics indexMetrics = new IndexMetrics();
+		RetryingWorkOrderHandlerFactory retryingFactory = new RetryingWorkOrderHandlerFactory(
+				RetryPolicy.usingMaxAttemptsAndDelays(2, 5, 5), CircuitBreaker
+						.usingFailureThresholdOpenMsAndMetrics(10, 10000, indexMetrics),
+				OpenCircuitPolicy.FAIL_FAST);
+		MessagingFactorySpy messagingFactorySpy = new MessagingFactorySpy();
+		DeadLetterPublisher deadLetterPublisher = createDeadLetterPublisher(messagingFactorySpy,
+				indexMetrics);
+		receiver = createReceiverUsingSettings(IndexMessengerSettings.usingDefaults()
+				.withWorkOrderHandlerFactory(retryingFactory)
+				.withIndexModeFactory(new JsonTemplateIndexModeFactory(
+						SuccessLogSampling.loggingAll(), indexMetrics))
+				.withDeadLetterPublisher(deadLetterPublisher));
+		coraClientSpy.throwErrorOnCreate = true;
+
+		receiver.receiveMessage(headers, message);
+		waitUntilDeadLetterPublished(indexMetrics);
+		deadLetterPublisher.shutdownWithinMs(2000);
+
+		assertEquals(indexMetrics.getRetryMetrics().getRetriesExhausted(), 1);
+		assertEquals(indexMetrics.getDeadLetterMetrics().getDeadLettersPublished(), 1);
+		((IndexMessageReceiver) receiver).stop();
+		((IndexMessageReceiver) receiver).awaitTermination(1000);
+	}
+
+	private void waitUntilDeadLetterPublished(IndexMetrics indexMetrics)
+			throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 2000;
+		while (indexMetrics.getDeadLetterMetrics().getDeadLettersPublished() == 0
+				&& System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+	}
+
+	@Test
+	public void testSourceMessageIsOnlyKeptWhenDeadLettering() throws Exception {
+		WorkOrderHandlerFactorySpy handlerFactory = new WorkOrderHandlerFactorySpy();
+		WorkOrderHandlerFactorySpy deadLetteringHandlerFactory = new WorkOrderHandlerFactorySpy();
+		DeadLetterPublisher deadLetterPublisher = DeadLetterPublisher
+				.usingRoutingInfoAndSettings(createRoutingInfo(), 10, 4, new IndexMetrics());
+		IndexMessengerSettings settings = IndexMessengerSettings.usingDefaults();
+
+		createReceiverUsingSettings(settings.withWorkOrderHandlerFactory(handlerFactory))
+				.receiveMessage(headers, message);
+		createReceiverUsingSettings(
+				settings.withWorkOrderHandlerFactory(deadLetteringHandlerFactory)
+						.withDeadLetterPublisher(deadLetterPublisher))
+				.receiveMessage(headers, message);
+		deadLetterPublisher.shutdownNow();
+
+		WorkOrder notKept = handlerFactory.factoredHandler.handledWorkOrders.get(0);
+		assertNull(notKept.getSourceMessage());
+		WorkOrder kept = deadLetteringHandlerFactory.factoredHandler.handledWorkOrders.get(0);
+		assertEquals(kept.getSourceMessage(), message);
+		assertSame(kept.getSourceHeaders(), headers);
+	}
+
+	@Test
+	public void testTopicClosedWhenStoppedDoesNotReconnect() throws Exception {
+		MessagingFactorySpy messagingFactorySpy = new MessagingFactorySpy();
+		MessagingProvider.setMessagingFactory(messagingFactorySpy);
+		IndexMetrics indexMetrics = new IndexMetrics();
+		TopicReconnector reconnector = TopicReconnector.usingRoutingInfoPolicyAndMetrics(
+				createRoutingInfo(), RetryPolicy.noRetries(), indexMetrics);
+		IndexMessageReceiver indexReceiver = new IndexMessageReceiver(coraClientSpy,
+				messageParserFactorySpy, IndexMessengerSettings.usingDefaults(), reconnector);
+		receiver = indexReceiver;
+		indexReceiver.stop();
+
+		receiver.topicClosed();
+
+		assertFalse(reconnector.isReconnecting());
+		assertEquals(indexMetrics.getTopicMetrics().getTopicCloses(), 0);
+		assertFalse(messagingFactorySpy.factorTopicMessageListenerCalled);
+		assertEquals(loggerFactory.getFatalLogMessageUsingClassNameAndNo(testedClassname, 0),
+				"Topic closed!");
+	}
+
+	@Test
+	public void testDefaultWorkOrderHandlerCreatesWorkOrderDirectly() throws Exception {
+		IndexMessageReceiver indexReceiver = (IndexMessageReceiver) receiver;
+		WorkOrder workOrder = WorkOrder.usingRecordTypeRecordIdAndModificationType("someType",
+				"someId", "delete");
+
+		indexReceiver.getWorkOrderHandler().handle(workOrder);
+
+		assertTrue(coraClientSpy.createWasCalled);
+		ClientDataGroup createdDataGroup = coraClientSpy.createdDataGroup;
+		assertEquals(createdDataGroup.getFirstAtomicValueWithNameInData("recordId"), "someId");
+		assertEquals(createdDataGroup.getFirstAtomicValueWithNameInData("type"),
+				"removeFromIndex");
+	}
+
+	@Test
+	public void testJsonTemplateIsEqualToCreatedDataGroupConvertedToJson() throws Exception {
+		assertJsonTemplateIsEqualToDataGroupJson("place", "alvin-place:1", "update");
+		assertJsonTemplateIsEqualToDataGroupJson("place", "alvin-place:1", "delete");
+		assertJsonTemplateIsEqualToDataGroupJson("pla\"ce", "id\\1", "update");
+		assertJsonTemplateIsEqualToDataGroupJson("a/b", "</script>", "update");
+		assertJsonTemplateIsEqualToDataGroupJson("\b\t\n\f\r", "\u0001\u001f", "update");
+		assertJsonTemplateIsEqualToDataGroupJson("\u0085\u00a0",
+				"\u2028\u20ac\u2100\u00e5\u00e4\u00f6", "update");
+	}
+
+	private void assertJsonTemplateIsEqualToDataGroupJson(String recordType, String recordId,
+			String modificationType) {
+		WorkOrder workOrder = WorkOrder.usingRecordTypeRecordIdAndModificationType(recordType,
+				recordId, modificationType);
+		((IndexMessageReceiver) receiver).getWorkOrderHandler().handle(workOrder);
+
+		DataToJsonConverter converter = new DataToJsonConverterFactoryImp()
+				.createForClientDataElement(new OrgJsonBuilderFactoryAdapter(),
+						coraClientSpy.createdDataGroup);
+
+		assertEquals(WorkOrderJsonTemplate.toJson(workOrder), converter.toJson());
+	}
+
+	@Test
+	public void testWorkOrderHandlerFactoryIsUsedForParsedWorkOrders() throws Exception {
+		WorkOrderHandlerFactorySpy handlerFactory = new WorkOrderHandlerFactorySpy();
+		receiver = createReceiverUsingSettings(
+				IndexMessengerSettings.usingDefaults().withWorkOrderHandlerFactory(handlerFactory));
+
+		receiver.receiveMessage(headers, message);
+
+		assertFalse(coraClientSpy.createWasCalled);
+		WorkOrder workOrder = handlerFactory.factoredHandler.handledWorkOrders.get(0);
+		assertEquals(workOrder.getRecordType(), "someParsedTypeFromMessageParserSpy");
+		assertEquals(workOrder.getRecordId(), "someParsedIdFromMessageParserSpy");
+		assertEquals(workOrder.getModificationType(), "update");
+
+		handlerFactory.nextHandler.handle(workOrder);
+		assertTrue(coraClientSpy.createWasCalled);
+	}
+
+	@Test
+	public void testStartReplaysSpooledWorkOrdersThroughTheWholeChain() throws Exception {
+		Path directory = Files.createTempDirectory("indexMessageReceiverTest");
+		WorkOrderSpool spool = WorkOrderSpool.openUsingDirectoryAndSettings(directory, 4096, 4,
+				10000);
+		spool.append(WorkOrder.usingRecordTypeRecordIdAndModificationType("someType", "someId",
+				"update"));
+		spool.close();
+		spool = WorkOrderSpool.openUsingDirectoryAndSettings(directory, 4096, 4, 10000);
+		IndexMessageReceiver spoolingReceiver = createReceiverUsingSettings(
+				IndexMessengerSettings.usingDefaults().withWorkOrderHandlerFactory(
+						ChainedWorkOrderHandlerFactory.usingFactories(
+								new SpoolingWorkOrderHandlerFactory(spool),
+								new SpoolAcknowledgingWorkOrderHandlerFactory(spool))));
+		assertFalse(coraClientSpy.createWasCalled);
+
+		spoolingReceiver.start();
+
+		assertTrue(coraClientSpy.createWasCalled);
+		assertEquals(spool.getNoOfPending(), 0);
+		assertEquals(loggerFactory.getInfoLogMessageUsingClassNameAndNo(testedClassname, 0),
+				"Replaying 1 work orders kept from an earlier run");
+		spoolingReceiver.start();
+		assertEquals(loggerFactory.getNoOfInfoLogMessagesUsingClassname(testedClassname), 2);
+		spool.close();
+		try (Stream<Path> paths = Files.walk(directory)) {
+			for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(path);
+			}
+		}
+	}
+
+	@Test
+	public void testNoWorkOrderHandledWhenParserReturnsFalse() throws Exception {
+		WorkOrderHandlerFactorySpy handlerFactory = new WorkOrderHandlerFactorySpy();
+		receiver = createReceiverUsingSettings(
+				IndexMessengerSettings.usingDefaults().withWorkOrderHandlerFactory(handlerFactory));
+		messageParserFactorySpy.createWorkOrder = false;
+
+		receiver.receiveMessage(headers, message);
+
+		assertTrue(handlerFactory.factoredHandler.handledWorkOrders.isEmpty());
+	}
+
+	@Test
+	public void testSynchronousFactoryIsDefault() throws Exception {
+		IndexMessageReceiver synchronousReceiver = createReceiverUsingSettings(
+				IndexMessengerSettings.usingDefaults()
+						.withWorkOrderHandlerFactory(new SynchronousWorkOrderHandlerFactory()));
+		assertEquals(synchronousReceiver.getWorkOrderHandler().getClass(),
+				((IndexMessageReceiver) receiver).getWorkOrderHandler().getClass());
+	}
+
+	@Test
+	public void testPipelineModeCreatesWorkOrderOnWorkerThread() throws Exception {
+		IndexMessageReceiver pipelineReceiver = createReceiverUsingSettings(
+				IndexMessengerSettings.usingDefaults().withWorkOrderHandlerFactory(
+						new WorkOrderPipelineFactory(10, 2, FullQueuePolicy.BLOCK, null)));
+		WorkOrderPipeline pipeline = (WorkOrderPipeline) pipelineReceiver.getWorkOrderHandler();
+
+		pipelineReceiver.receiveMessage(headers, message);
+		pipeline.shutdown();
+		pipeline.awaitTermination(5000);
+
+		assertTrue(coraClientSpy.createWasCalled);
+		assertEquals(loggerFactory.getInfoLogMessageUsingClassNameAndNo(testedClassname, 0),
+				"Index workOrder created for type: someParsedTypeFromMessageParserSpy "
+						+ "and id: someParsedIdFromMessageParserSpy");
+	}
+
+	@Test
+	public void testBatchModeLogsErrorPerFailedWorkOrder() throws Exception {
+		coraClientSpy.throwErrorOnCreate = true;
+		IndexMessageReceiver batchingReceiver = createReceiverUsingSettings(
+				IndexMessengerSettings.usingDefaults().withWorkOrderHandlerFactory(
+						new BatchingWorkOrderHandlerFactory(2, 10000, 2)));
+		BatchingWorkOrderHandler batcher = (BatchingWorkOrderHandler) batchingReceiver
+				.getWorkOrderHandler();
+
+		batchingReceiver.receiveMessage(headers, message);
+		batchingReceiver.receiveMessage(headers, message);
+		batcher.shutdown();
+		batcher.awaitTermination(5000);
+
+		assertEquals(batcher.getNoOfBatches(), 1);
+		assertEquals(loggerFactory.getNoOfErrorLogMessagesUsingClassName(testedClassname), 2);
+		assertEquals(loggerFactory.getErrorLogMessageUsingClassNameAndNo(testedClassname, 1),
+				"Index workOrder NOT created for type: someParsedTypeFromMessageParserSpy "
+						+ "and id: someParsedIdFromMessageParserSpy");
+	}
+
+	@Test
+	public void testDirectIndexModeIndexesWithoutCreatingWorkOrder() throws Exception {
+		IndexMessageReceiver directReceiver = createReceiverUsingSettings(
+				IndexMessengerSettings.usingDefaults().withIndexModeFactory(
+						new DirectIndexModeFactory(100, 10000, SuccessLogSampling.loggingAll(),
+								new IndexMetrics())));
+		DirectIndexWorkOrderHandler indexHandler = (DirectIndexWorkOrderHandler) directReceiver
+				.getIndexHandler();
+
+		directReceiver.receiveMessage(headers, message);
+		indexHandler.shutdown();
+
+		assertSame(directReceiver.getWorkOrderHandler(), indexHandler);
+		assertFalse(coraClientSpy.createWasCalled);
+		assertEquals(coraClientSpy.indexedWithoutCommit.get(0),
+				"someParsedTypeFromMessageParserSpy/someParsedIdFromMessageParserSpy");
+	}
+
+	@Test
+	public void testReusedParserCreatesWorkOrdersForEachMessage() throws Exception {
+		MessageParserFactoryCountingSpy parserFactory = new MessageParserFactoryCountingSpy();
+		receiver = new IndexMessageReceiver(coraClientSpy,
+				new ThreadConfinedMessageParserFactory(parserFactory));
+		headers.remove("messageSentFrom");
+
+		receiver.receiveMessage(headers, message);
+		headers.put("PID", "alvin-person:2");
+		headers.put("ACTION", "DELETE");
+		receiver.receiveMessage(headers, message);
+
+		assertEquals(parserFactory.noOfFactored.get(), 1);
+		assertEquals(loggerFactory.getInfoLogMessageUsingClassNameAndNo(testedClassname, 0),
+				"Index workOrder created for type: place and id: alvin-place:1");
+		assertEquals(loggerFactory.getInfoLogMessageUsingClassNameAndNo(testedClassname, 1),
+				"Index workOrder created for type: person and id: alvin-person:2");
+		assertEquals(coraClientSpy.createdDataGroup.getFirstAtomicValueWithNameInData("type"),
+				"removeFromIndex");
+	}
+
+	@Test
+	public void testMessageRejectedUsingHeadersIsNotParsed() throws Exception {
+		messageParserFactorySpy.factorHeaderRejecting = true;
+		messageParserFactorySpy.rejectUsingHeaders = true;
+
+		receiver.receiveMessage(headers, message);
+
+		HeaderRejectingMessageParserSpy parser = (HeaderRejectingMessageParserSpy) messageParserFactorySpy.messageParserSpy;
+		assertSame(parser.headersUsedForRejection, headers);
+		assertFalse(parser.parseWasCalled);
+		assertFalse(coraClientSpy.createWasCalled);
+		IndexMessageReceiver indexReceiver = (IndexMessageReceiver) receiver;
+		assertEquals(indexReceiver.getNoOfRejectedUsingHeaders(), 1);
+		assertEquals(indexReceiver.getNoOfRejectedAfterParsing(), 0);
+	}
+
+	@Test
+	public void testMessageNotRejectedUsingHeadersIsParsed() throws Exception {
+		messageParserFactorySpy.factorHeaderRejecting = true;
+
+		receiver.receiveMessage(headers, message);
+
+		HeaderRejectingMessageParserSpy parser = (HeaderRejectingMessageParserSpy) messageParserFactorySpy.messageParserSpy;
+		assertTrue(parser.parseWasCalled);
+		assertTrue(coraClientSpy.createWasCalled);
+		assertEquals(((IndexMessageReceiver) receiver).getNoOfRejectedUsingHeaders(), 0);
+	}
+
+	@Test
+	public void testRejectionsAfterParsingAreCountedSeparately() throws Exception {
+		messageParserFactorySpy.factorHeaderRejecting = true;
+		messageParserFactorySpy.createWorkOrder = false;
+		receiver.receiveMessage(headers, message);
+		messageParserFactorySpy.rejectUsingHeaders = true;
+		receiver.receiveMessage(headers, message);
+		receiver.receiveMessage(headers, message);
+
+		IndexMessageReceiver indexReceiver = (IndexMessageReceiver) receiver;
+		assertEquals(indexReceiver.getNoOfRejectedUsingHeaders(), 2);
+		assertEquals(indexReceiver.getNoOfRejectedAfterParsing(), 1);
+	}
+
+	@Test
+	public void testFilteredRecordTypeNeverReachesCoraClient() throws Exception {
+		RecordTypeFilter filter = RecordTypeFilter.usingAllowAndDenyRules(List.of(),
+				List.of("someParsed*"));
+		IndexMessageReceiver filteringReceiver = createReceiverUsingSettings(
+				IndexMessengerSettings.usingDefaults().withWorkOrderHandlerFactory(
+						ChainedWorkOrderHandlerFactory.usingFactories(
+								new RecordTypeFilterWorkOrderHandlerFactory(filter,
+										new IndexMetrics()))));
+
+		filteringReceiver.receiveMessage(headers, message);
+
+		assertFalse(coraClientSpy.createWasCalled);
+		RecordTypeFilterWorkOrderHandler filterHandler = (RecordTypeFilterWorkOrderHandler) filteringReceiver
+				.getWorkOrderHandler();
+		assertEquals(filterHandler.getNoOfFilteredForType("someParsedTypeFromMessageParserSpy"),
+				1);
+	}
+
+	@Test
+	public void testSampledSuccessLogging() throws Exception {
+		SuccessLogSampling sampling = SuccessLogSampling.loggingOneInEvery(2);
+		IndexMessageReceiver sampledReceiver = createReceiverUsingSettings(
+				IndexMessengerSettings.usingDefaults().withSuccessLogSampling(sampling));
+
+		for (int i = 0; i < 4; i++) {
+			sampledReceiver.receiveMessage(headers, message);
+		}
+
+		assertSame(sampledReceiver.getSettings().getSuccessLogSampling(), sampling);
+		assertEquals(sampling.getNoOfSuccesses(), 4);
+		assertEquals(loggerFactory.getNoOfInfoLogMessagesUsingClassname(testedClassname), 2);
+	}
+
+	@Test
+	public void testErrorsAreLoggedInFullWhenSuccessesAreNotLogged() throws Exception {
+		IndexMessageReceiver sampledReceiver = createReceiverUsingSettings(IndexMessengerSettings
+				.usingDefaults().withSuccessLogSampling(SuccessLogSampling.loggingNone()));
+		sampledReceiver.receiveMessage(headers, message);
+		coraClientSpy.throwErrorOnCreate = true;
+		sampledReceiver.receiveMessage(headers, message);
+		sampledReceiver.receiveMessage(headers, message);
+
+		assertEquals(loggerFactory.getNoOfInfoLogMessagesUsingClassname(testedClassname), 0);
+		assertEquals(loggerFactory.getNoOfErrorLogMessagesUsingClassName(testedClassname), 2);
+	}
+
+	private IndexMessageReceiver createReceiverUsingMetrics(IndexMetrics indexMetrics) {
+		return createReceiverUsingSettings(
+				IndexMessengerSettings.usingDefaults().withIndexMetrics(indexMetrics));
+	}
+
+	@Test
+	public void testDefaultIndexMetrics() throws Exception {
+		IndexMessageReceiver indexMessageReceiver = (IndexMessageReceiver) receiver;
+
+		receiver.receiveMessage(headers, message);
+
+		assertEquals(indexMessageReceiver.getIndexMetrics().getWorkOrderMetrics()
+				.getMessagesReceived(), 1);
+	}
+
+	@Test
+	public void testMetricsForCreatedWorkOrder() throws Exception {
+		IndexMetrics indexMetrics = new IndexMetrics();
+		IndexMessageReceiver metricsReceiver = createReceiverUsingMetrics(indexMetrics);
+
+		metricsReceiver.receiveMessage(headers, message);
+
+		assertSame(metricsReceiver.getIndexMetrics(), indexMetrics);
+		assertEquals(indexMetrics.getWorkOrderMetrics().getMessagesReceived(), 1);
+		assertEquals(indexMetrics.getWorkOrderMetrics().getMessagesFiltered(), 0);
+		assertEquals(indexMetrics.getWorkOrderMetrics().getMessagesParsed(), 1);
+		assertEquals(indexMetrics.getWorkOrderMetrics().getParseLatency().getCount(), 1);
+		assertEquals(indexMetrics.getWorkOrderMetrics().getWorkOrdersCreated(), 1);
+		assertEquals(indexMetrics.getWorkOrderMetrics().getWorkOrdersFailed(), 0);
+		assertEquals(indexMetrics.getWorkOrderMetrics().getCreateLatency().getCount(), 1);
+	}
+
+	@Test
+	public void testMetricsForFailedWorkOrder() throws Exception {
+		IndexMetrics indexMetrics = new IndexMetrics();
+		IndexMessageReceiver metricsReceiver = createReceiverUsingMetrics(indexMetrics);
+		coraClientSpy.throwErrorOnCreate = true;
+
+		metricsReceiver.receiveMessage(headers, message);
+
+		assertEquals(indexMetrics.getWorkOrderMetrics().getWorkOrdersCreated(), 0);
+		assertEquals(indexMetrics.getWorkOrderMetrics().getWorkOrdersFailed(), 1);
+		assertEquals(indexMetrics.getWorkOrderMetrics().getCreateLatency().getCount(), 1);
+	}
+
+	@Test
+	public void testMetricsForMessageFilteredAfterParsing() throws Exception {
+		IndexMetrics indexMetrics = new IndexMetrics();
+		messageParserFactorySpy.createWorkOrder = false;
+		IndexMessageReceiver metricsReceiver = createReceiverUsingMetrics(indexMetrics);
+
+		metricsReceiver.receiveMessage(headers, message);
+
+		assertEquals(indexMetrics.getWorkOrderMetrics().getMessagesReceived(), 1);
+		assertEquals(indexMetrics.getWorkOrderMetrics().getMessagesParsed(), 1);
+		assertEquals(indexMetrics.getWorkOrderMetrics().getMessagesFiltered(), 1);
+		assertEquals(indexMetrics.getWorkOrderMetrics().getCreateLatency().getCount(), 0);
+	}
+
+	@Test
+	public void testMetricsForMessageFilteredUsingHeaders() throws Exception {
+		IndexMetrics indexMetrics = new IndexMetrics();
+		messageParserFactorySpy.factorHeaderRejecting = true;
+		messageParserFactorySpy.rejectUsingHeaders = true;
+		IndexMessageReceiver metricsReceiver = createReceiverUsingMetrics(indexMetrics);
+
+		metricsReceiver.receiveMessage(headers, message);
+
+		assertEquals(indexMetrics.getWorkOrderMetrics().getMessagesReceived(), 1);
+		assertEquals(indexMetrics.getWorkOrderMetrics().getMessagesParsed(), 0);
+		assertEquals(indexMetrics.getWorkOrderMetrics().getMessagesFiltered(), 1);
+	}
+
+	@Test
+	public void testFailedCreateIsRecordedAsWorkOrderOutcome() throws Exception {
+		WorkOrderOutcome.takeFailure();
+		coraClientSpy.throwErrorOnCreate = true;
+
+		receiver.receiveMessage(headers, message);
+
+		assertEquals(WorkOrderOutcome.takeFailure().getMessage(),
+				"Error from CoraClientSpy on create");
+	}
+
+	@Test
+	public void testDefaultBackPressureIsNone() throws Exception {
+		IndexMessageReceiver indexMessageReceiver = (IndexMessageReceiver) receiver;
+		assertEquals(indexMessageReceiver.getSettings().getBackPressure().getHighWatermark(),
+				Long.MAX_VALUE);
+	}
+
+	@Test
+	public void testNoOfOutstandingIsSummedOverWorkOrderHandlerChain() throws Exception {
+		IndexMessageReceiver batchingReceiver = createReceiverUsingBatchingAndBackPressure(
+				BackPressure.none(), new IndexMetrics());
+
+		batchingReceiver.receiveMessage(headers, message);
+		batchingReceiver.receiveMessage(headers, message);
+
+		assertEquals(batchingReceiver.getNoOfOutstanding(), 2);
+		((BatchingWorkOrderHandler) batchingReceiver.getWorkOrderHandler()).shutdown();
+	}
+
+	private IndexMessageReceiver createReceiverUsingBatchingAndBackPressure(
+			BackPressure backPressure, IndexMetrics indexMetrics) {
+		return createReceiverUsingSettings(IndexMessengerSettings.usingDefaults()
+				.withWorkOrderHandlerFactory(new BatchingWorkOrderHandlerFactory(10, 100, 1))
+				.withIndexMetrics(indexMetrics).withBackPressure(backPressure));
+	}
+
+	@Test
+	public void testReceiveMessagePausesWhileOutstandingWorkIsAboveHighWatermark()
+			throws Exception {
+		IndexMetrics indexMetrics = new IndexMetrics();
+		BackPressure backPressure = BackPressure.usingWatermarksAndPollInterval(1, 0, 5);
+		IndexMessageReceiver batchingReceiver = createReceiverUsingBatchingAndBackPressure(
+				backPressure, indexMetrics);
+
+		batchingReceiver.receiveMessage(headers, message);
+		batchingReceiver.receiveMessage(headers, message);
+
+		assertSame(batchingReceiver.getSettings().getBackPressure(), backPressure);
+		assertEquals(backPressure.getNoOfPauses(), 1);
+		assertEquals(indexMetrics.getBackPressureMetrics().getConsumptionPauses(), 1);
+		assertEquals(indexMetrics.getBackPressureMetrics().getConsumptionResumes(), 1);
+		assertFalse(indexMetrics.getBackPressureMetrics().isConsumptionPaused());
+		assertEquals(indexMetrics.getWorkOrderMetrics().getMessagesReceived(), 2);
+		assertEquals(batchingReceiver.getNoOfOutstanding(), 1);
+		((BatchingWorkOrderHandler) batchingReceiver.getWorkOrderHandler()).shutdown();
+	}
+
+	@Test
+	public void testDefaultPriorityClassifierClassifiesAllAsNormal() throws Exception {
+		IndexMessageReceiver indexMessageReceiver = (IndexMessageReceiver) receiver;
+		assertEquals(
+				indexMessageReceiver.getSettings().getPriorityClassifier().getPriorityHeaderName(),
+				null);
+	}
+
+	@Test
+	public void testWorkOrderIsClassifiedUsingHeaders() throws Exception {
+		WorkOrderHandlerFactorySpy workOrderHandlerFactory = new WorkOrderHandlerFactorySpy();
+		PriorityClassifier priorityClassifier = PriorityClassifier
+				.usingHeaderDeleteAndRecordTypeRules("priority", WorkOrderPriority.HIGH, Map.of());
+		IndexMessageReceiver priorityReceiver = createReceiverUsingSettings(
+				IndexMessengerSettings.usingDefaults()
+						.withWorkOrderHandlerFactory(workOrderHandlerFactory)
+						.withPriorityClassifier(priorityClassifier));
+		headers.put("priority", "bulk");
+
+		priorityReceiver.receiveMessage(headers, message);
+
+		assertSame(priorityReceiver.getSettings().getPriorityClassifier(), priorityClassifier);
+		WorkOrder workOrder = workOrderHandlerFactory.factoredHandler.handledWorkOrders.get(0);
+		assertEquals(workOrder.getPriority(), WorkOrderPriority.BULK);
+	}
+
+	@Test(expectedExceptions = IndexMessageException.class, expectedExceptionsMessageRegExp = ""
+			+ "Receiver must be stopped before awaiting termination")
+	public void testAwaitTerminationBeforeStop() throws Exception {
+		((IndexMessageReceiver) receiver).awaitTermination(100);
+	}
+
+	@Test
+	public void testWorkOrdersReceivedAfterStopAreLogged() throws Exception {
+		IndexMetrics indexMetrics = new IndexMetrics();
+		IndexMessageReceiver stoppingReceiver = createReceiverUsingMetrics(indexMetrics);
+
+		stoppingReceiver.stop();
+		stoppingReceiver.receiveMessage(headers, message);
+
+		assertTrue(stoppingReceiver.isStopped());
+		assertFalse(coraClientSpy.createWasCalled);
+		assertEquals(indexMetrics.getWorkOrderMetrics().getWorkOrdersLeftAtShutdown(), 1);
+		assertEquals(loggerFactory.getInfoLogMessageUsingClassNameAndNo(testedClassname, 0),
+				"Receiver stopped, no more work orders are handled");
+		assertEquals(loggerFactory.getErrorLogMessageUsingClassNameAndNo(testedClassname, 0),
+				"Receiver stopped, workOrder NOT handled for type: "
+						+ "someParsedTypeFromMessageParserSpy and id: "
+						+ "someParsedIdFromMessageParserSpy");
+	}
+
+	@Test
+	public void testWorkOrdersReceivedAfterStopAreSpilled() throws Exception {
+		WorkOrderSpillSpy leftoverSpill = new WorkOrderSpillSpy();
+		IndexMessageReceiver stoppingReceiver = (IndexMessageReceiver) receiver;
+
+		stoppingReceiver.stopUsingLeftoverSpill(leftoverSpill);
+		stoppingReceiver.receiveMessage(headers, message);
+
+		assertFalse(coraClientSpy.createWasCalled);
+		assertEquals(leftoverSpill.spilledWorkOrders.get(0).getRecordId(),
+				"someParsedIdFromMessageParserSpy");
+	}
+
+	@Test
+	public void testAwaitTerminationHandlesQueuedWorkOrders() throws Exception {
+		CoraClientLatencySpy slowClient = new CoraClientLatencySpy(10);
+		IndexMessageReceiver pipelineReceiver = new IndexMessageReceiver(slowClient,
+				messageParserFactorySpy, createPipelineSettingsNotLoggingSuccesses());
+		receiveMessages(pipelineReceiver, 5);
+
+		pipelineReceiver.stop();
+		boolean allHandled = pipelineReceiver.awaitTermination(5000);
+
+		assertTrue(allHandled);
+		assertEquals(slowClient.noOfCreateCalls.get(), 5);
+		assertEquals(loggerFactory.getInfoLogMessageUsingClassNameAndNo(testedClassname, 1),
+				"Receiver terminated, all work orders handled");
+	}
+
+	private IndexMessengerSettings createPipelineSettingsNotLoggingSuccesses() {
+		return IndexMessengerSettings.usingDefaults()
+				.withWorkOrderHandlerFactory(
+						new WorkOrderPipelineFactory(10, 1, FullQueuePolicy.BLOCK, null))
+				.withSuccessLogSampling(SuccessLogSampling.loggingNone());
+	}
+
+	private void receiveMessages(IndexMessageReceiver messageReceiver, int noOfMessages) {
+		for (int i = 0; i < noOfMessages; i++) {
+			messageReceiver.receiveMessage(headers, message);
+		}
+	}
+
+	@Test
+	public void testWorkOrdersLeftAtDeadlineAreSpilled() throws Exception {
+		CoraClientLatencySpy slowClient = new CoraClientLatencySpy(500);
+		IndexMetrics indexMetrics = new IndexMetrics();
+		IndexMessageReceiver pipelineReceiver = new IndexMessageReceiver(slowClient,
+				messageParserFactorySpy,
+				createPipelineSettingsNotLoggingSuccesses().withIndexMetrics(indexMetrics));
+		receiveMessages(pipelineReceiver, 5);
+		WorkOrderSpillSpy leftoverSpill = new WorkOrderSpillSpy();
+
+		pipelineReceiver.stopUsingLeftoverSpill(leftoverSpill);
+		boolean allHandled = pipelineReceiver.awaitTermination(50);
+
+		assertFalse(allHandled);
+		assertEquals(leftoverSpill.spilledWorkOrders.size(), 4);
+		assertEquals(indexMetrics.getWorkOrderMetrics().getWorkOrdersLeftAtShutdown(), 4);
+		assertEquals(loggerFactory.getErrorLogMessageUsingClassNameAndNo(testedClassname, 0),
+				"Receiver terminated with 4 work orders NOT handled before the deadline");
+	}
+
+	@Test
+	public void testAwaitTerminationShutsDownDirectIndexHandler() throws Exception {
+		IndexMessageReceiver directReceiver = createReceiverUsingSettings(
+				IndexMessengerSettings.usingDefaults().withIndexModeFactory(
+						new DirectIndexModeFactory(100, 60000, SuccessLogSampling.loggingAll(),
+								new IndexMetrics())));
+		directReceiver.receiveMessage(headers, message);
+		DirectIndexWorkOrderHandler directHandler = (DirectIndexWorkOrderHandler) directReceiver
+				.getIndexHandler();
+		assertEquals(directHandler.getNoOfUncommitted(), 1);
+
+		directReceiver.stop();
+		directReceiver.awaitTermination(1000);
+
+		assertEquals(directHandler.getNoOfUncommitted(), 0);
+	}
 }
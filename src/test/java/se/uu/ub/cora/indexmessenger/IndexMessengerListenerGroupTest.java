@@ -0,0 +1,373 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.ObjectName;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.indexmessenger.log.LoggerFactorySpy;
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.indexmessenger.workorder.BatchingWorkOrderHandler;
+import se.uu.ub.cora.indexmessenger.workorder.BatchingWorkOrderHandlerFactory;
+import se.uu.ub.cora.indexmessenger.workorder.RetryPolicy;
+import se.uu.ub.cora.indexmessenger.workorder.SynchronousWorkOrderHandlerFactory;
+import se.uu.ub.cora.indexmessenger.workorder.WorkOrderHandlerFactory;
+import se.uu.ub.cora.indexmessenger.workorder.WorkOrderSpillSpy;
+import se.uu.ub.cora.logger.LoggerProvider;
+import se.uu.ub.cora.messaging.AmqpMessageRoutingInfo;
+import se.uu.ub.cora.messaging.MessageRoutingInfo;
+import se.uu.ub.cora.messaging.MessagingProvider;
+
+public class IndexMessengerListenerGroupTest {
+	private LoggerFactorySpy loggerFactorySpy;
+	private String testedClassName = "IndexMessengerListenerGroup";
+	private MessagingFactorySpy messagingFactorySpy;
+	private CoraClientFactorySpy coraClientFactory;
+	private CoraCredentials credentials;
+	private AmqpMessageRoutingInfo routingInfo;
+	private IndexMetrics indexMetrics;
+	private BackPressure backPressure;
+	private IndexMessengerSettings settings;
+	private IndexMessengerListenerGroup group;
+
+	@BeforeMethod
+	public void beforeMethod() {
+		loggerFactorySpy = new LoggerFactorySpy();
+		LoggerProvider.setLoggerFactory(loggerFactorySpy);
+		messagingFactorySpy = new MessagingFactorySpy();
+		MessagingProvider.setMessagingFactory(messagingFactorySpy);
+		coraClientFactory = new CoraClientFactorySpy();
+		credentials = new CoraCredentials("userIdForCora", "appTokenForCora");
+		routingInfo = new AmqpMessageRoutingInfo("messaging.alvin-portal.org", "5672", "alvin",
+				"index", "#");
+		indexMetrics = new IndexMetrics();
+		backPressure = BackPressure.usingWatermarks(100, 10);
+		settings = IndexMessengerSettings.usingDefaults().withIndexMetrics(indexMetrics)
+				.withBackPressure(backPressure);
+		group = createGroup(
+				IndexMessengerListenerGroup.routingInfosForNoOfConsumers(routingInfo, 3),
+				new SynchronousWorkOrderHandlerFactory());
+	}
+
+	private IndexMessengerListenerGroup createGroup(List<MessageRoutingInfo> routingInfos,
+			WorkOrderHandlerFactory workOrderHandlerFactory) {
+		return createGroupUsingSettings(routingInfos,
+				settings.withWorkOrderHandlerFactory(workOrderHandlerFactory));
+	}
+
+	private IndexMessengerListenerGroup createGroupUsingSettings(
+			List<MessageRoutingInfo> routingInfos, IndexMessengerSettings settings) {
+		return new IndexMessengerListenerGroup(coraClientFactory, new MessageParserFactorySpy(),
+				routingInfos, credentials, settings);
+	}
+
+	@AfterMethod
+	public void afterMethod() {
+		indexMetrics.unregisterAsMBean();
+	}
+
+	@Test
+	public void testRoutingInfosForNoOfConsumers() throws Exception {
+		List<MessageRoutingInfo> routingInfos = IndexMessengerListenerGroup
+				.routingInfosForNoOfConsumers(routingInfo, 3);
+
+		assertEquals(routingInfos.size(), 3);
+		assertSame(routingInfos.get(2), routingInfo);
+	}
+
+	@Test(expectedExceptions = IndexMessageException.class, expectedExceptionsMessageRegExp = ""
+			+ "Number of consumers must be at least 1")
+	public void testRoutingInfosForZeroConsumers() throws Exception {
+		IndexMessengerListenerGroup.routingInfosForNoOfConsumers(routingInfo, 0);
+	}
+
+	@Test(expectedExceptions = IndexMessageException.class, expectedExceptionsMessageRegExp = ""
+			+ "A listener group needs at least one consumer")
+	public void testGroupWithoutRoutingInfos() throws Exception {
+		createGroup(List.of(), new SynchronousWorkOrderHandlerFactory());
+	}
+
+	@Test
+	public void testNothingIsStartedBeforeStart() throws Exception {
+		assertFalse(group.isStarted());
+		assertEquals(group.getNoOfConsumers(), 3);
+		assertTrue(group.getReceivers().isEmpty());
+		assertFalse(messagingFactorySpy.factorTopicMessageListenerCalled);
+		assertFalse(coraClientFactory.factoredHasBeenCalled);
+	}
+
+	@Test
+	public void testStartStartsOneConsumerPerRoutingInfo() throws Exception {
+		group.start();
+
+		assertTrue(group.isStarted());
+		assertEquals(messagingFactorySpy.messageListenerSpies.size(), 3);
+		assertEquals(coraClientFactory.factoredClients.size(), 3);
+		List<IndexMessageReceiver> receivers = group.getReceivers();
+		assertEquals(receivers.size(), 3);
+		for (int i = 0; i < 3; i++) {
+			IndexMessageReceiver receiver = receivers.get(i);
+			assertSame(messagingFactorySpy.messageListenerSpies.get(i).messageReceiver, receiver);
+			assertSame(receiver.getCoraClient(), coraClientFactory.factoredClients.get(i));
+			assertSame(receiver.getIndexMetrics(), indexMetrics);
+			assertSame(receiver.getSettings(), group.getSettings());
+		}
+		assertNotSame(receivers.get(0).getWorkOrderHandler(),
+				receivers.get(1).getWorkOrderHandler());
+		assertEquals(coraClientFactory.userId, "userIdForCora");
+		assertEquals(coraClientFactory.appToken, "appTokenForCora");
+	}
+
+	@Test
+	public void testStartUsesEachRoutingInfo() throws Exception {
+		AmqpMessageRoutingInfo otherRoutingInfo = new AmqpMessageRoutingInfo(
+				"other.alvin-portal.org", "5673", "alvin", "index", "#");
+		IndexMessengerListenerGroup twoHostGroup = createGroup(
+				List.of(routingInfo, otherRoutingInfo), new SynchronousWorkOrderHandlerFactory());
+
+		twoHostGroup.start();
+
+		assertSame(messagingFactorySpy.messagingRoutingInfo, otherRoutingInfo);
+		assertEquals(indexMetrics.getObjectNames().get(0).getKeyProperty("name"),
+				"\"messaging.alvin-portal.org:5672/index/#,other.alvin-portal.org:5673/index/#\"");
+	}
+
+	@Test
+	public void testStartRegistersSharedMetricsOnce() throws Exception {
+		group.start();
+
+		ObjectName objectName = indexMetrics.getObjectNames().get(0);
+		assertEquals(objectName.getKeyProperty("name"),
+				"\"messaging.alvin-portal.org:5672/index/#\"");
+		assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(objectName));
+		assertEquals(loggerFactorySpy.getInfoLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"Started listener group with 3 consumers for: "
+						+ "messaging.alvin-portal.org:5672/index/#");
+	}
+
+	@Test
+	public void testMetricsAreCombinedForAllConsumers() throws Exception {
+		group.start();
+
+		for (IndexMessageReceiver receiver : group.getReceivers()) {
+			receiver.receiveMessage(createHeaders(), "some message");
+		}
+
+		assertEquals(indexMetrics.getWorkOrderMetrics().getMessagesReceived(), 3);
+		assertEquals(indexMetrics.getWorkOrderMetrics().getWorkOrdersCreated(), 3);
+		assertEquals(coraClientFactory.factoredClients.get(1).createdRecordType, "workOrder");
+	}
+
+	private Map<String, String> createHeaders() {
+		Map<String, String> headers = new HashMap<>();
+		headers.put("ACTION", "UPDATE");
+		headers.put("PID", "alvin-place:1");
+		return headers;
+	}
+
+	@Test
+	public void testNoOfOutstandingIsSummedOverConsumers() throws Exception {
+		IndexMessengerListenerGroup batchingGroup = createGroup(
+				IndexMessengerListenerGroup.routingInfosForNoOfConsumers(routingInfo, 2),
+				new BatchingWorkOrderHandlerFactory(10, 10000, 1));
+		batchingGroup.start();
+
+		for (IndexMessageReceiver receiver : batchingGroup.getReceivers()) {
+			receiver.receiveMessage(createHeaders(), "some message");
+		}
+
+		assertEquals(batchingGroup.getNoOfOutstanding(), 2);
+		for (IndexMessageReceiver receiver : batchingGroup.getReceivers()) {
+			((BatchingWorkOrderHandler) receiver.getWorkOrderHandler()).shutdown();
+		}
+	}
+
+	@Test(expectedExceptions = IndexMessageException.class, expectedExceptionsMessageRegExp = ""
+			+ "Listener group already started")
+	public void testStartTwice() throws Exception {
+		group.start();
+		group.start();
+	}
+
+	@Test
+	public void testFailingConsumerIsLoggedAndThrown() throws Exception {
+		MessagingProvider.setMessagingFactory(new MessagingFactoryErrorThrowingSpy());
+		Exception thrown = null;
+		try {
+			group.start();
+		} catch (IndexMessageException e) {
+			thrown = e;
+		}
+		assertEquals(thrown.getMessage(), "Failed to start consumer 1 of 3");
+		assertEquals(thrown.getCause().getMessage(), "Error from MessagingFactoryErrorThrowingSpy");
+		assertEquals(loggerFactorySpy.getErrorLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"Failed to start consumer 1 of 3");
+		assertTrue(group.getReceivers().isEmpty());
+		assertFalse(group.isStarted());
+	}
+
+	@Test
+	public void testConsumersStartedBeforeFailingConsumerAreStopped() throws Exception {
+		coraClientFactory.throwErrorOnFactorNo = 3;
+		Exception thrown = null;
+		try {
+			group.start();
+		} catch (IndexMessageException e) {
+			thrown = e;
+		}
+
+		assertEquals(thrown.getMessage(), "Failed to start consumer 3 of 3");
+		assertFalse(group.isStarted());
+		assertTrue(group.getReceivers().isEmpty());
+		assertEquals(coraClientFactory.factoredClients.size(), 2);
+		for (int i = 0; i < 2; i++) {
+			MessageListenerSpy listener = messagingFactorySpy.messageListenerSpies.get(i);
+			assertTrue(((IndexMessageReceiver) listener.messageReceiver).isStopped());
+		}
+		assertNull(messagingFactorySpy.messageListenerSpies.get(2).messageReceiver);
+		assertEquals(loggerFactorySpy.getInfoLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"Stopped 2 consumers started before the failure");
+		assertTrue(indexMetrics.getObjectNames().isEmpty());
+	}
+
+	@Test(expectedExceptions = IndexMessageException.class, expectedExceptionsMessageRegExp = ""
+			+ "Listener group failed to start and can not be started again")
+	public void testStartCanNotBeCalledAgainAfterFailedStart() throws Exception {
+		coraClientFactory.throwErrorOnFactorNo = 2;
+		try {
+			group.start();
+		} catch (IndexMessageException e) {
+			// expected
+		}
+		coraClientFactory.throwErrorOnFactorNo = 0;
+
+		group.start();
+	}
+
+	@Test(expectedExceptions = IndexMessageException.class, expectedExceptionsMessageRegExp = ""
+			+ "Receiver stopped, message rejected to be redelivered")
+	public void testConsumersStoppedAfterFailedStartRejectMessages() throws Exception {
+		coraClientFactory.throwErrorOnFactorNo = 2;
+		try {
+			group.start();
+		} catch (IndexMessageException e) {
+			// expected
+		}
+		MessageListenerSpy listener = messagingFactorySpy.messageListenerSpies.get(0);
+
+		listener.messageReceiver.receiveMessage(new HashMap<>(), "someMessage");
+	}
+
+	@Test
+	public void testGetters() throws Exception {
+		assertSame(group.getCoraClientFactory(), coraClientFactory);
+		assertSame(group.getCredentials(), credentials);
+		assertSame(group.getIndexMetrics(), indexMetrics);
+		assertSame(group.getSettings().getBackPressure(), backPressure);
+		assertEquals(group.getMessageRoutingInfos().size(), 3);
+	}
+
+	@Test
+	public void testDefaultReconnectPolicy() throws Exception {
+		assertSame(group.getSettings().getReconnectPolicy(),
+				TopicReconnector.DEFAULT_RECONNECT_POLICY);
+	}
+
+	@Test
+	public void testDeadLetterPublisherIsSharedAndShutDownOnTermination() throws Exception {
+		DeadLetterPublisher deadLetterPublisher = DeadLetterPublisher
+				.usingRoutingInfoAndSettings(routingInfo, 10, 4, indexMetrics);
+		IndexMessengerListenerGroup deadLetterGroup = createGroupUsingSettings(
+				List.of(routingInfo, routingInfo),
+				settings.withDeadLetterPublisher(deadLetterPublisher));
+
+		deadLetterGroup.start();
+		deadLetterGroup.stop();
+		assertTrue(deadLetterGroup.awaitTermination(1000));
+
+		for (IndexMessageReceiver receiver : deadLetterGroup.getReceivers()) {
+			assertSame(receiver.getSettings().getDeadLetterPublisher(), deadLetterPublisher);
+		}
+		assertTrue(deadLetterPublisher.awaitTermination(0));
+	}
+
+	@Test
+	public void testEachReceiverGetsTopicReconnectorForItsRoutingInfo() throws Exception {
+		RetryPolicy reconnectPolicy = RetryPolicy.noRetries();
+		IndexMessengerListenerGroup reconnectGroup = createGroupUsingSettings(
+				List.of(routingInfo), settings.withReconnectPolicy(reconnectPolicy));
+
+		reconnectGroup.start();
+
+		TopicReconnector topicReconnector = reconnectGroup.getReceivers().get(0)
+				.getTopicReconnector();
+		assertSame(topicReconnector.getReconnectPolicy(), reconnectPolicy);
+		assertSame(topicReconnector.getRoutingInfo(), routingInfo);
+	}
+
+	@Test(expectedExceptions = IndexMessageException.class, expectedExceptionsMessageRegExp = ""
+			+ "Listener group not started")
+	public void testStopBeforeStart() throws Exception {
+		group.stop();
+	}
+
+	@Test
+	public void testStopAndAwaitTerminationStopsAllConsumers() throws Exception {
+		group.start();
+
+		group.stop();
+		boolean allHandled = group.awaitTermination(1000);
+
+		assertTrue(allHandled);
+		for (IndexMessageReceiver receiver : group.getReceivers()) {
+			assertTrue(receiver.isStopped());
+		}
+		assertEquals(loggerFactorySpy.getInfoLogMessageUsingClassNameAndNo(testedClassName, 1),
+				"Listener group terminated for: messaging.alvin-portal.org:5672/index/#");
+	}
+
+	@Test
+	public void testStopUsingLeftoverSpillIsUsedByAllConsumers() throws Exception {
+		WorkOrderSpillSpy leftoverSpill = new WorkOrderSpillSpy();
+		group.start();
+
+		group.stopUsingLeftoverSpill(leftoverSpill);
+		for (IndexMessageReceiver receiver : group.getReceivers()) {
+			receiver.receiveMessage(createHeaders(), "some message");
+		}
+
+		assertEquals(leftoverSpill.spilledWorkOrders.size(), 3);
+		assertEquals(indexMetrics.getWorkOrderMetrics().getWorkOrdersCreated(), 0);
+	}
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2019 Uppsala University Library
+ * Copyright 2019, 2026 Uppsala University Library
  *
  * This file is part of Cora.
  *
@@ -20,14 +20,35 @@
 package se.uu.ub.cora.indexmessenger;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import se.uu.ub.cora.indexmessenger.log.LoggerFactorySpy;
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
 import se.uu.ub.cora.indexmessenger.parser.MessageParserFactory;
+import se.uu.ub.cora.indexmessenger.workorder.DirectIndexModeFactory;
+import se.uu.ub.cora.indexmessenger.workorder.DirectIndexWorkOrderHandler;
+import se.uu.ub.cora.indexmessenger.workorder.RetryPolicy;
+import se.uu.ub.cora.indexmessenger.workorder.SuccessLogSampling;
+import se.uu.ub.cora.indexmessenger.workorder.SynchronousWorkOrderHandlerFactory;
+import se.uu.ub.cora.indexmessenger.workorder.VirtualThreadWorkOrderHandler;
+import se.uu.ub.cora.indexmessenger.workorder.VirtualThreadWorkOrderHandlerFactory;
+import se.uu.ub.cora.indexmessenger.workorder.WorkOrderHandlerFactorySpy;
+import se.uu.ub.cora.indexmessenger.workorder.WorkOrderIndexModeFactory;
+import se.uu.ub.cora.indexmessenger.workorder.WorkOrderSpillSpy;
 import se.uu.ub.cora.logger.LoggerProvider;
 import se.uu.ub.cora.messaging.AmqpMessageRoutingInfo;
 import se.uu.ub.cora.messaging.MessageReceiver;
@@ -40,6 +61,7 @@ public class IndexMessengerListenerTest {
 	private IndexMessengerListener messageListener;
 	private AmqpMessageRoutingInfo routingInfo;
 	private CoraCredentials credentials;
+	private CoraClientFactorySpy coraClientFactory;
 
 	@BeforeMethod
 	public void beforeMethod() {
@@ -48,7 +70,7 @@ public class IndexMessengerListenerTest {
 		messagingFactorySpy = new MessagingFactorySpy();
 		MessagingProvider.setMessagingFactory(messagingFactorySpy);
 
-		CoraClientFactorySpy coraClientFactory = new CoraClientFactorySpy();
+		coraClientFactory = new CoraClientFactorySpy();
 		messageParserFactory = new MessageParserFactorySpy();
 
 		credentials = new CoraCredentials("userIdForCora", "appTokenForCora");
@@ -58,6 +80,15 @@ public class IndexMessengerListenerTest {
 				routingInfo, credentials);
 	}
 
+	@AfterMethod
+	public void afterMethod() throws Exception {
+		MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+		ObjectName allMetrics = new ObjectName(IndexMetrics.OBJECT_NAME_PREFIX + "*,*");
+		for (ObjectName objectName : mBeanServer.queryNames(allMetrics, null)) {
+			mBeanServer.unregisterMBean(objectName);
+		}
+	}
+
 	@Test
 	public void testInitPassedAmpqMessageRoutingInfoToTopicMessageListener() throws Exception {
 		assertEquals(messagingFactorySpy.factorTopicMessageListenerCalled, true);
@@ -110,4 +141,182 @@ public class IndexMessengerListenerTest {
 		assertSame(messageListener.getCredentials(), credentials);
 	}
 
+	@Test
+	public void testDefaultSettings() throws Exception {
+		IndexMessengerSettings settings = messageListener.getSettings();
+		assertTrue(settings
+				.getWorkOrderHandlerFactory() instanceof SynchronousWorkOrderHandlerFactory);
+		assertTrue(settings.getIndexModeFactory() instanceof WorkOrderIndexModeFactory);
+		assertSame(settings.getReconnectPolicy(), TopicReconnector.DEFAULT_RECONNECT_POLICY);
+		assertFalse(settings.getDeadLetterPublisher().isEnabled());
+		assertSame(messageListener.getIndexMetrics(), settings.getIndexMetrics());
+	}
+
+	@Test
+	public void testSettingsAreSentToReceiver() throws Exception {
+		IndexMessengerSettings settings = IndexMessengerSettings.usingDefaults();
+
+		messageListener = new IndexMessengerListener(coraClientFactory, messageParserFactory,
+				routingInfo, credentials, settings);
+
+		assertSame(messageListener.getSettings(), settings);
+		assertSame(messageListener.getMessageReceiver().getSettings(), settings);
+	}
+
+	@Test
+	public void testWorkOrderHandlerFactoryIsUsedByReceiver() throws Exception {
+		WorkOrderHandlerFactorySpy handlerFactory = new WorkOrderHandlerFactorySpy();
+		messageListener = new IndexMessengerListener(coraClientFactory, messageParserFactory,
+				routingInfo, credentials,
+				IndexMessengerSettings.usingDefaults().withWorkOrderHandlerFactory(handlerFactory));
+
+		IndexMessageReceiver messageReceiver = (IndexMessageReceiver) messagingFactorySpy.messageListenerSpy.messageReceiver;
+		assertSame(messageReceiver.getWorkOrderHandler(), handlerFactory.factoredHandler);
+	}
+
+	@Test
+	public void testVirtualThreadMode() throws Exception {
+		messageListener = new IndexMessengerListener(coraClientFactory, messageParserFactory,
+				routingInfo, credentials,
+				IndexMessengerSettings.usingDefaults().withWorkOrderHandlerFactory(
+						new VirtualThreadWorkOrderHandlerFactory(100)));
+
+		IndexMessageReceiver messageReceiver = (IndexMessageReceiver) messagingFactorySpy.messageListenerSpy.messageReceiver;
+		VirtualThreadWorkOrderHandler handler = (VirtualThreadWorkOrderHandler) messageReceiver
+				.getWorkOrderHandler();
+		assertEquals(handler.getMaxInFlight(), 100);
+		handler.shutdown();
+	}
+
+	@Test
+	public void testDirectIndexModeIsSelectable() throws Exception {
+		DirectIndexModeFactory indexModeFactory = new DirectIndexModeFactory(100, 1000,
+				SuccessLogSampling.loggingAll(), new IndexMetrics());
+		messageListener = new IndexMessengerListener(coraClientFactory, messageParserFactory,
+				routingInfo, credentials,
+				IndexMessengerSettings.usingDefaults().withIndexModeFactory(indexModeFactory));
+
+		IndexMessageReceiver messageReceiver = (IndexMessageReceiver) messagingFactorySpy.messageListenerSpy.messageReceiver;
+		DirectIndexWorkOrderHandler indexHandler = (DirectIndexWorkOrderHandler) messageReceiver
+				.getIndexHandler();
+		assertSame(indexHandler.getCoraClient(), coraClientFactory.factoredClient);
+		indexHandler.shutdown();
+	}
+
+	@Test
+	public void testIndexMetricsAreSentToReceiverAndRegisteredAsMBean() throws Exception {
+		messageListener.getIndexMetrics().unregisterAsMBean();
+		IndexMetrics indexMetrics = new IndexMetrics();
+		messageListener = new IndexMessengerListener(coraClientFactory, messageParserFactory,
+				routingInfo, credentials,
+				IndexMessengerSettings.usingDefaults().withIndexMetrics(indexMetrics));
+
+		assertSame(messageListener.getIndexMetrics(), indexMetrics);
+		IndexMessageReceiver messageReceiver = (IndexMessageReceiver) messagingFactorySpy.messageListenerSpy.messageReceiver;
+		assertSame(messageReceiver.getIndexMetrics(), indexMetrics);
+		ObjectName objectName = indexMetrics.getObjectNames().get(0);
+		assertEquals(objectName.getKeyProperty("name"),
+				"\"messaging.alvin-portal.org:5672/index/#\"");
+		assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(objectName));
+		indexMetrics.unregisterAsMBean();
+	}
+
+	@Test
+	public void testMetricsNameIncludesExchangeAndRoutingKey() throws Exception {
+		AmqpMessageRoutingInfo otherTopic = new AmqpMessageRoutingInfo(
+				"messaging.alvin-portal.org", "5672", "alvin", "otherExchange", "other.#");
+
+		messageListener = new IndexMessengerListener(coraClientFactory, messageParserFactory,
+				otherTopic, credentials);
+
+		ObjectName objectName = messageListener.getIndexMetrics().getObjectNames().get(0);
+		assertEquals(objectName.getKeyProperty("name"),
+				"\"messaging.alvin-portal.org:5672/otherExchange/other.#\"");
+	}
+
+	@Test
+	public void testMetricsNameInUseIsLoggedAsWarning() throws Exception {
+		IndexMetrics registeredMetrics = messageListener.getIndexMetrics();
+
+		messageListener = new IndexMessengerListener(coraClientFactory, messageParserFactory,
+				routingInfo, credentials);
+
+		assertTrue(messageListener.getIndexMetrics().getObjectNames().isEmpty());
+		assertFalse(registeredMetrics.getObjectNames().isEmpty());
+		assertEquals(loggerFactorySpy.getWarnLogMessageUsingClassNameAndNo(
+				"IndexMessengerListener", 0),
+				"Metrics NOT registered as MBean, listening continues without them for: "
+						+ "messaging.alvin-portal.org:5672/index/#");
+	}
+
+	@Test
+	public void testTopicReconnectorIsSentToReceiver() throws Exception {
+		RetryPolicy reconnectPolicy = RetryPolicy.noRetries();
+		messageListener = new IndexMessengerListener(coraClientFactory, messageParserFactory,
+				routingInfo, credentials,
+				IndexMessengerSettings.usingDefaults().withReconnectPolicy(reconnectPolicy));
+
+		TopicReconnector topicReconnector = messageListener.getTopicReconnector();
+		assertSame(topicReconnector.getReconnectPolicy(), reconnectPolicy);
+		assertSame(topicReconnector.getRoutingInfo(), routingInfo);
+		assertSame(messageListener.getMessageReceiver().getTopicReconnector(), topicReconnector);
+	}
+
+	@Test
+	public void testDeadLetterPublisherIsShutDownOnTermination() throws Exception {
+		IndexMetrics indexMetrics = new IndexMetrics();
+		DeadLetterPublisher deadLetterPublisher = DeadLetterPublisher
+				.usingRoutingInfoAndSettings(routingInfo, 10, 4, indexMetrics);
+		messageListener = new IndexMessengerListener(coraClientFactory, messageParserFactory,
+				routingInfo, credentials,
+				IndexMessengerSettings.usingDefaults().withIndexMetrics(indexMetrics)
+						.withDeadLetterPublisher(deadLetterPublisher));
+
+		messageListener.stop();
+		assertTrue(messageListener.awaitTermination(1000));
+
+		assertTrue(deadLetterPublisher.awaitTermination(0));
+		indexMetrics.unregisterAsMBean();
+	}
+
+	@Test
+	public void testTopicClosedListensUsingNewMessageListener() throws Exception {
+		IndexMessageReceiver messageReceiver = messageListener.getMessageReceiver();
+
+		messageReceiver.topicClosed();
+
+		waitForNoOfMessageListeners(2);
+		assertSame(messagingFactorySpy.messageListenerSpies.get(1).messageReceiver,
+				messageReceiver);
+	}
+
+	private void waitForNoOfMessageListeners(int noOfListeners) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 2000;
+		while (messagingFactorySpy.messageListenerSpies.size() < noOfListeners
+				&& System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		assertEquals(messagingFactorySpy.messageListenerSpies.size(), noOfListeners);
+	}
+
+	@Test
+	public void testStopAndAwaitTerminationUsesReceiver() throws Exception {
+		IndexMessageReceiver messageReceiver = messageListener.getMessageReceiver();
+		assertSame(messageReceiver, messagingFactorySpy.messageListenerSpy.messageReceiver);
+
+		messageListener.stop();
+
+		assertTrue(messageReceiver.isStopped());
+		assertTrue(messageListener.awaitTermination(1000));
+	}
+
+	@Test
+	public void testStopUsingLeftoverSpill() throws Exception {
+		WorkOrderSpillSpy leftoverSpill = new WorkOrderSpillSpy();
+
+		messageListener.stopUsingLeftoverSpill(leftoverSpill);
+		messageListener.getMessageReceiver().receiveMessage(new HashMap<>(), "some message");
+
+		assertEquals(leftoverSpill.spilledWorkOrders.size(), 1);
+	}
 }
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.indexmessenger.log.LoggerFactorySpy;
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.indexmessenger.workorder.DirectIndexModeFactory;
+import se.uu.ub.cora.indexmessenger.workorder.PriorityClassifier;
+import se.uu.ub.cora.indexmessenger.workorder.RetryPolicy;
+import se.uu.ub.cora.indexmessenger.workorder.SuccessLogSampling;
+import se.uu.ub.cora.indexmessenger.workorder.SynchronousWorkOrderHandlerFactory;
+import se.uu.ub.cora.indexmessenger.workorder.WorkOrderHandlerFactorySpy;
+import se.uu.ub.cora.indexmessenger.workorder.WorkOrderIndexModeFactory;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+public class IndexMessengerSettingsTest {
+	private IndexMessengerSettings defaults;
+
+	@BeforeMethod
+	public void setUp() {
+		LoggerProvider.setLoggerFactory(new LoggerFactorySpy());
+		defaults = IndexMessengerSettings.usingDefaults();
+	}
+
+	@Test
+	public void testDefaults() throws Exception {
+		assertTrue(defaults
+				.getWorkOrderHandlerFactory() instanceof SynchronousWorkOrderHandlerFactory);
+		assertTrue(defaults.getIndexModeFactory() instanceof WorkOrderIndexModeFactory);
+		assertNotNull(defaults.getSuccessLogSampling());
+		assertEquals(defaults.getBackPressure().getHighWatermark(), Long.MAX_VALUE);
+		assertNull(defaults.getPriorityClassifier().getPriorityHeaderName());
+		assertSame(defaults.getReconnectPolicy(), TopicReconnector.DEFAULT_RECONNECT_POLICY);
+		assertFalse(defaults.getDeadLetterPublisher().isEnabled());
+	}
+
+	@Test
+	public void testEachUsingDefaultsHoldsNewMetrics() throws Exception {
+		assertNotSame(IndexMessengerSettings.usingDefaults().getIndexMetrics(),
+				defaults.getIndexMetrics());
+	}
+
+	@Test
+	public void testWithMethodsReturnCopiesWithOneSettingChanged() throws Exception {
+		WorkOrderHandlerFactorySpy workOrderHandlerFactory = new WorkOrderHandlerFactorySpy();
+		DirectIndexModeFactory indexModeFactory = new DirectIndexModeFactory(100, 1000,
+				SuccessLogSampling.loggingAll(), new IndexMetrics());
+		SuccessLogSampling successLogSampling = SuccessLogSampling.loggingNone();
+		IndexMetrics indexMetrics = new IndexMetrics();
+		BackPressure backPressure = BackPressure.usingWatermarks(100, 10);
+		PriorityClassifier priorityClassifier = PriorityClassifier.classifyingAllAsNormal();
+		RetryPolicy reconnectPolicy = RetryPolicy.noRetries();
+		DeadLetterPublisher deadLetterPublisher = DeadLetterPublisher.none();
+
+		IndexMessengerSettings settings = defaults
+				.withWorkOrderHandlerFactory(workOrderHandlerFactory)
+				.withIndexModeFactory(indexModeFactory).withSuccessLogSampling(successLogSampling)
+				.withIndexMetrics(indexMetrics).withBackPressure(backPressure)
+				.withPriorityClassifier(priorityClassifier).withReconnectPolicy(reconnectPolicy)
+				.withDeadLetterPublisher(deadLetterPublisher);
+
+		assertSame(settings.getWorkOrderHandlerFactory(), workOrderHandlerFactory);
+		assertSame(settings.getIndexModeFactory(), indexModeFactory);
+		assertSame(settings.getSuccessLogSampling(), successLogSampling);
+		assertSame(settings.getIndexMetrics(), indexMetrics);
+		assertSame(settings.getBackPressure(), backPressure);
+		assertSame(settings.getPriorityClassifier(), priorityClassifier);
+		assertSame(settings.getReconnectPolicy(), reconnectPolicy);
+		assertSame(settings.getDeadLetterPublisher(), deadLetterPublisher);
+		assertTrue(defaults
+				.getWorkOrderHandlerFactory() instanceof SynchronousWorkOrderHandlerFactory);
+		assertNotSame(defaults.getIndexMetrics(), indexMetrics);
+	}
+}
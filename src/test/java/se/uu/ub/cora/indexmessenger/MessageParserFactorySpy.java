@@ -19,6 +19,7 @@
 package se.uu.ub.cora.indexmessenger;
 
 import se.uu.ub.cora.indexmessenger.parser.MessageParser;
+import se.uu.ub.cora.indexmessenger.parser.HeaderRejectingMessageParserSpy;
 import se.uu.ub.cora.indexmessenger.parser.MessageParserFactory;
 import se.uu.ub.cora.indexmessenger.parser.MessageParserSpy;
 
@@ -27,14 +28,27 @@ public class MessageParserFactorySpy implements MessageParserFactory {
 	public boolean createWorkOrder = true;
 	public MessageParserSpy messageParserSpy;
 	public String modificationType = "update";
+	public boolean factorHeaderRejecting = false;
+	public boolean rejectUsingHeaders = false;
+	public boolean throwErrorOnParse = false;
 
 	@Override
 	public MessageParser factor() {
 		factorWasCalled = true;
-		messageParserSpy = new MessageParserSpy();
+		messageParserSpy = createParser();
 		messageParserSpy.createWorkOrder = createWorkOrder;
 		messageParserSpy.modificationType = modificationType;
+		messageParserSpy.throwErrorOnParse = throwErrorOnParse;
 		return messageParserSpy;
 	}
 
+	private MessageParserSpy createParser() {
+		if (factorHeaderRejecting) {
+			HeaderRejectingMessageParserSpy parser = new HeaderRejectingMessageParserSpy();
+			parser.rejectUsingHeaders = rejectUsingHeaders;
+			return parser;
+		}
+		return new MessageParserSpy();
+	}
+
 }
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import se.uu.ub.cora.messaging.MessageSender;
+
+public class MessageSenderSpy implements MessageSender {
+
+	public List<Map<String, Object>> sentHeaders = Collections.synchronizedList(new ArrayList<>());
+	public List<String> sentMessages = Collections.synchronizedList(new ArrayList<>());
+	public int noOfMessagesToFailToSend = 0;
+
+	@Override
+	public synchronized void sendMessage(Map<String, Object> headers, String message) {
+		if (noOfMessagesToFailToSend > 0) {
+			noOfMessagesToFailToSend--;
+			throw new RuntimeException("Error from MessageSenderSpy on send");
+		}
+		sentHeaders.add(headers);
+		sentMessages.add(message);
+	}
+
+}
@@ -19,6 +19,9 @@
 
 package se.uu.ub.cora.indexmessenger;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import se.uu.ub.cora.messaging.MessageListener;
 import se.uu.ub.cora.messaging.MessageRoutingInfo;
 import se.uu.ub.cora.messaging.MessageSender;
@@ -29,18 +32,29 @@ public class MessagingFactorySpy implements MessagingFactory {
 	public boolean factorTopicMessageListenerCalled = false;
 	public MessageRoutingInfo messagingRoutingInfo;
 	public MessageListenerSpy messageListenerSpy;
+	public List<MessageListenerSpy> messageListenerSpies = new ArrayList<>();
+	public int noOfListenersToFailToFactor = 0;
+	public List<MessageSenderSpy> messageSenderSpies = new ArrayList<>();
+	public MessageRoutingInfo senderRoutingInfo;
 
 	@Override
 	public MessageSender factorTopicMessageSender(MessageRoutingInfo messagingRoutingInfo) {
-		// TODO Auto-generated method stub
-		return null;
+		senderRoutingInfo = messagingRoutingInfo;
+		MessageSenderSpy messageSenderSpy = new MessageSenderSpy();
+		messageSenderSpies.add(messageSenderSpy);
+		return messageSenderSpy;
 	}
 
 	@Override
 	public MessageListener factorTopicMessageListener(MessageRoutingInfo messagingRoutingInfo) {
 		this.messagingRoutingInfo = messagingRoutingInfo;
 		factorTopicMessageListenerCalled = true;
+		if (noOfListenersToFailToFactor > 0) {
+			noOfListenersToFailToFactor--;
+			throw new RuntimeException("Error from MessagingFactorySpy on factor listener");
+		}
 		messageListenerSpy = new MessageListenerSpy();
+		messageListenerSpies.add(messageListenerSpy);
 		return messageListenerSpy;
 	}
 
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.indexmessenger.log.LoggerFactorySpy;
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.indexmessenger.workorder.RetryPolicy;
+import se.uu.ub.cora.logger.LoggerProvider;
+import se.uu.ub.cora.messaging.AmqpMessageRoutingInfo;
+import se.uu.ub.cora.messaging.MessagingProvider;
+
+public class TopicReconnectorTest {
+	private String testedClassname = "TopicReconnector";
+	private LoggerFactorySpy loggerFactory;
+	private MessagingFactorySpy messagingFactorySpy;
+	private AmqpMessageRoutingInfo routingInfo;
+	private IndexMetrics indexMetrics;
+	private MessageReceiverSpy messageReceiver;
+	private TopicReconnector reconnector;
+
+	@BeforeMethod
+	public void setUp() {
+		loggerFactory = new LoggerFactorySpy();
+		LoggerProvider.setLoggerFactory(loggerFactory);
+		messagingFactorySpy = new MessagingFactorySpy();
+		MessagingProvider.setMessagingFactory(messagingFactorySpy);
+		routingInfo = new AmqpMessageRoutingInfo("messaging.alvin-portal.org", "5672", "alvin",
+				"index", "#");
+		indexMetrics = new IndexMetrics();
+		messageReceiver = new MessageReceiverSpy();
+		reconnector = TopicReconnector.usingRoutingInfoPolicyAndMetrics(routingInfo,
+				RetryPolicy.usingMaxAttemptsAndDelays(3, 1, 2), indexMetrics);
+	}
+
+	@AfterMethod
+	public void tearDown() {
+		reconnector.shutdown();
+	}
+
+	@Test
+	public void testDefaultReconnectPolicy() {
+		RetryPolicy policy = TopicReconnector.DEFAULT_RECONNECT_POLICY;
+		assertEquals(policy.getMaxAttempts(), Integer.MAX_VALUE);
+		assertEquals(policy.getInitialDelayMs(), 1000);
+		assertEquals(policy.getMaxDelayMs(), 60000);
+	}
+
+	@Test
+	public void testInit() {
+		assertSame(reconnector.getRoutingInfo(), routingInfo);
+		assertEquals(reconnector.getReconnectPolicy().getMaxAttempts(), 3);
+		assertFalse(reconnector.isReconnecting());
+	}
+
+	@Test
+	public void testReconnectListensUsingSameReceiver() throws Exception {
+		reconnector.reconnect(messageReceiver);
+
+		waitUntilNotReconnecting();
+		assertSame(messagingFactorySpy.messagingRoutingInfo, routingInfo);
+		assertSame(messagingFactorySpy.messageListenerSpy.messageReceiver, messageReceiver);
+		assertEquals(indexMetrics.getTopicMetrics().getTopicCloses(), 1);
+		assertEquals(indexMetrics.getTopicMetrics().getReconnectAttempts(), 1);
+		assertEquals(indexMetrics.getTopicMetrics().getReconnects(), 1);
+		assertFalse(indexMetrics.getTopicMetrics().isTopicClosed());
+		assertTrue(loggerFactory.getInfoLogMessageUsingClassNameAndNo(testedClassname, 0)
+				.startsWith("Reconnected to topic after 1 attempts and "));
+	}
+
+	private void waitUntilNotReconnecting() throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 2000;
+		while (reconnector.isReconnecting() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		assertFalse(reconnector.isReconnecting());
+	}
+
+	@Test
+	public void testFailedAttemptsAreRetried() throws Exception {
+		messagingFactorySpy.noOfListenersToFailToFactor = 2;
+
+		reconnector.reconnect(messageReceiver);
+
+		waitUntilNotReconnecting();
+		assertSame(messagingFactorySpy.messageListenerSpy.messageReceiver, messageReceiver);
+		assertEquals(indexMetrics.getTopicMetrics().getReconnectAttempts(), 3);
+		assertEquals(indexMetrics.getTopicMetrics().getReconnects(), 1);
+		assertEquals(loggerFactory.getNoOfErrorLogMessagesUsingClassName(testedClassname), 2);
+		assertTrue(loggerFactory.getErrorLogMessageUsingClassNameAndNo(testedClassname, 0)
+				.startsWith("Reconnect attempt 1 failed, next attempt in "));
+		assertEquals(
+				loggerFactory.getErrorLogErrorUsingClassNameAndNo(testedClassname, 0).getMessage(),
+				"Error from MessagingFactorySpy on factor listener");
+		assertTrue(loggerFactory.getInfoLogMessageUsingClassNameAndNo(testedClassname, 0)
+				.startsWith("Reconnected to topic after 3 attempts and "));
+	}
+
+	@Test
+	public void testGivesUpWhenPolicyIsExhausted() throws Exception {
+		messagingFactorySpy.noOfListenersToFailToFactor = 3;
+
+		reconnector.reconnect(messageReceiver);
+
+		waitUntilNotReconnecting();
+		assertEquals(indexMetrics.getTopicMetrics().getReconnectAttempts(), 3);
+		assertEquals(indexMetrics.getTopicMetrics().getReconnects(), 0);
+		assertTrue(indexMetrics.getTopicMetrics().isTopicClosed());
+		assertEquals(loggerFactory.getFatalLogMessageUsingClassNameAndNo(testedClassname, 0),
+				"Giving up reconnecting to topic after 3 attempts");
+	}
+
+	@Test
+	public void testReconnectWhileReconnectingIsIgnored() throws Exception {
+		reconnector = TopicReconnector.usingRoutingInfoPolicyAndMetrics(routingInfo,
+				RetryPolicy.usingMaxAttemptsAndDelays(2, 200, 200), indexMetrics);
+		messagingFactorySpy.noOfListenersToFailToFactor = 1;
+
+		reconnector.reconnect(messageReceiver);
+		reconnector.reconnect(messageReceiver);
+
+		assertTrue(reconnector.isReconnecting());
+		waitUntilNotReconnecting();
+		assertEquals(indexMetrics.getTopicMetrics().getTopicCloses(), 1);
+		assertEquals(indexMetrics.getTopicMetrics().getReconnectAttempts(), 2);
+	}
+
+	@Test
+	public void testShutdownStopsReconnecting() throws Exception {
+		reconnector.shutdown();
+
+		reconnector.reconnect(messageReceiver);
+
+		assertFalse(reconnector.isReconnecting());
+		assertFalse(messagingFactorySpy.factorTopicMessageListenerCalled);
+		assertEquals(loggerFactory.getErrorLogMessageUsingClassNameAndNo(testedClassname, 0),
+				"Reconnector shut down, topic NOT reconnected");
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.indexmessenger.log.LoggerFactorySpy;
+import se.uu.ub.cora.indexmessenger.workorder.SynchronousWorkOrderHandlerFactory;
+import se.uu.ub.cora.indexmessenger.workorder.VirtualThreadWorkOrderHandler;
+import se.uu.ub.cora.indexmessenger.workorder.VirtualThreadWorkOrderHandlerFactory;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+/**
+ * Compares how many work orders are created in Cora at the same time on the receiving thread and
+ * on virtual threads, using a CoraClient with a fixed latency per create. Concurrency is asserted
+ * instead of wall-clock time, so that the test does not depend on the speed of the machine. The
+ * throughput of the two modes is measured by WorkOrderThroughputBenchmark in src/jmh.
+ */
+public class WorkOrderConcurrencyTest {
+	private static final int NO_OF_MESSAGES = 100;
+	private static final long LATENCY_MS = 20;
+	private static final int MAX_IN_FLIGHT = 50;
+	private Map<String, String> headers = new HashMap<>();
+	private String message = "someMessage";
+
+	@BeforeMethod
+	public void setUp() {
+		LoggerProvider.setLoggerFactory(new LoggerFactorySpy());
+	}
+
+	@Test
+	public void testSynchronousModeCreatesOneWorkOrderAtATime() throws Exception {
+		CoraClientLatencySpy coraClient = new CoraClientLatencySpy(LATENCY_MS);
+		IndexMessageReceiver receiver = new IndexMessageReceiver(coraClient,
+				new MessageParserFactorySpy(), IndexMessengerSettings.usingDefaults()
+						.withWorkOrderHandlerFactory(new SynchronousWorkOrderHandlerFactory()));
+
+		receiveMessages(receiver);
+
+		assertEquals(coraClient.noOfCreateCalls.get(), NO_OF_MESSAGES);
+		assertEquals(coraClient.maxConcurrentCreates.get(), 1);
+	}
+
+	@Test
+	public void testVirtualThreadModeCreatesWorkOrdersConcurrently() throws Exception {
+		CoraClientLatencySpy coraClient = new CoraClientLatencySpy(LATENCY_MS);
+		IndexMessageReceiver receiver = new IndexMessageReceiver(coraClient,
+				new MessageParserFactorySpy(), IndexMessengerSettings.usingDefaults()
+						.withWorkOrderHandlerFactory(
+								new VirtualThreadWorkOrderHandlerFactory(MAX_IN_FLIGHT)));
+		VirtualThreadWorkOrderHandler handler = (VirtualThreadWorkOrderHandler) receiver
+				.getWorkOrderHandler();
+
+		receiveMessages(receiver);
+		handler.shutdown();
+		handler.awaitTermination(10000);
+
+		assertEquals(coraClient.noOfCreateCalls.get(), NO_OF_MESSAGES);
+		int maxConcurrentCreates = coraClient.maxConcurrentCreates.get();
+		assertTrue(maxConcurrentCreates > 1, "max concurrent creates: " + maxConcurrentCreates);
+		assertTrue(maxConcurrentCreates <= MAX_IN_FLIGHT,
+				"max concurrent creates: " + maxConcurrentCreates);
+	}
+
+	private void receiveMessages(IndexMessageReceiver receiver) {
+		for (int i = 0; i < NO_OF_MESSAGES; i++) {
+			receiver.receiveMessage(headers, message);
+		}
+	}
+}
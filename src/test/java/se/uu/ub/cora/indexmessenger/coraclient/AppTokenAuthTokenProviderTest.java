@@ -0,0 +1,75 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.coraclient;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.indexmessenger.CoraCredentials;
+
+public class AppTokenAuthTokenProviderTest {
+	private AppTokenClientFactorySpy appTokenClientFactory;
+	private AppTokenAuthTokenProvider provider;
+
+	@BeforeMethod
+	public void setUp() {
+		appTokenClientFactory = new AppTokenClientFactorySpy();
+		provider = AppTokenAuthTokenProvider
+				.usingAppTokenClientFactoryAndValidForMs(appTokenClientFactory, 600_000);
+	}
+
+	@Test
+	public void testGetters() throws Exception {
+		assertSame(provider.getAppTokenClientFactory(), appTokenClientFactory);
+		assertEquals(provider.getValidForMs(), 600_000);
+	}
+
+	@Test
+	public void testFetchLogsInUsingCredentials() throws Exception {
+		AuthToken authToken = provider.fetchAuthTokenUsingCredentials(
+				new CoraCredentials("someUserId", "someAppToken"));
+
+		assertEquals(appTokenClientFactory.userIds.get(0), "someUserId");
+		assertEquals(appTokenClientFactory.appTokens.get(0), "someAppToken");
+		assertEquals(authToken.token, "authTokenForsomeUserId");
+		assertEquals(authToken.validForMs, 600_000);
+	}
+
+	@Test
+	public void testEachFetchLogsInAgain() throws Exception {
+		CoraCredentials credentials = new CoraCredentials("someUserId", "someAppToken");
+
+		provider.fetchAuthTokenUsingCredentials(credentials);
+		provider.fetchAuthTokenUsingCredentials(credentials);
+
+		assertEquals(appTokenClientFactory.userIds.size(), 2);
+	}
+
+	@Test(expectedExceptions = RuntimeException.class, expectedExceptionsMessageRegExp = ""
+			+ "Error from AppTokenClientSpy")
+	public void testFailedLoginIsThrown() throws Exception {
+		appTokenClientFactory.throwErrorOnGetAuthToken = true;
+
+		provider.fetchAuthTokenUsingCredentials(
+				new CoraCredentials("someUserId", "someAppToken"));
+	}
+}
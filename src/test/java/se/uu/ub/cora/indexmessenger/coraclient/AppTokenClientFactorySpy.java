@@ -0,0 +1,44 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.coraclient;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import se.uu.ub.cora.javaclient.apptoken.AppTokenClient;
+import se.uu.ub.cora.javaclient.apptoken.AppTokenClientFactory;
+
+public class AppTokenClientFactorySpy implements AppTokenClientFactory {
+
+	public List<String> userIds = new ArrayList<>();
+	public List<String> appTokens = new ArrayList<>();
+	public boolean throwErrorOnGetAuthToken = false;
+
+	@Override
+	public AppTokenClient factor(String userId, String appToken) {
+		userIds.add(userId);
+		appTokens.add(appToken);
+		return () -> {
+			if (throwErrorOnGetAuthToken) {
+				throw new RuntimeException("Error from AppTokenClientSpy");
+			}
+			return "authTokenFor" + userId;
+		};
+	}
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.coraclient;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import se.uu.ub.cora.indexmessenger.CoraCredentials;
+
+public class AuthTokenProviderSpy implements AuthTokenProvider {
+
+	public List<CoraCredentials> credentials = Collections.synchronizedList(new ArrayList<>());
+	public volatile long validForMs = 100;
+	public AtomicInteger noOfFailuresToThrow = new AtomicInteger();
+
+	@Override
+	public AuthToken fetchAuthTokenUsingCredentials(CoraCredentials credentials) {
+		this.credentials.add(credentials);
+		if (noOfFailuresToThrow.getAndUpdate(n -> Math.max(n - 1, 0)) > 0) {
+			throw new RuntimeException("Error from AuthTokenProviderSpy");
+		}
+		return AuthToken.usingTokenAndValidForMs("authToken" + this.credentials.size(),
+				validForMs);
+	}
+
+	public int getNoOfFetches() {
+		return credentials.size();
+	}
+}
@@ -0,0 +1,335 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.coraclient;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.indexmessenger.CoraClientFactorySpy;
+import se.uu.ub.cora.indexmessenger.CoraCredentials;
+import se.uu.ub.cora.indexmessenger.IndexMessageException;
+import se.uu.ub.cora.indexmessenger.log.LoggerFactorySpy;
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.javaclient.cora.CoraClient;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+public class CoraClientPoolTest {
+	private LoggerFactorySpy loggerFactorySpy;
+	private String testedClassName = "CoraClientPool";
+	private IndexMetrics indexMetrics;
+	private List<CoraClientRecordingSpy> createdClients;
+	private boolean throwErrorOnCreate = false;
+
+	@BeforeMethod
+	public void setUp() {
+		loggerFactorySpy = new LoggerFactorySpy();
+		LoggerProvider.setLoggerFactory(loggerFactorySpy);
+		indexMetrics = new IndexMetrics();
+		createdClients = Collections.synchronizedList(new ArrayList<>());
+	}
+
+	private CoraClientPool createPool(int size, long checkoutTimeoutMs) {
+		return CoraClientPool.usingClientSupplierAndSettings(this::createClient, size,
+				checkoutTimeoutMs, indexMetrics);
+	}
+
+	private CoraClient createClient() {
+		if (throwErrorOnCreate) {
+			throw new RuntimeException("Error from client supplier");
+		}
+		CoraClientRecordingSpy client = new CoraClientRecordingSpy();
+		createdClients.add(client);
+		return client;
+	}
+
+	@Test
+	public void testUsingFactoryAndCredentials() throws Exception {
+		CoraClientFactorySpy coraClientFactory = new CoraClientFactorySpy();
+		CoraClientPool pool = CoraClientPool.usingFactoryCredentialsAndSettings(
+				coraClientFactory, new CoraCredentials("someUserId", "someAppToken"), 3, 100,
+				indexMetrics);
+
+		assertEquals(pool.getSize(), 3);
+		assertEquals(pool.getCheckoutTimeoutMs(), 100);
+		assertEquals(pool.getNoOfCreated(), 0);
+		assertEquals(indexMetrics.getClientPoolMetrics().getClientPoolSize(), 3);
+
+		assertSame(pool.checkOut(), coraClientFactory.factoredClient);
+		assertEquals(coraClientFactory.userId, "someUserId");
+		assertEquals(coraClientFactory.appToken, "someAppToken");
+	}
+
+	@Test(expectedExceptions = IndexMessageException.class, expectedExceptionsMessageRegExp = ""
+			+ "Pool size must be at least 1")
+	public void testPoolSizeZero() throws Exception {
+		createPool(0, 100);
+	}
+
+	@Test
+	public void testClientsAreCreatedWhenNeededAndReused() throws Exception {
+		CoraClientPool pool = createPool(2, 100);
+
+		CoraClient first = pool.checkOut();
+		pool.checkIn(first);
+		CoraClient second = pool.checkOut();
+
+		assertSame(second, first);
+		assertEquals(pool.getNoOfCreated(), 1);
+		assertEquals(pool.getNoOfCheckedOut(), 1);
+		assertEquals(pool.getNoOfIdle(), 0);
+	}
+
+	@Test
+	public void testCheckedOutClientsAreNotShared() throws Exception {
+		CoraClientPool pool = createPool(2, 100);
+
+		CoraClient first = pool.checkOut();
+		CoraClient second = pool.checkOut();
+
+		assertNotSame(second, first);
+		assertEquals(pool.getNoOfCheckedOut(), 2);
+		assertEquals(indexMetrics.getClientPoolMetrics().getClientsInUse(), 2);
+		pool.checkIn(first);
+		assertEquals(pool.getNoOfIdle(), 1);
+		assertEquals(indexMetrics.getClientPoolMetrics().getClientsInUse(), 1);
+		assertEquals(indexMetrics.getClientPoolMetrics().getClientCheckouts(), 2);
+		assertEquals(indexMetrics.getClientPoolMetrics().getClientCheckoutLatency().getCount(), 2);
+	}
+
+	@Test
+	public void testUseClientReturnsResultAndChecksIn() throws Exception {
+		CoraClientPool pool = createPool(1, 100);
+
+		String result = pool.useClient(client -> client.read("someType", "someId"));
+
+		assertEquals(result, "result of read someType someId");
+		assertEquals(pool.getNoOfCheckedOut(), 0);
+		assertEquals(pool.getNoOfIdle(), 1);
+	}
+
+	@Test
+	public void testClientWithRefusedCallIsCheckedIn() throws Exception {
+		CoraClientPool pool = createPool(1, 100);
+		pool.checkIn(pool.checkOut());
+		createdClients.get(0).throwErrorOnCall = true;
+
+		Exception thrown = null;
+		try {
+			pool.useClient(client -> client.read("someType", "someId"));
+		} catch (RuntimeException e) {
+			thrown = e;
+		}
+
+		assertEquals(thrown.getMessage(),
+				"Error from CoraClientRecordingSpy on read someType someId");
+		assertEquals(pool.getNoOfEvicted(), 0);
+		assertEquals(pool.getNoOfIdle(), 1);
+		assertEquals(pool.getNoOfCheckedOut(), 0);
+		assertEquals(indexMetrics.getClientPoolMetrics().getClientsInUse(), 0);
+		assertEquals(pool.getNoOfCreated(), 1);
+	}
+
+	@Test
+	public void testClientWithAuthenticationFailureIsEvicted() throws Exception {
+		CoraClientPool pool = createPool(1, 100);
+		pool.checkIn(pool.checkOut());
+		createdClients.get(0).throwErrorOnCall = true;
+		createdClients.get(0).errorCause = AuthTokenException.withMessageAndException(
+				"Could not fetch authToken for user: someUserId", new RuntimeException());
+
+		try {
+			pool.useClient(client -> client.read("someType", "someId"));
+		} catch (RuntimeException e) {
+			// expected
+		}
+
+		assertEquals(pool.getNoOfEvicted(), 1);
+		assertEquals(pool.getNoOfIdle(), 0);
+		assertEquals(pool.getNoOfCheckedOut(), 0);
+	}
+
+	@Test
+	public void testClientWithTransportFailureIsEvicted() throws Exception {
+		CoraClientPool pool = createPool(1, 100);
+		pool.checkIn(pool.checkOut());
+		createdClients.get(0).throwErrorOnCall = true;
+		createdClients.get(0).errorCause = new IOException("Connection refused");
+
+		Exception thrown = null;
+		try {
+			pool.useClient(client -> client.read("someType", "someId"));
+		} catch (RuntimeException e) {
+			thrown = e;
+		}
+
+		assertEquals(thrown.getMessage(),
+				"Error from CoraClientRecordingSpy on read someType someId");
+		assertEquals(pool.getNoOfEvicted(), 1);
+		assertEquals(pool.getNoOfIdle(), 0);
+		assertEquals(pool.getNoOfCheckedOut(), 0);
+		assertEquals(indexMetrics.getClientPoolMetrics().getClientsEvicted(), 1);
+		assertEquals(indexMetrics.getClientPoolMetrics().getClientsInUse(), 0);
+		assertEquals(loggerFactorySpy.getWarnLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"Evicted CoraClient from pool after failed call");
+
+		pool.useClient(client -> client.read("someType", "someId"));
+		assertEquals(pool.getNoOfCreated(), 2);
+		assertEquals(createdClients.get(1).calls.get(0), "read someType someId");
+	}
+
+	@Test
+	public void testTransportOrAuthenticationFailures() throws Exception {
+		assertTrue(CoraClientPool.isTransportOrAuthenticationFailure(
+				new RuntimeException(new UncheckedIOException(new IOException()))));
+		assertTrue(CoraClientPool.isTransportOrAuthenticationFailure(AuthTokenException
+				.withMessageAndException("Could not fetch authToken", new RuntimeException())));
+		assertFalse(CoraClientPool
+				.isTransportOrAuthenticationFailure(new RuntimeException("401 Unauthorized")));
+		assertFalse(CoraClientPool.isTransportOrAuthenticationFailure(
+				new RuntimeException("Could not get authToken for user")));
+		assertFalse(CoraClientPool.isTransportOrAuthenticationFailure(
+				new RuntimeException("Could not create record of type: workOrder")));
+		assertFalse(CoraClientPool.isTransportOrAuthenticationFailure(new RuntimeException()));
+	}
+
+	@Test
+	public void testClientIsCheckedInWhenCallThrowsError() throws Exception {
+		CoraClientPool pool = createPool(1, 100);
+
+		try {
+			pool.useClient(client -> {
+				throw new AssertionError("Error from call");
+			});
+		} catch (AssertionError e) {
+			// expected
+		}
+
+		assertEquals(pool.getNoOfCheckedOut(), 0);
+		assertEquals(pool.getNoOfIdle(), 1);
+	}
+
+	@Test
+	public void testCheckoutTimesOutWhenPoolIsSaturated() throws Exception {
+		CoraClientPool pool = createPool(1, 10);
+		pool.checkOut();
+
+		Exception thrown = null;
+		try {
+			pool.checkOut();
+		} catch (IndexMessageException e) {
+			thrown = e;
+		}
+
+		assertEquals(thrown.getMessage(), "No CoraClient available in pool of size 1 within 10 ms");
+		assertEquals(pool.getNoOfCheckoutWaits(), 1);
+		assertEquals(pool.getNoOfCheckoutTimeouts(), 1);
+		assertEquals(indexMetrics.getClientPoolMetrics().getClientCheckoutWaits(), 1);
+		assertEquals(indexMetrics.getClientPoolMetrics().getClientCheckoutTimeouts(), 1);
+		assertEquals(pool.getNoOfCheckedOut(), 1);
+	}
+
+	@Test
+	public void testFailedClientCreationReleasesCheckout() throws Exception {
+		CoraClientPool pool = createPool(1, 10);
+		throwErrorOnCreate = true;
+
+		Exception thrown = null;
+		try {
+			pool.checkOut();
+		} catch (RuntimeException e) {
+			thrown = e;
+		}
+
+		assertEquals(thrown.getMessage(), "Error from client supplier");
+		assertEquals(pool.getNoOfCheckedOut(), 0);
+		assertEquals(indexMetrics.getClientPoolMetrics().getClientsInUse(), 0);
+	}
+
+	@Test
+	public void testWaitingThreadsGetClientsInOrder() throws Exception {
+		CoraClientPool pool = createPool(1, 5000);
+		CoraClient client = pool.checkOut();
+		List<String> order = Collections.synchronizedList(new ArrayList<>());
+		Thread first = startWaitingThread(pool, "first", order);
+		waitUntil(() -> pool.getNoOfWaiting() == 1);
+		Thread second = startWaitingThread(pool, "second", order);
+		waitUntil(() -> pool.getNoOfWaiting() == 2);
+
+		pool.checkIn(client);
+		first.join(5000);
+		second.join(5000);
+
+		assertEquals(order, List.of("first", "second"));
+		assertEquals(pool.getNoOfCreated(), 1);
+		assertEquals(pool.getNoOfCheckoutWaits(), 2);
+		assertEquals(pool.getNoOfCheckoutTimeouts(), 0);
+	}
+
+	private Thread startWaitingThread(CoraClientPool pool, String name, List<String> order) {
+		Thread thread = new Thread(() -> {
+			CoraClient client = pool.checkOut();
+			order.add(name);
+			pool.checkIn(client);
+		});
+		thread.start();
+		return thread;
+	}
+
+	private void waitUntil(BooleanSupplier condition) {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+			try {
+				Thread.sleep(1);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	@Test
+	public void testInterruptedWhileWaiting() throws Exception {
+		CoraClientPool pool = createPool(1, 5000);
+		pool.checkOut();
+		Thread.currentThread().interrupt();
+
+		Exception thrown = null;
+		try {
+			pool.checkOut();
+		} catch (IndexMessageException e) {
+			thrown = e;
+		}
+
+		assertTrue(Thread.interrupted());
+		assertEquals(thrown.getMessage(),
+				"Interrupted while waiting for a CoraClient from the pool");
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.coraclient;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import se.uu.ub.cora.clientdata.ClientDataGroup;
+import se.uu.ub.cora.clientdata.ClientDataRecord;
+import se.uu.ub.cora.javaclient.cora.CoraClient;
+
+public class CoraClientRecordingSpy implements CoraClient {
+
+	public List<String> calls = Collections.synchronizedList(new ArrayList<>());
+	public boolean throwErrorOnCall = false;
+	public String errorMessage = "Error from CoraClientRecordingSpy on ";
+	public Exception errorCause;
+	public ClientDataRecord dataRecordToReturn;
+	public List<ClientDataRecord> dataRecordsToReturn = new ArrayList<>();
+
+	private String record(String call) {
+		calls.add(call);
+		if (throwErrorOnCall) {
+			throw new RuntimeException(errorMessage + call, errorCause);
+		}
+		return "result of " + call;
+	}
+
+	@Override
+	public String create(String recordType, String json) {
+		return record("create " + recordType + " " + json);
+	}
+
+	@Override
+	public String create(String recordType, ClientDataGroup dataGroup) {
+		return record("create " + recordType + " dataGroup");
+	}
+
+	@Override
+	public String read(String recordType, String recordId) {
+		return record("read " + recordType + " " + recordId);
+	}
+
+	@Override
+	public String update(String recordType, String recordId, String json) {
+		return record("update " + recordType + " " + recordId + " " + json);
+	}
+
+	@Override
+	public String delete(String recordType, String recordId) {
+		return record("delete " + recordType + " " + recordId);
+	}
+
+	@Override
+	public String readList(String recordType) {
+		return record("readList " + recordType);
+	}
+
+	@Override
+	public String readIncomingLinks(String recordType, String recordId) {
+		return record("readIncomingLinks " + recordType + " " + recordId);
+	}
+
+	@Override
+	public ClientDataRecord readAsDataRecord(String recordType, String recordId) {
+		record("readAsDataRecord " + recordType + " " + recordId);
+		return dataRecordToReturn;
+	}
+
+	@Override
+	public String update(String recordType, String recordId, ClientDataGroup dataGroup) {
+		return record("update " + recordType + " " + recordId + " dataGroup");
+	}
+
+	@Override
+	public List<ClientDataRecord> readListAsDataRecords(String recordType) {
+		record("readListAsDataRecords " + recordType);
+		return dataRecordsToReturn;
+	}
+
+	@Override
+	public String indexData(ClientDataRecord clientDataRecord) {
+		return record("indexData dataRecord");
+	}
+
+	@Override
+	public String indexData(String recordType, String recordId) {
+		return record("indexData " + recordType + " " + recordId);
+	}
+
+	@Override
+	public String removeFromIndex(String recordType, String recordId) {
+		return record("removeFromIndex " + recordType + " " + recordId);
+	}
+
+	@Override
+	public String indexDataWithoutExplicitCommit(String recordType, String recordId) {
+		return record("indexDataWithoutExplicitCommit " + recordType + " " + recordId);
+	}
+
+	@Override
+	public String indexRecordsOfType(String recordType, String filterAsJson) {
+		return record("indexRecordsOfType " + recordType + " " + filterAsJson);
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.coraclient;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.indexmessenger.CoraClientFactorySpy;
+import se.uu.ub.cora.indexmessenger.log.LoggerFactorySpy;
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+public class PooledCoraClientFactoryTest {
+	private CoraClientFactorySpy coraClientFactory;
+	private IndexMetrics indexMetrics;
+	private PooledCoraClientFactory factory;
+
+	@BeforeMethod
+	public void setUp() {
+		LoggerProvider.setLoggerFactory(new LoggerFactorySpy());
+		coraClientFactory = new CoraClientFactorySpy();
+		indexMetrics = new IndexMetrics();
+		factory = new PooledCoraClientFactory(coraClientFactory, 4, 250, indexMetrics);
+	}
+
+	@Test
+	public void testGetters() throws Exception {
+		assertSame(factory.getCoraClientFactory(), coraClientFactory);
+		assertEquals(factory.getPoolSize(), 4);
+		assertEquals(factory.getCheckoutTimeoutMs(), 250);
+		assertSame(factory.getIndexMetrics(), indexMetrics);
+	}
+
+	@Test
+	public void testFactorCreatesPooledClientWithPoolOfItsOwn() throws Exception {
+		PooledCoraClient pooledClient = factory.factor("someUserId", "someAppToken");
+		PooledCoraClient otherPooledClient = factory.factor("someUserId", "someAppToken");
+
+		CoraClientPool pool = pooledClient.getPool();
+		assertNotSame(otherPooledClient.getPool(), pool);
+		assertEquals(pool.getSize(), 4);
+		assertEquals(pool.getCheckoutTimeoutMs(), 250);
+		assertEquals(indexMetrics.getClientPoolMetrics().getClientPoolSize(), 8);
+	}
+
+	@Test
+	public void testPooledClientUsesClientsFromWrappedFactory() throws Exception {
+		PooledCoraClient pooledClient = factory.factor("someUserId", "someAppToken");
+
+		pooledClient.create("workOrder", "someJson");
+
+		assertEquals(coraClientFactory.userId, "someUserId");
+		assertEquals(coraClientFactory.appToken, "someAppToken");
+		assertEquals(coraClientFactory.factoredClient.createdJson, "someJson");
+	}
+
+	@Test
+	public void testFactorUsingAuthToken() throws Exception {
+		PooledCoraClient pooledClient = (PooledCoraClient) factory
+				.factorUsingAuthToken("someAuthToken");
+
+		assertEquals(pooledClient.getPool().getSize(), 4);
+		assertEquals(pooledClient.getPool().getNoOfCreated(), 0);
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.coraclient;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+import java.io.IOException;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.clientdata.ClientDataGroup;
+import se.uu.ub.cora.indexmessenger.log.LoggerFactorySpy;
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+public class PooledCoraClientTest {
+	private CoraClientRecordingSpy clientSpy;
+	private CoraClientPool pool;
+	private PooledCoraClient pooledClient;
+
+	@BeforeMethod
+	public void setUp() {
+		LoggerProvider.setLoggerFactory(new LoggerFactorySpy());
+		clientSpy = new CoraClientRecordingSpy();
+		pool = CoraClientPool.usingClientSupplierAndSettings(() -> clientSpy, 1, 100,
+				new IndexMetrics());
+		pooledClient = PooledCoraClient.usingPool(pool);
+	}
+
+	@Test
+	public void testGetPool() throws Exception {
+		assertSame(pooledClient.getPool(), pool);
+	}
+
+	@Test
+	public void testCallsArePassedOnToPooledClient() throws Exception {
+		assertEquals(pooledClient.create("type", "json"), "result of create type json");
+		pooledClient.create("type", (ClientDataGroup) null);
+		pooledClient.read("type", "id");
+		pooledClient.update("type", "id", "json");
+		pooledClient.delete("type", "id");
+		pooledClient.readList("type");
+		pooledClient.readIncomingLinks("type", "id");
+		assertSame(pooledClient.readAsDataRecord("type", "id"), clientSpy.dataRecordToReturn);
+		pooledClient.update("type", "id", (ClientDataGroup) null);
+		assertSame(pooledClient.readListAsDataRecords("type"), clientSpy.dataRecordsToReturn);
+		pooledClient.indexData(null);
+		pooledClient.indexData("type", "id");
+		pooledClient.removeFromIndex("type", "id");
+		pooledClient.indexDataWithoutExplicitCommit("type", "id");
+		pooledClient.indexRecordsOfType("type", "filter");
+
+		assertEquals(clientSpy.calls.size(), 15);
+		assertEquals(clientSpy.calls.get(1), "create type dataGroup");
+		assertEquals(clientSpy.calls.get(8), "update type id dataGroup");
+		assertEquals(clientSpy.calls.get(14), "indexRecordsOfType type filter");
+		assertEquals(pool.getNoOfCreated(), 1);
+		assertEquals(pool.getNoOfCheckedOut(), 0);
+	}
+
+	@Test
+	public void testCallFailedOnTransportEvictsClient() throws Exception {
+		clientSpy.throwErrorOnCall = true;
+		clientSpy.errorCause = new IOException("Connection refused");
+
+		try {
+			pooledClient.indexData("type", "id");
+		} catch (RuntimeException e) {
+			assertEquals(e.getMessage(), "Error from CoraClientRecordingSpy on indexData type id");
+		}
+
+		assertEquals(pool.getNoOfEvicted(), 1);
+		assertEquals(pool.getNoOfCheckedOut(), 0);
+	}
+}
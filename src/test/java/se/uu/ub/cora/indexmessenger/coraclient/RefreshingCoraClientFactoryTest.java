@@ -0,0 +1,269 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.coraclient;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.function.BooleanSupplier;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.indexmessenger.CoraClientFactorySpy;
+import se.uu.ub.cora.indexmessenger.CoraClientSpy;
+import se.uu.ub.cora.indexmessenger.log.LoggerFactorySpy;
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+public class RefreshingCoraClientFactoryTest {
+	private LoggerFactorySpy loggerFactorySpy;
+	private String testedClassName = "RefreshingCoraClientFactory";
+	private CoraClientFactorySpy coraClientFactory;
+	private AuthTokenProviderSpy authTokenProvider;
+	private IndexMetrics indexMetrics;
+	private RefreshingCoraClientFactory factory;
+
+	@BeforeMethod
+	public void setUp() {
+		loggerFactorySpy = new LoggerFactorySpy();
+		LoggerProvider.setLoggerFactory(loggerFactorySpy);
+		coraClientFactory = new CoraClientFactorySpy();
+		authTokenProvider = new AuthTokenProviderSpy();
+		indexMetrics = new IndexMetrics();
+		factory = new RefreshingCoraClientFactory(coraClientFactory, authTokenProvider, 80, 10,
+				indexMetrics);
+	}
+
+	@AfterMethod
+	public void tearDown() {
+		factory.shutdown();
+	}
+
+	@Test
+	public void testGetters() throws Exception {
+		assertSame(factory.getCoraClientFactory(), coraClientFactory);
+		assertSame(factory.getAuthTokenProvider(), authTokenProvider);
+		assertEquals(factory.getRefreshMarginMs(), 80);
+		assertEquals(factory.getFailureRetryMs(), 10);
+	}
+
+	@Test
+	public void testRefreshDelayIsMarginBeforeExpiryButAtLeastHalfLifetime() throws Exception {
+		assertEquals(factory.calculateRefreshDelayMs(AuthToken.usingTokenAndValidForMs("t", 600)),
+				520);
+		assertEquals(factory.calculateRefreshDelayMs(AuthToken.usingTokenAndValidForMs("t", 100)),
+				50);
+	}
+
+	@Test
+	public void testFactorFetchesFirstAuthTokenAndFactorsClient() throws Exception {
+		authTokenProvider.validForMs = 60_000;
+
+		RefreshingCoraClient client = factory.factor("someUserId", "someAppToken");
+
+		assertEquals(authTokenProvider.credentials.get(0).userId, "someUserId");
+		assertEquals(authTokenProvider.credentials.get(0).appToken, "someAppToken");
+		assertEquals(coraClientFactory.authTokens.get(0), "authToken1");
+		assertSame(client.getCurrentClient(), coraClientFactory.factoredAuthTokenClients.get(0));
+		assertTrue(client.getTokenExpiresAtMillis() > System.currentTimeMillis() + 50_000);
+		assertEquals(indexMetrics.getTokenMetrics().getTokenRefreshes(), 1);
+		assertTrue(indexMetrics.getTokenMetrics().getMillisUntilTokenExpiry() > 50_000);
+	}
+
+	@Test
+	public void testCallsArePassedOnToCurrentClient() throws Exception {
+		authTokenProvider.validForMs = 60_000;
+		RefreshingCoraClient client = factory.factor("someUserId", "someAppToken");
+
+		client.create("workOrder", "someJson");
+
+		CoraClientSpy currentClient = (CoraClientSpy) client.getCurrentClient();
+		assertEquals(currentClient.createdJson, "someJson");
+	}
+
+	@Test
+	public void testFirstAuthTokenFailing() throws Exception {
+		authTokenProvider.noOfFailuresToThrow.set(1);
+
+		Exception thrown = null;
+		try {
+			factory.factor("someUserId", "someAppToken");
+		} catch (AuthTokenException e) {
+			thrown = e;
+		}
+
+		assertEquals(thrown.getMessage(), "Could not fetch authToken for user: someUserId");
+		assertEquals(thrown.getCause().getMessage(), "Error from AuthTokenProviderSpy");
+	}
+
+	@Test
+	public void testClientIsReplacedBeforeTokenExpires() throws Exception {
+		RefreshingCoraClient client = factory.factor("someUserId", "someAppToken");
+
+		waitUntil(() -> loggerFactorySpy
+				.getNoOfInfoLogMessagesUsingClassname(testedClassName) >= 1);
+
+		assertSame(client.getCurrentClient(), coraClientFactory.factoredAuthTokenClients.get(1));
+		assertNotEquals(coraClientFactory.authTokens.get(1), "authToken1");
+		assertTrue(indexMetrics.getTokenMetrics().getTokenRefreshes() >= 2);
+		assertEquals(loggerFactorySpy.getInfoLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"Refreshed authToken for user: someUserId, next refresh in 50 ms");
+	}
+
+	@Test
+	public void testFailedRefreshIsLoggedAndRetried() throws Exception {
+		RefreshingCoraClient client = factory.factor("someUserId", "someAppToken");
+		authTokenProvider.noOfFailuresToThrow.set(2);
+		authTokenProvider.validForMs = 60_000;
+
+		waitUntil(() -> loggerFactorySpy
+				.getNoOfInfoLogMessagesUsingClassname(testedClassName) >= 1);
+
+		assertEquals(indexMetrics.getTokenMetrics().getTokenRefreshFailures(), 2);
+		assertEquals(authTokenProvider.getNoOfFetches(), 4);
+		assertSame(client.getCurrentClient(), coraClientFactory.factoredAuthTokenClients.get(1));
+		assertEquals(coraClientFactory.authTokens.get(1), "authToken4");
+		assertEquals(loggerFactorySpy.getErrorLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"Failed to refresh authToken for user: someUserId, retrying in 10 ms");
+		assertEquals(loggerFactorySpy.getErrorLogErrorUsingClassNameAndNo(testedClassName, 1)
+				.getMessage(), "Error from AuthTokenProviderSpy");
+	}
+
+	@Test
+	public void testClientsForSameCredentialsShareOneRefresh() throws Exception {
+		authTokenProvider.validForMs = 60_000;
+
+		RefreshingCoraClient client = factory.factor("someUserId", "someAppToken");
+		RefreshingCoraClient otherClient = factory.factor("someUserId", "someAppToken");
+
+		assertEquals(authTokenProvider.getNoOfFetches(), 1);
+		assertEquals(factory.getNoOfRefreshedCredentials(), 1);
+		assertEquals(coraClientFactory.authTokens.get(1), "authToken1");
+		assertSame(client.getCurrentClient(), coraClientFactory.factoredAuthTokenClients.get(0));
+		assertSame(otherClient.getCurrentClient(),
+				coraClientFactory.factoredAuthTokenClients.get(1));
+	}
+
+	@Test
+	public void testClientsForOtherCredentialsGetOwnRefresh() throws Exception {
+		authTokenProvider.validForMs = 60_000;
+
+		factory.factor("someUserId", "someAppToken");
+		factory.factor("otherUserId", "someAppToken");
+
+		assertEquals(authTokenProvider.getNoOfFetches(), 2);
+		assertEquals(factory.getNoOfRefreshedCredentials(), 2);
+	}
+
+	@Test
+	public void testExpiredSharedAuthTokenIsFetchedAgainOnFactor() throws Exception {
+		authTokenProvider.validForMs = 20;
+		factory.factor("someUserId", "someAppToken");
+		authTokenProvider.noOfFailuresToThrow.set(Integer.MAX_VALUE);
+		Thread.sleep(40);
+		authTokenProvider.validForMs = 60_000;
+		authTokenProvider.noOfFailuresToThrow.set(0);
+
+		RefreshingCoraClient client = factory.factor("someUserId", "someAppToken");
+
+		assertEquals(factory.getNoOfRefreshedCredentials(), 1);
+		assertTrue(client.getTokenExpiresAtMillis() > System.currentTimeMillis() + 50_000);
+	}
+
+	@Test
+	public void testCallWithExpiredAuthTokenFetchesNewOneOnCallingThread() throws Exception {
+		authTokenProvider.validForMs = 20;
+		RefreshingCoraClient client = factory.factor("someUserId", "someAppToken");
+		factory.shutdown();
+		Thread.sleep(40);
+		authTokenProvider.validForMs = 60_000;
+
+		client.create("someType", "someJson");
+
+		assertEquals(authTokenProvider.getNoOfFetches(), 2);
+		assertEquals(coraClientFactory.authTokens.get(1), "authToken2");
+		CoraClientSpy currentClient = (CoraClientSpy) client.getCurrentClient();
+		assertEquals(currentClient.createdJson, "someJson");
+		assertTrue(client.getTokenExpiresAtMillis() > System.currentTimeMillis() + 50_000);
+	}
+
+	@Test
+	public void testCallWithExpiredAuthTokenThrowsErrorIfFetchFails() throws Exception {
+		authTokenProvider.validForMs = 20;
+		RefreshingCoraClient client = factory.factor("someUserId", "someAppToken");
+		factory.shutdown();
+		Thread.sleep(40);
+		authTokenProvider.noOfFailuresToThrow.set(1);
+
+		Exception thrown = null;
+		try {
+			client.create("someType", "someJson");
+		} catch (AuthTokenException e) {
+			thrown = e;
+		}
+
+		assertEquals(thrown.getMessage(), "Could not fetch authToken for user: someUserId");
+		assertEquals(coraClientFactory.authTokens.size(), 1);
+	}
+
+	@Test
+	public void testDroppedClientsLeaveNoRefreshBehind() throws Exception {
+		for (int i = 0; i < 10; i++) {
+			factory.factor("someUserId", "someAppToken");
+		}
+
+		waitUntil(() -> authTokenProvider.getNoOfFetches() >= 3);
+		Thread.sleep(20);
+
+		assertEquals(factory.getNoOfRefreshedCredentials(), 1);
+		assertTrue(authTokenProvider.getNoOfFetches() < 10);
+	}
+
+	@Test
+	public void testShutdownStopsRefreshes() throws Exception {
+		factory.factor("someUserId", "someAppToken");
+
+		factory.shutdown();
+		Thread.sleep(120);
+
+		assertEquals(authTokenProvider.getNoOfFetches(), 1);
+	}
+
+	@Test
+	public void testFactorUsingAuthTokenIsPassedOn() throws Exception {
+		assertSame(factory.factorUsingAuthToken("someAuthToken"),
+				coraClientFactory.factoredAuthTokenClients.get(0));
+		assertEquals(coraClientFactory.authTokens.get(0), "someAuthToken");
+	}
+
+	private void waitUntil(BooleanSupplier condition) {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+			try {
+				Thread.sleep(1);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.coraclient;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.clientdata.ClientDataGroup;
+import se.uu.ub.cora.javaclient.cora.CoraClient;
+import se.uu.ub.cora.javaclient.cora.CoraClientFactory;
+
+public class RefreshingCoraClientTest {
+	private List<String> authTokens;
+	private List<CoraClientRecordingSpy> factoredClients;
+	private long expiresAtMillis;
+	private int noOfFetchedAuthTokens;
+	private SharedAuthToken sharedAuthToken;
+	private CoraClientRecordingSpy clientSpy;
+	private RefreshingCoraClient refreshingClient;
+
+	@BeforeMethod
+	public void setUp() {
+		authTokens = new ArrayList<>();
+		factoredClients = new ArrayList<>();
+		expiresAtMillis = System.currentTimeMillis() + 60_000;
+		noOfFetchedAuthTokens = 0;
+		sharedAuthToken = new SharedAuthToken(
+				AuthToken.usingTokenAndValidForMs("someAuthToken", 60_000), expiresAtMillis,
+				this::fetchAuthToken);
+		refreshingClient = new RefreshingCoraClient(createCoraClientFactory(), sharedAuthToken);
+		clientSpy = factoredClients.get(0);
+	}
+
+	private AuthToken fetchAuthToken() {
+		noOfFetchedAuthTokens++;
+		return AuthToken.usingTokenAndValidForMs("fetchedAuthToken" + noOfFetchedAuthTokens,
+				60_000);
+	}
+
+	private CoraClientFactory createCoraClientFactory() {
+		return new CoraClientFactory() {
+			@Override
+			public CoraClient factor(String userId, String appToken) {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public CoraClient factorUsingAuthToken(String authToken) {
+				authTokens.add(authToken);
+				CoraClientRecordingSpy client = new CoraClientRecordingSpy();
+				factoredClients.add(client);
+				return client;
+			}
+		};
+	}
+
+	@Test
+	public void testInit() throws Exception {
+		assertEquals(authTokens.get(0), "someAuthToken");
+		assertSame(refreshingClient.getCurrentClient(), clientSpy);
+		assertEquals(refreshingClient.getTokenExpiresAtMillis(), expiresAtMillis);
+		assertEquals(noOfFetchedAuthTokens, 0);
+	}
+
+	@Test
+	public void testCallsArePassedOnToCurrentClient() throws Exception {
+		assertEquals(refreshingClient.create("type", "json"), "result of create type json");
+		refreshingClient.create("type", (ClientDataGroup) null);
+		refreshingClient.read("type", "id");
+		refreshingClient.update("type", "id", "json");
+		refreshingClient.delete("type", "id");
+		refreshingClient.readList("type");
+		refreshingClient.readIncomingLinks("type", "id");
+		assertSame(refreshingClient.readAsDataRecord("type", "id"),
+				clientSpy.dataRecordToReturn);
+		refreshingClient.update("type", "id", (ClientDataGroup) null);
+		assertSame(refreshingClient.readListAsDataRecords("type"),
+				clientSpy.dataRecordsToReturn);
+		refreshingClient.indexData(null);
+		refreshingClient.indexData("type", "id");
+		refreshingClient.removeFromIndex("type", "id");
+		refreshingClient.indexDataWithoutExplicitCommit("type", "id");
+		refreshingClient.indexRecordsOfType("type", "filter");
+
+		assertEquals(clientSpy.calls.size(), 15);
+		assertEquals(clientSpy.calls.get(14), "indexRecordsOfType type filter");
+	}
+
+	@Test
+	public void testNoNewClientWhileAuthTokenIsUnchanged() throws Exception {
+		refreshingClient.read("type", "id");
+		refreshingClient.read("type", "id");
+
+		assertEquals(factoredClients.size(), 1);
+		assertEquals(clientSpy.calls.size(), 2);
+	}
+
+	@Test
+	public void testNewClientIsFactoredWhenSharedAuthTokenIsReplaced() throws Exception {
+		sharedAuthToken.replace(AuthToken.usingTokenAndValidForMs("newAuthToken", 60_000),
+				expiresAtMillis + 1);
+
+		refreshingClient.read("type", "id");
+
+		assertEquals(authTokens.get(1), "newAuthToken");
+		CoraClientRecordingSpy newClientSpy = factoredClients.get(1);
+		assertSame(refreshingClient.getCurrentClient(), newClientSpy);
+		assertEquals(refreshingClient.getTokenExpiresAtMillis(), expiresAtMillis + 1);
+		assertEquals(newClientSpy.calls.get(0), "read type id");
+		assertEquals(clientSpy.calls.size(), 0);
+	}
+
+	@Test
+	public void testExpiredAuthTokenIsFetchedOnCallingThreadBeforeCall() throws Exception {
+		sharedAuthToken.replace(AuthToken.usingTokenAndValidForMs("expiredAuthToken", 1000), 0);
+
+		refreshingClient.read("type", "id");
+
+		assertEquals(noOfFetchedAuthTokens, 1);
+		assertEquals(authTokens.get(1), "fetchedAuthToken1");
+		assertEquals(factoredClients.get(1).calls.get(0), "read type id");
+		assertEquals(clientSpy.calls.size(), 0);
+		assertTrue(refreshingClient.getTokenExpiresAtMillis() > System.currentTimeMillis());
+	}
+
+	@Test
+	public void testFetchedAuthTokenIsUsedUntilItExpires() throws Exception {
+		sharedAuthToken.replace(AuthToken.usingTokenAndValidForMs("expiredAuthToken", 1000), 0);
+
+		refreshingClient.read("type", "id");
+		refreshingClient.read("type", "id");
+
+		assertEquals(noOfFetchedAuthTokens, 1);
+		assertEquals(factoredClients.size(), 2);
+		assertEquals(factoredClients.get(1).calls.size(), 2);
+	}
+
+	@Test
+	public void testClientsSharingAuthTokenFactorOwnClients() throws Exception {
+		RefreshingCoraClient otherClient = new RefreshingCoraClient(createCoraClientFactory(),
+				sharedAuthToken);
+
+		assertSame(otherClient.getCurrentClient(), factoredClients.get(1));
+		assertEquals(authTokens.get(1), "someAuthToken");
+	}
+}
@@ -51,6 +51,15 @@ public class LoggerFactorySpy implements LoggerFactory {
 		return errorMessages.get(messageNo);
 	}
 
+	public String getWarnLogMessageUsingClassNameAndNo(String className, int messageNo) {
+		List<String> warnMessages = (createdLoggers.get(className)).warnMessages;
+		return warnMessages.get(messageNo);
+	}
+
+	public int getNoOfWarnLogMessagesUsingClassName(String testedClassname) {
+		return ((createdLoggers.get(testedClassname)).warnMessages).size();
+	}
+
 	public int getNoOfInfoLogMessagesUsingClassname(String testedClassname) {
 		return ((createdLoggers.get(testedClassname)).infoMessages).size();
 	}
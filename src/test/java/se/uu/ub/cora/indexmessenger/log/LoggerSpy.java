@@ -1,5 +1,5 @@
 /*
- * Copyright 2019 Uppsala University Library
+ * Copyright 2019, 2026 Uppsala University Library
  *
  * This file is part of Cora.
  *
@@ -20,6 +20,7 @@
 package se.uu.ub.cora.indexmessenger.log;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.function.Supplier;
 
@@ -27,11 +28,13 @@ import se.uu.ub.cora.logger.Logger;
 
 public class LoggerSpy implements Logger {
 
-	public List<String> fatalMessages = new ArrayList<>();
-	public List<String> errorMessages = new ArrayList<>();
-	public List<String> infoMessages = new ArrayList<>();
-	public List<Exception> errorExceptions = new ArrayList<>();
-	public List<Exception> fatalExceptions = new ArrayList<>();
+	public List<String> fatalMessages = Collections.synchronizedList(new ArrayList<>());
+	public List<String> errorMessages = Collections.synchronizedList(new ArrayList<>());
+	public List<String> warnMessages = Collections.synchronizedList(new ArrayList<>());
+	public List<String> infoMessages = Collections.synchronizedList(new ArrayList<>());
+	public List<Exception> errorExceptions = Collections.synchronizedList(new ArrayList<>());
+	public List<Exception> fatalExceptions = Collections.synchronizedList(new ArrayList<>());
+	public List<Exception> warnExceptions = Collections.synchronizedList(new ArrayList<>());
 
 	@Override
 	public void logFatalUsingMessage(String message) {
@@ -58,14 +61,13 @@ public class LoggerSpy implements Logger {
 
 	@Override
 	public void logWarnUsingMessage(String message) {
-		// TODO Auto-generated method stub
-
+		warnMessages.add(message);
 	}
 
 	@Override
 	public void logWarnUsingMessageAndException(String message, Exception exception) {
-		// TODO Auto-generated method stub
-
+		warnMessages.add(message);
+		warnExceptions.add(exception);
 	}
 
 	@Override
@@ -98,10 +100,12 @@ public class LoggerSpy implements Logger {
 	}
 
 	public void resetLogs() {
-		fatalMessages = new ArrayList<>();
-		infoMessages = new ArrayList<>();
-		errorMessages = new ArrayList<>();
-		errorExceptions = new ArrayList<>();
-		fatalExceptions = new ArrayList<>();
+		fatalMessages.clear();
+		errorMessages.clear();
+		warnMessages.clear();
+		infoMessages.clear();
+		errorExceptions.clear();
+		fatalExceptions.clear();
+		warnExceptions.clear();
 	}
 }
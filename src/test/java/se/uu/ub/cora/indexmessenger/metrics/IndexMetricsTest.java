@@ -0,0 +1,360 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.metrics;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.OpenType;
+import javax.management.openmbean.TabularData;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.indexmessenger.IndexMessageException;
+
+public class IndexMetricsTest {
+	private IndexMetrics metrics;
+	private MBeanServer mBeanServer;
+
+	@BeforeMethod
+	public void setUp() {
+		metrics = new IndexMetrics();
+		mBeanServer = ManagementFactory.getPlatformMBeanServer();
+	}
+
+	@AfterMethod
+	public void tearDown() {
+		metrics.unregisterAsMBean();
+	}
+
+	@Test
+	public void testCounters() {
+		metrics.getWorkOrderMetrics().incrementMessagesReceived();
+		metrics.getWorkOrderMetrics().incrementMessagesReceived();
+		metrics.getWorkOrderMetrics().incrementMessagesFiltered();
+		metrics.getWorkOrderMetrics().recordMessageParsedUsingNanos(1_000);
+		metrics.getWorkOrderMetrics().recordWorkOrderCreatedUsingNanos(2_000_000);
+		metrics.getWorkOrderMetrics().recordWorkOrderFailedUsingNanos(4_000_000);
+
+		assertEquals(metrics.getWorkOrderMetrics().getMessagesReceived(), 2);
+		assertEquals(metrics.getWorkOrderMetrics().getMessagesFiltered(), 1);
+		assertEquals(metrics.getWorkOrderMetrics().getMessagesParsed(), 1);
+		assertEquals(metrics.getWorkOrderMetrics().getWorkOrdersCreated(), 1);
+		assertEquals(metrics.getWorkOrderMetrics().getWorkOrdersFailed(), 1);
+	}
+
+	@Test
+	public void testLatencies() {
+		metrics.getWorkOrderMetrics().recordMessageParsedUsingNanos(1_000);
+		metrics.getWorkOrderMetrics().recordWorkOrderCreatedUsingNanos(2_000_000);
+		metrics.getWorkOrderMetrics().recordWorkOrderFailedUsingNanos(4_000_000);
+
+		assertEquals(metrics.getWorkOrderMetrics().getParseLatency().getCount(), 1);
+		assertEquals(metrics.getWorkOrderMetrics().getParseLatencyMeanMicros(), 1.0);
+		assertEquals(metrics.getWorkOrderMetrics().getParseLatencyBucketCounts()[0], 1);
+		assertEquals(metrics.getWorkOrderMetrics().getCreateLatency().getCount(), 2);
+		assertEquals(metrics.getWorkOrderMetrics().getCreateLatencyMeanMicros(), 3000.0);
+		assertEquals(metrics.getWorkOrderMetrics().getCreateLatencyBucketCounts()[4], 1);
+		assertEquals(metrics.getWorkOrderMetrics().getCreateLatencyBucketCounts()[5], 1);
+		assertEquals(metrics.getWorkOrderMetrics().getLatencyBucketUpperBoundsMicros(),
+				LatencyHistogram.getBucketUpperBoundsMicros());
+	}
+
+	@Test
+	public void testRegisterAsMBean() throws Exception {
+		metrics.getWorkOrderMetrics().incrementMessagesReceived();
+
+		List<ObjectName> objectNames = metrics.registerAsMBeanUsingName("someHost:5672");
+
+		assertEquals(objectNames, metrics.getObjectNames());
+		assertEquals(objectNames.size(), 9);
+		for (ObjectName objectName : objectNames) {
+			assertEquals(objectName.getKeyProperty("type"), "IndexMetrics");
+			assertEquals(objectName.getKeyProperty("name"), "\"someHost:5672\"");
+			assertTrue(mBeanServer.isRegistered(objectName));
+		}
+		ObjectName workOrders = objectNames.get(0);
+		assertEquals(workOrders.getKeyProperty("subsystem"), "WorkOrders");
+		assertEquals(mBeanServer.getAttribute(workOrders, "MessagesReceived"), 1L);
+		assertEquals(objectNames.get(8).getKeyProperty("subsystem"), "DeadLetters");
+	}
+
+	@Test
+	public void testRegisteredAttributesAreOpenTypes() throws Exception {
+		metrics.getWorkOrderMetrics().recordPriorityLatencyUsingNanos("HIGH", 2_000);
+		metrics.getClientPoolMetrics().recordClientCheckedOutUsingNanos(0);
+		List<ObjectName> objectNames = metrics.registerAsMBeanUsingName("someName");
+
+		for (ObjectName objectName : objectNames) {
+			for (MBeanAttributeInfo attribute : mBeanServer.getMBeanInfo(objectName)
+					.getAttributes()) {
+				assertTrue(attribute.getDescriptor().getFieldValue("openType") instanceof OpenType,
+						attribute.getName());
+			}
+		}
+		TabularData means = (TabularData) mBeanServer.getAttribute(objectNames.get(0),
+				"PriorityLatencyMeanMicros");
+		assertEquals(means.get(new Object[] { "HIGH" }).get("value"), 2.0);
+		TabularData bucketCounts = (TabularData) mBeanServer.getAttribute(objectNames.get(0),
+				"PriorityLatencyBucketCounts");
+		assertEquals(((long[]) bucketCounts.get(new Object[] { "HIGH" }).get("value"))[0], 1);
+	}
+
+	@Test
+	public void testRegisterDoesNotReplaceOtherMBeanWithSameName() throws Exception {
+		IndexMetrics otherMetrics = new IndexMetrics();
+		List<ObjectName> otherNames = otherMetrics.registerAsMBeanUsingName("someName");
+		otherMetrics.getWorkOrderMetrics().incrementMessagesFiltered();
+
+		try {
+			metrics.registerAsMBeanUsingName("someName");
+			fail("registering under a name in use should fail");
+		} catch (IndexMessageException e) {
+			assertEquals(e.getMessage(), "Other metrics already registered as MBean: someName");
+		}
+
+		assertTrue(metrics.getObjectNames().isEmpty());
+		assertEquals(mBeanServer.getAttribute(otherNames.get(0), "MessagesFiltered"), 1L);
+		otherMetrics.unregisterAsMBean();
+	}
+
+	@Test
+	public void testRegisterAgainUsingSameName() throws Exception {
+		metrics.registerAsMBeanUsingName("someName");
+
+		List<ObjectName> objectNames = metrics.registerAsMBeanUsingName("someName");
+
+		assertTrue(mBeanServer.isRegistered(objectNames.get(0)));
+	}
+
+	@Test
+	public void testUnregisterAsMBean() throws Exception {
+		List<ObjectName> objectNames = metrics.registerAsMBeanUsingName("someName");
+
+		metrics.unregisterAsMBean();
+
+		for (ObjectName objectName : objectNames) {
+			assertFalse(mBeanServer.isRegistered(objectName));
+		}
+		assertTrue(metrics.getObjectNames().isEmpty());
+	}
+
+	@Test
+	public void testUnregisterWhenNotRegisteredDoesNothing() throws Exception {
+		metrics.unregisterAsMBean();
+
+		assertTrue(metrics.getObjectNames().isEmpty());
+	}
+
+	@Test
+	public void testRegisterUsingNewNameUnregistersOldName() throws Exception {
+		List<ObjectName> oldNames = metrics.registerAsMBeanUsingName("otherName");
+
+		List<ObjectName> newNames = metrics.registerAsMBeanUsingName("someName");
+
+		assertFalse(mBeanServer.isRegistered(oldNames.get(0)));
+		assertTrue(mBeanServer.isRegistered(newNames.get(0)));
+	}
+
+	@Test
+	public void testRetryAndCircuitBreakerMetrics() {
+		assertEquals(metrics.getRetryMetrics().getCircuitBreakerState(), "NONE");
+
+		metrics.getRetryMetrics().incrementRetriesScheduled();
+		metrics.getRetryMetrics().incrementRetriesScheduled();
+		metrics.getRetryMetrics().incrementRetriesExhausted();
+		metrics.getRetryMetrics().incrementFailuresNotRetryable();
+		metrics.getRetryMetrics().incrementWorkOrdersRejectedByCircuitBreaker();
+		metrics.getRetryMetrics().recordCircuitBreakerStateChange(null, "CLOSED");
+		metrics.getRetryMetrics().recordCircuitBreakerStateChange("CLOSED", "OPEN");
+		metrics.getRetryMetrics().recordCircuitBreakerStateChange("OPEN", "HALF_OPEN");
+
+		assertEquals(metrics.getRetryMetrics().getRetriesScheduled(), 2);
+		assertEquals(metrics.getRetryMetrics().getRetriesExhausted(), 1);
+		assertEquals(metrics.getRetryMetrics().getFailuresNotRetryable(), 1);
+		assertEquals(metrics.getRetryMetrics().getWorkOrdersRejectedByCircuitBreaker(), 1);
+		assertEquals(metrics.getRetryMetrics().getCircuitBreakerState(), "HALF_OPEN");
+		assertEquals(metrics.getRetryMetrics().getCircuitBreakerOpenings(), 1);
+		assertEquals(metrics.getRetryMetrics().getNoOfOpenCircuitBreakers(), 0);
+	}
+
+	@Test
+	public void testCircuitBreakerStateIsAggregatedOverCircuitBreakers() {
+		metrics.getRetryMetrics().recordCircuitBreakerStateChange(null, "CLOSED");
+		metrics.getRetryMetrics().recordCircuitBreakerStateChange(null, "CLOSED");
+		assertEquals(metrics.getRetryMetrics().getCircuitBreakerState(), "CLOSED");
+
+		metrics.getRetryMetrics().recordCircuitBreakerStateChange("CLOSED", "OPEN");
+		metrics.getRetryMetrics().recordCircuitBreakerStateChange("CLOSED", "HALF_OPEN");
+		assertEquals(metrics.getRetryMetrics().getCircuitBreakerState(), "OPEN");
+		assertEquals(metrics.getRetryMetrics().getNoOfOpenCircuitBreakers(), 1);
+
+		metrics.getRetryMetrics().recordCircuitBreakerStateChange("OPEN", "CLOSED");
+		assertEquals(metrics.getRetryMetrics().getCircuitBreakerState(), "HALF_OPEN");
+		assertEquals(metrics.getRetryMetrics().getNoOfOpenCircuitBreakers(), 0);
+	}
+
+	@Test
+	public void testConsumptionPauseMetrics() {
+		assertFalse(metrics.getBackPressureMetrics().isConsumptionPaused());
+
+		metrics.getBackPressureMetrics().recordConsumptionPaused();
+		assertTrue(metrics.getBackPressureMetrics().isConsumptionPaused());
+		metrics.getBackPressureMetrics().recordConsumptionResumedUsingNanos(3_000_000);
+
+		assertFalse(metrics.getBackPressureMetrics().isConsumptionPaused());
+		assertEquals(metrics.getBackPressureMetrics().getConsumptionPauses(), 1);
+		assertEquals(metrics.getBackPressureMetrics().getConsumptionResumes(), 1);
+		assertEquals(metrics.getBackPressureMetrics().getConsumptionPausedMillis(), 3);
+
+		metrics.getBackPressureMetrics().recordConsumptionPaused();
+		metrics.getBackPressureMetrics().recordConsumptionPauseInterruptedUsingNanos(2_000_000);
+		assertFalse(metrics.getBackPressureMetrics().isConsumptionPaused());
+		assertEquals(metrics.getBackPressureMetrics().getConsumptionResumes(), 1);
+		assertEquals(metrics.getBackPressureMetrics().getConsumptionPausesInterrupted(), 1);
+		assertEquals(metrics.getBackPressureMetrics().getConsumptionPausedMillis(), 5);
+	}
+
+	@Test
+	public void testClientPoolMetrics() {
+		metrics.getClientPoolMetrics().addToClientPoolSize(4);
+		metrics.getClientPoolMetrics().recordClientCheckedOutUsingNanos(2_000_000);
+		metrics.getClientPoolMetrics().recordClientCheckedOutUsingNanos(0);
+		metrics.getClientPoolMetrics().recordClientCheckedIn();
+		metrics.getClientPoolMetrics().incrementClientCheckoutWaits();
+		metrics.getClientPoolMetrics().incrementClientCheckoutTimeouts();
+		metrics.getClientPoolMetrics().incrementClientsEvicted();
+
+		assertEquals(metrics.getClientPoolMetrics().getClientPoolSize(), 4);
+		assertEquals(metrics.getClientPoolMetrics().getClientCheckouts(), 2);
+		assertEquals(metrics.getClientPoolMetrics().getClientsInUse(), 1);
+		assertEquals(metrics.getClientPoolMetrics().getClientCheckoutWaits(), 1);
+		assertEquals(metrics.getClientPoolMetrics().getClientCheckoutTimeouts(), 1);
+		assertEquals(metrics.getClientPoolMetrics().getClientsEvicted(), 1);
+		assertEquals(metrics.getClientPoolMetrics().getClientCheckoutLatency().getCount(), 2);
+		assertEquals(metrics.getClientPoolMetrics().getClientCheckoutLatencyBucketCounts()[0], 1);
+	}
+
+	@Test
+	public void testTokenRefreshMetrics() {
+		assertEquals(metrics.getTokenMetrics().getMillisUntilTokenExpiry(), -1);
+
+		metrics.getTokenMetrics()
+				.recordTokenRefreshedUsingNanos(1_000_000, System.currentTimeMillis() + 60_000);
+		metrics.getTokenMetrics().incrementTokenRefreshFailures();
+
+		assertEquals(metrics.getTokenMetrics().getTokenRefreshes(), 1);
+		assertEquals(metrics.getTokenMetrics().getTokenRefreshFailures(), 1);
+		assertTrue(metrics.getTokenMetrics().getMillisUntilTokenExpiry() > 50_000);
+		assertEquals(metrics.getTokenMetrics().getTokenRefreshLatency().getCount(), 1);
+		assertEquals(metrics.getTokenMetrics().getTokenRefreshLatencyBucketCounts()[3], 1);
+	}
+
+	@Test
+	public void testPriorityLatencyMetrics() {
+		assertTrue(metrics.getWorkOrderMetrics().getPriorityLatencyMeanMicros().isEmpty());
+
+		metrics.getWorkOrderMetrics().recordPriorityLatencyUsingNanos("HIGH", 2_000);
+		metrics.getWorkOrderMetrics().recordPriorityLatencyUsingNanos("HIGH", 4_000);
+		metrics.getWorkOrderMetrics().recordPriorityLatencyUsingNanos("BULK", 1_000_000);
+
+		assertEquals(metrics.getWorkOrderMetrics().getPriorityLatency("HIGH").getCount(), 2);
+		assertEquals(metrics.getWorkOrderMetrics().getPriorityLatencyMeanMicros().get("HIGH"), 3.0);
+		assertEquals(metrics.getWorkOrderMetrics().getPriorityLatencyMeanMicros().get("BULK"),
+				1000.0);
+		assertEquals(
+				metrics.getWorkOrderMetrics().getPriorityLatencyBucketCounts().get("HIGH")[0], 2);
+	}
+
+	@Test
+	public void testBurstMetrics() {
+		metrics.getBurstMetrics().incrementBurstsDetected();
+		metrics.getBurstMetrics().incrementBurstsIndexed();
+		metrics.getBurstMetrics().incrementBurstIndexFailures();
+		metrics.getBurstMetrics().incrementWorkOrdersCollapsedIntoBursts();
+		metrics.getBurstMetrics().incrementWorkOrdersCollapsedIntoBursts();
+
+		assertEquals(metrics.getBurstMetrics().getBurstsDetected(), 1);
+		assertEquals(metrics.getBurstMetrics().getBurstsIndexed(), 1);
+		assertEquals(metrics.getBurstMetrics().getBurstIndexFailures(), 1);
+		assertEquals(metrics.getBurstMetrics().getWorkOrdersCollapsedIntoBursts(), 2);
+	}
+
+	@Test
+	public void testAdaptiveConcurrencyMetrics() {
+		metrics.getConcurrencyMetrics().addToConcurrencyLimit(12);
+		metrics.getConcurrencyMetrics().addToConcurrencyLimit(8);
+		metrics.getConcurrencyMetrics().addToConcurrencyLimit(-3);
+		metrics.getConcurrencyMetrics().recordSmoothedRttNanos(3_500_000);
+		metrics.getConcurrencyMetrics().incrementConcurrencyLimitDecreases();
+
+		assertEquals(metrics.getConcurrencyMetrics().getConcurrencyLimit(), 17);
+		assertEquals(metrics.getConcurrencyMetrics().getSmoothedRttMicros(), 3500);
+		assertEquals(metrics.getConcurrencyMetrics().getConcurrencyLimitDecreases(), 1);
+	}
+
+	@Test
+	public void testWorkOrdersLeftAtShutdown() {
+		metrics.getWorkOrderMetrics().incrementWorkOrdersLeftAtShutdown();
+
+		assertEquals(metrics.getWorkOrderMetrics().getWorkOrdersLeftAtShutdown(), 1);
+	}
+
+	@Test
+	public void testTopicReconnectMetrics() {
+		assertFalse(metrics.getTopicMetrics().isTopicClosed());
+
+		metrics.getTopicMetrics().recordTopicClosed();
+		metrics.getTopicMetrics().incrementReconnectAttempts();
+		metrics.getTopicMetrics().incrementReconnectAttempts();
+		assertTrue(metrics.getTopicMetrics().isTopicClosed());
+
+		metrics.getTopicMetrics().recordTopicReconnectedUsingNanos(2_500_000_000L);
+
+		assertFalse(metrics.getTopicMetrics().isTopicClosed());
+		assertEquals(metrics.getTopicMetrics().getTopicCloses(), 1);
+		assertEquals(metrics.getTopicMetrics().getReconnectAttempts(), 2);
+		assertEquals(metrics.getTopicMetrics().getReconnects(), 1);
+		assertEquals(metrics.getTopicMetrics().getTopicDowntimeMillis(), 2500);
+	}
+
+	@Test
+	public void testDeadLetterMetrics() {
+		metrics.getWorkOrderMetrics().incrementMessagesFailedToParse();
+		metrics.getDeadLetterMetrics().incrementDeadLettersPublished();
+		metrics.getDeadLetterMetrics().incrementDeadLettersPublished();
+		metrics.getDeadLetterMetrics().incrementDeadLettersDropped();
+		metrics.getDeadLetterMetrics().incrementDeadLetterPublishFailures();
+
+		assertEquals(metrics.getWorkOrderMetrics().getMessagesFailedToParse(), 1);
+		assertEquals(metrics.getDeadLetterMetrics().getDeadLettersPublished(), 2);
+		assertEquals(metrics.getDeadLetterMetrics().getDeadLettersDropped(), 1);
+		assertEquals(metrics.getDeadLetterMetrics().getDeadLetterPublishFailures(), 1);
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.metrics;
+
+import static org.testng.Assert.assertEquals;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class LatencyHistogramTest {
+	private LatencyHistogram histogram;
+
+	@BeforeMethod
+	public void setUp() {
+		histogram = new LatencyHistogram();
+	}
+
+	@Test
+	public void testEmptyHistogram() {
+		assertEquals(histogram.getCount(), 0);
+		assertEquals(histogram.getTotalNanos(), 0);
+		assertEquals(histogram.getMeanMicros(), 0.0);
+		assertEquals(histogram.getBucketCounts().length,
+				LatencyHistogram.getBucketUpperBoundsMicros().length + 1);
+	}
+
+	@Test
+	public void testBucketUpperBoundsAreInclusive() {
+		histogram.recordNanos(100_000);
+		histogram.recordNanos(100_001);
+		histogram.recordNanos(101_000);
+
+		long[] counts = histogram.getBucketCounts();
+		assertEquals(counts[0], 2);
+		assertEquals(counts[1], 1);
+	}
+
+	@Test
+	public void testLatencyAboveLargestBoundIsCountedInLastBucket() {
+		histogram.recordNanos(60_000_000_000L);
+
+		long[] counts = histogram.getBucketCounts();
+		assertEquals(counts[counts.length - 1], 1);
+	}
+
+	@Test
+	public void testCountTotalAndMean() {
+		histogram.recordNanos(1_000_000);
+		histogram.recordNanos(3_000_000);
+
+		assertEquals(histogram.getCount(), 2);
+		assertEquals(histogram.getTotalNanos(), 4_000_000);
+		assertEquals(histogram.getMeanMicros(), 2000.0);
+		assertEquals(histogram.getBucketCounts()[3], 1);
+		assertEquals(histogram.getBucketCounts()[5], 1);
+	}
+
+	@Test
+	public void testBucketUpperBoundsCanNotBeChanged() {
+		LatencyHistogram.getBucketUpperBoundsMicros()[0] = 0;
+
+		assertEquals(LatencyHistogram.getBucketUpperBoundsMicros()[0], 100);
+	}
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.parser;
+
+import java.util.Map;
+
+/**
+ * HeaderMessageParserSpy parses type, id and action from headers like the ones sent for alvin
+ * records, keeping the parsed values as state between calls.
+ */
+public class HeaderMessageParserSpy implements ReusableMessageParser {
+
+	public int noOfResets = 0;
+	private String recordType;
+	private String recordId;
+	private String modificationType;
+	private boolean createWorkOrder = false;
+
+	@Override
+	public void parseHeadersAndMessage(Map<String, String> headers, String message) {
+		if (headers.containsKey("PID")) {
+			recordId = headers.get("PID");
+			recordType = recordId.substring(recordId.indexOf('-') + 1, recordId.indexOf(':'));
+		}
+		if (headers.containsKey("ACTION")) {
+			modificationType = headers.get("ACTION").toLowerCase();
+		}
+		createWorkOrder = recordId != null && !"Cora".equals(headers.get("messageSentFrom"));
+	}
+
+	@Override
+	public String getRecordId() {
+		return recordId;
+	}
+
+	@Override
+	public String getRecordType() {
+		return recordType;
+	}
+
+	@Override
+	public boolean shouldWorkOrderBeCreatedForMessage() {
+		return createWorkOrder;
+	}
+
+	@Override
+	public String getModificationType() {
+		return modificationType;
+	}
+
+	@Override
+	public void reset() {
+		noOfResets++;
+		recordType = null;
+		recordId = null;
+		modificationType = null;
+		createWorkOrder = false;
+	}
+
+}
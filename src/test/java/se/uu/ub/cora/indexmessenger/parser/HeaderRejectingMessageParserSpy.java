@@ -0,0 +1,42 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.parser;
+
+import java.util.Map;
+
+public class HeaderRejectingMessageParserSpy extends MessageParserSpy
+		implements HeaderRejectingMessageParser {
+
+	public boolean rejectUsingHeaders = false;
+	public Map<String, String> headersUsedForRejection;
+	public boolean parseWasCalled = false;
+
+	@Override
+	public boolean isRejectedUsingHeaders(Map<String, String> headers) {
+		headersUsedForRejection = headers;
+		return rejectUsingHeaders;
+	}
+
+	@Override
+	public void parseHeadersAndMessage(Map<String, String> headers, String message) {
+		parseWasCalled = true;
+		super.parseHeadersAndMessage(headers, message);
+	}
+
+}
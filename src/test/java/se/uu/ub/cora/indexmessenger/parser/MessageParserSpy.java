@@ -30,11 +30,15 @@ public class MessageParserSpy implements MessageParser {
 	public boolean getMoficationTypeWasCalled = false;
 	public boolean createWorkOrder = true;
 	public String modificationType = "update";
+	public boolean throwErrorOnParse = false;
 
 	@Override
 	public void parseHeadersAndMessage(Map<String, String> headers, String message) {
 		this.headers = headers;
 		this.message = message;
+		if (throwErrorOnParse) {
+			throw new RuntimeException("Error from MessageParserSpy on parse");
+		}
 
 	}
 
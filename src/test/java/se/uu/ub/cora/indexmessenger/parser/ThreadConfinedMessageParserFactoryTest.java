@@ -0,0 +1,130 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.parser;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class ThreadConfinedMessageParserFactoryTest {
+	private MessageParserFactoryCountingSpy wrappedFactory;
+	private ThreadConfinedMessageParserFactory factory;
+	private String message = "{\"pid\":\"alvin-place:1\",\"routingKey\":\"alvin.updates.place\","
+			+ "\"action\":\"UPDATE\",\"dsId\":null,"
+			+ "\"headers\":{\"ACTION\":\"UPDATE\",\"PID\":\"alvin-place:1\"}}";
+
+	@BeforeMethod
+	public void setUp() {
+		wrappedFactory = new MessageParserFactoryCountingSpy();
+		factory = new ThreadConfinedMessageParserFactory(wrappedFactory);
+	}
+
+	@Test
+	public void testGetMessageParserFactory() {
+		assertSame(factory.getMessageParserFactory(), wrappedFactory);
+	}
+
+	@Test
+	public void testReusableParserIsReusedAndResetOnSameThread() {
+		MessageParser first = factory.factor();
+		MessageParser second = factory.factor();
+		MessageParser third = factory.factor();
+
+		assertSame(second, first);
+		assertSame(third, first);
+		assertEquals(wrappedFactory.noOfFactored.get(), 1);
+		assertEquals(((HeaderMessageParserSpy) first).noOfResets, 2);
+	}
+
+	@Test
+	public void testEachThreadGetsItsOwnParser() throws Exception {
+		MessageParser[] parserOnOtherThread = new MessageParser[1];
+		MessageParser parser = factory.factor();
+
+		Thread otherThread = new Thread(() -> parserOnOtherThread[0] = factory.factor());
+		otherThread.start();
+		otherThread.join();
+
+		assertNotSame(parserOnOtherThread[0], parser);
+		assertEquals(wrappedFactory.noOfFactored.get(), 2);
+	}
+
+	@Test
+	public void testParserThatIsNotReusableIsFactoredEachTime() {
+		wrappedFactory.factorReusable = false;
+
+		MessageParser first = factory.factor();
+		MessageParser second = factory.factor();
+
+		assertNotSame(second, first);
+		assertEquals(wrappedFactory.noOfFactored.get(), 2);
+	}
+
+	@Test
+	public void testReusedParserGivesSameResultsAsFreshParser() {
+		for (Map<String, String> headers : createHeaderCases()) {
+			MessageParser freshParser = new HeaderMessageParserSpy();
+			freshParser.parseHeadersAndMessage(headers, message);
+			MessageParser reusedParser = factory.factor();
+			reusedParser.parseHeadersAndMessage(headers, message);
+
+			assertEquals(reusedParser.getRecordType(), freshParser.getRecordType());
+			assertEquals(reusedParser.getRecordId(), freshParser.getRecordId());
+			assertEquals(reusedParser.getModificationType(),
+					freshParser.getModificationType());
+			assertEquals(reusedParser.shouldWorkOrderBeCreatedForMessage(),
+					freshParser.shouldWorkOrderBeCreatedForMessage());
+		}
+		assertEquals(wrappedFactory.noOfFactored.get(), 1);
+	}
+
+	private List<Map<String, String>> createHeaderCases() {
+		List<Map<String, String>> headerCases = new ArrayList<>();
+		headerCases.add(createHeaders("alvin-place:1", "UPDATE", null));
+		headerCases.add(createHeaders("alvin-person:22", "DELETE", null));
+		headerCases.add(createHeaders("alvin-place:1", "UPDATE", "Cora"));
+		headerCases.add(createHeaders(null, null, null));
+		headerCases.add(createHeaders("alvin-place:3", null, null));
+		headerCases.add(createHeaders(null, "UPDATE", "Cora"));
+		return headerCases;
+	}
+
+	private Map<String, String> createHeaders(String pid, String action, String sentFrom) {
+		Map<String, String> headers = new HashMap<>();
+		headers.put("__TypeId__", "epc.messaging.amqp.EPCFedoraMessage");
+		putIfNotNull(headers, "PID", pid);
+		putIfNotNull(headers, "ACTION", action);
+		putIfNotNull(headers, "messageSentFrom", sentFrom);
+		return headers;
+	}
+
+	private void putIfNotNull(Map<String, String> headers, String key, String value) {
+		if (value != null) {
+			headers.put(key, value);
+		}
+	}
+}
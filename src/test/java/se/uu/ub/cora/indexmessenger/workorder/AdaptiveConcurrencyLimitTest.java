@@ -0,0 +1,136 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.Test;
+
+public class AdaptiveConcurrencyLimitTest {
+	private static final long FAST_RTT = 10_000_000;
+	private static final long SLOW_RTT = 100_000_000;
+
+	private void addSamples(AdaptiveConcurrencyLimit limit, int noOfSamples, long rttNanos) {
+		for (int i = 0; i < noOfSamples; i++) {
+			limit.onSample(rttNanos, limit.getLimit(), false);
+		}
+	}
+
+	@Test
+	public void testInitialLimitIsKeptWithinMinAndMax() throws Exception {
+		assertEquals(AdaptiveConcurrencyLimit.usingLimits(5, 1, 10).getLimit(), 5);
+		assertEquals(AdaptiveConcurrencyLimit.usingLimits(0, 1, 10).getLimit(), 1);
+		assertEquals(AdaptiveConcurrencyLimit.usingLimits(50, 1, 10).getLimit(), 10);
+	}
+
+	@Test
+	public void testLimitGrowsByAboutOnePerWindowWhileLatencyIsLow() throws Exception {
+		AdaptiveConcurrencyLimit limit = AdaptiveConcurrencyLimit.usingLimits(4, 1, 100);
+
+		addSamples(limit, 5, FAST_RTT);
+
+		assertEquals(limit.getLimit(), 5);
+	}
+
+	@Test
+	public void testLimitDoesNotGrowAboveMax() throws Exception {
+		AdaptiveConcurrencyLimit limit = AdaptiveConcurrencyLimit.usingLimits(4, 1, 6);
+
+		addSamples(limit, 1000, FAST_RTT);
+
+		assertEquals(limit.getLimit(), 6);
+	}
+
+	@Test
+	public void testLimitDoesNotGrowWhenNotUsed() throws Exception {
+		AdaptiveConcurrencyLimit limit = AdaptiveConcurrencyLimit.usingLimits(10, 1, 100);
+
+		for (int i = 0; i < 100; i++) {
+			limit.onSample(FAST_RTT, 4, false);
+		}
+
+		assertEquals(limit.getLimit(), 10);
+	}
+
+	@Test
+	public void testLimitIsDecreasedWhenLatencyRises() throws Exception {
+		AdaptiveConcurrencyLimit limit = AdaptiveConcurrencyLimit.usingLimits(20, 1, 100);
+		addSamples(limit, 20, FAST_RTT);
+		int limitBefore = limit.getLimit();
+
+		addSamples(limit, 100, SLOW_RTT);
+
+		assertTrue(limit.getLimit() < limitBefore, "limit: " + limit.getLimit());
+		assertEquals(limit.getNoLoadRttNanos() < SLOW_RTT / 2, true);
+	}
+
+	@Test
+	public void testLimitIsDecreasedAtMostOncePerWindow() throws Exception {
+		AdaptiveConcurrencyLimit limit = AdaptiveConcurrencyLimit.usingLimits(10, 1, 100);
+
+		boolean firstDecreased = limit.onSample(FAST_RTT, 10, true);
+		for (int i = 0; i < 8; i++) {
+			assertFalse(limit.onSample(FAST_RTT, 10, true));
+		}
+		boolean tenthDecreased = limit.onSample(FAST_RTT, 10, true);
+
+		assertFalse(firstDecreased);
+		assertTrue(tenthDecreased);
+		assertEquals(limit.getLimit(), 9);
+	}
+
+	@Test
+	public void testLimitDoesNotGoBelowMin() throws Exception {
+		AdaptiveConcurrencyLimit limit = AdaptiveConcurrencyLimit.usingLimits(3, 2, 100);
+
+		for (int i = 0; i < 100; i++) {
+			limit.onSample(FAST_RTT, 3, true);
+		}
+
+		assertEquals(limit.getLimit(), 2);
+	}
+
+	@Test
+	public void testRttIsSmoothed() throws Exception {
+		AdaptiveConcurrencyLimit limit = AdaptiveConcurrencyLimit.usingLimits(3, 1, 100);
+
+		limit.onSample(8_000, 1, false);
+		limit.onSample(16_000, 1, false);
+
+		assertEquals(limit.getSmoothedRttNanos(), 9_000);
+		assertEquals(limit.getNoLoadRttNanos(), 8_031);
+	}
+
+	@Test
+	public void testSettings() throws Exception {
+		AdaptiveConcurrencyLimit limit = AdaptiveConcurrencyLimit.usingLimitsAndSettings(10, 1,
+				100, 1.5, 0.5);
+		limit.onSample(FAST_RTT, 10, false);
+
+		for (int i = 0; i < 10; i++) {
+			limit.onSample(FAST_RTT * 2, 10, false);
+		}
+
+		assertEquals(limit.getLimit(), 5);
+		assertEquals(limit.getMinLimit(), 1);
+		assertEquals(limit.getMaxLimit(), 100);
+	}
+}
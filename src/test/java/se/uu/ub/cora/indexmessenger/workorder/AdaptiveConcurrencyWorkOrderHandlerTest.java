@@ -0,0 +1,188 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.clientdata.ClientDataGroup;
+import se.uu.ub.cora.indexmessenger.CoraClientLatencySpy;
+import se.uu.ub.cora.indexmessenger.log.LoggerFactorySpy;
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+public class AdaptiveConcurrencyWorkOrderHandlerTest {
+	private LoggerFactorySpy loggerFactory;
+	private String testedClassName = "AdaptiveConcurrencyWorkOrderHandler";
+	private WorkOrderHandlerSpy nextHandler;
+	private IndexMetrics indexMetrics;
+	private AdaptiveConcurrencyWorkOrderHandler handler;
+
+	@BeforeMethod
+	public void setUp() {
+		loggerFactory = new LoggerFactorySpy();
+		LoggerProvider.setLoggerFactory(loggerFactory);
+		nextHandler = new WorkOrderHandlerSpy();
+		indexMetrics = new IndexMetrics();
+		handler = createHandler(nextHandler, 3, 1, 20);
+	}
+
+	private AdaptiveConcurrencyWorkOrderHandler createHandler(WorkOrderHandler next,
+			int initialLimit, int minLimit, int maxLimit) {
+		return AdaptiveConcurrencyWorkOrderHandler.usingNextHandlerLimitAndMetrics(next,
+				AdaptiveConcurrencyLimit.usingLimits(initialLimit, minLimit, maxLimit),
+				indexMetrics);
+	}
+
+	@AfterMethod
+	public void tearDown() throws Exception {
+		nextHandler.release.countDown();
+		handler.shutdown();
+		handler.awaitTermination(5000);
+	}
+
+	private WorkOrder createWorkOrder(String id) {
+		return WorkOrder.usingRecordTypeRecordIdAndModificationType("someType", id, "update");
+	}
+
+	private void handleWorkOrders(int noOfWorkOrders) {
+		for (int i = 0; i < noOfWorkOrders; i++) {
+			handler.handle(createWorkOrder("id" + i));
+		}
+	}
+
+	@Test
+	public void testWorkOrdersArePassedOnOnOtherThreads() throws Exception {
+		handleWorkOrders(5);
+
+		nextHandler.waitForNoOfHandledWorkOrders(5);
+		assertTrue(nextHandler.handlingThreadNames.get(0).startsWith("indexmessenger-adaptive-"));
+	}
+
+	@Test
+	public void testNoOfInFlightIsLimited() throws Exception {
+		nextHandler.release = new CountDownLatch(1);
+		handleWorkOrders(3);
+		assertEquals(handler.getNoOfInFlight(), 3);
+		assertEquals(handler.getNoOfOutstanding(), 3);
+
+		Thread blocked = new Thread(() -> handler.handle(createWorkOrder("id4")));
+		blocked.start();
+		blocked.join(100);
+		assertTrue(blocked.isAlive());
+
+		nextHandler.release.countDown();
+		blocked.join(5000);
+		nextHandler.waitForNoOfHandledWorkOrders(4);
+	}
+
+	@Test
+	public void testFailuresDecreaseLimit() throws Exception {
+		nextHandler.throwErrorOnHandle = true;
+		handler.shutdown();
+		handler = createHandler(nextHandler, 2, 1, 20);
+
+		handleWorkOrders(10);
+		handler.shutdown();
+		handler.awaitTermination(5000);
+
+		assertEquals(handler.getConcurrencyLimit().getLimit(), 1);
+		assertTrue(indexMetrics.getConcurrencyMetrics().getConcurrencyLimitDecreases() >= 1);
+		assertTrue(loggerFactory.getErrorLogMessageUsingClassNameAndNo(testedClassName, 0)
+				.startsWith("Failed to handle workOrder for type: someType and id: id"));
+	}
+
+	@Test
+	public void testRecordedFailuresDecreaseLimit() throws Exception {
+		nextHandler.noOfFailuresToRecord.set(10);
+		handler.shutdown();
+		handler = createHandler(nextHandler, 2, 1, 20);
+
+		handleWorkOrders(10);
+		handler.shutdown();
+		handler.awaitTermination(5000);
+
+		assertEquals(handler.getConcurrencyLimit().getLimit(), 1);
+	}
+
+	@Test
+	public void testLimitFollowsLatencyOfSimulatedCora() throws Exception {
+		CoraClientLatencySpy coraClient = new CoraClientLatencySpy(2);
+		handler.shutdown();
+		handler = createHandler(
+				workOrder -> coraClient.create(workOrder.getRecordType(), (ClientDataGroup) null),
+				2, 1, 20);
+
+		handleWorkOrders(300);
+		waitForNoOfCreateCalls(coraClient, 300);
+		int limitWhenFast = handler.getConcurrencyLimit().getLimit();
+		long rttWhenFast = indexMetrics.getConcurrencyMetrics().getSmoothedRttMicros();
+
+		coraClient.latencyMs = 40;
+		handleWorkOrders(80);
+		waitForNoOfCreateCalls(coraClient, 380);
+		int limitWhenSlow = handler.getConcurrencyLimit().getLimit();
+
+		assertTrue(limitWhenFast > 2, "limit when fast: " + limitWhenFast);
+		assertTrue(limitWhenSlow < limitWhenFast,
+				"limit when fast: " + limitWhenFast + ", when slow: " + limitWhenSlow);
+		assertTrue(coraClient.maxConcurrentCreates.get() <= 20);
+		assertTrue(indexMetrics.getConcurrencyMetrics().getSmoothedRttMicros() > rttWhenFast);
+		assertEquals(indexMetrics.getConcurrencyMetrics().getConcurrencyLimit(), limitWhenSlow);
+	}
+
+	@Test
+	public void testLimitsOfHandlersSharingMetricsAreSummedUntilShutdown() throws Exception {
+		AdaptiveConcurrencyWorkOrderHandler otherHandler = createHandler(nextHandler, 5, 1, 20);
+		assertEquals(indexMetrics.getConcurrencyMetrics().getConcurrencyLimit(), 8);
+
+		otherHandler.shutdown();
+
+		assertEquals(indexMetrics.getConcurrencyMetrics().getConcurrencyLimit(), 3);
+	}
+
+	private void waitForNoOfCreateCalls(CoraClientLatencySpy coraClient, int noOfCalls)
+			throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10000;
+		while (coraClient.noOfCreateCalls.get() < noOfCalls
+				&& System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		while (handler.getNoOfInFlight() > 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+	}
+
+	@Test
+	public void testRejectedWorkOrderAfterShutdownIsLogged() throws Exception {
+		handler.shutdown();
+
+		handler.handle(createWorkOrder("id1"));
+
+		assertEquals(handler.getNoOfInFlight(), 0);
+		assertEquals(loggerFactory.getErrorLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"Handler shut down, rejected workOrder for type: someType and id: id1");
+	}
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.indexmessenger.log.LoggerFactorySpy;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+public class BatchingWorkOrderHandlerFactoryTest {
+
+	@BeforeMethod
+	public void setUp() {
+		LoggerProvider.setLoggerFactory(new LoggerFactorySpy());
+	}
+
+	@Test
+	public void testFactoredHandlerUsesSettings() throws Exception {
+		WorkOrderHandlerSpy nextHandler = new WorkOrderHandlerSpy();
+		BatchingWorkOrderHandlerFactory factory = new BatchingWorkOrderHandlerFactory(50, 200, 4);
+
+		BatchingWorkOrderHandler handler = factory.factorUsingNextHandler(nextHandler);
+
+		assertSame(handler.getNextHandler(), nextHandler);
+		assertEquals(handler.getBatchSize(), 50);
+		assertEquals(handler.getLingerMs(), 200);
+		assertEquals(handler.getFlushConcurrency(), 4);
+		handler.shutdown();
+	}
+}
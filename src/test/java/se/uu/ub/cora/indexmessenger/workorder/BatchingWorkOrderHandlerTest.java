@@ -0,0 +1,243 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.indexmessenger.log.LoggerFactorySpy;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+public class BatchingWorkOrderHandlerTest {
+	private LoggerFactorySpy loggerFactory;
+	private String testedClassName = "BatchingWorkOrderHandler";
+	private WorkOrderHandlerSpy nextHandler;
+	private BatchingWorkOrderHandler handler;
+
+	@BeforeMethod
+	public void setUp() {
+		loggerFactory = new LoggerFactorySpy();
+		LoggerProvider.setLoggerFactory(loggerFactory);
+		nextHandler = new WorkOrderHandlerSpy();
+	}
+
+	@AfterMethod
+	public void tearDown() throws Exception {
+		nextHandler.releaseHandling();
+		handler.shutdown();
+		handler.awaitTermination(5000);
+	}
+
+	private WorkOrder createWorkOrder(String id) {
+		return WorkOrder.usingRecordTypeRecordIdAndModificationType("someType", id, "update");
+	}
+
+	private void handleWorkOrders(int noOfWorkOrders) {
+		for (int i = 0; i < noOfWorkOrders; i++) {
+			handler.handle(createWorkOrder("id" + i));
+		}
+	}
+
+	@Test
+	public void testBatchIsFlushedWhenFull() throws Exception {
+		handler = BatchingWorkOrderHandler.usingNextHandlerAndSettings(nextHandler, 3, 10000, 2);
+
+		handleWorkOrders(2);
+		WorkOrderHandlerSpy.sleep(50);
+		assertEquals(nextHandler.handledWorkOrders.size(), 0);
+
+		handleWorkOrders(1);
+		nextHandler.waitForNoOfHandledWorkOrders(3);
+		assertEquals(nextHandler.handledWorkOrders.size(), 3);
+		assertEquals(handler.getNoOfBatches(), 1);
+		assertEquals(handler.getNoOfSizeTriggeredFlushes(), 1);
+	}
+
+	@Test
+	public void testBatchIsFlushedWhenLingerTimeHasPassed() throws Exception {
+		handler = BatchingWorkOrderHandler.usingNextHandlerAndSettings(nextHandler, 100, 50, 2);
+
+		handleWorkOrders(2);
+
+		nextHandler.waitForNoOfHandledWorkOrders(2);
+		assertEquals(nextHandler.handledWorkOrders.size(), 2);
+		assertEquals(handler.getNoOfBatches(), 1);
+		assertEquals(handler.getNoOfSizeTriggeredFlushes(), 0);
+	}
+
+	@Test
+	public void testLingerTimerOfFullBatchDoesNotFlushNextBatch() throws Exception {
+		handler = BatchingWorkOrderHandler.usingNextHandlerAndSettings(nextHandler, 2, 100, 2);
+
+		handleWorkOrders(3);
+		nextHandler.waitForNoOfHandledWorkOrders(2);
+		assertEquals(handler.getNoOfBatches(), 1);
+
+		nextHandler.waitForNoOfHandledWorkOrders(3);
+		assertEquals(handler.getNoOfBatches(), 2);
+		assertEquals(handler.getLargestBatchSize(), 2);
+		assertEquals(handler.getAverageBatchSize(), 1.5, 0.001);
+	}
+
+	@Test
+	public void testBatchIsHandledWithBoundedParallelism() throws Exception {
+		handler = BatchingWorkOrderHandler.usingNextHandlerAndSettings(nextHandler, 6, 10000, 3);
+		nextHandler.blockHandling();
+
+		handleWorkOrders(6);
+		nextHandler.waitForNoOfStartedHandlings(3);
+		WorkOrderHandlerSpy.sleep(50);
+
+		assertEquals(nextHandler.handlingThreadNames.size(), 3);
+		nextHandler.releaseHandling();
+		nextHandler.waitForNoOfHandledWorkOrders(6);
+		Set<String> threadNames = new HashSet<>(nextHandler.handlingThreadNames);
+		assertEquals(threadNames.size(), 3);
+		assertTrue(threadNames.iterator().next().startsWith("indexmessenger-batch-worker-"));
+	}
+
+	@Test
+	public void testNextBatchStartsWithoutWaitingForSlowestOfPreviousBatch() throws Exception {
+		WorkOrderHandlerSpy slowHandler = new WorkOrderHandlerSpy();
+		WorkOrderHandler firstSlowHandler = workOrder -> {
+			if ("id0".equals(workOrder.getRecordId())) {
+				slowHandler.handle(workOrder);
+			} else {
+				nextHandler.handle(workOrder);
+			}
+		};
+		handler = BatchingWorkOrderHandler.usingNextHandlerAndSettings(firstSlowHandler, 2, 10000,
+				2);
+		slowHandler.blockHandling();
+
+		handleWorkOrders(4);
+
+		nextHandler.waitForNoOfHandledWorkOrders(3);
+		assertEquals(nextHandler.handledWorkOrders.size(), 3);
+		assertEquals(slowHandler.handledWorkOrders.size(), 0);
+		slowHandler.releaseHandling();
+		slowHandler.waitForNoOfHandledWorkOrders(1);
+	}
+
+	@Test
+	public void testReceivingThreadWaitsWhenTooManyFlushesAreQueued() throws Exception {
+		handler = BatchingWorkOrderHandler.usingNextHandlerAndSettings(nextHandler, 1, 10000, 1);
+		nextHandler.blockHandling();
+		handleWorkOrders(2);
+		nextHandler.waitForNoOfStartedHandlings(1);
+		WorkOrderHandlerSpy.sleep(50);
+		handleWorkOrders(BatchingWorkOrderHandler.MAX_QUEUED_FLUSHES);
+
+		Thread blockedSender = new Thread(() -> handler.handle(createWorkOrder("idBlocked")));
+		blockedSender.start();
+		blockedSender.join(100);
+		assertTrue(blockedSender.isAlive());
+
+		nextHandler.releaseHandling();
+		blockedSender.join(5000);
+		assertFalse(blockedSender.isAlive());
+		nextHandler.waitForNoOfHandledWorkOrders(BatchingWorkOrderHandler.MAX_QUEUED_FLUSHES + 3);
+	}
+
+	@Test
+	public void testFailuresAreLoggedPerWorkOrder() throws Exception {
+		handler = BatchingWorkOrderHandler.usingNextHandlerAndSettings(nextHandler, 2, 10000, 1);
+		nextHandler.throwErrorOnHandle = true;
+
+		handleWorkOrders(2);
+		handler.shutdown();
+		handler.awaitTermination(5000);
+
+		assertEquals(loggerFactory.getNoOfErrorLogMessagesUsingClassName(testedClassName), 2);
+		assertEquals(loggerFactory.getErrorLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"Index workOrder NOT created for type: someType and id: id0");
+		assertEquals(loggerFactory.getErrorLogMessageUsingClassNameAndNo(testedClassName, 1),
+				"Index workOrder NOT created for type: someType and id: id1");
+	}
+
+	@Test
+	public void testFlushFlushesCurrentBatch() throws Exception {
+		handler = BatchingWorkOrderHandler.usingNextHandlerAndSettings(nextHandler, 10, 10000, 1);
+		handleWorkOrders(4);
+
+		handler.flush();
+
+		nextHandler.waitForNoOfHandledWorkOrders(4);
+		assertEquals(handler.getNoOfBatches(), 1);
+		assertEquals(handler.getNoOfBatchedWorkOrders(), 4);
+	}
+
+	@Test
+	public void testFlushWithEmptyBatchDoesNothing() throws Exception {
+		handler = BatchingWorkOrderHandler.usingNextHandlerAndSettings(nextHandler, 10, 10000, 1);
+
+		handler.flush();
+		handler.shutdown();
+		handler.awaitTermination(5000);
+
+		assertEquals(handler.getNoOfBatches(), 0);
+		assertEquals(handler.getAverageBatchSize(), 0, 0.001);
+	}
+
+	@Test
+	public void testShutdownFlushesRemainingWorkOrders() throws Exception {
+		handler = BatchingWorkOrderHandler.usingNextHandlerAndSettings(nextHandler, 10, 10000, 2);
+		handleWorkOrders(5);
+
+		handler.shutdown();
+
+		assertTrue(handler.awaitTermination(5000));
+		assertEquals(nextHandler.handledWorkOrders.size(), 5);
+	}
+
+	@Test
+	public void testShutdownNowReturnsCurrentBatch() throws Exception {
+		handler = BatchingWorkOrderHandler.usingNextHandlerAndSettings(nextHandler, 10, 10000, 2);
+		handleWorkOrders(3);
+
+		List<WorkOrder> notPassedOn = handler.shutdownNow();
+
+		assertEquals(notPassedOn.size(), 3);
+		assertEquals(handler.getNoOfOutstanding(), 0);
+		assertEquals(nextHandler.handledWorkOrders.size(), 0);
+	}
+
+	@Test
+	public void testShutdownNowLogsWorkOrdersInFlushedBatches() throws Exception {
+		nextHandler.blockHandling();
+		handler = BatchingWorkOrderHandler.usingNextHandlerAndSettings(nextHandler, 2, 10000, 1);
+		handleWorkOrders(2);
+		nextHandler.waitForNoOfStartedHandlings(1);
+
+		List<WorkOrder> notPassedOn = handler.shutdownNow();
+
+		assertEquals(notPassedOn.size(), 0);
+		assertEquals(loggerFactory.getErrorLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"Shutting down with 2 work orders in flushed batches, they may NOT be handled");
+	}
+}
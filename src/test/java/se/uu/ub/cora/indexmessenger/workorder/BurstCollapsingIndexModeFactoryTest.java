@@ -0,0 +1,101 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.indexmessenger.CoraClientSpy;
+import se.uu.ub.cora.indexmessenger.DeadLetterPublisher;
+import se.uu.ub.cora.indexmessenger.log.LoggerFactorySpy;
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+public class BurstCollapsingIndexModeFactoryTest {
+	private CoraClientSpy coraClient;
+	private WorkOrderHandlerSpy workOrderCreator;
+	private IndexModeFactory indexModeFactory;
+	private RetryPolicy retryPolicy;
+	private DeadLetterPublisher deadLetterPublisher;
+	private BurstCollapsingIndexModeFactory factory;
+
+	@BeforeMethod
+	public void setUp() {
+		LoggerProvider.setLoggerFactory(new LoggerFactorySpy());
+		coraClient = new CoraClientSpy();
+		workOrderCreator = new WorkOrderHandlerSpy();
+		indexModeFactory = new WorkOrderIndexModeFactory();
+		retryPolicy = RetryPolicy.usingMaxAttemptsAndDelays(3, 100, 1000);
+		deadLetterPublisher = DeadLetterPublisher.none();
+		factory = new BurstCollapsingIndexModeFactory(indexModeFactory, 5000, 100,
+				"{\"filter\":\"some\"}", retryPolicy, deadLetterPublisher, new IndexMetrics());
+	}
+
+	@Test
+	public void testFactoredHandlerWrapsHandlerFromIndexModeFactory() throws Exception {
+		BurstCollapsingWorkOrderHandler handler = factory
+				.factorUsingCoraClientAndWorkOrderCreator(coraClient, workOrderCreator);
+
+		assertSame(factory.getIndexModeFactory(), indexModeFactory);
+		assertSame(handler.getNextHandler(), workOrderCreator);
+		BurstDetector burstDetector = handler.getBurstDetector();
+		assertSame(burstDetector.getCoraClient(), coraClient);
+		assertEquals(burstDetector.getWindowMs(), 5000);
+		assertEquals(burstDetector.getThreshold(), 100);
+		assertEquals(burstDetector.getFilterAsJson(), "{\"filter\":\"some\"}");
+		assertSame(burstDetector.getRetryPolicy(), retryPolicy);
+		assertSame(burstDetector.getDeadLetterPublisher(), deadLetterPublisher);
+		assertEquals(burstDetector.getNoOfHandlers(), 1);
+		handler.shutdown();
+	}
+
+	@Test
+	public void testFactoredHandlersShareOneBurstDetector() throws Exception {
+		BurstCollapsingWorkOrderHandler handler = factory
+				.factorUsingCoraClientAndWorkOrderCreator(coraClient, workOrderCreator);
+		BurstCollapsingWorkOrderHandler otherHandler = factory
+				.factorUsingCoraClientAndWorkOrderCreator(new CoraClientSpy(), workOrderCreator);
+
+		assertSame(otherHandler.getBurstDetector(), handler.getBurstDetector());
+		assertEquals(handler.getBurstDetector().getNoOfHandlers(), 2);
+		handler.shutdown();
+		otherHandler.shutdown();
+	}
+
+	@Test
+	public void testNewBurstDetectorWhenAllHandlersAreShutDown() throws Exception {
+		BurstCollapsingWorkOrderHandler handler = factory
+				.factorUsingCoraClientAndWorkOrderCreator(coraClient, workOrderCreator);
+		handler.shutdown();
+
+		BurstCollapsingWorkOrderHandler newHandler = factory
+				.factorUsingCoraClientAndWorkOrderCreator(coraClient, workOrderCreator);
+
+		assertNotSame(newHandler.getBurstDetector(), handler.getBurstDetector());
+		assertTrue(handler.getBurstDetector().isShutdown());
+		assertFalse(newHandler.getBurstDetector().isShutdown());
+		newHandler.shutdown();
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.indexmessenger.DeadLetterPublisher;
+import se.uu.ub.cora.indexmessenger.coraclient.CoraClientRecordingSpy;
+import se.uu.ub.cora.indexmessenger.log.LoggerFactorySpy;
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+public class BurstCollapsingWorkOrderHandlerTest {
+	private static final String FILTER = "{\"filter\":\"some\"}";
+	private WorkOrderHandlerSpy nextHandler;
+	private CoraClientRecordingSpy coraClient;
+	private IndexMetrics indexMetrics;
+	private AtomicLong nowMs;
+	private BurstDetector burstDetector;
+	private BurstCollapsingWorkOrderHandler handler;
+
+	@BeforeMethod
+	public void setUp() {
+		LoggerProvider.setLoggerFactory(new LoggerFactorySpy());
+		nextHandler = new WorkOrderHandlerSpy();
+		coraClient = new CoraClientRecordingSpy();
+		indexMetrics = new IndexMetrics();
+		nowMs = new AtomicLong(100000);
+		burstDetector = BurstDetector.usingCoraClientSettingsRetryPolicyAndClock(coraClient,
+				60000, 3, FILTER, RetryPolicy.noRetries(), DeadLetterPublisher.none(), indexMetrics,
+				nowMs::get);
+		burstDetector.tryAddHandler();
+		handler = BurstCollapsingWorkOrderHandler.usingNextHandlerAndBurstDetector(nextHandler,
+				burstDetector);
+	}
+
+	@AfterMethod
+	public void tearDown() {
+		handler.shutdown();
+	}
+
+	private void handleUpdates(String recordType, int noOfUpdates) {
+		for (int i = 0; i < noOfUpdates; i++) {
+			handler.handle(WorkOrder.usingRecordTypeRecordIdAndModificationType(recordType,
+					"id" + i, "update"));
+		}
+	}
+
+	@Test
+	public void testInit() throws Exception {
+		assertSame(handler.getNextHandler(), nextHandler);
+		assertSame(handler.getBurstDetector(), burstDetector);
+	}
+
+	@Test
+	public void testWorkOrdersUpToThresholdArePassedOn() throws Exception {
+		handleUpdates("someType", 3);
+
+		assertEquals(nextHandler.handledWorkOrders.size(), 3);
+	}
+
+	@Test
+	public void testWorkOrdersCollapsedIntoBurstAreNotPassedOn() throws Exception {
+		handleUpdates("someType", 10);
+
+		assertEquals(nextHandler.handledWorkOrders.size(), 3);
+		assertTrue(burstDetector.isInBurst("someType"));
+		assertEquals(indexMetrics.getBurstMetrics().getWorkOrdersCollapsedIntoBursts(), 7);
+	}
+
+	@Test
+	public void testDeletesArePassedOnDuringBurst() throws Exception {
+		handleUpdates("someType", 10);
+		WorkOrder delete = WorkOrder.usingRecordTypeRecordIdAndModificationType("someType",
+				"deletedId", "delete");
+
+		handler.handle(delete);
+
+		assertEquals(nextHandler.handledWorkOrders.size(), 4);
+		assertEquals(nextHandler.handledWorkOrders.get(3), delete);
+		assertEquals(indexMetrics.getBurstMetrics().getWorkOrdersCollapsedIntoBursts(), 7);
+	}
+
+	@Test
+	public void testHandlersSharingDetectorSeeOneBurst() throws Exception {
+		WorkOrderHandlerSpy otherNextHandler = new WorkOrderHandlerSpy();
+		burstDetector.tryAddHandler();
+		BurstCollapsingWorkOrderHandler otherHandler = BurstCollapsingWorkOrderHandler
+				.usingNextHandlerAndBurstDetector(otherNextHandler, burstDetector);
+
+		handleUpdates("someType", 2);
+		otherHandler.handle(
+				WorkOrder.usingRecordTypeRecordIdAndModificationType("someType", "id", "update"));
+		otherHandler.handle(
+				WorkOrder.usingRecordTypeRecordIdAndModificationType("someType", "id", "update"));
+
+		assertEquals(nextHandler.handledWorkOrders.size(), 2);
+		assertEquals(otherNextHandler.handledWorkOrders.size(), 1);
+		assertTrue(burstDetector.isInBurst("someType"));
+		otherHandler.shutdown();
+	}
+
+	@Test
+	public void testShutdownIndexesOngoingBurstsWhenLastHandlerOfDetector() throws Exception {
+		handleUpdates("someType", 10);
+
+		handler.shutdown();
+
+		assertFalse(burstDetector.isInBurst("someType"));
+		assertEquals(coraClient.calls, List.of("indexRecordsOfType someType " + FILTER));
+	}
+}
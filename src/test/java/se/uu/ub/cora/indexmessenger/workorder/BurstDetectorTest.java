@@ -0,0 +1,338 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.indexmessenger.DeadLetter;
+import se.uu.ub.cora.indexmessenger.DeadLetterPublisher;
+import se.uu.ub.cora.indexmessenger.MessageSenderSpy;
+import se.uu.ub.cora.indexmessenger.MessagingFactorySpy;
+import se.uu.ub.cora.indexmessenger.coraclient.CoraClientRecordingSpy;
+import se.uu.ub.cora.indexmessenger.log.LoggerFactorySpy;
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.logger.LoggerProvider;
+import se.uu.ub.cora.messaging.AmqpMessageRoutingInfo;
+import se.uu.ub.cora.messaging.MessagingProvider;
+
+public class BurstDetectorTest {
+	private static final String FILTER = "{\"filter\":\"some\"}";
+	private LoggerFactorySpy loggerFactory;
+	private String testedClassName = "BurstDetector";
+	private CoraClientRecordingSpy coraClient;
+	private RetryPolicy retryPolicy;
+	private DeadLetterPublisher deadLetterPublisher;
+	private IndexMetrics indexMetrics;
+	private AtomicLong nowMs;
+	private BurstDetector detector;
+
+	@BeforeMethod
+	public void setUp() {
+		loggerFactory = new LoggerFactorySpy();
+		LoggerProvider.setLoggerFactory(loggerFactory);
+		coraClient = new CoraClientRecordingSpy();
+		retryPolicy = RetryPolicy.usingMaxAttemptsAndDelays(3, 1000, 1000);
+		indexMetrics = new IndexMetrics();
+		nowMs = new AtomicLong(100000);
+		deadLetterPublisher = DeadLetterPublisher.none();
+		createDetector();
+	}
+
+	private void createDetector() {
+		detector = BurstDetector.usingCoraClientSettingsRetryPolicyAndClock(coraClient, 60000, 3,
+				FILTER, retryPolicy, deadLetterPublisher, indexMetrics, nowMs::get);
+		detector.tryAddHandler();
+	}
+
+	@AfterMethod
+	public void tearDown() {
+		detector.removeHandler();
+	}
+
+	private int countUpdates(String recordType, int noOfUpdates) {
+		int noOfPassedOn = 0;
+		for (int i = 0; i < noOfUpdates; i++) {
+			if (!detector.isCollapsedIntoBurst(recordType)) {
+				noOfPassedOn++;
+			}
+		}
+		return noOfPassedOn;
+	}
+
+	@Test
+	public void testGetters() throws Exception {
+		assertSame(detector.getCoraClient(), coraClient);
+		assertEquals(detector.getWindowMs(), 60000);
+		assertEquals(detector.getThreshold(), 3);
+		assertEquals(detector.getFilterAsJson(), FILTER);
+		assertSame(detector.getRetryPolicy(), retryPolicy);
+		assertSame(detector.getDeadLetterPublisher(), deadLetterPublisher);
+		assertEquals(detector.getNoOfHandlers(), 1);
+	}
+
+	@Test
+	public void testWorkOrdersUpToThresholdAreNotCollapsed() throws Exception {
+		assertEquals(countUpdates("someType", 3), 3);
+
+		assertFalse(detector.isInBurst("someType"));
+		assertEquals(indexMetrics.getBurstMetrics().getBurstsDetected(), 0);
+	}
+
+	@Test
+	public void testWorkOrdersAboveThresholdAreCollapsed() throws Exception {
+		assertEquals(countUpdates("someType", 10), 3);
+
+		assertTrue(detector.isInBurst("someType"));
+		assertEquals(detector.getNoOfPending("someType"), 7);
+		assertEquals(indexMetrics.getBurstMetrics().getBurstsDetected(), 1);
+		assertEquals(indexMetrics.getBurstMetrics().getWorkOrdersCollapsedIntoBursts(), 7);
+		assertEquals(loggerFactory.getInfoLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"Burst detected for type: someType, more than 3 work orders in 60000 ms");
+	}
+
+	@Test
+	public void testBurstsAreDetectedPerRecordType() throws Exception {
+		countUpdates("someType", 10);
+
+		assertEquals(countUpdates("otherType", 2), 2);
+		assertFalse(detector.isInBurst("otherType"));
+	}
+
+	@Test
+	public void testOngoingBurstIsNotEnded() throws Exception {
+		countUpdates("someType", 10);
+
+		detector.endFinishedBursts();
+
+		assertTrue(detector.isInBurst("someType"));
+		assertEquals(coraClient.calls.size(), 0);
+	}
+
+	@Test
+	public void testFinishedBurstIsIndexedUsingOneCall() throws Exception {
+		countUpdates("someType", 10);
+		nowMs.addAndGet(60000);
+
+		detector.endFinishedBursts();
+
+		assertFalse(detector.isInBurst("someType"));
+		assertEquals(detector.getNoOfPending("someType"), 0);
+		assertEquals(coraClient.calls, List.of("indexRecordsOfType someType " + FILTER));
+		assertEquals(indexMetrics.getBurstMetrics().getBurstsIndexed(), 1);
+		assertEquals(loggerFactory.getInfoLogMessageUsingClassNameAndNo(testedClassName, 1),
+				"Burst ended for type: someType, 7 work orders replaced by indexRecordsOfType");
+	}
+
+	@Test
+	public void testWorkOrdersAreNotCollapsedAfterBurstHasEnded() throws Exception {
+		countUpdates("someType", 10);
+		nowMs.addAndGet(60000);
+		detector.endFinishedBursts();
+
+		assertEquals(countUpdates("someType", 1), 1);
+	}
+
+	@Test
+	public void testFailedIndexRecordsOfTypeIsKeptPendingAndRetried() throws Exception {
+		coraClient.throwErrorOnCall = true;
+		countUpdates("someType", 10);
+		nowMs.addAndGet(60000);
+
+		detector.endFinishedBursts();
+
+		assertEquals(detector.getNoOfPending("someType"), 7);
+		assertEquals(indexMetrics.getBurstMetrics().getBurstIndexFailures(), 1);
+		assertTrue(loggerFactory.getWarnLogMessageUsingClassNameAndNo(testedClassName, 0)
+				.startsWith("indexRecordsOfType failed for type: someType, "
+						+ "7 work orders kept, retrying in "));
+
+		coraClient.throwErrorOnCall = false;
+		detector.endFinishedBursts();
+		assertEquals(coraClient.calls.size(), 1);
+
+		nowMs.addAndGet(1000);
+		detector.endFinishedBursts();
+
+		assertEquals(coraClient.calls.size(), 2);
+		assertEquals(detector.getNoOfPending("someType"), 0);
+		assertEquals(indexMetrics.getBurstMetrics().getBurstsIndexed(), 1);
+	}
+
+	@Test
+	public void testFailedIndexRecordsOfTypeGivesUpWhenRetryPolicyIsExhausted() throws Exception {
+		coraClient.throwErrorOnCall = true;
+		countUpdates("someType", 10);
+		nowMs.addAndGet(60000);
+
+		for (int i = 0; i < 3; i++) {
+			detector.endFinishedBursts();
+			nowMs.addAndGet(1000);
+		}
+		detector.endFinishedBursts();
+
+		assertEquals(coraClient.calls.size(), 3);
+		assertEquals(detector.getNoOfPending("someType"), 0);
+		assertEquals(indexMetrics.getBurstMetrics().getBurstIndexFailures(), 3);
+		assertEquals(loggerFactory.getNoOfWarnLogMessagesUsingClassName(testedClassName), 2);
+		assertEquals(loggerFactory.getErrorLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"indexRecordsOfType failed for type: someType after 3 attempts, "
+						+ "7 work orders NOT handled");
+	}
+
+	@Test
+	public void testGivenUpTypeIsDeadLettered() throws Exception {
+		MessagingFactorySpy messagingFactory = useDetectorWithDeadLetterPublisher();
+		coraClient.throwErrorOnCall = true;
+		countUpdates("someType", 10);
+		nowMs.addAndGet(60000);
+
+		for (int i = 0; i < 3; i++) {
+			detector.endFinishedBursts();
+			nowMs.addAndGet(1000);
+		}
+		deadLetterPublisher.shutdownWithinMs(2000);
+
+		assertEquals(indexMetrics.getDeadLetterMetrics().getDeadLettersPublished(), 1);
+		assertDeadLetterSentForSomeType(messagingFactory.messageSenderSpies.get(0));
+	}
+
+	private MessagingFactorySpy useDetectorWithDeadLetterPublisher() {
+		MessagingFactorySpy messagingFactory = new MessagingFactorySpy();
+		MessagingProvider.setMessagingFactory(messagingFactory);
+		AmqpMessageRoutingInfo routingInfo = new AmqpMessageRoutingInfo(
+				"messaging.alvin-portal.org", "5672", "alvin", "index", "#");
+		deadLetterPublisher = DeadLetterPublisher.usingRoutingInfoAndSettings(routingInfo, 10, 4,
+				indexMetrics);
+		detector.removeHandler();
+		createDetector();
+		return messagingFactory;
+	}
+
+	private void assertDeadLetterSentForSomeType(MessageSenderSpy sender) {
+		assertEquals(sender.sentMessages, List.of(FILTER));
+		Map<String, Object> headers = sender.sentHeaders.get(0);
+		assertEquals(headers.get("deadLetterReason"), DeadLetter.RECORDS_OF_TYPE_NOT_INDEXED);
+		assertEquals(headers.get("deadLetterRecordType"), "someType");
+	}
+
+	@Test
+	public void testNewBurstTakesOverPendingWorkOrders() throws Exception {
+		coraClient.throwErrorOnCall = true;
+		countUpdates("someType", 10);
+		nowMs.addAndGet(60000);
+		detector.endFinishedBursts();
+		coraClient.throwErrorOnCall = false;
+
+		countUpdates("someType", 5);
+		nowMs.addAndGet(1000);
+		detector.endFinishedBursts();
+		assertEquals(coraClient.calls.size(), 1);
+		assertEquals(detector.getNoOfPending("someType"), 9);
+		nowMs.addAndGet(60000);
+		detector.endFinishedBursts();
+
+		assertEquals(coraClient.calls.size(), 2);
+		assertEquals(loggerFactory.getInfoLogMessageUsingClassNameAndNo(testedClassName, 2),
+				"Burst ended for type: someType, 9 work orders replaced by indexRecordsOfType");
+	}
+
+	@Test
+	public void testDetectorIsSharedUntilLastHandlerIsRemoved() throws Exception {
+		assertTrue(detector.tryAddHandler());
+		countUpdates("someType", 10);
+
+		detector.removeHandler();
+
+		assertFalse(detector.isShutdown());
+		assertTrue(detector.isInBurst("someType"));
+		assertEquals(coraClient.calls.size(), 0);
+	}
+
+	@Test
+	public void testRemovingLastHandlerIndexesOngoingBursts() throws Exception {
+		countUpdates("someType", 10);
+
+		detector.removeHandler();
+
+		assertTrue(detector.isShutdown());
+		assertFalse(detector.isInBurst("someType"));
+		assertEquals(coraClient.calls, List.of("indexRecordsOfType someType " + FILTER));
+		assertFalse(detector.tryAddHandler());
+		assertEquals(countUpdates("someType", 10), 10);
+	}
+
+	@Test
+	public void testRemovingLastHandlerMakesLastAttemptForPendingTypes() throws Exception {
+		coraClient.throwErrorOnCall = true;
+		countUpdates("someType", 10);
+		nowMs.addAndGet(60000);
+		detector.endFinishedBursts();
+
+		detector.removeHandler();
+
+		assertEquals(coraClient.calls.size(), 2);
+		assertEquals(detector.getNoOfPending("someType"), 0);
+		assertEquals(loggerFactory.getErrorLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"indexRecordsOfType failed for type: someType after 2 attempts, "
+						+ "7 work orders NOT handled");
+	}
+
+	@Test
+	public void testTypeStillFailingWhenLastHandlerIsRemovedIsDeadLettered() throws Exception {
+		MessagingFactorySpy messagingFactory = useDetectorWithDeadLetterPublisher();
+		coraClient.throwErrorOnCall = true;
+		countUpdates("someType", 10);
+
+		detector.removeHandler();
+		deadLetterPublisher.shutdownWithinMs(2000);
+
+		assertEquals(coraClient.calls.size(), 1);
+		assertEquals(indexMetrics.getDeadLetterMetrics().getDeadLettersPublished(), 1);
+		assertDeadLetterSentForSomeType(messagingFactory.messageSenderSpies.get(0));
+	}
+
+	@Test
+	public void testBurstIsEndedOnBurstThread() throws Exception {
+		detector.removeHandler();
+		detector = BurstDetector.usingCoraClientSettingsAndRetryPolicy(coraClient, 100, 3,
+				FILTER, retryPolicy, deadLetterPublisher, indexMetrics);
+		detector.tryAddHandler();
+		countUpdates("someType", 10);
+		assertTrue(detector.isInBurst("someType"));
+
+		long deadline = System.currentTimeMillis() + 5000;
+		while (detector.isInBurst("someType") && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+
+		assertFalse(detector.isInBurst("someType"));
+		assertEquals(coraClient.calls, List.of("indexRecordsOfType someType " + FILTER));
+	}
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import static org.testng.Assert.assertSame;
+
+import org.testng.annotations.Test;
+
+public class ChainedWorkOrderHandlerFactoryTest {
+
+	@Test
+	public void testHandlersAreChainedInOrder() {
+		WorkOrderHandlerFactorySpy first = new WorkOrderHandlerFactorySpy();
+		WorkOrderHandlerFactorySpy second = new WorkOrderHandlerFactorySpy();
+		WorkOrderHandlerSpy nextHandler = new WorkOrderHandlerSpy();
+		ChainedWorkOrderHandlerFactory factory = ChainedWorkOrderHandlerFactory
+				.usingFactories(first, second);
+
+		WorkOrderHandler handler = factory.factorUsingNextHandler(nextHandler);
+
+		assertSame(handler, first.factoredHandler);
+		assertSame(first.nextHandler, second.factoredHandler);
+		assertSame(second.nextHandler, nextHandler);
+		assertSame(factory.getFactories().get(0), first);
+	}
+
+	@Test
+	public void testNoFactoriesReturnsNextHandler() {
+		WorkOrderHandlerSpy nextHandler = new WorkOrderHandlerSpy();
+		ChainedWorkOrderHandlerFactory factory = ChainedWorkOrderHandlerFactory.usingFactories();
+
+		assertSame(factory.factorUsingNextHandler(nextHandler), nextHandler);
+	}
+}
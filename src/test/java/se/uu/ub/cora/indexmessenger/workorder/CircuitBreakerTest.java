@@ -0,0 +1,148 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.indexmessenger.log.LoggerFactorySpy;
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+public class CircuitBreakerTest {
+	private LoggerFactorySpy loggerFactory;
+	private String testedClassName = "CircuitBreaker";
+	private IndexMetrics indexMetrics;
+	private long nowMs;
+	private CircuitBreaker circuitBreaker;
+
+	@BeforeMethod
+	public void setUp() {
+		loggerFactory = new LoggerFactorySpy();
+		LoggerProvider.setLoggerFactory(loggerFactory);
+		indexMetrics = new IndexMetrics();
+		nowMs = 1000;
+		circuitBreaker = CircuitBreaker.usingFailureThresholdOpenMsMetricsAndClock(3, 500,
+				indexMetrics, () -> nowMs);
+	}
+
+	private void recordFailures(int noOfFailures) {
+		for (int i = 0; i < noOfFailures; i++) {
+			circuitBreaker.recordFailure();
+		}
+	}
+
+	@Test
+	public void testSettings() {
+		CircuitBreaker breaker = CircuitBreaker.usingFailureThresholdOpenMsAndMetrics(5, 2000,
+				indexMetrics);
+
+		assertEquals(breaker.getFailureThreshold(), 5);
+		assertEquals(breaker.getOpenMs(), 2000);
+		assertSame(breaker.getIndexMetrics(), indexMetrics);
+	}
+
+	@Test
+	public void testStartsClosed() {
+		assertEquals(circuitBreaker.getState(), CircuitBreakerState.CLOSED);
+		assertTrue(circuitBreaker.allowsCall());
+		assertEquals(indexMetrics.getRetryMetrics().getCircuitBreakerState(), "CLOSED");
+	}
+
+	@Test
+	public void testOpensAfterConsecutiveFailures() {
+		recordFailures(2);
+		assertEquals(circuitBreaker.getState(), CircuitBreakerState.CLOSED);
+
+		circuitBreaker.recordFailure();
+
+		assertEquals(circuitBreaker.getState(), CircuitBreakerState.OPEN);
+		assertFalse(circuitBreaker.allowsCall());
+		assertEquals(circuitBreaker.getNoOfOpenings(), 1);
+		assertEquals(indexMetrics.getRetryMetrics().getCircuitBreakerState(), "OPEN");
+		assertEquals(indexMetrics.getRetryMetrics().getCircuitBreakerOpenings(), 1);
+		assertEquals(loggerFactory.getWarnLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"Circuit breaker opened after 3 consecutive failures");
+	}
+
+	@Test
+	public void testSuccessResetsConsecutiveFailures() {
+		recordFailures(2);
+		circuitBreaker.recordSuccess();
+		recordFailures(2);
+
+		assertEquals(circuitBreaker.getState(), CircuitBreakerState.CLOSED);
+	}
+
+	@Test
+	public void testHalfOpenAfterOpenMsAllowsOneProbe() {
+		recordFailures(3);
+		nowMs += 499;
+		assertFalse(circuitBreaker.allowsCall());
+
+		nowMs += 1;
+
+		assertTrue(circuitBreaker.allowsCall());
+		assertEquals(circuitBreaker.getState(), CircuitBreakerState.HALF_OPEN);
+		assertFalse(circuitBreaker.allowsCall());
+		assertEquals(indexMetrics.getRetryMetrics().getCircuitBreakerState(), "HALF_OPEN");
+		assertEquals(loggerFactory.getInfoLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"Circuit breaker half open, probing Cora");
+	}
+
+	@Test
+	public void testSuccessfulProbeCloses() {
+		recordFailures(3);
+		nowMs += 500;
+		circuitBreaker.allowsCall();
+
+		circuitBreaker.recordSuccess();
+
+		assertEquals(circuitBreaker.getState(), CircuitBreakerState.CLOSED);
+		assertTrue(circuitBreaker.allowsCall());
+		assertTrue(circuitBreaker.allowsCall());
+		assertEquals(indexMetrics.getRetryMetrics().getCircuitBreakerState(), "CLOSED");
+		assertEquals(loggerFactory.getInfoLogMessageUsingClassNameAndNo(testedClassName, 1),
+				"Circuit breaker closed");
+	}
+
+	@Test
+	public void testFailedProbeOpensAgain() {
+		recordFailures(3);
+		nowMs += 500;
+		circuitBreaker.allowsCall();
+
+		circuitBreaker.recordFailure();
+
+		assertEquals(circuitBreaker.getState(), CircuitBreakerState.OPEN);
+		assertFalse(circuitBreaker.allowsCall());
+		assertEquals(circuitBreaker.getNoOfOpenings(), 2);
+		assertEquals(indexMetrics.getRetryMetrics().getCircuitBreakerOpenings(), 2);
+		assertEquals(loggerFactory.getWarnLogMessageUsingClassNameAndNo(testedClassName, 1),
+				"Circuit breaker opened again after failed probe");
+
+		nowMs += 500;
+		assertTrue(circuitBreaker.allowsCall());
+	}
+}
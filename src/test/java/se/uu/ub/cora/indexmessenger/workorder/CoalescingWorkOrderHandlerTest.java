@@ -0,0 +1,205 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+import java.util.List;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.indexmessenger.log.LoggerFactorySpy;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+public class CoalescingWorkOrderHandlerTest {
+	private LoggerFactorySpy loggerFactory;
+	private String testedClassName = "CoalescingWorkOrderHandler";
+	private WorkOrderHandlerSpy nextHandler;
+	private CoalescingWorkOrderHandler handler;
+
+	@BeforeMethod
+	public void setUp() {
+		loggerFactory = new LoggerFactorySpy();
+		LoggerProvider.setLoggerFactory(loggerFactory);
+		nextHandler = new WorkOrderHandlerSpy();
+		handler = CoalescingWorkOrderHandler.usingNextHandlerAndWindowMs(nextHandler, 10000);
+	}
+
+	@AfterMethod
+	public void tearDown() {
+		handler.shutdown();
+	}
+
+	private WorkOrder createWorkOrder(String id, String modificationType) {
+		return WorkOrder.usingRecordTypeRecordIdAndModificationType("someType", id,
+				modificationType);
+	}
+
+	@Test
+	public void testWorkOrderIsPassedOnWhenWindowCloses() throws Exception {
+		handler = CoalescingWorkOrderHandler.usingNextHandlerAndWindowMs(nextHandler, 50);
+		WorkOrder workOrder = createWorkOrder("id1", "update");
+
+		handler.handle(workOrder);
+		assertEquals(nextHandler.handledWorkOrders.size(), 0);
+		assertEquals(handler.getNoOfPending(), 1);
+
+		nextHandler.waitForNoOfHandledWorkOrders(1);
+		assertSame(nextHandler.handledWorkOrders.get(0), workOrder);
+		assertEquals(handler.getNoOfPending(), 0);
+		assertEquals(handler.getNoOfPassedOn(), 1);
+	}
+
+	@Test
+	public void testRepeatedUpdatesAreCoalesced() throws Exception {
+		handler.handle(createWorkOrder("id1", "update"));
+		handler.handle(createWorkOrder("id1", "update"));
+		WorkOrder latest = createWorkOrder("id1", "update");
+		handler.handle(latest);
+
+		handler.flush();
+
+		assertEquals(nextHandler.handledWorkOrders.size(), 1);
+		assertSame(nextHandler.handledWorkOrders.get(0), latest);
+		assertEquals(handler.getNoOfReceived(), 3);
+		assertEquals(handler.getNoOfCoalesced(), 2);
+		assertEquals(handler.getNoOfSuppressed(), 0);
+	}
+
+	@Test
+	public void testDeleteSupersedesPendingIndex() throws Exception {
+		handler.handle(createWorkOrder("id1", "update"));
+		WorkOrder delete = createWorkOrder("id1", "delete");
+		handler.handle(delete);
+
+		handler.flush();
+
+		assertEquals(nextHandler.handledWorkOrders.size(), 1);
+		assertSame(nextHandler.handledWorkOrders.get(0), delete);
+		assertEquals(handler.getNoOfSuppressed(), 1);
+		assertEquals(handler.getNoOfCoalesced(), 0);
+	}
+
+	@Test
+	public void testLaterUpdateSupersedesEarlierDelete() throws Exception {
+		handler.handle(createWorkOrder("id1", "delete"));
+		WorkOrder update = createWorkOrder("id1", "create");
+		handler.handle(update);
+
+		handler.flush();
+
+		assertEquals(nextHandler.handledWorkOrders.size(), 1);
+		assertEquals(nextHandler.handledWorkOrders.get(0).getWorkOrderType(), "index");
+		assertEquals(handler.getNoOfSuppressed(), 1);
+	}
+
+	@Test
+	public void testDifferentRecordsAreNotCoalesced() throws Exception {
+		handler.handle(createWorkOrder("id1", "update"));
+		handler.handle(createWorkOrder("id2", "update"));
+		handler.handle(WorkOrder.usingRecordTypeRecordIdAndModificationType("someOtherType",
+				"id1", "update"));
+
+		assertEquals(handler.getNoOfPending(), 3);
+		handler.flush();
+
+		assertEquals(nextHandler.handledWorkOrders.size(), 3);
+		assertEquals(handler.getNoOfCoalesced(), 0);
+	}
+
+	@Test
+	public void testNewWindowStartsAfterWindowClosed() throws Exception {
+		handler = CoalescingWorkOrderHandler.usingNextHandlerAndWindowMs(nextHandler, 20);
+		handler.handle(createWorkOrder("id1", "update"));
+		nextHandler.waitForNoOfHandledWorkOrders(1);
+
+		handler.handle(createWorkOrder("id1", "update"));
+		nextHandler.waitForNoOfHandledWorkOrders(2);
+
+		assertEquals(nextHandler.handledWorkOrders.size(), 2);
+		assertEquals(handler.getNoOfCoalesced(), 0);
+	}
+
+	@Test
+	public void testErrorFromNextHandlerIsLogged() throws Exception {
+		nextHandler.throwErrorOnHandle = true;
+		handler.handle(createWorkOrder("id1", "update"));
+
+		handler.flush();
+
+		assertEquals(loggerFactory.getErrorLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"Failed to handle workOrder for type: someType and id: id1");
+	}
+
+	@Test
+	public void testShutdownPassesOnPendingWorkOrders() throws Exception {
+		handler.handle(createWorkOrder("id1", "update"));
+		handler.handle(createWorkOrder("id2", "delete"));
+
+		handler.shutdown();
+
+		assertEquals(nextHandler.handledWorkOrders.size(), 2);
+		assertEquals(handler.getNoOfPending(), 0);
+	}
+
+	@Test
+	public void testShutdownNowReturnsPendingWorkOrders() throws Exception {
+		WorkOrder pending = createWorkOrder("id1", "update");
+		handler.handle(pending);
+
+		List<WorkOrder> notPassedOn = handler.shutdownNow();
+
+		assertEquals(notPassedOn, List.of(pending));
+		assertEquals(handler.getNoOfPending(), 0);
+		assertEquals(nextHandler.handledWorkOrders.size(), 0);
+	}
+
+	@Test
+	public void testNewRecordIsPassedOnDirectlyWhenMaxPendingIsReached() throws Exception {
+		handler = CoalescingWorkOrderHandler.usingNextHandlerWindowMsAndMaxPending(nextHandler,
+				10000, 2);
+		handler.handle(createWorkOrder("id1", "update"));
+		handler.handle(createWorkOrder("id2", "update"));
+		WorkOrder third = createWorkOrder("id3", "update");
+
+		handler.handle(third);
+
+		assertEquals(handler.getNoOfPending(), 2);
+		assertEquals(nextHandler.handledWorkOrders, List.of(third));
+		assertEquals(handler.getNoOfPassedOnDirectly(), 1);
+		assertEquals(handler.getNoOfPassedOn(), 1);
+	}
+
+	@Test
+	public void testPendingRecordIsStillCoalescedWhenMaxPendingIsReached() throws Exception {
+		handler = CoalescingWorkOrderHandler.usingNextHandlerWindowMsAndMaxPending(nextHandler,
+				10000, 1);
+		handler.handle(createWorkOrder("id1", "update"));
+
+		handler.handle(createWorkOrder("id1", "update"));
+
+		assertEquals(handler.getNoOfPending(), 1);
+		assertEquals(nextHandler.handledWorkOrders.size(), 0);
+		assertEquals(handler.getNoOfCoalesced(), 1);
+		assertEquals(handler.getNoOfPassedOnDirectly(), 0);
+	}
+}
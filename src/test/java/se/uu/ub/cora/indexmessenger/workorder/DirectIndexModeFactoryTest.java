@@ -0,0 +1,80 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.indexmessenger.CoraClientSpy;
+import se.uu.ub.cora.indexmessenger.log.LoggerFactorySpy;
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+public class DirectIndexModeFactoryTest {
+
+	@BeforeMethod
+	public void setUp() {
+		LoggerProvider.setLoggerFactory(new LoggerFactorySpy());
+	}
+
+	@Test
+	public void testFactoredHandlerUsesCoraClientAndSettings() throws Exception {
+		CoraClientSpy coraClient = new CoraClientSpy();
+		DirectIndexModeFactory factory = new DirectIndexModeFactory(500, 2000,
+				SuccessLogSampling.loggingAll(), new IndexMetrics());
+
+		DirectIndexWorkOrderHandler handler = factory
+				.factorUsingCoraClientAndWorkOrderCreator(coraClient, new WorkOrderHandlerSpy());
+
+		assertSame(handler.getCoraClient(), coraClient);
+		assertEquals(handler.getCommitEveryNoOfRecords(), 500);
+		assertEquals(handler.getCommitIntervalMs(), 2000);
+		assertEquals(handler.getSuccessLogSampling().recordSuccessAndCheckIfLogged(), true);
+		handler.shutdown();
+	}
+
+	@Test
+	public void testFactoredHandlerUsesSuccessLogSampling() throws Exception {
+		SuccessLogSampling sampling = SuccessLogSampling.loggingNone();
+		DirectIndexModeFactory factory = new DirectIndexModeFactory(500, 2000, sampling,
+				new IndexMetrics());
+
+		DirectIndexWorkOrderHandler handler = factory.factorUsingCoraClientAndWorkOrderCreator(
+				new CoraClientSpy(), new WorkOrderHandlerSpy());
+
+		assertSame(handler.getSuccessLogSampling(), sampling);
+		handler.shutdown();
+	}
+
+	@Test
+	public void testFactoredHandlerUsesIndexMetrics() throws Exception {
+		IndexMetrics metrics = new IndexMetrics();
+		DirectIndexModeFactory factory = new DirectIndexModeFactory(500, 2000,
+				SuccessLogSampling.loggingAll(), metrics);
+
+		DirectIndexWorkOrderHandler handler = factory.factorUsingCoraClientAndWorkOrderCreator(
+				new CoraClientSpy(), new WorkOrderHandlerSpy());
+
+		assertSame(handler.getIndexMetrics(), metrics);
+		handler.shutdown();
+	}
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.indexmessenger.CoraClientSpy;
+import se.uu.ub.cora.indexmessenger.log.LoggerFactorySpy;
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+public class DirectIndexWorkOrderHandlerTest {
+	private LoggerFactorySpy loggerFactory;
+	private String testedClassName = "DirectIndexWorkOrderHandler";
+	private CoraClientSpy coraClient;
+	private DirectIndexWorkOrderHandler handler;
+
+	@BeforeMethod
+	public void setUp() {
+		loggerFactory = new LoggerFactorySpy();
+		LoggerProvider.setLoggerFactory(loggerFactory);
+		coraClient = new CoraClientSpy();
+		handler = DirectIndexWorkOrderHandler.usingCoraClientCommitSettingsAndMetrics(
+				coraClient, 3, 10000, SuccessLogSampling.loggingAll(), new IndexMetrics());
+	}
+
+	@AfterMethod
+	public void tearDown() {
+		handler.shutdown();
+	}
+
+	private WorkOrder createWorkOrder(String id, String modificationType) {
+		return WorkOrder.usingRecordTypeRecordIdAndModificationType("someType", id,
+				modificationType);
+	}
+
+	@Test
+	public void testUpdateIsIndexedWithoutCommit() throws Exception {
+		handler.handle(createWorkOrder("id1", "update"));
+
+		assertEquals(coraClient.indexedWithoutCommit, List.of("someType/id1"));
+		assertEquals(coraClient.indexedWithCommit.size(), 0);
+		assertEquals(coraClient.createWasCalled, false);
+		assertEquals(handler.getNoOfUncommitted(), 1);
+		assertEquals(loggerFactory.getInfoLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"Record indexed for type: someType and id: id1");
+	}
+
+	@Test
+	public void testDeleteIsRemovedFromIndex() throws Exception {
+		handler.handle(createWorkOrder("id1", "delete"));
+
+		assertEquals(coraClient.removedFromIndex, List.of("someType/id1"));
+		assertEquals(coraClient.indexedWithoutCommit.size(), 0);
+		assertEquals(loggerFactory.getInfoLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"Record removed from index for type: someType and id: id1");
+	}
+
+	@Test
+	public void testEveryNthRecordIsIndexedWithCommit() throws Exception {
+		for (int i = 0; i < 7; i++) {
+			handler.handle(createWorkOrder("id" + i, "update"));
+		}
+
+		assertEquals(coraClient.indexedWithCommit, List.of("someType/id2", "someType/id5"));
+		assertEquals(coraClient.indexedWithoutCommit.size(), 5);
+		assertEquals(handler.getNoOfUncommitted(), 1);
+	}
+
+	@Test
+	public void testUncommittedRecordsAreCommittedAfterInterval() throws Exception {
+		handler.shutdown();
+		handler = DirectIndexWorkOrderHandler.usingCoraClientCommitSettingsAndMetrics(
+				coraClient, 100, 30, SuccessLogSampling.loggingAll(), new IndexMetrics());
+		handler.handle(createWorkOrder("id1", "update"));
+		handler.handle(createWorkOrder("id2", "update"));
+
+		WorkOrderHandlerSpy.waitUntil(() -> !coraClient.indexedWithCommit.isEmpty());
+
+		assertEquals(coraClient.indexedWithCommit, List.of("someType/id2"));
+		assertEquals(handler.getNoOfUncommitted(), 0);
+	}
+
+	@Test
+	public void testCommitUncommittedWithNothingUncommittedDoesNothing() throws Exception {
+		handler.commitUncommitted();
+
+		assertEquals(coraClient.indexedWithCommit.size(), 0);
+	}
+
+	@Test
+	public void testShutdownCommitsUncommitted() throws Exception {
+		handler.handle(createWorkOrder("id1", "update"));
+
+		handler.shutdown();
+		assertTrue(handler.awaitTermination(1000));
+
+		assertEquals(coraClient.indexedWithCommit, List.of("someType/id1"));
+		assertEquals(handler.getNoOfUncommitted(), 0);
+	}
+
+	@Test
+	public void testShutdownChainCommitsUncommitted() throws Exception {
+		handler.handle(createWorkOrder("id1", "update"));
+
+		List<WorkOrder> notPassedOn = WorkOrderStage.shutdownChainWithinMs(handler, 1000);
+
+		assertEquals(notPassedOn.size(), 0);
+		assertEquals(coraClient.indexedWithCommit, List.of("someType/id1"));
+		assertNull(handler.getNextHandler());
+	}
+
+	@Test
+	public void testFailedCommitKeepsRecordsUncommitted() throws Exception {
+		handler.handle(createWorkOrder("id1", "update"));
+		handler.handle(createWorkOrder("id2", "update"));
+		coraClient.throwErrorOnIndexWithCommit = true;
+
+		handler.handle(createWorkOrder("id3", "update"));
+
+		assertEquals(coraClient.indexedWithCommit, List.of("someType/id3"));
+		assertEquals(handler.getNoOfUncommitted(), 2);
+	}
+
+	@Test
+	public void testFailedCommitIsCommittedThroughLastIndexedRecord() throws Exception {
+		handler.handle(createWorkOrder("id1", "update"));
+		handler.handle(createWorkOrder("id2", "update"));
+		coraClient.throwErrorOnIndexWithCommit = true;
+		handler.handle(createWorkOrder("id3", "update"));
+		coraClient.throwErrorOnIndexWithCommit = false;
+
+		handler.commitUncommitted();
+
+		assertEquals(coraClient.indexedWithCommit, List.of("someType/id3", "someType/id2"));
+		assertEquals(handler.getNoOfUncommitted(), 0);
+	}
+
+	@Test
+	public void testDeletedLastUncommittedRecordIsNotIndexedAgainToCommit() throws Exception {
+		handler.handle(createWorkOrder("id1", "update"));
+		handler.handle(createWorkOrder("id1", "delete"));
+
+		handler.commitUncommitted();
+
+		assertEquals(coraClient.indexedWithCommit.size(), 0);
+		assertEquals(handler.getNoOfUncommitted(), 1);
+	}
+
+	@Test
+	public void testUncommittedLeftByDeleteAreCommittedThroughNextIndexedRecord()
+			throws Exception {
+		handler.handle(createWorkOrder("id1", "update"));
+		handler.handle(createWorkOrder("id1", "delete"));
+
+		handler.handle(createWorkOrder("id2", "update"));
+
+		assertEquals(coraClient.indexedWithCommit, List.of("someType/id2"));
+		assertEquals(coraClient.indexedWithoutCommit, List.of("someType/id1"));
+		assertEquals(handler.getNoOfUncommitted(), 0);
+	}
+
+	@Test
+	public void testDeleteOfOtherRecordKeepsLastUncommittedToCommitThrough() throws Exception {
+		handler.handle(createWorkOrder("id1", "update"));
+		handler.handle(createWorkOrder("id2", "delete"));
+
+		handler.commitUncommitted();
+
+		assertEquals(coraClient.indexedWithCommit, List.of("someType/id1"));
+		assertEquals(handler.getNoOfUncommitted(), 0);
+	}
+
+	@Test
+	public void testFailedPeriodicCommitKeepsRecordsUncommitted() throws Exception {
+		handler.handle(createWorkOrder("id1", "update"));
+		coraClient.throwErrorOnIndexWithCommit = true;
+
+		handler.commitUncommitted();
+
+		assertEquals(coraClient.indexedWithCommit, List.of("someType/id1"));
+		assertEquals(handler.getNoOfUncommitted(), 1);
+	}
+
+	@Test
+	public void testFailedIndexWithoutCommitIsNotCountedAsUncommitted() throws Exception {
+		coraClient.throwErrorOnIndex = true;
+
+		handler.handle(createWorkOrder("id1", "update"));
+
+		assertEquals(handler.getNoOfUncommitted(), 0);
+	}
+
+	@Test
+	public void testIndexedAndFailedRecordsAreRecordedInMetrics() throws Exception {
+		IndexMetrics metrics = new IndexMetrics();
+		handler.shutdown();
+		handler = DirectIndexWorkOrderHandler.usingCoraClientCommitSettingsAndMetrics(coraClient,
+				3, 10000, SuccessLogSampling.loggingAll(), metrics);
+
+		handler.handle(createWorkOrder("id1", "update"));
+		handler.handle(createWorkOrder("id2", "delete"));
+		coraClient.throwErrorOnIndex = true;
+		handler.handle(createWorkOrder("id3", "update"));
+
+		assertSame(handler.getIndexMetrics(), metrics);
+		assertEquals(metrics.getWorkOrderMetrics().getWorkOrdersCreated(), 2);
+		assertEquals(metrics.getWorkOrderMetrics().getWorkOrdersFailed(), 1);
+	}
+
+	@Test
+	public void testIndexErrorIsLogged() throws Exception {
+		coraClient.throwErrorOnIndex = true;
+
+		handler.handle(createWorkOrder("id1", "update"));
+		handler.handle(createWorkOrder("id2", "update"));
+		handler.handle(createWorkOrder("id3", "update"));
+		handler.handle(createWorkOrder("id4", "delete"));
+
+		assertEquals(loggerFactory.getNoOfErrorLogMessagesUsingClassName(testedClassName), 4);
+		assertEquals(loggerFactory.getErrorLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"Record NOT indexed for type: someType and id: id1");
+		assertEquals(loggerFactory.getErrorLogMessageUsingClassNameAndNo(testedClassName, 2),
+				"Record NOT indexed for type: someType and id: id3");
+		assertEquals(loggerFactory.getErrorLogMessageUsingClassNameAndNo(testedClassName, 3),
+				"Record NOT removed from index for type: someType and id: id4");
+		assertEquals(loggerFactory.getErrorLogErrorUsingClassNameAndNo(testedClassName, 0)
+				.getMessage(), "Error from CoraClientSpy on index");
+	}
+
+	@Test
+	public void testFailedIndexIsRecordedAsWorkOrderOutcome() throws Exception {
+		WorkOrderOutcome.takeFailure();
+		coraClient.throwErrorOnIndex = true;
+
+		handler.handle(WorkOrder.usingRecordTypeRecordIdAndModificationType("someType",
+				"someId", "update"));
+
+		assertEquals(WorkOrderOutcome.takeFailure().getMessage(),
+				"Error from CoraClientSpy on index");
+	}
+}
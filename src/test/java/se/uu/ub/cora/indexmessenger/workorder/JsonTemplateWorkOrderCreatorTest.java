@@ -0,0 +1,111 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.indexmessenger.CoraClientSpy;
+import se.uu.ub.cora.indexmessenger.log.LoggerFactorySpy;
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+public class JsonTemplateWorkOrderCreatorTest {
+	private LoggerFactorySpy loggerFactory;
+	private String testedClassName = "JsonTemplateWorkOrderCreator";
+	private CoraClientSpy coraClient;
+	private JsonTemplateWorkOrderCreator creator;
+	private WorkOrder workOrder;
+
+	@BeforeMethod
+	public void setUp() {
+		loggerFactory = new LoggerFactorySpy();
+		LoggerProvider.setLoggerFactory(loggerFactory);
+		coraClient = new CoraClientSpy();
+		creator = new JsonTemplateWorkOrderCreator(coraClient, SuccessLogSampling.loggingAll(),
+				new IndexMetrics());
+		workOrder = WorkOrder.usingRecordTypeRecordIdAndModificationType("someType", "someId",
+				"update");
+	}
+
+	@Test
+	public void testWorkOrderIsCreatedFromTemplateJson() throws Exception {
+		creator.handle(workOrder);
+
+		assertEquals(coraClient.createdRecordType, "workOrder");
+		assertEquals(coraClient.createdJson, WorkOrderJsonTemplate.toJson(workOrder));
+		assertNull(coraClient.createdDataGroup);
+		assertEquals(loggerFactory.getInfoLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"Index workOrder created for type: someType and id: someId");
+	}
+
+	@Test
+	public void testErrorIsLoggedWhenCreateFails() throws Exception {
+		coraClient.throwErrorOnCreate = true;
+
+		creator.handle(workOrder);
+
+		assertEquals(loggerFactory.getNoOfInfoLogMessagesUsingClassname(testedClassName), 0);
+		assertEquals(loggerFactory.getErrorLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"Index workOrder NOT created for type: someType and id: someId");
+		assertEquals(loggerFactory.getErrorLogErrorUsingClassNameAndNo(testedClassName, 0)
+				.getMessage(), "Error from CoraClientSpy on create");
+	}
+
+	@Test
+	public void testNoSuccessIsLoggedWhenSamplingLogsNone() throws Exception {
+		creator = new JsonTemplateWorkOrderCreator(coraClient, SuccessLogSampling.loggingNone(),
+				new IndexMetrics());
+
+		creator.handle(workOrder);
+
+		assertEquals(loggerFactory.getNoOfInfoLogMessagesUsingClassname(testedClassName), 0);
+	}
+
+	@Test
+	public void testCreatedAndFailedWorkOrdersAreRecordedInMetrics() throws Exception {
+		IndexMetrics indexMetrics = new IndexMetrics();
+		creator = new JsonTemplateWorkOrderCreator(coraClient, SuccessLogSampling.loggingAll(),
+				indexMetrics);
+
+		creator.handle(workOrder);
+		coraClient.throwErrorOnCreate = true;
+		creator.handle(workOrder);
+
+		assertSame(creator.getIndexMetrics(), indexMetrics);
+		assertEquals(indexMetrics.getWorkOrderMetrics().getWorkOrdersCreated(), 1);
+		assertEquals(indexMetrics.getWorkOrderMetrics().getWorkOrdersFailed(), 1);
+		assertEquals(indexMetrics.getWorkOrderMetrics().getCreateLatency().getCount(), 2);
+	}
+
+	@Test
+	public void testFailedCreateIsRecordedAsWorkOrderOutcome() throws Exception {
+		WorkOrderOutcome.takeFailure();
+		coraClient.throwErrorOnCreate = true;
+
+		creator.handle(workOrder);
+
+		assertEquals(WorkOrderOutcome.takeFailure().getMessage(),
+				"Error from CoraClientSpy on create");
+	}
+}
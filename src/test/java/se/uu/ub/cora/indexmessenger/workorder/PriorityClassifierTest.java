@@ -0,0 +1,107 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class PriorityClassifierTest {
+	private PriorityClassifier classifier;
+	private Map<String, String> headers;
+
+	@BeforeMethod
+	public void setUp() {
+		classifier = PriorityClassifier.usingHeaderDeleteAndRecordTypeRules("priority",
+				WorkOrderPriority.HIGH, Map.of("bulkType", WorkOrderPriority.BULK, "alvin-*",
+						WorkOrderPriority.BULK, "userType", WorkOrderPriority.HIGH));
+		headers = new HashMap<>();
+	}
+
+	private WorkOrderPriority classify(String recordType, String modificationType) {
+		WorkOrder workOrder = WorkOrder.usingRecordTypeRecordIdAndModificationType(recordType,
+				"someId", modificationType);
+		return classifier.classify(headers, workOrder).getPriority();
+	}
+
+	@Test
+	public void testGetters() throws Exception {
+		assertEquals(classifier.getPriorityHeaderName(), "priority");
+		assertEquals(classifier.getDeletePriority(), WorkOrderPriority.HIGH);
+	}
+
+	@Test
+	public void testClassifyingAllAsNormal() throws Exception {
+		classifier = PriorityClassifier.classifyingAllAsNormal();
+		headers.put("priority", "bulk");
+		WorkOrder workOrder = WorkOrder.usingRecordTypeRecordIdAndModificationType("someType",
+				"someId", "delete");
+
+		assertSame(classifier.classify(headers, workOrder), workOrder);
+	}
+
+	@Test
+	public void testUnmatchedIsNormal() throws Exception {
+		assertEquals(classify("someType", "update"), WorkOrderPriority.NORMAL);
+	}
+
+	@Test
+	public void testWithoutRecordTypeIsNormal() throws Exception {
+		assertEquals(classify(null, "update"), WorkOrderPriority.NORMAL);
+		assertEquals(classify(null, "delete"), WorkOrderPriority.HIGH);
+	}
+
+	@Test
+	public void testRecordTypeRules() throws Exception {
+		assertEquals(classify("bulkType", "update"), WorkOrderPriority.BULK);
+		assertEquals(classify("userType", "update"), WorkOrderPriority.HIGH);
+		assertEquals(classify("alvin-place", "create"), WorkOrderPriority.BULK);
+	}
+
+	@Test
+	public void testDeleteGetsDeletePriorityBeforeRecordTypeRules() throws Exception {
+		assertEquals(classify("bulkType", "delete"), WorkOrderPriority.HIGH);
+	}
+
+	@Test
+	public void testHeaderGoesBeforeAllOtherRules() throws Exception {
+		headers.put("priority", "Bulk");
+
+		assertEquals(classify("userType", "delete"), WorkOrderPriority.BULK);
+	}
+
+	@Test
+	public void testUnknownHeaderValueIsIgnored() throws Exception {
+		headers.put("priority", "urgent");
+
+		assertEquals(classify("bulkType", "update"), WorkOrderPriority.BULK);
+	}
+
+	@Test
+	public void testMissingHeadersAreIgnored() throws Exception {
+		headers = null;
+
+		assertEquals(classify("userType", "update"), WorkOrderPriority.HIGH);
+	}
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.indexmessenger.IndexMessageException;
+import se.uu.ub.cora.indexmessenger.log.LoggerFactorySpy;
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+public class PriorityWorkOrderHandlerTest {
+	private LoggerFactorySpy loggerFactory;
+	private String testedClassName = "PriorityWorkOrderHandler";
+	private WorkOrderHandlerSpy nextHandler;
+	private IndexMetrics indexMetrics;
+	private PriorityWorkOrderHandler handler;
+
+	@BeforeMethod
+	public void setUp() {
+		loggerFactory = new LoggerFactorySpy();
+		LoggerProvider.setLoggerFactory(loggerFactory);
+		nextHandler = new WorkOrderHandlerSpy();
+		indexMetrics = new IndexMetrics();
+		handler = PriorityWorkOrderHandler.usingNextHandlerAndSettings(nextHandler, 100, 1,
+				PriorityWorkOrderHandlerFactory.DEFAULT_WEIGHTS, indexMetrics);
+	}
+
+	@AfterMethod
+	public void tearDown() throws Exception {
+		nextHandler.releaseHandling();
+		handler.shutdown();
+		handler.awaitTermination(1000);
+	}
+
+	private WorkOrder createWorkOrder(String id, WorkOrderPriority priority) {
+		return WorkOrder.usingRecordTypeRecordIdAndModificationType("someType", id, "update")
+				.withPriority(priority);
+	}
+
+	@Test
+	public void testInit() throws Exception {
+		assertSame(handler.getNextHandler(), nextHandler);
+		assertEquals(handler.getQueueCapacityPerPriority(), 100);
+		assertEquals(handler.getNumberOfWorkers(), 1);
+		assertEquals(handler.getWeight(WorkOrderPriority.HIGH), 8);
+		assertEquals(handler.getWeight(WorkOrderPriority.NORMAL), 4);
+		assertEquals(handler.getWeight(WorkOrderPriority.BULK), 1);
+	}
+
+	@Test(expectedExceptions = IndexMessageException.class, expectedExceptionsMessageRegExp = ""
+			+ "Weight for priority NORMAL must be at least 1")
+	public void testMissingWeight() throws Exception {
+		PriorityWorkOrderHandler.usingNextHandlerAndSettings(nextHandler, 100, 1,
+				Map.of(WorkOrderPriority.HIGH, 2, WorkOrderPriority.BULK, 1), indexMetrics);
+	}
+
+	@Test(expectedExceptions = IndexMessageException.class, expectedExceptionsMessageRegExp = ""
+			+ "Weight for priority BULK must be at least 1")
+	public void testZeroWeight() throws Exception {
+		PriorityWorkOrderHandler.usingNextHandlerAndSettings(nextHandler, 100, 1, Map.of(
+				WorkOrderPriority.HIGH, 2, WorkOrderPriority.NORMAL, 1, WorkOrderPriority.BULK, 0),
+				indexMetrics);
+	}
+
+	@Test
+	public void testWorkOrderIsPassedOnOnWorkerThread() throws Exception {
+		WorkOrder workOrder = createWorkOrder("someId", WorkOrderPriority.NORMAL);
+
+		handler.handle(workOrder);
+
+		nextHandler.waitForNoOfHandledWorkOrders(1);
+		assertSame(nextHandler.handledWorkOrders.get(0), workOrder);
+		assertTrue(nextHandler.handlingThreadNames.get(0).startsWith("indexmessenger-priority-"));
+	}
+
+	@Test
+	public void testInterruptedWorkerKeepsHandlingWorkOrders() throws Exception {
+		handler.handle(createWorkOrder("someId", WorkOrderPriority.NORMAL));
+		nextHandler.waitForNoOfHandledWorkOrders(1);
+
+		Thread workerThread = findThreadNamed(nextHandler.handlingThreadNames.get(0));
+		workerThread.interrupt();
+		WorkOrderHandlerSpy.waitUntil(() -> !workerThread.isInterrupted());
+		handler.handle(createWorkOrder("otherId", WorkOrderPriority.NORMAL));
+
+		nextHandler.waitForNoOfHandledWorkOrders(2);
+		assertEquals(nextHandler.handledWorkOrders.size(), 2);
+	}
+
+	private Thread findThreadNamed(String threadName) {
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.getName().equals(threadName) && thread.isAlive()) {
+				return thread;
+			}
+		}
+		throw new AssertionError("No thread named: " + threadName);
+	}
+
+	@Test
+	public void testHighPriorityPassesQueuedBulkUsingWeights() throws Exception {
+		nextHandler.blockHandling();
+		handler.handle(createWorkOrder("blocking", WorkOrderPriority.BULK));
+		nextHandler.waitForNoOfStartedHandlings(1);
+		for (int i = 0; i < 20; i++) {
+			handler.handle(createWorkOrder("bulk" + i, WorkOrderPriority.BULK));
+		}
+		for (int i = 0; i < 16; i++) {
+			handler.handle(createWorkOrder("high" + i, WorkOrderPriority.HIGH));
+		}
+		assertEquals(handler.getQueueDepth(WorkOrderPriority.BULK), 20);
+		assertEquals(handler.getQueueDepth(WorkOrderPriority.HIGH), 16);
+		assertEquals(handler.getNoOfOutstanding(), 37);
+
+		nextHandler.releaseHandling();
+		nextHandler.waitForNoOfHandledWorkOrders(37);
+
+		List<WorkOrderPriority> order = getHandledPriorities();
+		assertEquals(countPriority(order.subList(1, 10), WorkOrderPriority.HIGH), 8);
+		assertEquals(countPriority(order.subList(1, 10), WorkOrderPriority.BULK), 1);
+		assertEquals(countPriority(order.subList(10, 19), WorkOrderPriority.HIGH), 8);
+		assertEquals(handler.getNoOfHandled(WorkOrderPriority.BULK), 21);
+		assertEquals(handler.getNoOfHandled(WorkOrderPriority.HIGH), 16);
+	}
+
+	private List<WorkOrderPriority> getHandledPriorities() {
+		List<WorkOrderPriority> priorities = new ArrayList<>();
+		synchronized (nextHandler.handledWorkOrders) {
+			for (WorkOrder workOrder : nextHandler.handledWorkOrders) {
+				priorities.add(workOrder.getPriority());
+			}
+		}
+		return priorities;
+	}
+
+	private long countPriority(List<WorkOrderPriority> priorities, WorkOrderPriority priority) {
+		return priorities.stream().filter(p -> p == priority).count();
+	}
+
+	@Test
+	public void testLowPriorityIsNotStarved() throws Exception {
+		nextHandler.blockHandling();
+		handler.handle(createWorkOrder("blocking", WorkOrderPriority.NORMAL));
+		nextHandler.waitForNoOfStartedHandlings(1);
+		handler.handle(createWorkOrder("bulk", WorkOrderPriority.BULK));
+		for (int i = 0; i < 40; i++) {
+			handler.handle(createWorkOrder("normal" + i, WorkOrderPriority.NORMAL));
+		}
+
+		nextHandler.releaseHandling();
+		nextHandler.waitForNoOfHandledWorkOrders(42);
+
+		int bulkPosition = getHandledPriorities().indexOf(WorkOrderPriority.BULK);
+		assertTrue(bulkPosition <= 5, "bulk handled at position " + bulkPosition);
+	}
+
+	@Test
+	public void testLatencyIsRecordedPerPriority() throws Exception {
+		handler.handle(createWorkOrder("high", WorkOrderPriority.HIGH));
+		handler.handle(createWorkOrder("bulk", WorkOrderPriority.BULK));
+
+		nextHandler.waitForNoOfHandledWorkOrders(2);
+		WorkOrderHandlerSpy.waitUntil(() -> handler.getNoOfOutstanding() == 0);
+
+		assertEquals(handler.getLatency(WorkOrderPriority.HIGH).getCount(), 1);
+		assertEquals(handler.getLatency(WorkOrderPriority.BULK).getCount(), 1);
+		assertEquals(handler.getLatency(WorkOrderPriority.NORMAL).getCount(), 0);
+		assertEquals(indexMetrics.getWorkOrderMetrics().getPriorityLatency("HIGH").getCount(), 1);
+		assertEquals(indexMetrics.getWorkOrderMetrics().getPriorityLatencyMeanMicros().keySet()
+				.toString(), "[BULK, HIGH]");
+	}
+
+	@Test
+	public void testFullQueueBlocksUntilThereIsRoom() throws Exception {
+		handler.shutdown();
+		handler = PriorityWorkOrderHandler.usingNextHandlerAndSettings(nextHandler, 1, 1,
+				PriorityWorkOrderHandlerFactory.DEFAULT_WEIGHTS, indexMetrics);
+		nextHandler.blockHandling();
+		handler.handle(createWorkOrder("first", WorkOrderPriority.BULK));
+		nextHandler.waitForNoOfStartedHandlings(1);
+		handler.handle(createWorkOrder("second", WorkOrderPriority.BULK));
+		Thread sender = new Thread(
+				() -> handler.handle(createWorkOrder("third", WorkOrderPriority.BULK)));
+		sender.start();
+		sender.join(50);
+
+		assertTrue(sender.isAlive());
+		assertEquals(handler.getQueueDepth(WorkOrderPriority.BULK), 1);
+
+		nextHandler.releaseHandling();
+		sender.join(5000);
+		nextHandler.waitForNoOfHandledWorkOrders(3);
+		assertEquals(nextHandler.handledWorkOrders.size(), 3);
+	}
+
+	@Test
+	public void testErrorInNextHandlerIsLogged() throws Exception {
+		nextHandler.throwErrorOnHandle = true;
+
+		handler.handle(createWorkOrder("someId", WorkOrderPriority.HIGH));
+
+		WorkOrderHandlerSpy.waitUntil(() -> handler.getNoOfOutstanding() == 0);
+		assertEquals(loggerFactory.getErrorLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"Failed to handle workOrder for type: someType and id: someId");
+	}
+
+	@Test
+	public void testShutdownDrainsQueues() throws Exception {
+		nextHandler.blockHandling();
+		for (int i = 0; i < 5; i++) {
+			handler.handle(createWorkOrder("id" + i, WorkOrderPriority.BULK));
+		}
+
+		handler.shutdown();
+		nextHandler.releaseHandling();
+
+		assertTrue(handler.awaitTermination(5000));
+		assertEquals(nextHandler.handledWorkOrders.size(), 5);
+	}
+
+	@Test
+	public void testShutdownNowReturnsQueuedWorkOrdersHighestPriorityFirst() throws Exception {
+		nextHandler.blockHandling();
+		handler.handle(createWorkOrder("id1", WorkOrderPriority.NORMAL));
+		nextHandler.waitForNoOfStartedHandlings(1);
+		WorkOrder bulk = createWorkOrder("id2", WorkOrderPriority.BULK);
+		WorkOrder high = createWorkOrder("id3", WorkOrderPriority.HIGH);
+		handler.handle(bulk);
+		handler.handle(high);
+
+		List<WorkOrder> notPassedOn = handler.shutdownNow();
+
+		assertEquals(notPassedOn, List.of(high, bulk));
+		assertEquals(handler.getQueueDepth(WorkOrderPriority.BULK), 0);
+	}
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+
+import org.testng.annotations.Test;
+
+public class RecordKeyTest {
+
+	private RecordKey createKey(String recordType, String recordId, String modificationType) {
+		return RecordKey.forWorkOrder(WorkOrder
+				.usingRecordTypeRecordIdAndModificationType(recordType, recordId, modificationType));
+	}
+
+	@Test
+	public void testKeyValues() {
+		RecordKey key = createKey("someType", "someId", "update");
+		assertEquals(key.getRecordType(), "someType");
+		assertEquals(key.getRecordId(), "someId");
+	}
+
+	@Test
+	public void testSameRecordGivesEqualKeysRegardlessOfModificationType() {
+		RecordKey key = createKey("someType", "someId", "update");
+		RecordKey otherKey = createKey("someType", "someId", "delete");
+		assertEquals(key, otherKey);
+		assertEquals(key.hashCode(), otherKey.hashCode());
+		assertEquals(key, key);
+	}
+
+	@Test
+	public void testDifferentRecordsGiveDifferentKeys() {
+		RecordKey key = createKey("someType", "someId", "update");
+		assertNotEquals(key, createKey("someType", "someOtherId", "update"));
+		assertNotEquals(key, createKey("someOtherType", "someId", "update"));
+		assertNotEquals(key, "someType");
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+public class RecordTypeFilterTest {
+
+	@Test
+	public void testAllowingAllAllowsAnyType() {
+		RecordTypeFilter filter = RecordTypeFilter.allowingAll();
+		assertTrue(filter.isAllowed("place"));
+		assertTrue(filter.isAllowed("person"));
+	}
+
+	@Test
+	public void testOnlyAllowedTypesAreAllowed() {
+		RecordTypeFilter filter = RecordTypeFilter.usingAllowAndDenyRules(List.of("place"),
+				List.of());
+		assertTrue(filter.isAllowed("place"));
+		assertFalse(filter.isAllowed("person"));
+		assertFalse(filter.isAllowed("placeholder"));
+	}
+
+	@Test
+	public void testAllowedPrefix() {
+		RecordTypeFilter filter = RecordTypeFilter.usingAllowAndDenyRules(List.of("alvin*"),
+				List.of());
+		assertTrue(filter.isAllowed("alvinPlace"));
+		assertTrue(filter.isAllowed("alvin"));
+		assertFalse(filter.isAllowed("divaPerson"));
+	}
+
+	@Test
+	public void testDeniedTypesAreNotAllowed() {
+		RecordTypeFilter filter = RecordTypeFilter.usingAllowAndDenyRules(List.of(),
+				List.of("workOrder", "system*"));
+		assertTrue(filter.isAllowed("place"));
+		assertFalse(filter.isAllowed("workOrder"));
+		assertFalse(filter.isAllowed("systemSecret"));
+	}
+
+	@Test
+	public void testDenyRulesOverrideAllowRules() {
+		RecordTypeFilter filter = RecordTypeFilter.usingAllowAndDenyRules(List.of("alvin*"),
+				List.of("alvinSecret"));
+		assertTrue(filter.isAllowed("alvinPlace"));
+		assertFalse(filter.isAllowed("alvinSecret"));
+	}
+
+	@Test
+	public void testCachedDecisionIsSameAsFirstDecision() {
+		RecordTypeFilter filter = RecordTypeFilter.usingAllowAndDenyRules(List.of("place"),
+				List.of());
+		assertTrue(filter.isAllowed("place"));
+		assertTrue(filter.isAllowed("place"));
+		assertFalse(filter.isAllowed("person"));
+		assertFalse(filter.isAllowed("person"));
+	}
+
+	@Test
+	public void testOnlyDecisionsForTypesMatchingPrefixRuleAreCached() {
+		RecordTypeFilter filter = RecordTypeFilter.usingAllowAndDenyRules(
+				List.of("place", "alvin-*"), List.of("alvin-person*"));
+
+		assertTrue(filter.isAllowed("place"));
+		assertFalse(filter.isAllowed("person"));
+		assertEquals(filter.getNoOfCachedDecisions(), 0);
+
+		assertTrue(filter.isAllowed("alvin-place"));
+		assertFalse(filter.isAllowed("alvin-person"));
+		assertEquals(filter.getNoOfCachedDecisions(), 2);
+		assertTrue(filter.isAllowed("alvin-place"));
+		assertFalse(filter.isAllowed("alvin-person"));
+	}
+
+	@Test
+	public void testNoOfCachedDecisionsIsLimited() {
+		RecordTypeFilter filter = RecordTypeFilter.usingAllowAndDenyRules(List.of("alvin-*"),
+				List.of());
+
+		for (int i = 0; i < RecordTypeFilter.MAX_CACHED_DECISIONS + 10; i++) {
+			assertTrue(filter.isAllowed("alvin-type" + i));
+		}
+
+		assertEquals(filter.getNoOfCachedDecisions(), RecordTypeFilter.MAX_CACHED_DECISIONS);
+		assertTrue(filter.isAllowed("alvin-type" + RecordTypeFilter.MAX_CACHED_DECISIONS + 5));
+	}
+
+	@Test
+	public void testMissingRecordTypeIsNotAllowed() {
+		RecordTypeFilter filter = RecordTypeFilter.allowingAll();
+		assertFalse(filter.isAllowed(null));
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+
+public class RecordTypeFilterWorkOrderHandlerTest {
+	private WorkOrderHandlerSpy nextHandler;
+	private RecordTypeFilterWorkOrderHandler handler;
+
+	@BeforeMethod
+	public void setUp() {
+		nextHandler = new WorkOrderHandlerSpy();
+		RecordTypeFilter filter = RecordTypeFilter.usingAllowAndDenyRules(List.of("place"),
+				List.of());
+		handler = new RecordTypeFilterWorkOrderHandler(nextHandler, filter, new IndexMetrics());
+	}
+
+	private WorkOrder createWorkOrder(String recordType) {
+		return WorkOrder.usingRecordTypeRecordIdAndModificationType(recordType, "someId",
+				"update");
+	}
+
+	@Test
+	public void testAllowedWorkOrderIsPassedOn() {
+		WorkOrder workOrder = createWorkOrder("place");
+
+		handler.handle(workOrder);
+
+		assertSame(nextHandler.handledWorkOrders.get(0), workOrder);
+		assertEquals(handler.getNoOfFilteredPerType(), Map.of());
+	}
+
+	@Test
+	public void testFilteredWorkOrdersAreCountedPerType() {
+		handler.handle(createWorkOrder("person"));
+		handler.handle(createWorkOrder("person"));
+		handler.handle(createWorkOrder("organisation"));
+
+		assertEquals(nextHandler.handledWorkOrders.size(), 0);
+		assertEquals(handler.getNoOfFilteredForType("person"), 2);
+		assertEquals(handler.getNoOfFilteredForType("organisation"), 1);
+		assertEquals(handler.getNoOfFilteredForType("place"), 0);
+		assertEquals(handler.getNoOfFilteredPerType(), Map.of("person", 2L, "organisation", 1L));
+	}
+
+	@Test
+	public void testFilteredWorkOrdersAreCountedInMetrics() {
+		IndexMetrics metrics = new IndexMetrics();
+		handler = new RecordTypeFilterWorkOrderHandler(nextHandler,
+				RecordTypeFilter.usingAllowAndDenyRules(List.of("place"), List.of()), metrics);
+
+		handler.handle(createWorkOrder("person"));
+		handler.handle(createWorkOrder("place"));
+
+		assertSame(handler.getIndexMetrics(), metrics);
+		assertEquals(metrics.getWorkOrderMetrics().getMessagesFiltered(), 1);
+	}
+
+	@Test
+	public void testWorkOrderWithoutRecordTypeIsFiltered() {
+		handler = new RecordTypeFilterWorkOrderHandler(nextHandler,
+				RecordTypeFilter.allowingAll(), new IndexMetrics());
+
+		handler.handle(createWorkOrder(null));
+
+		assertEquals(nextHandler.handledWorkOrders.size(), 0);
+		assertEquals(handler.getNoOfFilteredWithoutType(), 1);
+		assertEquals(handler.getNoOfFilteredPerType(), Map.of());
+		assertEquals(handler.getIndexMetrics().getWorkOrderMetrics().getMessagesFiltered(), 1);
+	}
+
+	@Test
+	public void testFactoredHandlerUsesIndexMetrics() {
+		IndexMetrics metrics = new IndexMetrics();
+		RecordTypeFilterWorkOrderHandler factored = new RecordTypeFilterWorkOrderHandlerFactory(
+				RecordTypeFilter.allowingAll(), metrics).factorUsingNextHandler(nextHandler);
+
+		assertSame(factored.getIndexMetrics(), metrics);
+	}
+
+	@Test
+	public void testFactoredHandlerUsesFilter() {
+		RecordTypeFilter filter = RecordTypeFilter.allowingAll();
+		RecordTypeFilterWorkOrderHandler factored = new RecordTypeFilterWorkOrderHandlerFactory(
+				filter, new IndexMetrics()).factorUsingNextHandler(nextHandler);
+
+		assertSame(factored.getRecordTypeFilter(), filter);
+		assertSame(factored.getNextHandler(), nextHandler);
+	}
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.function.Predicate;
+
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.javaclient.cora.CoraClientException;
+
+public class RetryPolicyTest {
+
+	@Test
+	public void testSettings() {
+		RetryPolicy policy = RetryPolicy.usingMaxAttemptsAndDelays(4, 100, 1000);
+
+		assertEquals(policy.getMaxAttempts(), 4);
+		assertEquals(policy.getInitialDelayMs(), 100);
+		assertEquals(policy.getMaxDelayMs(), 1000);
+	}
+
+	@Test
+	public void testRetryIsAllowedUntilMaxAttempts() {
+		RetryPolicy policy = RetryPolicy.usingMaxAttemptsAndDelays(3, 100, 1000);
+
+		assertTrue(policy.isRetryAllowedAfterAttempt(1));
+		assertTrue(policy.isRetryAllowedAfterAttempt(2));
+		assertFalse(policy.isRetryAllowedAfterAttempt(3));
+	}
+
+	@Test
+	public void testNoRetries() {
+		RetryPolicy policy = RetryPolicy.noRetries();
+
+		assertFalse(policy.isRetryAllowedAfterAttempt(1));
+	}
+
+	@Test
+	public void testBackoffDoublesUpToMaxDelay() {
+		RetryPolicy policy = RetryPolicy.usingMaxAttemptsAndDelays(10, 100, 1000);
+
+		assertEquals(policy.getBackoffMsForRetry(1), 100);
+		assertEquals(policy.getBackoffMsForRetry(2), 200);
+		assertEquals(policy.getBackoffMsForRetry(3), 400);
+		assertEquals(policy.getBackoffMsForRetry(4), 800);
+		assertEquals(policy.getBackoffMsForRetry(5), 1000);
+	}
+
+	@Test
+	public void testBackoffDoesNotOverflow() {
+		RetryPolicy policy = RetryPolicy.usingMaxAttemptsAndDelays(100, 100, 60000);
+
+		assertEquals(policy.getBackoffMsForRetry(60), 60000);
+		assertEquals(policy.getBackoffMsForRetry(99), 60000);
+	}
+
+	@Test
+	public void testDelayIsBetweenHalfAndFullBackoff() {
+		RetryPolicy policy = RetryPolicy.usingMaxAttemptsAndDelays(10, 100, 1000);
+
+		for (int i = 0; i < 100; i++) {
+			long delay = policy.getDelayMsForRetry(2);
+			assertTrue(delay >= 100 && delay <= 200, "delay was " + delay);
+		}
+	}
+
+	@Test
+	public void testOtherFailuresThanErrorAnsweredByCoraAreRetryable() {
+		RetryPolicy policy = RetryPolicy.usingMaxAttemptsAndDelays(3, 100, 1000);
+
+		assertTrue(policy.isRetryable(new RuntimeException("someError")));
+		assertTrue(policy.isRetryable(new IllegalStateException("someError")));
+	}
+
+	@Test
+	public void testErrorAnsweredByCoraIsNotRetryable() {
+		RetryPolicy policy = RetryPolicy.usingMaxAttemptsAndDelays(3, 100, 1000);
+
+		assertFalse(policy.isRetryable(new CoraClientException("No record exists")));
+		assertFalse(RetryPolicy.noRetries()
+				.isRetryable(new CoraClientException("No record exists")));
+	}
+
+	@Test
+	public void testCoraNotReachedIsRetryable() {
+		RetryPolicy policy = RetryPolicy.usingMaxAttemptsAndDelays(3, 100, 1000);
+
+		assertTrue(policy.isRetryable(new CoraClientException("Could not connect",
+				new RuntimeException("wrapped", new IOException("Connection refused")))));
+	}
+
+	@Test
+	public void testWithRetryableFailure() {
+		RetryPolicy policy = RetryPolicy.usingMaxAttemptsAndDelays(3, 100, 1000);
+		Predicate<Exception> retryAll = failure -> true;
+
+		RetryPolicy copy = policy.withRetryableFailure(retryAll);
+
+		assertSame(copy.getRetryableFailure(), retryAll);
+		assertTrue(copy.isRetryable(new CoraClientException("No record exists")));
+		assertEquals(copy.getMaxAttempts(), 3);
+		assertEquals(copy.getInitialDelayMs(), 100);
+		assertEquals(copy.getMaxDelayMs(), 1000);
+		assertFalse(policy.isRetryable(new CoraClientException("No record exists")));
+	}
+}
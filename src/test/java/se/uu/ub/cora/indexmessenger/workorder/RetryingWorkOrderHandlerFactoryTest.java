@@ -0,0 +1,65 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+
+public class RetryingWorkOrderHandlerFactoryTest {
+
+	@Test
+	public void testFactorUsingNextHandler() {
+		RetryPolicy retryPolicy = RetryPolicy.noRetries();
+		CircuitBreaker circuitBreaker = CircuitBreaker.usingFailureThresholdOpenMsAndMetrics(5,
+				1000, new IndexMetrics());
+		RetryingWorkOrderHandlerFactory factory = new RetryingWorkOrderHandlerFactory(
+				retryPolicy, circuitBreaker, OpenCircuitPolicy.QUEUE);
+		WorkOrderHandlerSpy nextHandler = new WorkOrderHandlerSpy();
+
+		RetryingWorkOrderHandler handler = factory.factorUsingNextHandler(nextHandler);
+
+		assertSame(factory.getRetryPolicy(), retryPolicy);
+		assertSame(factory.getCircuitBreaker(), circuitBreaker);
+		assertEquals(factory.getOpenCircuitPolicy(), OpenCircuitPolicy.QUEUE);
+		assertSame(handler.getNextHandler(), nextHandler);
+		assertSame(handler.getRetryPolicy(), retryPolicy);
+		assertSame(handler.getCircuitBreaker(), circuitBreaker);
+		assertEquals(handler.getOpenCircuitPolicy(), OpenCircuitPolicy.QUEUE);
+		assertEquals(handler.getMaxQueued(), RetryingWorkOrderHandler.DEFAULT_MAX_QUEUED);
+		handler.shutdown();
+	}
+
+	@Test
+	public void testFactorUsingMaxQueued() {
+		CircuitBreaker circuitBreaker = CircuitBreaker.usingFailureThresholdOpenMsAndMetrics(5,
+				1000, new IndexMetrics());
+		RetryingWorkOrderHandlerFactory factory = new RetryingWorkOrderHandlerFactory(
+				RetryPolicy.noRetries(), circuitBreaker, OpenCircuitPolicy.QUEUE, 7);
+
+		RetryingWorkOrderHandler handler = factory
+				.factorUsingNextHandler(new WorkOrderHandlerSpy());
+
+		assertEquals(handler.getMaxQueued(), 7);
+		handler.shutdown();
+	}
+}
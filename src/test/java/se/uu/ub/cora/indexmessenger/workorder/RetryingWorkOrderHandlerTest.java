@@ -0,0 +1,492 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.util.List;
+import java.util.Map;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.indexmessenger.DeadLetter;
+import se.uu.ub.cora.indexmessenger.DeadLetterPublisher;
+import se.uu.ub.cora.indexmessenger.IndexMessageException;
+import se.uu.ub.cora.indexmessenger.MessageSenderSpy;
+import se.uu.ub.cora.indexmessenger.MessagingFactorySpy;
+import se.uu.ub.cora.indexmessenger.log.LoggerFactorySpy;
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.javaclient.cora.CoraClientException;
+import se.uu.ub.cora.logger.LoggerProvider;
+import se.uu.ub.cora.messaging.AmqpMessageRoutingInfo;
+import se.uu.ub.cora.messaging.MessagingProvider;
+
+public class RetryingWorkOrderHandlerTest {
+	private LoggerFactorySpy loggerFactory;
+	private String testedClassName = "RetryingWorkOrderHandler";
+	private WorkOrderHandlerSpy nextHandler;
+	private IndexMetrics indexMetrics;
+	private RetryPolicy retryPolicy;
+	private CircuitBreaker circuitBreaker;
+	private RetryingWorkOrderHandler handler;
+	private WorkOrder workOrder;
+	private long nowMs = 0;
+	private MessagingFactorySpy messagingFactorySpy;
+
+	@BeforeMethod
+	public void setUp() {
+		loggerFactory = new LoggerFactorySpy();
+		LoggerProvider.setLoggerFactory(loggerFactory);
+		nextHandler = new WorkOrderHandlerSpy();
+		messagingFactorySpy = new MessagingFactorySpy();
+		indexMetrics = new IndexMetrics();
+		retryPolicy = RetryPolicy.usingMaxAttemptsAndDelays(3, 5, 20);
+		circuitBreaker = CircuitBreaker.usingFailureThresholdOpenMsAndMetrics(10, 50,
+				indexMetrics);
+		handler = createHandlerUsingPolicy(OpenCircuitPolicy.FAIL_FAST);
+		workOrder = WorkOrder.usingRecordTypeRecordIdAndModificationType("someType", "someId",
+				"update");
+	}
+
+	private RetryingWorkOrderHandler createHandlerUsingPolicy(
+			OpenCircuitPolicy openCircuitPolicy) {
+		return RetryingWorkOrderHandler.usingNextHandlerAndSettings(nextHandler, retryPolicy,
+				circuitBreaker, openCircuitPolicy);
+	}
+
+	@AfterMethod
+	public void tearDown() {
+		handler.shutdown();
+	}
+
+	@Test
+	public void testInit() {
+		assertSame(handler.getNextHandler(), nextHandler);
+		assertSame(handler.getRetryPolicy(), retryPolicy);
+		assertSame(handler.getCircuitBreaker(), circuitBreaker);
+		assertEquals(handler.getOpenCircuitPolicy(), OpenCircuitPolicy.FAIL_FAST);
+	}
+
+	@Test
+	public void testSuccessfulWorkOrderIsHandledOnce() {
+		handler.handle(workOrder);
+
+		assertEquals(nextHandler.handledWorkOrders.size(), 1);
+		assertEquals(indexMetrics.getRetryMetrics().getRetriesScheduled(), 0);
+		assertEquals(circuitBreaker.getState(), CircuitBreakerState.CLOSED);
+	}
+
+	@Test
+	public void testFailedWorkOrderIsRetriedOnSchedulerThread() {
+		handler.shutdown();
+		retryPolicy = RetryPolicy.usingMaxAttemptsAndDelays(3, 200, 400);
+		handler = createHandlerUsingPolicy(OpenCircuitPolicy.FAIL_FAST);
+		nextHandler.noOfFailuresToRecord.set(1);
+
+		handler.handle(workOrder);
+
+		assertEquals(nextHandler.handledWorkOrders.size(), 1);
+		nextHandler.waitForNoOfHandledWorkOrders(2);
+		assertEquals(nextHandler.handledWorkOrders.size(), 2);
+		assertTrue(nextHandler.handlingThreadNames.get(1).startsWith("indexmessenger-retry-"));
+		assertEquals(indexMetrics.getRetryMetrics().getRetriesScheduled(), 1);
+		WorkOrderHandlerSpy.waitUntil(() -> handler.getNoOfScheduledRetries() == 0);
+		assertEquals(handler.getNoOfScheduledRetries(), 0);
+	}
+
+	@Test
+	public void testGivesUpAfterMaxAttempts() {
+		nextHandler.noOfFailuresToRecord.set(10);
+
+		handler.handle(workOrder);
+
+		WorkOrderHandlerSpy.waitUntil(() -> (int) loggerFactory
+				.getNoOfErrorLogMessagesUsingClassName(testedClassName) == 1);
+		assertEquals(nextHandler.handledWorkOrders.size(), 3);
+		assertEquals(indexMetrics.getRetryMetrics().getRetriesScheduled(), 2);
+		assertEquals(indexMetrics.getRetryMetrics().getRetriesExhausted(), 1);
+		assertEquals(loggerFactory.getErrorLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"Giving up after 3 attempts, workOrder NOT handled for type: someType"
+						+ " and id: someId");
+	}
+
+	@Test
+	public void testFailuresAreRecordedInCircuitBreaker() {
+		circuitBreaker = CircuitBreaker.usingFailureThresholdOpenMsAndMetrics(2, 10000,
+				indexMetrics);
+		handler.shutdown();
+		retryPolicy = RetryPolicy.noRetries();
+		handler = createHandlerUsingPolicy(OpenCircuitPolicy.FAIL_FAST);
+		nextHandler.noOfFailuresToRecord.set(2);
+
+		handler.handle(workOrder);
+		handler.handle(workOrder);
+
+		assertEquals(circuitBreaker.getState(), CircuitBreakerState.OPEN);
+	}
+
+	@Test
+	public void testExceptionFromNextHandlerIsRetried() {
+		nextHandler.throwErrorOnHandle = true;
+
+		handler.handle(workOrder);
+
+		assertEquals(indexMetrics.getRetryMetrics().getRetriesScheduled(), 1);
+		assertEquals(loggerFactory.getErrorLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"Failed to handle workOrder for type: someType and id: someId");
+		nextHandler.throwErrorOnHandle = false;
+		nextHandler.waitForNoOfHandledWorkOrders(2);
+	}
+
+	@Test
+	public void testNoFailureIsLeftOnThreadWhenNextHandlerThrows() {
+		nextHandler.noOfFailuresToRecord.set(1);
+		nextHandler.throwErrorOnHandle = true;
+
+		handler.handle(workOrder);
+
+		assertNull(WorkOrderOutcome.takeFailure());
+		nextHandler.throwErrorOnHandle = false;
+		nextHandler.waitForNoOfHandledWorkOrders(2);
+	}
+
+	@Test
+	public void testExceptionFromProbeDoesNotBlockNextProbe() {
+		handler.shutdown();
+		retryPolicy = RetryPolicy.noRetries();
+		circuitBreaker = CircuitBreaker.usingFailureThresholdOpenMsMetricsAndClock(1, 10000,
+				indexMetrics, () -> nowMs);
+		handler = createHandlerUsingPolicy(OpenCircuitPolicy.FAIL_FAST);
+		openCircuitBreaker();
+		nowMs += 10000;
+		nextHandler.throwErrorOnHandle = true;
+
+		handler.handle(workOrder);
+		nowMs += 10000;
+		nextHandler.throwErrorOnHandle = false;
+		handler.handle(workOrder);
+
+		assertEquals(nextHandler.handledWorkOrders.size(), 2);
+		assertEquals(circuitBreaker.getState(), CircuitBreakerState.CLOSED);
+	}
+
+	@Test
+	public void testNextHandlerPassingOnOnOtherThreadIsNotAllowed() {
+		WorkOrderPipeline pipeline = WorkOrderPipeline.usingNextHandlerAndSettings(nextHandler,
+				10, 1, FullQueuePolicy.BLOCK, new WorkOrderSpillSpy());
+		try {
+			RetryingWorkOrderHandler.usingNextHandlerAndSettings(pipeline, retryPolicy,
+					circuitBreaker, OpenCircuitPolicy.FAIL_FAST);
+			fail("creating the handler in front of a pipeline should fail");
+		} catch (IndexMessageException e) {
+			assertEquals(e.getMessage(), "Retrying handler can not be followed by "
+					+ "WorkOrderPipeline, failures are only seen from handlers on the calling"
+					+ " thread");
+		} finally {
+			pipeline.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testNextHandlersPassingOnOnCallingThreadAreAllowed() {
+		RecordTypeFilterWorkOrderHandler filter = new RecordTypeFilterWorkOrderHandler(
+				nextHandler, RecordTypeFilter.allowingAll(), new IndexMetrics());
+
+		RetryingWorkOrderHandler filteringHandler = RetryingWorkOrderHandler
+				.usingNextHandlerAndSettings(filter, retryPolicy, circuitBreaker,
+						OpenCircuitPolicy.FAIL_FAST);
+
+		assertSame(filteringHandler.getNextHandler(), filter);
+		filteringHandler.shutdown();
+	}
+
+	@Test
+	public void testFailFastWhileOpen() {
+		openCircuitBreaker();
+
+		handler.handle(workOrder);
+
+		assertEquals(nextHandler.handledWorkOrders.size(), 0);
+		assertEquals(indexMetrics.getRetryMetrics().getWorkOrdersRejectedByCircuitBreaker(), 1);
+		assertEquals(loggerFactory.getErrorLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"Circuit breaker open, workOrder NOT handled for type: someType and id: someId");
+	}
+
+	private void openCircuitBreaker() {
+		for (int i = 0; i < circuitBreaker.getFailureThreshold(); i++) {
+			circuitBreaker.recordFailure();
+		}
+	}
+
+	@Test
+	public void testQueuedWhileOpenAndRetriedWhenCircuitBreakerAllowsProbe() {
+		handler.shutdown();
+		circuitBreaker = CircuitBreaker.usingFailureThresholdOpenMsAndMetrics(1, 10000,
+				indexMetrics);
+		handler = createHandlerUsingPolicy(OpenCircuitPolicy.QUEUE);
+		openCircuitBreaker();
+
+		handler.handle(workOrder);
+		handler.handle(workOrder);
+
+		assertEquals(nextHandler.handledWorkOrders.size(), 0);
+		assertEquals(handler.getNoOfQueued(), 2);
+		assertEquals(indexMetrics.getRetryMetrics().getWorkOrdersRejectedByCircuitBreaker(), 0);
+	}
+
+	@Test
+	public void testRejectedWhenMaxQueuedIsReached() {
+		handler.shutdown();
+		circuitBreaker = CircuitBreaker.usingFailureThresholdOpenMsAndMetrics(1, 10000,
+				indexMetrics);
+		handler = RetryingWorkOrderHandler.usingNextHandlerSettingsAndMaxQueued(nextHandler,
+				retryPolicy, circuitBreaker, OpenCircuitPolicy.QUEUE, 1);
+		openCircuitBreaker();
+
+		handler.handle(workOrder);
+		handler.handle(workOrder);
+
+		assertEquals(handler.getMaxQueued(), 1);
+		assertEquals(handler.getNoOfQueued(), 1);
+		assertEquals(indexMetrics.getRetryMetrics().getWorkOrdersRejectedByCircuitBreaker(), 1);
+		assertEquals(loggerFactory.getErrorLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"Circuit breaker open and 1 work orders queued, workOrder NOT handled for type:"
+						+ " someType and id: someId");
+	}
+
+	@Test
+	public void testQueuedAreHandledAfterSuccessfulProbe() {
+		handler.shutdown();
+		circuitBreaker = CircuitBreaker.usingFailureThresholdOpenMsAndMetrics(1, 20,
+				indexMetrics);
+		handler = createHandlerUsingPolicy(OpenCircuitPolicy.QUEUE);
+		openCircuitBreaker();
+		handler.handle(workOrder);
+		handler.handle(workOrder);
+
+		nextHandler.waitForNoOfHandledWorkOrders(2);
+
+		assertEquals(nextHandler.handledWorkOrders.size(), 2);
+		assertTrue(nextHandler.handlingThreadNames.get(0).startsWith("indexmessenger-retry-"));
+		assertEquals(handler.getNoOfQueued(), 0);
+		assertEquals(circuitBreaker.getState(), CircuitBreakerState.CLOSED);
+	}
+
+	@Test
+	public void testRetryQueuedStopsWhenProbeFails() {
+		handler.shutdown();
+		retryPolicy = RetryPolicy.usingMaxAttemptsAndDelays(3, 10000, 10000);
+		circuitBreaker = CircuitBreaker.usingFailureThresholdOpenMsMetricsAndClock(1, 10000,
+				indexMetrics, () -> nowMs);
+		handler = createHandlerUsingPolicy(OpenCircuitPolicy.QUEUE);
+		openCircuitBreaker();
+		handler.handle(workOrder);
+		handler.handle(workOrder);
+		nextHandler.noOfFailuresToRecord.set(1);
+		nowMs += 10000;
+
+		handler.retryQueued();
+
+		assertEquals(nextHandler.handledWorkOrders.size(), 1);
+		assertEquals(circuitBreaker.getState(), CircuitBreakerState.OPEN);
+		assertEquals(handler.getNoOfQueued(), 1);
+		assertEquals(handler.getNoOfScheduledRetries(), 1);
+	}
+
+	@Test
+	public void testShutdownLogsWorkOrdersWaitingForRetry() {
+		retryPolicy = RetryPolicy.usingMaxAttemptsAndDelays(3, 10000, 10000);
+		handler.shutdown();
+		handler = createHandlerUsingPolicy(OpenCircuitPolicy.FAIL_FAST);
+		nextHandler.noOfFailuresToRecord.set(1);
+		handler.handle(workOrder);
+
+		handler.shutdown();
+
+		assertEquals(loggerFactory.getWarnLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"Shutting down with 1 work orders waiting for retry, they are NOT retried but"
+						+ " handed over as not passed on");
+	}
+
+	@Test
+	public void testRetryIsNotScheduledAfterShutdown() throws Exception {
+		handler.shutdown();
+		assertTrue(handler.awaitTermination(1000));
+		nextHandler.noOfFailuresToRecord.set(1);
+
+		handler.handle(workOrder);
+
+		assertEquals(handler.getNoOfScheduledRetries(), 0);
+		assertEquals(loggerFactory.getErrorLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"Retry not scheduled as handler is shut down, workOrder NOT handled for type:"
+						+ " someType and id: someId");
+	}
+
+	@Test
+	public void testShutdownNowReturnsWorkOrdersWaitingForRetry() throws Exception {
+		handler.shutdown();
+		retryPolicy = RetryPolicy.usingMaxAttemptsAndDelays(3, 10000, 10000);
+		handler = createHandlerUsingPolicy(OpenCircuitPolicy.FAIL_FAST);
+		nextHandler.noOfFailuresToRecord.set(1);
+		handler.handle(workOrder);
+		assertEquals(handler.getNoOfScheduledRetries(), 1);
+
+		List<WorkOrder> notPassedOn = handler.shutdownNow();
+
+		assertEquals(notPassedOn, List.of(workOrder));
+		assertEquals(handler.getNoOfScheduledRetries(), 0);
+		assertEquals(nextHandler.handledWorkOrders.size(), 1);
+	}
+
+	@Test
+	public void testShutdownNowReturnsWorkOrdersQueuedWhileOpen() throws Exception {
+		handler.shutdown();
+		circuitBreaker = CircuitBreaker.usingFailureThresholdOpenMsAndMetrics(1, 10000,
+				indexMetrics);
+		handler = createHandlerUsingPolicy(OpenCircuitPolicy.QUEUE);
+		circuitBreaker.recordFailure();
+		handler.handle(workOrder);
+
+		List<WorkOrder> notPassedOn = handler.shutdownNow();
+
+		assertEquals(notPassedOn, List.of(workOrder));
+		assertEquals(handler.getNoOfQueued(), 0);
+	}
+
+	@Test
+	public void testUseDeadLetterPublisher() throws Exception {
+		assertFalse(handler.getDeadLetterPublisher().isEnabled());
+		DeadLetterPublisher deadLetterPublisher = createDeadLetterPublisher();
+
+		assertTrue(handler.useDeadLetterPublisher(deadLetterPublisher));
+
+		assertSame(handler.getDeadLetterPublisher(), deadLetterPublisher);
+		deadLetterPublisher.shutdownNow();
+	}
+
+	private DeadLetterPublisher createDeadLetterPublisher() {
+		MessagingProvider.setMessagingFactory(messagingFactorySpy);
+		AmqpMessageRoutingInfo routingInfo = new AmqpMessageRoutingInfo(
+				"messaging.alvin-portal.org", "5672", "alvin", "index", "#");
+		return DeadLetterPublisher.usingRoutingInfoAndSettings(routingInfo, 10, 4, indexMetrics);
+	}
+
+	@Test
+	public void testOnlyGivenUpWorkOrderIsDeadLettered() throws Exception {
+		DeadLetterPublisher deadLetterPublisher = createDeadLetterPublisher();
+		handler.useDeadLetterPublisher(deadLetterPublisher);
+		nextHandler.noOfFailuresToRecord.set(10);
+
+		handler.handle(workOrder.withSourceMessage(Map.of("PID", "alvin-place:1"), "someMessage"));
+		WorkOrderHandlerSpy.waitUntil(
+				() -> indexMetrics.getDeadLetterMetrics().getDeadLettersPublished() == 1);
+		deadLetterPublisher.shutdownWithinMs(2000);
+
+		assertEquals(nextHandler.handledWorkOrders.size(), 3);
+		assertEquals(indexMetrics.getDeadLetterMetrics().getDeadLettersPublished(), 1);
+		MessageSenderSpy sender = messagingFactorySpy.messageSenderSpies.get(0);
+		assertEquals(sender.sentMessages, List.of("someMessage"));
+		assertEquals(sender.sentHeaders.get(0).get("deadLetterReason"),
+				DeadLetter.WORK_ORDER_NOT_CREATED);
+	}
+
+	@Test
+	public void testNotRetryableFailureIsGivenUpAtOnce() throws Exception {
+		DeadLetterPublisher deadLetterPublisher = createDeadLetterPublisher();
+		handler.useDeadLetterPublisher(deadLetterPublisher);
+		nextHandler.failureToRecord = new CoraClientException("No record exists");
+		nextHandler.noOfFailuresToRecord.set(10);
+
+		handler.handle(workOrder.withSourceMessage(Map.of(), "someMessage"));
+		deadLetterPublisher.shutdownWithinMs(2000);
+
+		assertEquals(nextHandler.handledWorkOrders.size(), 1);
+		assertEquals(handler.getNoOfScheduledRetries(), 0);
+		assertEquals(indexMetrics.getRetryMetrics().getRetriesScheduled(), 0);
+		assertEquals(indexMetrics.getRetryMetrics().getFailuresNotRetryable(), 1);
+		assertEquals(indexMetrics.getDeadLetterMetrics().getDeadLettersPublished(), 1);
+		assertEquals(loggerFactory.getErrorLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"Failure is not retryable, workOrder NOT handled for type: someType and id: "
+						+ "someId");
+	}
+
+	@Test
+	public void testNotRetryableFailuresDoNotOpenCircuitBreaker() {
+		circuitBreaker = CircuitBreaker.usingFailureThresholdOpenMsAndMetrics(2, 10000,
+				indexMetrics);
+		handler.shutdown();
+		handler = createHandlerUsingPolicy(OpenCircuitPolicy.FAIL_FAST);
+		nextHandler.failureToRecord = new CoraClientException("No record exists");
+		nextHandler.noOfFailuresToRecord.set(2);
+
+		handler.handle(workOrder);
+		handler.handle(workOrder);
+
+		assertEquals(circuitBreaker.getState(), CircuitBreakerState.CLOSED);
+	}
+
+	@Test
+	public void testRetriedWorkOrderThatSucceedsIsNotDeadLettered() throws Exception {
+		DeadLetterPublisher deadLetterPublisher = createDeadLetterPublisher();
+		handler.useDeadLetterPublisher(deadLetterPublisher);
+		nextHandler.noOfFailuresToRecord.set(1);
+
+		handler.handle(workOrder.withSourceMessage(Map.of(), "someMessage"));
+		nextHandler.waitForNoOfHandledWorkOrders(2);
+		deadLetterPublisher.shutdownWithinMs(2000);
+
+		assertEquals(indexMetrics.getDeadLetterMetrics().getDeadLettersPublished(), 0);
+		assertTrue(messagingFactorySpy.messageSenderSpies.isEmpty());
+	}
+
+	@Test
+	public void testFailFastWhileOpenIsDeadLettered() throws Exception {
+		DeadLetterPublisher deadLetterPublisher = createDeadLetterPublisher();
+		handler.useDeadLetterPublisher(deadLetterPublisher);
+		openCircuitBreaker();
+
+		handler.handle(workOrder.withSourceMessage(Map.of(), "someMessage"));
+		deadLetterPublisher.shutdownWithinMs(2000);
+
+		assertEquals(indexMetrics.getDeadLetterMetrics().getDeadLettersPublished(), 1);
+		MessageSenderSpy sender = messagingFactorySpy.messageSenderSpies.get(0);
+		assertEquals(sender.sentMessages, List.of("someMessage"));
+	}
+
+	@Test
+	public void testRetryNotScheduledAfterShutdownIsDeadLettered() throws Exception {
+		DeadLetterPublisher deadLetterPublisher = createDeadLetterPublisher();
+		handler.useDeadLetterPublisher(deadLetterPublisher);
+		handler.shutdown();
+		assertTrue(handler.awaitTermination(1000));
+		nextHandler.noOfFailuresToRecord.set(1);
+
+		handler.handle(workOrder.withSourceMessage(Map.of(), "someMessage"));
+		deadLetterPublisher.shutdownWithinMs(2000);
+
+		assertEquals(indexMetrics.getDeadLetterMetrics().getDeadLettersPublished(), 1);
+	}
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import static org.testng.Assert.assertEquals;
+
+import org.testng.annotations.Test;
+
+public class SlidingWindowCounterTest {
+
+	@Test
+	public void testEventsInWindowAreCounted() throws Exception {
+		SlidingWindowCounter counter = SlidingWindowCounter.usingWindowMsAndNoOfSlots(1000, 10);
+
+		assertEquals(counter.incrementAndGetCount(0), 1);
+		assertEquals(counter.incrementAndGetCount(150), 2);
+		assertEquals(counter.incrementAndGetCount(999), 3);
+		assertEquals(counter.getCount(999), 3);
+	}
+
+	@Test
+	public void testOldEventsAreForgottenOneSlotAtATime() throws Exception {
+		SlidingWindowCounter counter = SlidingWindowCounter.usingWindowMsAndNoOfSlots(1000, 10);
+		counter.incrementAndGetCount(0);
+		counter.incrementAndGetCount(150);
+		counter.incrementAndGetCount(550);
+
+		assertEquals(counter.getCount(1050), 2);
+		assertEquals(counter.getCount(1150), 1);
+		assertEquals(counter.getCount(1550), 0);
+	}
+
+	@Test
+	public void testReusedSlotIsReset() throws Exception {
+		SlidingWindowCounter counter = SlidingWindowCounter.usingWindowMsAndNoOfSlots(1000, 10);
+		counter.incrementAndGetCount(50);
+		counter.incrementAndGetCount(60);
+
+		assertEquals(counter.incrementAndGetCount(2050), 1);
+	}
+
+	@Test
+	public void testGetCountWithoutEvents() throws Exception {
+		SlidingWindowCounter counter = SlidingWindowCounter.usingWindowMsAndNoOfSlots(1000, 10);
+
+		assertEquals(counter.getCount(0), 0);
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import static org.testng.Assert.assertSame;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.testng.annotations.Test;
+
+public class SpoolAcknowledgingWorkOrderHandlerFactoryTest {
+
+	@Test
+	public void testFactorUsingNextHandler() throws Exception {
+		Path directory = Files.createTempDirectory("spoolAcknowledgingFactoryTest");
+		WorkOrderSpool spool = WorkOrderSpool.openUsingDirectoryAndSettings(directory, 4096, 4,
+				10000);
+		SpoolAcknowledgingWorkOrderHandlerFactory factory;
+		factory = new SpoolAcknowledgingWorkOrderHandlerFactory(spool);
+		WorkOrderHandlerSpy nextHandler = new WorkOrderHandlerSpy();
+
+		SpoolAcknowledgingWorkOrderHandler handler = factory.factorUsingNextHandler(nextHandler);
+
+		assertSame(factory.getSpool(), spool);
+		assertSame(handler.getNextHandler(), nextHandler);
+		assertSame(handler.getSpool(), spool);
+		spool.close();
+		try (Stream<Path> paths = Files.walk(directory)) {
+			for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(path);
+			}
+		}
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class SpoolAcknowledgingWorkOrderHandlerTest {
+	private Path directory;
+	private WorkOrderSpool spool;
+	private WorkOrderHandlerSpy nextHandler;
+	private SpoolAcknowledgingWorkOrderHandler handler;
+	private WorkOrder workOrder;
+
+	@BeforeMethod
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("spoolAcknowledgingWorkOrderHandlerTest");
+		spool = WorkOrderSpool.openUsingDirectoryAndSettings(directory, 4096, 4, 10000);
+		nextHandler = new WorkOrderHandlerSpy();
+		handler = SpoolAcknowledgingWorkOrderHandler.usingNextHandlerAndSpool(nextHandler, spool);
+		WorkOrder unspooled = WorkOrder.usingRecordTypeRecordIdAndModificationType("someType",
+				"someId", "update");
+		workOrder = unspooled.withSpoolEntryId(spool.append(unspooled));
+		WorkOrderOutcome.takeFailure();
+	}
+
+	@AfterMethod
+	public void tearDown() throws IOException {
+		spool.close();
+		try (Stream<Path> paths = Files.walk(directory)) {
+			for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(path);
+			}
+		}
+	}
+
+	@Test
+	public void testInit() {
+		assertSame(handler.getNextHandler(), nextHandler);
+		assertSame(handler.getSpool(), spool);
+		assertTrue(handler.passesOnOnCallingThread());
+	}
+
+	@Test
+	public void testSuccessfulWorkOrderIsAcknowledged() {
+		handler.handle(workOrder);
+
+		assertSame(nextHandler.handledWorkOrders.get(0), workOrder);
+		assertEquals(spool.getNoOfPending(), 0);
+		assertNull(WorkOrderOutcome.takeFailure());
+	}
+
+	@Test
+	public void testFailedWorkOrderIsKeptInSpoolAndFailureIsRecordedAgain() {
+		nextHandler.noOfFailuresToRecord.set(1);
+
+		handler.handle(workOrder);
+
+		assertEquals(spool.getNoOfPending(), 1);
+		assertNotNull(WorkOrderOutcome.takeFailure());
+	}
+
+	@Test
+	public void testNoFailureIsLeftOnThreadWhenNextHandlerThrows() {
+		nextHandler.noOfFailuresToRecord.set(1);
+		nextHandler.throwErrorOnHandle = true;
+
+		try {
+			handler.handle(workOrder);
+			fail();
+		} catch (RuntimeException e) {
+			assertEquals(e.getMessage(), "Error from WorkOrderHandlerSpy on handle");
+		}
+
+		assertEquals(spool.getNoOfPending(), 1);
+		assertNull(WorkOrderOutcome.takeFailure());
+	}
+
+	@Test
+	public void testRetriedWorkOrderIsAcknowledgedUsingItsEntryId() {
+		nextHandler.noOfFailuresToRecord.set(1);
+		handler.handle(workOrder);
+		WorkOrderOutcome.takeFailure();
+
+		handler.handle(workOrder);
+
+		assertEquals(spool.getNoOfPending(), 0);
+	}
+
+	@Test
+	public void testUnspooledWorkOrderIsPassedOn() {
+		WorkOrder unspooled = WorkOrder.usingRecordTypeRecordIdAndModificationType("someType",
+				"otherId", "update");
+
+		handler.handle(unspooled);
+
+		assertSame(nextHandler.handledWorkOrders.get(0), unspooled);
+		assertEquals(spool.getNoOfPending(), 1);
+	}
+}
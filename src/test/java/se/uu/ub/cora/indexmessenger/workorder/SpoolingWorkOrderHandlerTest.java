@@ -0,0 +1,248 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.indexmessenger.DeadLetterPublisher;
+import se.uu.ub.cora.indexmessenger.coraclient.CoraClientRecordingSpy;
+import se.uu.ub.cora.indexmessenger.log.LoggerFactorySpy;
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+public class SpoolingWorkOrderHandlerTest {
+	private LoggerFactorySpy loggerFactory;
+	private String testedClassName = "SpoolingWorkOrderHandler";
+	private Path directory;
+	private WorkOrderSpool spool;
+	private WorkOrderHandlerSpy nextHandler;
+	private SpoolingWorkOrderHandler handler;
+	private WorkOrder workOrder;
+
+	@BeforeMethod
+	public void setUp() throws Exception {
+		loggerFactory = new LoggerFactorySpy();
+		LoggerProvider.setLoggerFactory(loggerFactory);
+		directory = Files.createTempDirectory("spoolingWorkOrderHandlerTest");
+		spool = WorkOrderSpool.openUsingDirectoryAndSettings(directory, 4096, 4, 10000);
+		nextHandler = new WorkOrderHandlerSpy();
+		handler = SpoolingWorkOrderHandler.usingNextHandlerAndSpool(nextHandler, spool);
+		workOrder = WorkOrder.usingRecordTypeRecordIdAndModificationType("someType", "someId",
+				"update");
+	}
+
+	@AfterMethod
+	public void tearDown() throws IOException {
+		spool.close();
+		try (Stream<Path> paths = Files.walk(directory)) {
+			for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(path);
+			}
+		}
+	}
+
+	@Test
+	public void testInit() {
+		assertSame(handler.getNextHandler(), nextHandler);
+		assertSame(handler.getSpool(), spool);
+		assertTrue(handler.passesOnOnCallingThread());
+	}
+
+	@Test
+	public void testWorkOrderIsAppendedBeforeItIsPassedOnWithItsEntryId() {
+		handler.handle(workOrder);
+
+		WorkOrder passedOn = nextHandler.handledWorkOrders.get(0);
+		assertEquals(passedOn.getRecordId(), "someId");
+		assertTrue(passedOn.isSpooled());
+		assertEquals(spool.getNoOfPending(), 1);
+	}
+
+	@Test
+	public void testSpooledWorkOrderIsNotAppendedAgain() {
+		WorkOrder spooled = workOrder.withSpoolEntryId(spool.append(workOrder));
+
+		handler.handle(spooled);
+
+		assertSame(nextHandler.handledWorkOrders.get(0), spooled);
+		assertEquals(spool.getNoOfPending(), 1);
+	}
+
+	@Test
+	public void testWorkOrderIsPassedOnUnspooledWhenSpoolFails() {
+		spool.close();
+
+		handler.handle(workOrder);
+
+		assertSame(nextHandler.handledWorkOrders.get(0), workOrder);
+		assertEquals(loggerFactory.getErrorLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"WorkOrder NOT spooled, passed on without it for type: someType and id: someId");
+	}
+
+	@Test
+	public void testPendingWorkOrdersAreNotReplayedWhenCreated() throws Exception {
+		spool.append(workOrder);
+		spool.close();
+		spool = WorkOrderSpool.openUsingDirectoryAndSettings(directory, 4096, 4, 10000);
+
+		handler = SpoolingWorkOrderHandler.usingNextHandlerAndSpool(nextHandler, spool);
+
+		assertEquals(nextHandler.handledWorkOrders.size(), 0);
+	}
+
+	@Test
+	public void testPendingWorkOrdersAreTakenForReplayOnceWithTheirEntryIds() throws Exception {
+		long firstEntryId = spool.append(workOrder);
+		long secondEntryId = spool.append(workOrder);
+		spool.close();
+		spool = WorkOrderSpool.openUsingDirectoryAndSettings(directory, 4096, 4, 10000);
+		handler = SpoolingWorkOrderHandler.usingNextHandlerAndSpool(nextHandler, spool);
+
+		List<WorkOrder> toReplay = handler.takeWorkOrdersToReplay();
+
+		assertEquals(toReplay.size(), 2);
+		assertEquals(toReplay.get(0).getSpoolEntryId(), firstEntryId);
+		assertEquals(toReplay.get(1).getSpoolEntryId(), secondEntryId);
+		assertTrue(handler.takeWorkOrdersToReplay().isEmpty());
+	}
+
+	@Test
+	public void testSpoolIsGivenToAllStagesOfTheChain() {
+		CoalescingWorkOrderHandler coalescer = CoalescingWorkOrderHandler
+				.usingNextHandlerAndWindowMs(nextHandler, 10000);
+		handler = SpoolingWorkOrderHandler.usingNextHandlerAndSpool(coalescer, spool);
+		RecordTypeFilterWorkOrderHandler filter = new RecordTypeFilterWorkOrderHandler(handler,
+				RecordTypeFilter.allowingAll(), new IndexMetrics());
+
+		WorkOrderStage.useSpoolInChain(filter);
+
+		assertSame(handler.getSpoolAppendedTo(), spool);
+		assertSame(filter.getSpool(), spool);
+		assertSame(coalescer.getSpool(), spool);
+		coalescer.shutdownNow();
+	}
+
+	@Test
+	public void testFilteredWorkOrderIsAcknowledged() {
+		RecordTypeFilterWorkOrderHandler filter = new RecordTypeFilterWorkOrderHandler(nextHandler,
+				RecordTypeFilter.usingAllowAndDenyRules(List.of(), List.of("someType")),
+				new IndexMetrics());
+		handler = SpoolingWorkOrderHandler.usingNextHandlerAndSpool(filter, spool);
+		WorkOrderStage.useSpoolInChain(handler);
+
+		handler.handle(workOrder);
+
+		assertTrue(nextHandler.handledWorkOrders.isEmpty());
+		assertEquals(spool.getNoOfPending(), 0);
+	}
+
+	@Test
+	public void testReplayedWorkOrderFilteredInFrontOfTheSpoolIsAcknowledged() {
+		RecordTypeFilterWorkOrderHandler filter = new RecordTypeFilterWorkOrderHandler(handler,
+				RecordTypeFilter.usingAllowAndDenyRules(List.of(), List.of("someType")),
+				new IndexMetrics());
+		WorkOrderStage.useSpoolInChain(filter);
+		WorkOrder replayed = workOrder.withSpoolEntryId(spool.append(workOrder));
+
+		filter.handle(replayed);
+
+		assertTrue(nextHandler.handledWorkOrders.isEmpty());
+		assertEquals(spool.getNoOfPending(), 0);
+	}
+
+	@Test
+	public void testSupersededWorkOrderIsAcknowledged() {
+		CoalescingWorkOrderHandler coalescer = CoalescingWorkOrderHandler
+				.usingNextHandlerAndWindowMs(nextHandler, 10000);
+		handler = SpoolingWorkOrderHandler.usingNextHandlerAndSpool(coalescer, spool);
+		WorkOrderStage.useSpoolInChain(handler);
+
+		handler.handle(workOrder);
+		handler.handle(workOrder);
+
+		assertEquals(coalescer.getNoOfCoalesced(), 1);
+		assertEquals(spool.getNoOfPending(), 1);
+		coalescer.shutdownNow();
+	}
+
+	@Test
+	public void testWorkOrderCollapsedIntoBurstIsAcknowledged() {
+		BurstDetector burstDetector = BurstDetector.usingCoraClientSettingsRetryPolicyAndClock(
+				new CoraClientRecordingSpy(), 60000, 1, "{}", RetryPolicy.noRetries(),
+				DeadLetterPublisher.none(), new IndexMetrics(), () -> 100000);
+		burstDetector.tryAddHandler();
+		BurstCollapsingWorkOrderHandler collapsingHandler = BurstCollapsingWorkOrderHandler
+				.usingNextHandlerAndBurstDetector(nextHandler, burstDetector);
+		handler = SpoolingWorkOrderHandler.usingNextHandlerAndSpool(collapsingHandler, spool);
+		WorkOrderStage.useSpoolInChain(handler);
+
+		handler.handle(workOrder);
+		handler.handle(workOrder);
+
+		assertEquals(nextHandler.handledWorkOrders.size(), 1);
+		assertEquals(spool.getNoOfPending(), 1);
+		collapsingHandler.shutdown();
+	}
+
+	@Test
+	public void testGivenUpWorkOrderIsAcknowledged() {
+		WorkOrderHandlerSpy indexHandler = new WorkOrderHandlerSpy();
+		indexHandler.noOfFailuresToRecord.set(1);
+		SpoolAcknowledgingWorkOrderHandler acknowledgingHandler = SpoolAcknowledgingWorkOrderHandler
+				.usingNextHandlerAndSpool(indexHandler, spool);
+		CircuitBreaker circuitBreaker = CircuitBreaker.usingFailureThresholdOpenMsAndMetrics(10,
+				10000, new IndexMetrics());
+		RetryingWorkOrderHandler retryingHandler = RetryingWorkOrderHandler
+				.usingNextHandlerAndSettings(acknowledgingHandler, RetryPolicy.noRetries(),
+						circuitBreaker, OpenCircuitPolicy.FAIL_FAST);
+		handler = SpoolingWorkOrderHandler.usingNextHandlerAndSpool(retryingHandler, spool);
+		WorkOrderStage.useSpoolInChain(handler);
+
+		handler.handle(workOrder);
+
+		assertFalse(indexHandler.handledWorkOrders.isEmpty());
+		assertEquals(spool.getNoOfPending(), 0);
+		retryingHandler.shutdown();
+	}
+
+	@Test
+	public void testSuccessfulWorkOrderIsAcknowledgedAtTheEndOfTheChain() {
+		handler = SpoolingWorkOrderHandler.usingNextHandlerAndSpool(
+				SpoolAcknowledgingWorkOrderHandler.usingNextHandlerAndSpool(nextHandler, spool),
+				spool);
+
+		handler.handle(workOrder);
+
+		assertEquals(spool.getNoOfPending(), 0);
+	}
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.indexmessenger.IndexMessageException;
+import se.uu.ub.cora.indexmessenger.log.LoggerFactorySpy;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+public class StripedWorkOrderHandlerTest {
+	private LoggerFactorySpy loggerFactory;
+	private String testedClassName = "StripedWorkOrderHandler";
+	private WorkOrderHandlerSpy nextHandler;
+	private StripedWorkOrderHandler handler;
+
+	@BeforeMethod
+	public void setUp() {
+		loggerFactory = new LoggerFactorySpy();
+		LoggerProvider.setLoggerFactory(loggerFactory);
+		nextHandler = new WorkOrderHandlerSpy();
+		handler = StripedWorkOrderHandler.usingNextHandlerAndSettings(nextHandler, 4, 100);
+	}
+
+	@AfterMethod
+	public void tearDown() throws Exception {
+		nextHandler.releaseHandling();
+		handler.shutdown();
+		handler.awaitTermination(1000);
+	}
+
+	private WorkOrder createWorkOrder(String id, String modificationType) {
+		return WorkOrder.usingRecordTypeRecordIdAndModificationType("someType", id,
+				modificationType);
+	}
+
+	@Test
+	public void testInit() throws Exception {
+		assertSame(handler.getNextHandler(), nextHandler);
+		assertEquals(handler.getNoOfLanes(), 4);
+		assertEquals(handler.getLaneCapacity(), 100);
+		assertEquals(handler.getLaneDepths(), new int[] { 0, 0, 0, 0 });
+	}
+
+	@Test(expectedExceptions = IndexMessageException.class, expectedExceptionsMessageRegExp = ""
+			+ "Number of lanes must be at least 1")
+	public void testZeroLanes() throws Exception {
+		StripedWorkOrderHandler.usingNextHandlerAndSettings(nextHandler, 0, 100);
+	}
+
+	@Test
+	public void testSameRecordAlwaysUsesSameLane() throws Exception {
+		RecordKey key = RecordKey.forWorkOrder(createWorkOrder("someId", "update"));
+		RecordKey sameKey = RecordKey.forWorkOrder(createWorkOrder("someId", "delete"));
+
+		int laneNo = handler.getLaneNoForRecordKey(key);
+
+		assertEquals(handler.getLaneNoForRecordKey(sameKey), laneNo);
+		assertTrue(laneNo >= 0 && laneNo < 4);
+	}
+
+	@Test
+	public void testWorkOrdersForOneRecordKeepTheirOrder() throws Exception {
+		List<WorkOrder> sent = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			WorkOrder workOrder = createWorkOrder("id" + (i % 5), i % 2 == 0 ? "update" : "delete");
+			sent.add(workOrder);
+			handler.handle(workOrder);
+		}
+
+		nextHandler.waitForNoOfHandledWorkOrders(200);
+
+		for (int id = 0; id < 5; id++) {
+			assertEquals(filterOnId(nextHandler.handledWorkOrders, "id" + id),
+					filterOnId(sent, "id" + id));
+		}
+	}
+
+	private List<WorkOrder> filterOnId(List<WorkOrder> workOrders, String id) {
+		List<WorkOrder> filtered = new ArrayList<>();
+		synchronized (workOrders) {
+			for (WorkOrder workOrder : workOrders) {
+				if (workOrder.getRecordId().equals(id)) {
+					filtered.add(workOrder);
+				}
+			}
+		}
+		return filtered;
+	}
+
+	@Test
+	public void testRecordsInDifferentLanesAreHandledInParallel() throws Exception {
+		nextHandler.blockHandling();
+		String otherId = findIdInOtherLaneThan("someId");
+
+		handler.handle(createWorkOrder("someId", "update"));
+		handler.handle(createWorkOrder(otherId, "update"));
+
+		nextHandler.waitForNoOfStartedHandlings(2);
+		assertEquals(nextHandler.handlingThreadNames.size(), 2);
+		assertNotEquals(nextHandler.handlingThreadNames.get(0),
+				nextHandler.handlingThreadNames.get(1));
+		assertTrue(nextHandler.handlingThreadNames.get(0).startsWith("indexmessenger-lane-"));
+	}
+
+	private String findIdInOtherLaneThan(String id) {
+		int laneNo = getLaneNo(id);
+		int candidateNo = 0;
+		while (getLaneNo("otherId" + candidateNo) == laneNo) {
+			candidateNo++;
+		}
+		return "otherId" + candidateNo;
+	}
+
+	private int getLaneNo(String id) {
+		return handler.getLaneNoForRecordKey(RecordKey.forWorkOrder(createWorkOrder(id, "update")));
+	}
+
+	@Test
+	public void testLaneDepthShowsHotRecord() throws Exception {
+		nextHandler.blockHandling();
+		int laneNo = getLaneNo("hotId");
+
+		handler.handle(createWorkOrder("hotId", "update"));
+		nextHandler.waitForNoOfStartedHandlings(1);
+		handler.handle(createWorkOrder("hotId", "update"));
+		handler.handle(createWorkOrder("hotId", "delete"));
+
+		assertEquals(handler.getLaneDepths()[laneNo], 2);
+		assertEquals(handler.getDeepestLaneDepth(), 2);
+		assertEquals(handler.getNoOfOutstanding(), 3);
+
+		nextHandler.releaseHandling();
+		nextHandler.waitForNoOfHandledWorkOrders(3);
+		WorkOrderHandlerSpy.waitUntil(() -> handler.getNoOfOutstanding() == 0);
+		assertEquals(handler.getNoOfOutstanding(), 0);
+		WorkOrderHandlerSpy.waitUntil(() -> handler.getNoOfHandledPerLane()[laneNo] == 3);
+		assertEquals(handler.getNoOfHandledPerLane()[laneNo], 3);
+	}
+
+	@Test
+	public void testInterruptedLaneKeepsHandlingWorkOrders() throws Exception {
+		handler.handle(createWorkOrder("someId", "update"));
+		nextHandler.waitForNoOfHandledWorkOrders(1);
+
+		Thread laneThread = findThreadNamed(nextHandler.handlingThreadNames.get(0));
+		laneThread.interrupt();
+		WorkOrderHandlerSpy.waitUntil(() -> !laneThread.isInterrupted());
+		handler.handle(createWorkOrder("someId", "update"));
+		handler.handle(createWorkOrder("otherId", "update"));
+
+		nextHandler.waitForNoOfHandledWorkOrders(3);
+		assertEquals(nextHandler.handledWorkOrders.size(), 3);
+	}
+
+	private Thread findThreadNamed(String threadName) {
+		for (Thread thread : Thread.getAllStackTraces().keySet()) {
+			if (thread.getName().equals(threadName) && thread.isAlive()) {
+				return thread;
+			}
+		}
+		throw new AssertionError("No thread named: " + threadName);
+	}
+
+	@Test
+	public void testErrorInNextHandlerIsLoggedAndLaneContinues() throws Exception {
+		nextHandler.throwErrorOnHandle = true;
+
+		handler.handle(createWorkOrder("someId", "update"));
+		handler.handle(createWorkOrder("someId", "update"));
+
+		nextHandler.waitForNoOfHandledWorkOrders(2);
+		WorkOrderHandlerSpy.waitUntil(() -> (int) loggerFactory
+				.getNoOfErrorLogMessagesUsingClassName(testedClassName) == 2);
+		assertEquals(loggerFactory.getErrorLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"Lane failed to handle workOrder for type: someType and id: someId");
+	}
+
+	@Test
+	public void testShutdownDrainsLanes() throws Exception {
+		nextHandler.blockHandling();
+		for (int i = 0; i < 10; i++) {
+			handler.handle(createWorkOrder("id" + i, "update"));
+		}
+
+		handler.shutdown();
+		nextHandler.releaseHandling();
+
+		assertTrue(handler.awaitTermination(5000));
+		assertEquals(nextHandler.handledWorkOrders.size(), 10);
+	}
+
+	@Test
+	public void testShutdownNowReturnsWorkOrdersWaitingInLanes() throws Exception {
+		nextHandler.blockHandling();
+		handler.handle(createWorkOrder("id1", "update"));
+		nextHandler.waitForNoOfStartedHandlings(1);
+		WorkOrder waiting = createWorkOrder("id1", "delete");
+		handler.handle(waiting);
+
+		List<WorkOrder> notPassedOn = handler.shutdownNow();
+
+		assertEquals(notPassedOn, List.of(waiting));
+		assertEquals(handler.getDeepestLaneDepth(), 0);
+	}
+}
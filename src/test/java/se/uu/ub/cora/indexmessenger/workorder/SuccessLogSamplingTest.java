@@ -0,0 +1,114 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.indexmessenger.IndexMessageException;
+import se.uu.ub.cora.indexmessenger.log.LoggerSpy;
+
+public class SuccessLogSamplingTest {
+	private LoggerSpy logger;
+	private WorkOrder workOrder;
+
+	@BeforeMethod
+	public void setUp() {
+		logger = new LoggerSpy();
+		workOrder = WorkOrder.usingRecordTypeRecordIdAndModificationType("someType", "someId",
+				"update");
+	}
+
+	private void logSuccesses(SuccessLogSampling sampling, int noOfSuccesses) {
+		for (int i = 0; i < noOfSuccesses; i++) {
+			sampling.logSuccess(logger, workOrder, "Work done", "Works done");
+		}
+	}
+
+	@Test
+	public void testLoggingAll() {
+		SuccessLogSampling sampling = SuccessLogSampling.loggingAll();
+
+		logSuccesses(sampling, 3);
+
+		assertEquals(logger.infoMessages.size(), 3);
+		assertEquals(logger.infoMessages.get(0), "Work done for type: someType and id: someId");
+		assertEquals(sampling.getNoOfSuccesses(), 3);
+	}
+
+	@Test
+	public void testLoggingNone() {
+		SuccessLogSampling sampling = SuccessLogSampling.loggingNone();
+
+		logSuccesses(sampling, 3);
+
+		assertEquals(logger.infoMessages.size(), 0);
+		assertEquals(sampling.getNoOfSuccesses(), 3);
+		assertEquals(sampling.takeNoOfSuccessesIfSummaryIsDue(), -1);
+	}
+
+	@Test
+	public void testLoggingOneInEvery() {
+		SuccessLogSampling sampling = SuccessLogSampling.loggingOneInEvery(3);
+
+		assertTrue(sampling.recordSuccessAndCheckIfLogged());
+		assertFalse(sampling.recordSuccessAndCheckIfLogged());
+		assertFalse(sampling.recordSuccessAndCheckIfLogged());
+		assertTrue(sampling.recordSuccessAndCheckIfLogged());
+		logSuccesses(sampling, 6);
+
+		assertEquals(logger.infoMessages.size(), 2);
+	}
+
+	@Test
+	public void testLoggingSummary() {
+		SuccessLogSampling sampling = SuccessLogSampling.loggingSummaryEvery(30);
+
+		logSuccesses(sampling, 4);
+		assertEquals(logger.infoMessages.size(), 0);
+
+		WorkOrderHandlerSpy.sleep(40);
+		logSuccesses(sampling, 1);
+		logSuccesses(sampling, 2);
+
+		assertEquals(logger.infoMessages.size(), 1);
+		assertEquals(logger.infoMessages.get(0), "Works done since last summary: 5");
+
+		WorkOrderHandlerSpy.sleep(40);
+		logSuccesses(sampling, 1);
+		assertEquals(logger.infoMessages.get(1), "Works done since last summary: 3");
+	}
+
+	@Test
+	public void testSummaryIsNotDueForOtherModes() {
+		assertEquals(SuccessLogSampling.loggingAll().takeNoOfSuccessesIfSummaryIsDue(), -1);
+		assertEquals(SuccessLogSampling.loggingOneInEvery(2).takeNoOfSuccessesIfSummaryIsDue(),
+				-1);
+	}
+
+	@Test(expectedExceptions = IndexMessageException.class, expectedExceptionsMessageRegExp = ""
+			+ "One in every n must be at least 1")
+	public void testLoggingOneInEveryZero() throws Exception {
+		SuccessLogSampling.loggingOneInEvery(0);
+	}
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.indexmessenger.log.LoggerFactorySpy;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+public class VirtualThreadWorkOrderHandlerTest {
+	private LoggerFactorySpy loggerFactory;
+	private String testedClassName = "VirtualThreadWorkOrderHandler";
+	private WorkOrderHandlerSpy nextHandler;
+	private VirtualThreadWorkOrderHandler handler;
+
+	@BeforeMethod
+	public void setUp() {
+		loggerFactory = new LoggerFactorySpy();
+		LoggerProvider.setLoggerFactory(loggerFactory);
+		nextHandler = new WorkOrderHandlerSpy();
+		handler = VirtualThreadWorkOrderHandler.usingNextHandlerAndMaxInFlight(nextHandler, 2);
+	}
+
+	@AfterMethod
+	public void tearDown() throws Exception {
+		nextHandler.releaseHandling();
+		handler.shutdown();
+		handler.awaitTermination(5000);
+	}
+
+	private WorkOrder createWorkOrder(String id) {
+		return WorkOrder.usingRecordTypeRecordIdAndModificationType("someType", id, "update");
+	}
+
+	@Test
+	public void testWorkOrderIsPassedOnToNextHandlerOnOtherThread() throws Exception {
+		WorkOrder workOrder = createWorkOrder("id1");
+
+		handler.handle(workOrder);
+
+		nextHandler.waitForNoOfHandledWorkOrders(1);
+		assertSame(nextHandler.handledWorkOrders.get(0), workOrder);
+		assertNotEquals(nextHandler.handlingThreadNames.get(0), Thread.currentThread().getName());
+		assertSame(handler.getNextHandler(), nextHandler);
+	}
+
+	@Test
+	public void testNoOfInFlightIsLimited() throws Exception {
+		nextHandler.blockHandling();
+		handler.handle(createWorkOrder("id1"));
+		handler.handle(createWorkOrder("id2"));
+		nextHandler.waitForNoOfStartedHandlings(2);
+		assertEquals(handler.getNoOfInFlight(), 2);
+
+		Thread blockedSender = new Thread(() -> handler.handle(createWorkOrder("id3")));
+		blockedSender.start();
+		blockedSender.join(100);
+		assertTrue(blockedSender.isAlive());
+		assertEquals(nextHandler.handlingThreadNames.size(), 2);
+
+		nextHandler.releaseHandling();
+		blockedSender.join(5000);
+		nextHandler.waitForNoOfHandledWorkOrders(3);
+		handler.shutdown();
+		handler.awaitTermination(5000);
+		assertEquals(handler.getNoOfInFlight(), 0);
+	}
+
+	@Test
+	public void testErrorFromNextHandlerIsLoggedAndPermitReleased() throws Exception {
+		nextHandler.throwErrorOnHandle = true;
+
+		handler.handle(createWorkOrder("id1"));
+		handler.shutdown();
+		handler.awaitTermination(5000);
+
+		assertEquals(loggerFactory.getErrorLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"Failed to handle workOrder for type: someType and id: id1");
+		assertEquals(handler.getNoOfInFlight(), 0);
+	}
+
+	@Test
+	public void testWorkOrderRejectedAfterShutdownIsLogged() throws Exception {
+		handler.shutdown();
+
+		handler.handle(createWorkOrder("id1"));
+
+		assertEquals(loggerFactory.getErrorLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"Handler shut down, rejected workOrder for type: someType and id: id1");
+		assertEquals(handler.getNoOfInFlight(), 0);
+	}
+
+	@Test
+	public void testUsesVirtualThreadsWhenRuntimeSupportsThem() throws Exception {
+		boolean runtimeHasVirtualThreads = Runtime.version().feature() >= 21;
+		assertEquals(handler.usesVirtualThreads(), runtimeHasVirtualThreads);
+	}
+
+	@Test
+	public void testFallbackToPlatformThreadsIsLogged() throws Exception {
+		if (handler.usesVirtualThreads()) {
+			assertEquals(loggerFactory.getNoOfWarnLogMessagesUsingClassName(testedClassName), 0);
+		} else {
+			assertEquals(loggerFactory.getWarnLogMessageUsingClassNameAndNo(testedClassName, 0),
+					"Virtual threads not supported by the runtime, using at most 2 "
+							+ "platform threads");
+		}
+	}
+
+	@Test
+	public void testNoMorePlatformThreadsThanMaxInFlight() throws Exception {
+		for (int i = 0; i < 20; i++) {
+			handler.handle(createWorkOrder("id" + i));
+		}
+		nextHandler.waitForNoOfHandledWorkOrders(20);
+
+		long noOfThreads = nextHandler.handlingThreadNames.stream().distinct().count();
+		if (!handler.usesVirtualThreads()) {
+			assertTrue(noOfThreads <= 2, "threads used: " + noOfThreads);
+		}
+	}
+
+}
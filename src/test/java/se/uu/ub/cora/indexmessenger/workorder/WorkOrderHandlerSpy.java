@@ -0,0 +1,88 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class WorkOrderHandlerSpy implements WorkOrderHandler {
+
+	public List<WorkOrder> handledWorkOrders = Collections.synchronizedList(new ArrayList<>());
+	public List<String> handlingThreadNames = Collections.synchronizedList(new ArrayList<>());
+	public CountDownLatch release = new CountDownLatch(0);
+	public boolean throwErrorOnHandle = false;
+	public AtomicInteger noOfFailuresToRecord = new AtomicInteger();
+	public volatile Exception failureToRecord = new RuntimeException(
+			"Failure from WorkOrderHandlerSpy");
+
+	@Override
+	public void handle(WorkOrder workOrder) {
+		handlingThreadNames.add(Thread.currentThread().getName());
+		waitForRelease();
+		handledWorkOrders.add(workOrder);
+		if (noOfFailuresToRecord.getAndUpdate(n -> Math.max(n - 1, 0)) > 0) {
+			WorkOrderOutcome.recordFailure(failureToRecord);
+		}
+		if (throwErrorOnHandle) {
+			throw new RuntimeException("Error from WorkOrderHandlerSpy on handle");
+		}
+	}
+
+	private void waitForRelease() {
+		try {
+			release.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public void blockHandling() {
+		release = new CountDownLatch(1);
+	}
+
+	public void releaseHandling() {
+		release.countDown();
+	}
+
+	public void waitForNoOfHandledWorkOrders(int expected) {
+		waitUntil(() -> handledWorkOrders.size() >= expected);
+	}
+
+	public void waitForNoOfStartedHandlings(int expected) {
+		waitUntil(() -> handlingThreadNames.size() >= expected);
+	}
+
+	static void waitUntil(java.util.function.BooleanSupplier condition) {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+			sleep(5);
+		}
+	}
+
+	static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import static org.testng.Assert.assertEquals;
+
+import org.testng.annotations.Test;
+
+public class WorkOrderJsonTemplateTest {
+
+	private String toJson(String recordType, String recordId, String modificationType) {
+		return WorkOrderJsonTemplate.toJson(WorkOrder
+				.usingRecordTypeRecordIdAndModificationType(recordType, recordId, modificationType));
+	}
+
+	private String expectedJson(String recordType, String recordId, String type) {
+		return "{\"children\":[{\"children\":["
+				+ "{\"name\":\"linkedRecordType\",\"value\":\"recordType\"},"
+				+ "{\"name\":\"linkedRecordId\",\"value\":\"" + recordType + "\"}],"
+				+ "\"name\":\"recordType\"},{\"name\":\"recordId\",\"value\":\"" + recordId
+				+ "\"},{\"name\":\"type\",\"value\":\"" + type + "\"}],\"name\":\"workOrder\"}";
+	}
+
+	@Test
+	public void testIndexWorkOrder() {
+		assertEquals(toJson("place", "alvin-place:1", "update"),
+				expectedJson("place", "alvin-place:1", "index"));
+	}
+
+	@Test
+	public void testRemoveFromIndexWorkOrder() {
+		assertEquals(toJson("place", "alvin-place:1", "delete"),
+				expectedJson("place", "alvin-place:1", "removeFromIndex"));
+	}
+
+	@Test
+	public void testQuoteAndBackslashAreEscaped() {
+		assertEquals(toJson("pla\"ce", "id\\1", "update"),
+				expectedJson("pla\\\"ce", "id\\\\1", "index"));
+	}
+
+	@Test
+	public void testSlashIsOnlyEscapedAfterLessThan() {
+		assertEquals(toJson("a/b", "</script>", "update"),
+				expectedJson("a/b", "<\\/script>", "index"));
+	}
+
+	@Test
+	public void testControlCharactersAreEscaped() {
+		assertEquals(toJson("\b\t\n\f\r", "\u0001\u001f", "update"),
+				expectedJson("\\b\\t\\n\\f\\r", "\\u0001\\u001f", "index"));
+	}
+
+	@Test
+	public void testUnicodeRangesAreEscapedLikeJsonBuilder() {
+		assertEquals(toJson("\u0085\u00a0", "\u2028\u20ac\u2100\u00e5\u00e4\u00f6", "update"),
+				expectedJson("\\u0085\u00a0", "\\u2028\\u20ac\u2100\u00e5\u00e4\u00f6", "index"));
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class WorkOrderOutcomeTest {
+
+	@BeforeMethod
+	public void setUp() {
+		WorkOrderOutcome.takeFailure();
+	}
+
+	@Test
+	public void testNoFailureRecorded() {
+		assertNull(WorkOrderOutcome.takeFailure());
+	}
+
+	@Test
+	public void testTakeRecordedFailureClearsIt() {
+		RuntimeException failure = new RuntimeException("some failure");
+		WorkOrderOutcome.recordFailure(failure);
+
+		assertSame(WorkOrderOutcome.takeFailure(), failure);
+		assertNull(WorkOrderOutcome.takeFailure());
+	}
+
+	@Test
+	public void testFailureIsOnlyVisibleInRecordingThread() throws Exception {
+		WorkOrderOutcome.recordFailure(new RuntimeException("some failure"));
+		AtomicReference<Exception> takenInOtherThread = new AtomicReference<>();
+
+		Thread otherThread = new Thread(
+				() -> takenInOtherThread.set(WorkOrderOutcome.takeFailure()));
+		otherThread.start();
+		otherThread.join();
+
+		assertNull(takenInOtherThread.get());
+	}
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.indexmessenger.IndexMessageException;
+import se.uu.ub.cora.indexmessenger.log.LoggerFactorySpy;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+public class WorkOrderPipelineTest {
+	private LoggerFactorySpy loggerFactory;
+	private String testedClassName = "WorkOrderPipeline";
+	private WorkOrderHandlerSpy nextHandler;
+	private WorkOrderSpillSpy spill;
+	private WorkOrderPipeline pipeline;
+
+	@BeforeMethod
+	public void setUp() {
+		loggerFactory = new LoggerFactorySpy();
+		LoggerProvider.setLoggerFactory(loggerFactory);
+		nextHandler = new WorkOrderHandlerSpy();
+		spill = new WorkOrderSpillSpy();
+	}
+
+	@AfterMethod
+	public void tearDown() throws Exception {
+		if (pipeline != null) {
+			nextHandler.releaseHandling();
+			pipeline.shutdown();
+			pipeline.awaitTermination(5000);
+		}
+	}
+
+	private WorkOrder createWorkOrder(String id) {
+		return WorkOrder.usingRecordTypeRecordIdAndModificationType("someType", id, "update");
+	}
+
+	@Test
+	public void testWorkOrderIsPassedOnToNextHandlerOnWorkerThread() throws Exception {
+		pipeline = WorkOrderPipeline.usingNextHandlerAndSettings(nextHandler, 10, 1,
+				FullQueuePolicy.BLOCK, null);
+		WorkOrder workOrder = createWorkOrder("id1");
+
+		pipeline.handle(workOrder);
+
+		nextHandler.waitForNoOfHandledWorkOrders(1);
+		assertSame(nextHandler.handledWorkOrders.get(0), workOrder);
+		String threadName = nextHandler.handlingThreadNames.get(0);
+		assertTrue(threadName.startsWith("indexmessenger-pipeline-"));
+		assertNotEquals(threadName, Thread.currentThread().getName());
+	}
+
+	@Test
+	public void testQueueDepth() throws Exception {
+		pipeline = WorkOrderPipeline.usingNextHandlerAndSettings(nextHandler, 10, 1,
+				FullQueuePolicy.BLOCK, null);
+		nextHandler.blockHandling();
+
+		pipeline.handle(createWorkOrder("id1"));
+		nextHandler.waitForNoOfStartedHandlings(1);
+		pipeline.handle(createWorkOrder("id2"));
+		pipeline.handle(createWorkOrder("id3"));
+
+		assertEquals(pipeline.getQueueDepth(), 2);
+		assertEquals(pipeline.getRemainingCapacity(), 8);
+
+		nextHandler.releaseHandling();
+		nextHandler.waitForNoOfHandledWorkOrders(3);
+		assertEquals(pipeline.getQueueDepth(), 0);
+	}
+
+	@Test
+	public void testOutstandingIncludesWorkOrdersBeingPassedOn() throws Exception {
+		pipeline = WorkOrderPipeline.usingNextHandlerAndSettings(nextHandler, 10, 2,
+				FullQueuePolicy.BLOCK, null);
+		nextHandler.blockHandling();
+
+		pipeline.handle(createWorkOrder("id1"));
+		pipeline.handle(createWorkOrder("id2"));
+		pipeline.handle(createWorkOrder("id3"));
+		nextHandler.waitForNoOfStartedHandlings(2);
+
+		assertEquals(pipeline.getQueueDepth(), 1);
+		assertEquals(pipeline.getNoOfOutstanding(), 3);
+
+		nextHandler.releaseHandling();
+		nextHandler.waitForNoOfHandledWorkOrders(3);
+		WorkOrderHandlerSpy.waitUntil(() -> pipeline.getNoOfOutstanding() == 0);
+		assertEquals(pipeline.getNoOfOutstanding(), 0);
+	}
+
+	@Test
+	public void testDroppedWorkOrderIsNotOutstanding() throws Exception {
+		pipeline = WorkOrderPipeline.usingNextHandlerAndSettings(nextHandler, 1, 1,
+				FullQueuePolicy.DROP, null);
+		nextHandler.blockHandling();
+		pipeline.handle(createWorkOrder("id1"));
+		nextHandler.waitForNoOfStartedHandlings(1);
+		pipeline.handle(createWorkOrder("id2"));
+
+		pipeline.handle(createWorkOrder("id3"));
+
+		assertEquals(pipeline.getNoOfOutstanding(), 2);
+	}
+
+	@Test
+	public void testInterruptedWorkerKeepsDrainingWhileRunning() throws Exception {
+		WorkOrderHandler interruptingHandler = workOrder -> {
+			nextHandler.handle(workOrder);
+			Thread.currentThread().interrupt();
+		};
+		pipeline = WorkOrderPipeline.usingNextHandlerAndSettings(interruptingHandler, 10, 1,
+				FullQueuePolicy.BLOCK, null);
+
+		pipeline.handle(createWorkOrder("id1"));
+		nextHandler.waitForNoOfHandledWorkOrders(1);
+		pipeline.handle(createWorkOrder("id2"));
+
+		nextHandler.waitForNoOfHandledWorkOrders(2);
+		assertEquals(nextHandler.handledWorkOrders.size(), 2);
+		assertEquals(loggerFactory.getWarnLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"Pipeline worker interrupted while running, the worker keeps draining the queue");
+	}
+
+	@Test
+	public void testDropPolicyDropsAndLogsWhenQueueIsFull() throws Exception {
+		pipeline = WorkOrderPipeline.usingNextHandlerAndSettings(nextHandler, 1, 1,
+				FullQueuePolicy.DROP, null);
+		nextHandler.blockHandling();
+		pipeline.handle(createWorkOrder("id1"));
+		nextHandler.waitForNoOfStartedHandlings(1);
+		pipeline.handle(createWorkOrder("id2"));
+
+		pipeline.handle(createWorkOrder("id3"));
+
+		assertEquals(pipeline.getDroppedCount(), 1);
+		assertEquals(loggerFactory.getNoOfErrorLogMessagesUsingClassName(testedClassName), 1);
+		assertEquals(loggerFactory.getErrorLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"Queue full, dropped workOrder for type: someType and id: id3");
+
+		nextHandler.releaseHandling();
+		nextHandler.waitForNoOfHandledWorkOrders(2);
+		assertEquals(nextHandler.handledWorkOrders.size(), 2);
+	}
+
+	@Test
+	public void testSpillPolicySpillsWhenQueueIsFull() throws Exception {
+		pipeline = WorkOrderPipeline.usingNextHandlerAndSettings(nextHandler, 1, 1,
+				FullQueuePolicy.SPILL, spill);
+		nextHandler.blockHandling();
+		pipeline.handle(createWorkOrder("id1"));
+		nextHandler.waitForNoOfStartedHandlings(1);
+		pipeline.handle(createWorkOrder("id2"));
+		WorkOrder workOrder = createWorkOrder("id3");
+
+		pipeline.handle(workOrder);
+
+		assertEquals(pipeline.getSpilledCount(), 1);
+		assertSame(spill.spilledWorkOrders.get(0), workOrder);
+		assertEquals(pipeline.getDroppedCount(), 0);
+	}
+
+	@Test(expectedExceptions = IndexMessageException.class, expectedExceptionsMessageRegExp = ""
+			+ "A WorkOrderSpill is needed when using FullQueuePolicy SPILL")
+	public void testSpillPolicyWithoutSpillThrowsError() throws Exception {
+		WorkOrderPipeline.usingNextHandlerAndSettings(nextHandler, 1, 1, FullQueuePolicy.SPILL,
+				null);
+	}
+
+	@Test
+	public void testBlockPolicyWaitsForRoomInQueue() throws Exception {
+		pipeline = WorkOrderPipeline.usingNextHandlerAndSettings(nextHandler, 1, 1,
+				FullQueuePolicy.BLOCK, null);
+		nextHandler.blockHandling();
+		pipeline.handle(createWorkOrder("id1"));
+		nextHandler.waitForNoOfStartedHandlings(1);
+		pipeline.handle(createWorkOrder("id2"));
+
+		Thread blockedSender = new Thread(() -> pipeline.handle(createWorkOrder("id3")));
+		blockedSender.start();
+		blockedSender.join(100);
+		assertTrue(blockedSender.isAlive());
+
+		nextHandler.releaseHandling();
+		blockedSender.join(5000);
+		nextHandler.waitForNoOfHandledWorkOrders(3);
+		assertEquals(nextHandler.handledWorkOrders.size(), 3);
+	}
+
+	@Test
+	public void testErrorFromNextHandlerIsLoggedAndWorkerContinues() throws Exception {
+		pipeline = WorkOrderPipeline.usingNextHandlerAndSettings(nextHandler, 10, 1,
+				FullQueuePolicy.BLOCK, null);
+		nextHandler.throwErrorOnHandle = true;
+
+		pipeline.handle(createWorkOrder("id1"));
+		pipeline.handle(createWorkOrder("id2"));
+
+		nextHandler.waitForNoOfHandledWorkOrders(2);
+		pipeline.shutdown();
+		pipeline.awaitTermination(5000);
+		assertEquals(loggerFactory.getNoOfErrorLogMessagesUsingClassName(testedClassName), 2);
+		assertEquals(loggerFactory.getErrorLogMessageUsingClassNameAndNo(testedClassName, 0),
+				"Pipeline failed to handle workOrder for type: someType and id: id1");
+	}
+
+	@Test
+	public void testShutdownDrainsQueueBeforeTerminating() throws Exception {
+		pipeline = WorkOrderPipeline.usingNextHandlerAndSettings(nextHandler, 10, 2,
+				FullQueuePolicy.BLOCK, null);
+		nextHandler.blockHandling();
+		for (int i = 0; i < 5; i++) {
+			pipeline.handle(createWorkOrder("id" + i));
+		}
+
+		pipeline.shutdown();
+		nextHandler.releaseHandling();
+
+		assertTrue(pipeline.awaitTermination(5000));
+		assertEquals(nextHandler.handledWorkOrders.size(), 5);
+	}
+
+	@Test
+	public void testShutdownNowReturnsQueuedWorkOrders() throws Exception {
+		nextHandler.blockHandling();
+		pipeline = WorkOrderPipeline.usingNextHandlerAndSettings(nextHandler, 10, 1,
+				FullQueuePolicy.BLOCK, null);
+		pipeline.handle(createWorkOrder("id1"));
+		nextHandler.waitForNoOfStartedHandlings(1);
+		WorkOrder queued = createWorkOrder("id2");
+		pipeline.handle(queued);
+
+		List<WorkOrder> notPassedOn = pipeline.shutdownNow();
+
+		assertEquals(notPassedOn, List.of(queued));
+		assertEquals(pipeline.getQueueDepth(), 0);
+	}
+}
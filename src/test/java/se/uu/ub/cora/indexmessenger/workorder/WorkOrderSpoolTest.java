@@ -0,0 +1,332 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.indexmessenger.IndexMessageException;
+import se.uu.ub.cora.indexmessenger.log.LoggerFactorySpy;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+public class WorkOrderSpoolTest {
+	private LoggerFactorySpy loggerFactory;
+	private Path directory;
+	private WorkOrderSpool spool;
+
+	@BeforeMethod
+	public void setUp() throws IOException {
+		loggerFactory = new LoggerFactorySpy();
+		LoggerProvider.setLoggerFactory(loggerFactory);
+		directory = Files.createTempDirectory("workOrderSpoolTest");
+		spool = openSpool(4096, 4);
+	}
+
+	private WorkOrderSpool openSpool(int segmentSizeBytes, int maxSegments) {
+		return WorkOrderSpool.openUsingDirectoryAndSettings(directory, segmentSizeBytes,
+				maxSegments, 10000);
+	}
+
+	@AfterMethod
+	public void tearDown() throws IOException {
+		spool.close();
+		deleteDirectory();
+	}
+
+	private void deleteDirectory() throws IOException {
+		try (Stream<Path> paths = Files.walk(directory)) {
+			for (Path path : (Iterable<Path>) paths.sorted(Comparator.reverseOrder())::iterator) {
+				Files.delete(path);
+			}
+		}
+	}
+
+	private void recreate(int segmentSizeBytes, int maxSegments) throws IOException {
+		spool.close();
+		deleteDirectory();
+		spool = openSpool(segmentSizeBytes, maxSegments);
+	}
+
+	private WorkOrder createWorkOrder(String recordId) {
+		return WorkOrder.usingRecordTypeRecordIdAndModificationType("someType", recordId,
+				"update");
+	}
+
+	private void reopen(int segmentSizeBytes, int maxSegments) {
+		spool.close();
+		spool = openSpool(segmentSizeBytes, maxSegments);
+	}
+
+	@Test
+	public void testOpenEmptySpool() throws Exception {
+		assertEquals(spool.getDirectory(), directory);
+		assertEquals(spool.getSegmentSizeBytes(), 4096);
+		assertEquals(spool.getMaxSegments(), 4);
+		assertEquals(spool.getFsyncIntervalMs(), 10000);
+		assertEquals(spool.getMaxWaitMs(), WorkOrderSpool.DEFAULT_MAX_WAIT_MS);
+		assertEquals(spool.getNoOfPending(), 0);
+		assertEquals(spool.getNoOfSegments(), 1);
+		assertTrue(Files.exists(directory.resolve("spool-00000000000000000001.seg")));
+		assertEquals(spool.takePendingForReplay().size(), 0);
+	}
+
+	@Test
+	public void testAppendAndAcknowledge() throws Exception {
+		long firstId = spool.append(createWorkOrder("id1"));
+		long secondId = spool.append(createWorkOrder("id2"));
+		assertEquals(spool.getNoOfPending(), 2);
+
+		spool.acknowledge(firstId);
+		spool.acknowledge(firstId);
+
+		assertEquals(spool.getNoOfPending(), 1);
+		assertTrue(secondId > firstId);
+	}
+
+	@Test
+	public void testPendingWorkOrdersAreReplayedWhenOpenedAgain() throws Exception {
+		long firstId = spool.append(createWorkOrder("id1"));
+		spool.append(WorkOrder.usingRecordTypeRecordIdAndModificationType("\u00e5\u00e4\u00f6",
+				"id2", "delete"));
+		spool.append(createWorkOrder("id3"));
+		spool.acknowledge(firstId);
+
+		reopen(4096, 4);
+		Map<Long, WorkOrder> toReplay = spool.takePendingForReplay();
+
+		assertEquals(toReplay.size(), 2);
+		List<WorkOrder> workOrders = List.copyOf(toReplay.values());
+		assertEquals(workOrders.get(0).getRecordType(), "\u00e5\u00e4\u00f6");
+		assertEquals(workOrders.get(0).getRecordId(), "id2");
+		assertEquals(workOrders.get(0).getModificationType(), "delete");
+		assertEquals(workOrders.get(1).getRecordId(), "id3");
+		assertEquals(spool.takePendingForReplay().size(), 0);
+	}
+
+	@Test
+	public void testMissingValuesAreReplayedAsMissing() throws Exception {
+		spool.append(WorkOrder.usingRecordTypeRecordIdAndModificationType(null, "id1", null));
+		spool.append(WorkOrder.usingRecordTypeRecordIdAndModificationType("", null, "update"));
+
+		reopen(4096, 4);
+		List<WorkOrder> workOrders = List.copyOf(spool.takePendingForReplay().values());
+
+		assertEquals(workOrders.size(), 2);
+		assertNull(workOrders.get(0).getRecordType());
+		assertEquals(workOrders.get(0).getRecordId(), "id1");
+		assertNull(workOrders.get(0).getModificationType());
+		assertEquals(workOrders.get(1).getRecordType(), "");
+		assertNull(workOrders.get(1).getRecordId());
+		assertEquals(workOrders.get(1).getModificationType(), "update");
+	}
+
+	@Test
+	public void testRecordWithWrongChecksumIsSkippedWhenOpenedAgain() throws Exception {
+		spool.append(createWorkOrder("id1"));
+		spool.append(createWorkOrder("id2"));
+		spool.close();
+		Path segment = directory.resolve("spool-00000000000000000001.seg");
+		byte[] bytes = Files.readAllBytes(segment);
+		bytes[30] ^= 1;
+		Files.write(segment, bytes);
+
+		spool = openSpool(4096, 4);
+
+		Map<Long, WorkOrder> toReplay = spool.takePendingForReplay();
+		assertEquals(toReplay.size(), 1);
+		assertEquals(toReplay.values().iterator().next().getRecordId(), "id2");
+		assertEquals(loggerFactory.getErrorLogMessageUsingClassNameAndNo("WorkOrderSpool", 0),
+				"Skipped spool record with wrong checksum at position 0 in: " + segment);
+	}
+
+	@Test
+	public void testEntryIdsContinueAfterReopen() throws Exception {
+		long firstId = spool.append(createWorkOrder("id1"));
+
+		reopen(4096, 4);
+
+		assertTrue(spool.append(createWorkOrder("id2")) > firstId);
+	}
+
+	@Test
+	public void testAcknowledgedAfterReopenIsNotReplayed() throws Exception {
+		long firstId = spool.append(createWorkOrder("id1"));
+		reopen(4096, 4);
+		spool.acknowledge(firstId);
+
+		reopen(4096, 4);
+
+		assertEquals(spool.takePendingForReplay().size(), 0);
+	}
+
+	@Test
+	public void testSegmentsRollAndAreDeletedWhenAcknowledged() throws Exception {
+		recreate(100, 10);
+		long[] entryIds = new long[6];
+		for (int i = 0; i < entryIds.length; i++) {
+			entryIds[i] = spool.append(createWorkOrder("id" + i));
+		}
+		assertTrue(spool.getNoOfSegments() >= 3);
+		assertTrue(spool.getNoOfFsyncs() >= 2);
+
+		for (long entryId : entryIds) {
+			spool.acknowledge(entryId);
+		}
+
+		assertEquals(spool.getNoOfSegments(), 1);
+		reopen(100, 10);
+		assertEquals(spool.takePendingForReplay().size(), 0);
+	}
+
+	@Test
+	public void testOldPendingWorkOrdersAreCompacted() throws Exception {
+		recreate(120, 2);
+		spool.append(createWorkOrder("old"));
+		for (int i = 0; i < 20; i++) {
+			spool.acknowledge(spool.append(createWorkOrder("id" + i)));
+		}
+
+		assertTrue(spool.getNoOfSegments() <= 2, "segments: " + spool.getNoOfSegments());
+		reopen(120, 2);
+		Map<Long, WorkOrder> toReplay = spool.takePendingForReplay();
+		assertEquals(toReplay.size(), 1);
+		assertEquals(toReplay.values().iterator().next().getRecordId(), "old");
+	}
+
+	@Test(expectedExceptions = IndexMessageException.class, expectedExceptionsMessageRegExp = ""
+			+ "Spool full with 2 segments, work order NOT spooled in: .*")
+	public void testAppendDoesNotGrowSpoolPastMaxSegments() throws Exception {
+		spool.close();
+		deleteDirectory();
+		spool = WorkOrderSpool.openUsingDirectorySettingsAndMaxWaitMs(directory, 100, 2, 10000,
+				50);
+		for (int i = 0; i < 4; i++) {
+			spool.append(createWorkOrder("id" + i));
+		}
+		assertEquals(spool.getNoOfSegments(), 2);
+
+		spool.append(createWorkOrder("id4"));
+	}
+
+	@Test
+	public void testAppendWaitsForAcknowledgementsWhenSpoolIsFull() throws Exception {
+		spool.close();
+		deleteDirectory();
+		spool = WorkOrderSpool.openUsingDirectorySettingsAndMaxWaitMs(directory, 100, 2, 10000,
+				5000);
+		long firstId = spool.append(createWorkOrder("id0"));
+		long secondId = spool.append(createWorkOrder("id1"));
+		spool.append(createWorkOrder("id2"));
+		spool.append(createWorkOrder("id3"));
+		Thread acknowledger = new Thread(() -> {
+			sleep(100);
+			spool.acknowledge(firstId);
+			spool.acknowledge(secondId);
+		});
+		acknowledger.start();
+
+		spool.append(createWorkOrder("id4"));
+
+		acknowledger.join();
+		assertEquals(spool.getNoOfPending(), 3);
+		assertTrue(spool.getNoOfSegments() <= 2, "segments: " + spool.getNoOfSegments());
+	}
+
+	private void sleep(long ms) {
+		try {
+			Thread.sleep(ms);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Test(expectedExceptions = IndexMessageException.class, expectedExceptionsMessageRegExp = ""
+			+ "Max segments must be at least 2")
+	public void testMaxSegmentsBelowTwoThrowsError() throws Exception {
+		openSpool(4096, 1);
+	}
+
+	@Test
+	public void testWritesAreForcedToDiskInBatches() throws Exception {
+		spool.close();
+		spool = WorkOrderSpool.openUsingDirectoryAndSettings(directory, 4096, 4, 20);
+
+		for (int i = 0; i < 50; i++) {
+			spool.append(createWorkOrder("id" + i));
+		}
+		assertTrue(spool.getNoOfFsyncs() < 5);
+
+		WorkOrderHandlerSpy.waitUntil(() -> spool.getNoOfFsyncs() >= 1);
+		assertTrue(spool.getNoOfFsyncs() >= 1);
+	}
+
+	@Test
+	public void testSpillAppendsToSpool() throws Exception {
+		spool.spill(createWorkOrder("id1"));
+
+		assertEquals(spool.getNoOfPending(), 1);
+	}
+
+	@Test
+	public void testSpillOfPendingSpooledWorkOrderDoesNotAppendItAgain() throws Exception {
+		WorkOrder workOrder = createWorkOrder("id1");
+		WorkOrder spooled = workOrder.withSpoolEntryId(spool.append(workOrder));
+
+		spool.spill(spooled);
+
+		assertEquals(spool.getNoOfPending(), 1);
+	}
+
+	@Test(expectedExceptions = IndexMessageException.class, expectedExceptionsMessageRegExp = ""
+			+ "Record of \\d+ bytes does not fit in spool segments of 40 bytes")
+	public void testRecordLargerThanSegmentThrowsError() throws Exception {
+		recreate(40, 2);
+
+		spool.append(createWorkOrder("someVeryLongIdThatDoesNotFit"));
+	}
+
+	@Test(expectedExceptions = IndexMessageException.class, expectedExceptionsMessageRegExp = ""
+			+ "Spool is closed: .*")
+	public void testAppendAfterCloseThrowsError() throws Exception {
+		spool.close();
+
+		spool.append(createWorkOrder("id1"));
+	}
+
+	@Test(expectedExceptions = IndexMessageException.class, expectedExceptionsMessageRegExp = ""
+			+ "Could not open spool in: .*")
+	public void testOpenInFileThrowsError() throws Exception {
+		Path file = Files.createFile(directory.resolve("someFile"));
+
+		WorkOrderSpool.openUsingDirectoryAndSettings(file, 4096, 4, 10000);
+	}
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import se.uu.ub.cora.indexmessenger.DeadLetterPublisher;
+import se.uu.ub.cora.indexmessenger.log.LoggerFactorySpy;
+import se.uu.ub.cora.indexmessenger.metrics.IndexMetrics;
+import se.uu.ub.cora.logger.LoggerProvider;
+
+public class WorkOrderStageTest {
+	private WorkOrderHandlerSpy terminalHandler;
+
+	@BeforeMethod
+	public void setUp() {
+		LoggerProvider.setLoggerFactory(new LoggerFactorySpy());
+		terminalHandler = new WorkOrderHandlerSpy();
+	}
+
+	@Test
+	public void testTerminalHandlerHasNoOutstanding() throws Exception {
+		assertEquals(WorkOrderStage.countOutstandingInChain(terminalHandler), 0);
+	}
+
+	@Test
+	public void testOutstandingIsSummedOverAllStages() throws Exception {
+		terminalHandler.blockHandling();
+		VirtualThreadWorkOrderHandler inFlight = VirtualThreadWorkOrderHandler
+				.usingNextHandlerAndMaxInFlight(terminalHandler, 10);
+		CoalescingWorkOrderHandler coalescer = CoalescingWorkOrderHandler
+				.usingNextHandlerAndWindowMs(inFlight, 10000);
+		RecordTypeFilterWorkOrderHandler filter = new RecordTypeFilterWorkOrderHandler(coalescer,
+				RecordTypeFilter.allowingAll(), new IndexMetrics());
+
+		filter.handle(createWorkOrder("someId"));
+		filter.handle(createWorkOrder("someId2"));
+		inFlight.handle(createWorkOrder("someId3"));
+		terminalHandler.waitForNoOfStartedHandlings(1);
+
+		assertEquals(WorkOrderStage.countOutstandingInChain(filter), 3);
+		assertEquals(WorkOrderStage.countOutstandingInChain(inFlight), 1);
+
+		terminalHandler.releaseHandling();
+		coalescer.shutdown();
+		inFlight.shutdown();
+		inFlight.awaitTermination(1000);
+		assertEquals(WorkOrderStage.countOutstandingInChain(filter), 0);
+	}
+
+	private WorkOrder createWorkOrder(String id) {
+		return WorkOrder.usingRecordTypeRecordIdAndModificationType("someType", id, "update");
+	}
+
+	@Test
+	public void testShutdownChainPassesOnHeldWorkOrdersBeforeDeadline() throws Exception {
+		WorkOrderPipeline pipeline = WorkOrderPipeline.usingNextHandlerAndSettings(terminalHandler,
+				10, 1, FullQueuePolicy.BLOCK, null);
+		CoalescingWorkOrderHandler coalescer = CoalescingWorkOrderHandler
+				.usingNextHandlerAndWindowMs(pipeline, 10000);
+		coalescer.handle(createWorkOrder("someId"));
+		coalescer.handle(createWorkOrder("someId2"));
+
+		List<WorkOrder> notPassedOn = WorkOrderStage.shutdownChainWithinMs(coalescer, 5000);
+
+		assertEquals(notPassedOn.size(), 0);
+		assertEquals(terminalHandler.handledWorkOrders.size(), 2);
+	}
+
+	@Test
+	public void testShutdownChainReturnsWorkOrdersLeftAtDeadline() throws Exception {
+		terminalHandler.blockHandling();
+		WorkOrderPipeline pipeline = WorkOrderPipeline.usingNextHandlerAndSettings(terminalHandler,
+				10, 1, FullQueuePolicy.BLOCK, null);
+		pipeline.handle(createWorkOrder("someId"));
+		terminalHandler.waitForNoOfStartedHandlings(1);
+		WorkOrder left = createWorkOrder("someId2");
+		pipeline.handle(left);
+
+		List<WorkOrder> notPassedOn = WorkOrderStage.shutdownChainWithinMs(pipeline, 50);
+
+		assertEquals(notPassedOn, List.of(left));
+		terminalHandler.releaseHandling();
+	}
+
+	@Test
+	public void testShutdownChainOfTerminalHandler() throws Exception {
+		assertEquals(WorkOrderStage.shutdownChainWithinMs(terminalHandler, 0).size(), 0);
+	}
+
+	@Test
+	public void testDeadLetterPublisherIsNotUsedByChainWithoutRetryingStage() throws Exception {
+		RecordTypeFilterWorkOrderHandler filter = new RecordTypeFilterWorkOrderHandler(
+				terminalHandler, RecordTypeFilter.allowingAll(), new IndexMetrics());
+
+		assertFalse(WorkOrderStage.useDeadLetterPublisherInChain(filter,
+				DeadLetterPublisher.none()));
+	}
+
+	@Test
+	public void testNoSpoolIsGivenWithoutSpoolingStageInChain() throws Exception {
+		RecordTypeFilterWorkOrderHandler filter = new RecordTypeFilterWorkOrderHandler(
+				terminalHandler, RecordTypeFilter.allowingAll(), new IndexMetrics());
+
+		WorkOrderStage.useSpoolInChain(filter);
+
+		assertNull(filter.getSpoolAppendedTo());
+		assertNull(filter.getSpool());
+	}
+
+	@Test
+	public void testDeadLetterPublisherIsUsedByRetryingStageInChain() throws Exception {
+		RetryingWorkOrderHandler retrying = RetryingWorkOrderHandler.usingNextHandlerAndSettings(
+				terminalHandler, RetryPolicy.noRetries(), CircuitBreaker
+						.usingFailureThresholdOpenMsAndMetrics(10, 50, new IndexMetrics()),
+				OpenCircuitPolicy.FAIL_FAST);
+		RecordTypeFilterWorkOrderHandler filter = new RecordTypeFilterWorkOrderHandler(retrying,
+				RecordTypeFilter.allowingAll(), new IndexMetrics());
+		DeadLetterPublisher deadLetterPublisher = DeadLetterPublisher.none();
+
+		assertTrue(WorkOrderStage.useDeadLetterPublisherInChain(filter, deadLetterPublisher));
+
+		assertSame(retrying.getDeadLetterPublisher(), deadLetterPublisher);
+		retrying.shutdown();
+	}
+
+	@Test
+	public void testStagesAfterRetryingStageAreNotGivenDeadLetterPublisher() throws Exception {
+		JsonTemplateWorkOrderCreator creator = new JsonTemplateWorkOrderCreator(null,
+				SuccessLogSampling.loggingAll(), new IndexMetrics());
+		RetryingWorkOrderHandler retrying = RetryingWorkOrderHandler.usingNextHandlerAndSettings(
+				creator, RetryPolicy.noRetries(), CircuitBreaker
+						.usingFailureThresholdOpenMsAndMetrics(10, 50, new IndexMetrics()),
+				OpenCircuitPolicy.FAIL_FAST);
+		DeadLetterPublisher deadLetterPublisher = DeadLetterPublisher.none();
+
+		WorkOrderStage.useDeadLetterPublisherInChain(retrying, deadLetterPublisher);
+
+		assertSame(retrying.getDeadLetterPublisher(), deadLetterPublisher);
+		assertNotSame(creator.getDeadLetterPublisher(), deadLetterPublisher);
+		assertFalse(creator.getDeadLetterPublisher().isEnabled());
+		retrying.shutdown();
+	}
+
+	@Test
+	public void testIndexHandlerWithoutRetryingStageIsGivenDeadLetterPublisher()
+			throws Exception {
+		JsonTemplateWorkOrderCreator creator = new JsonTemplateWorkOrderCreator(null,
+				SuccessLogSampling.loggingAll(), new IndexMetrics());
+		RecordTypeFilterWorkOrderHandler filter = new RecordTypeFilterWorkOrderHandler(creator,
+				RecordTypeFilter.allowingAll(), new IndexMetrics());
+		DeadLetterPublisher deadLetterPublisher = DeadLetterPublisher.none();
+
+		assertFalse(WorkOrderStage.useDeadLetterPublisherInChain(filter, deadLetterPublisher));
+
+		assertSame(creator.getDeadLetterPublisher(), deadLetterPublisher);
+	}
+}
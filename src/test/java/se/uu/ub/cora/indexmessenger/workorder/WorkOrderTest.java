@@ -0,0 +1,124 @@
+/*
+ * Copyright 2026 Uppsala University Library
+ *
+ * This file is part of Cora.
+ *
+ *     Cora is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Cora is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU General Public License for more details.
+ *
+ *     You should have received a copy of the GNU General Public License
+ *     along with Cora.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package se.uu.ub.cora.indexmessenger.workorder;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+import java.util.Map;
+
+import org.testng.annotations.Test;
+
+public class WorkOrderTest {
+
+	@Test
+	public void testInit() {
+		WorkOrder workOrder = WorkOrder.usingRecordTypeRecordIdAndModificationType("someType",
+				"someId", "update");
+		assertEquals(workOrder.getRecordType(), "someType");
+		assertEquals(workOrder.getRecordId(), "someId");
+		assertEquals(workOrder.getModificationType(), "update");
+	}
+
+	@Test
+	public void testWorkOrderTypeIsIndexForUpdate() {
+		WorkOrder workOrder = WorkOrder.usingRecordTypeRecordIdAndModificationType("someType",
+				"someId", "update");
+		assertEquals(workOrder.getWorkOrderType(), "index");
+		assertFalse(workOrder.isDelete());
+	}
+
+	@Test
+	public void testWorkOrderTypeIsRemoveFromIndexForDelete() {
+		WorkOrder workOrder = WorkOrder.usingRecordTypeRecordIdAndModificationType("someType",
+				"someId", "delete");
+		assertEquals(workOrder.getWorkOrderType(), "removeFromIndex");
+		assertTrue(workOrder.isDelete());
+	}
+
+	@Test
+	public void testDefaultPriorityIsNormal() {
+		WorkOrder workOrder = WorkOrder.usingRecordTypeRecordIdAndModificationType("someType",
+				"someId", "update");
+		assertEquals(workOrder.getPriority(), WorkOrderPriority.NORMAL);
+		assertSame(workOrder.withPriority(WorkOrderPriority.NORMAL), workOrder);
+	}
+
+	@Test
+	public void testWithPriority() {
+		WorkOrder workOrder = WorkOrder.usingRecordTypeRecordIdAndModificationType("someType",
+				"someId", "delete");
+
+		WorkOrder highPriority = workOrder.withPriority(WorkOrderPriority.HIGH);
+
+		assertEquals(highPriority.getPriority(), WorkOrderPriority.HIGH);
+		assertEquals(highPriority.getRecordType(), "someType");
+		assertEquals(highPriority.getRecordId(), "someId");
+		assertEquals(highPriority.getModificationType(), "delete");
+		assertEquals(workOrder.getPriority(), WorkOrderPriority.NORMAL);
+	}
+
+	@Test
+	public void testSourceMessageIsNotKeptByDefault() {
+		WorkOrder workOrder = WorkOrder.usingRecordTypeRecordIdAndModificationType("someType",
+				"someId", "update");
+		assertNull(workOrder.getSourceHeaders());
+		assertNull(workOrder.getSourceMessage());
+	}
+
+	@Test
+	public void testWithSourceMessageIsKeptWithPriority() {
+		Map<String, String> headers = Map.of("PID", "alvin-place:1");
+		WorkOrder workOrder = WorkOrder
+				.usingRecordTypeRecordIdAndModificationType("someType", "someId", "update")
+				.withSourceMessage(headers, "someMessage");
+
+		WorkOrder highPriority = workOrder.withPriority(WorkOrderPriority.HIGH);
+
+		assertSame(highPriority.getSourceHeaders(), headers);
+		assertEquals(highPriority.getSourceMessage(), "someMessage");
+		assertEquals(highPriority.getRecordId(), "someId");
+		assertEquals(workOrder.getPriority(), WorkOrderPriority.NORMAL);
+	}
+
+	@Test
+	public void testNotSpooledByDefault() {
+		WorkOrder workOrder = WorkOrder.usingRecordTypeRecordIdAndModificationType("someType",
+				"someId", "update");
+		assertFalse(workOrder.isSpooled());
+		assertEquals(workOrder.getSpoolEntryId(), 0);
+	}
+
+	@Test
+	public void testWithSpoolEntryIdIsKeptWithPriorityAndSourceMessage() {
+		WorkOrder workOrder = WorkOrder
+				.usingRecordTypeRecordIdAndModificationType("someType", "someId", "update")
+				.withSpoolEntryId(17);
+
+		WorkOrder changed = workOrder.withPriority(WorkOrderPriority.HIGH)
+				.withSourceMessage(Map.of(), "someMessage");
+
+		assertTrue(changed.isSpooled());
+		assertEquals(changed.getSpoolEntryId(), 17);
+		assertEquals(changed.getRecordId(), "someId");
+	}
+}